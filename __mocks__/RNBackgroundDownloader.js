@@ -12,6 +12,18 @@ NativeModules.RNBackgroundDownloader = {
     addListener: jest.fn(),
     removeListeners: jest.fn(),
     download: jest.fn(),
+    downloadFile: jest.fn(),
+    cancelDownload: jest.fn(),
+    setConfig: jest.fn(),
+    acknowledgeProgress: jest.fn(),
+    getEventMetrics: jest.fn(),
+    getNetworkMetrics: jest.fn(),
+    getHostQueues: jest.fn(),
+    touchStorageFile: jest.fn(),
+    getTaskStatuses: jest.fn(),
+    getTaskStatusesSync: jest.fn(),
+    setGroupConfig: jest.fn(),
+    readRange: jest.fn(),
     pauseTask: jest.fn(),
     resumeTask: jest.fn(),
     stopTask: jest.fn(),
@@ -0,0 +1,10 @@
+import { NativeModules } from 'react-native'
+
+// The options object of the last downloadFile call, which is its last argument.
+export const lastDownloadFileOptions = () => {
+  const calls = NativeModules.RNBackgroundDownloader.downloadFile.mock.calls
+  return calls[calls.length - 1][11]
+}
+
+// Lets pending promise callbacks run, e.g. those of a rejected downloadFile.
+export const flushPromises = () => new Promise(resolve => setImmediate(resolve))
@@ -0,0 +1,64 @@
+/**
+ * Tests for the coalesce option (Android)
+ */
+
+import RNBackgroundDownloader from '../src/index'
+import { NativeModules, NativeEventEmitter } from 'react-native'
+import { lastDownloadFileOptions } from '../__mocks__/testUtils'
+
+const RNBackgroundDownloaderNative = NativeModules.RNBackgroundDownloader
+const nativeEmitter = new NativeEventEmitter(RNBackgroundDownloaderNative)
+
+const downloadPoster = (id, options = {}) => RNBackgroundDownloader.download({
+  id,
+  url: 'https://example.com/poster.jpg',
+  destination: `/tmp/${id}.jpg`,
+  ...options,
+})
+
+describe('coalesce option', () => {
+  beforeEach(() => {
+    jest.clearAllMocks()
+  })
+
+  test.each([
+    [undefined, {}],
+    [true, {}],
+    [false, { coalesce: false }],
+  ])('coalesce: %p sends %p', (coalesce, nativeOptions) => {
+    downloadPoster('poster-option', { coalesce })
+
+    expect(lastDownloadFileOptions()).toEqual(nativeOptions)
+  })
+
+  test('downloads sharing a transfer each get the outcome for their own destination', () => {
+    const first = jest.fn()
+    const second = jest.fn()
+    downloadPoster('poster-first').done(first)
+    downloadPoster('poster-second').done(second)
+
+    // Native sends the outcome of the shared transfer once per id.
+    nativeEmitter.emit('downloadComplete', { id: 'poster-first', location: '/tmp/poster-first.jpg', bytesDownloaded: 10, bytesTotal: 10 })
+    expect(first).toHaveBeenCalledWith({ location: '/tmp/poster-first.jpg', bytesDownloaded: 10, bytesTotal: 10 })
+    expect(second).not.toHaveBeenCalled()
+
+    nativeEmitter.emit('downloadComplete', { id: 'poster-second', location: '/tmp/poster-second.jpg', bytesDownloaded: 10, bytesTotal: 10 })
+    expect(second).toHaveBeenCalledWith({ location: '/tmp/poster-second.jpg', bytesDownloaded: 10, bytesTotal: 10 })
+    expect(first).toHaveBeenCalledTimes(1)
+  })
+
+  test('stopping one of them leaves the other waiting for the transfer', () => {
+    const done = jest.fn()
+    const stopped = downloadPoster('poster-stopped')
+    const kept = downloadPoster('poster-kept').done(done)
+
+    stopped.stop()
+
+    expect(RNBackgroundDownloaderNative.cancelDownload).toHaveBeenCalledTimes(1)
+    expect(RNBackgroundDownloaderNative.cancelDownload).toHaveBeenCalledWith('poster-stopped')
+    nativeEmitter.emit('downloadComplete', { id: 'poster-kept', location: '/tmp/poster-kept.jpg', bytesDownloaded: 10, bytesTotal: 10 })
+    expect(done).toHaveBeenCalled()
+    expect(kept.state).toBe('DONE')
+    expect(stopped.state).toBe('STOPPED')
+  })
+})
@@ -0,0 +1,51 @@
+/**
+ * Tests for the encrypt option (Android)
+ */
+
+import RNBackgroundDownloader from '../src/index'
+import { NativeModules } from 'react-native'
+import { flushPromises, lastDownloadFileOptions } from '../__mocks__/testUtils'
+
+const RNBackgroundDownloaderNative = NativeModules.RNBackgroundDownloader
+
+describe('encrypt option', () => {
+  beforeEach(() => {
+    jest.clearAllMocks()
+  })
+
+  test('the key alias and mode are passed to native', () => {
+    const encrypt = { keyAlias: 'downloads', mode: 'ctr' }
+
+    RNBackgroundDownloader.download({
+      id: 'encrypted',
+      url: 'https://example.com/episode.mp4',
+      destination: '/tmp/episode.enc',
+      encrypt,
+    })
+
+    expect(lastDownloadFileOptions()).toEqual({ encrypt })
+  })
+
+  test('an encrypt option native rejects fails the task', async () => {
+    RNBackgroundDownloaderNative.downloadFile.mockRejectedValueOnce(
+      new Error("encrypt needs a keyAlias and a mode of 'gcm' or 'ctr', and can't be combined with extract"))
+    const error = jest.fn()
+    const done = jest.fn()
+
+    const task = RNBackgroundDownloader.download({
+      id: 'encrypted-extract',
+      url: 'https://example.com/bundle.zip',
+      destination: '/tmp/bundle',
+      extract: true,
+      encrypt: { keyAlias: 'downloads' },
+    }).error(error).done(done)
+    await flushPromises()
+
+    expect(error).toHaveBeenCalledWith({
+      error: "encrypt needs a keyAlias and a mode of 'gcm' or 'ctr', and can't be combined with extract",
+      errorCode: -1,
+    })
+    expect(done).not.toHaveBeenCalled()
+    expect(task.state).toBe('FAILED')
+  })
+})
@@ -0,0 +1,67 @@
+/**
+ * Tests for the extract option (Android)
+ */
+
+import RNBackgroundDownloader from '../src/index'
+import { NativeModules, NativeEventEmitter } from 'react-native'
+import { lastDownloadFileOptions } from '../__mocks__/testUtils'
+
+const RNBackgroundDownloaderNative = NativeModules.RNBackgroundDownloader
+const nativeEmitter = new NativeEventEmitter(RNBackgroundDownloaderNative)
+
+describe('extract option', () => {
+  beforeEach(() => {
+    jest.clearAllMocks()
+  })
+
+  test.each([
+    [true, 'auto'],
+    ['tar.gz', 'tar.gz'],
+  ])('extract: %p asks native for %p', (extract, format) => {
+    RNBackgroundDownloader.download({
+      id: 'bundle-format',
+      url: 'https://example.com/bundle',
+      destination: '/tmp/bundle',
+      extract,
+    })
+
+    expect(lastDownloadFileOptions()).toEqual({ extract: format })
+  })
+
+  test('extractProgress events reach the task they are for', () => {
+    const bundleHandler = jest.fn()
+    const otherHandler = jest.fn()
+    RNBackgroundDownloader.download({
+      id: 'bundle-progress',
+      url: 'https://example.com/bundle.zip',
+      destination: '/tmp/bundle',
+      extract: true,
+    }).extractProgress(bundleHandler)
+    RNBackgroundDownloader.download({
+      id: 'bundle-other',
+      url: 'https://example.com/other.zip',
+      destination: '/tmp/other',
+      extract: true,
+    }).extractProgress(otherHandler)
+
+    nativeEmitter.emit('extractProgress', { id: 'bundle-progress', entry: 'a/b.txt', entriesExtracted: 1, bytesExtracted: 5 })
+
+    expect(bundleHandler).toHaveBeenCalledWith({ entry: 'a/b.txt', entriesExtracted: 1, bytesExtracted: 5 })
+    expect(otherHandler).not.toHaveBeenCalled()
+  })
+
+  test('an archive that fails to extract fails its task', () => {
+    const error = jest.fn()
+    const task = RNBackgroundDownloader.download({
+      id: 'bundle-traversal',
+      url: 'https://example.com/evil.tar',
+      destination: '/tmp/bundle',
+      extract: 'tar',
+    }).error(error)
+
+    nativeEmitter.emit('downloadFailed', { id: 'bundle-traversal', error: 'Archive entry is outside of the destination: ../evil', errorCode: 1004 })
+
+    expect(error).toHaveBeenCalledWith({ error: 'Archive entry is outside of the destination: ../evil', errorCode: 1004 })
+    expect(task.state).toBe('FAILED')
+  })
+})
@@ -0,0 +1,99 @@
+/**
+ * Tests for aggregated group progress (Android)
+ */
+
+const mockNativeModule = {
+  checkForExistingDownloads: jest.fn().mockResolvedValue([]),
+  completeHandler: jest.fn(),
+  downloadFile: jest.fn(),
+  setGroupConfig: jest.fn(),
+  addListener: jest.fn(),
+  removeListeners: jest.fn(),
+}
+
+const mockEmitterInstance = {
+  addListener: jest.fn(),
+}
+
+function loadModule () {
+  jest.resetModules()
+  jest.clearAllMocks()
+  jest.doMock('react-native', () => ({
+    TurboModuleRegistry: {
+      getEnforcing: jest.fn().mockReturnValue(mockNativeModule),
+    },
+    NativeModules: {
+      RNBackgroundDownloader: mockNativeModule,
+    },
+    NativeEventEmitter: jest.fn().mockReturnValue(mockEmitterInstance),
+    Platform: {
+      OS: 'android',
+      select: options => options.android,
+    },
+  }))
+  return require('../src/index')
+}
+
+function emit (eventName, payload) {
+  const call = mockEmitterInstance.addListener.mock.calls.find(([name]) => name === eventName)
+  call[1](payload)
+}
+
+const report = {
+  group: 'course-1',
+  bytesDownloaded: 50,
+  bytesTotal: 200,
+  tasksTotal: 3,
+  tasksCompleted: 1,
+  tasksFailed: 0,
+  bytesPerSecond: 10,
+  eta: 15,
+}
+
+describe('groupProgress', () => {
+  test('handlers receive the reports of their group only', () => {
+    const { onGroupProgress } = loadModule()
+    const courseHandler = jest.fn()
+    const otherHandler = jest.fn()
+    onGroupProgress('course-1', courseHandler)
+    onGroupProgress('course-2', otherHandler)
+
+    emit('groupProgress', [report])
+
+    expect(courseHandler).toHaveBeenCalledWith(report)
+    expect(otherHandler).not.toHaveBeenCalled()
+  })
+
+  test('the returned function unsubscribes the handler', () => {
+    const { onGroupProgress } = loadModule()
+    const handler = jest.fn()
+    const unsubscribe = onGroupProgress('course-1', handler)
+
+    unsubscribe()
+    emit('groupProgress', [report])
+
+    expect(handler).not.toHaveBeenCalled()
+  })
+
+  test('memberProgress is passed to native with the group config', () => {
+    const { setGroupConfig } = loadModule()
+
+    setGroupConfig('course-1', { memberProgress: false })
+
+    expect(mockNativeModule.setGroupConfig).toHaveBeenCalledWith('course-1', { memberProgress: false })
+  })
+
+  test('the group is passed to native for DownloadManager downloads too', () => {
+    const { download } = loadModule()
+
+    download({
+      id: 'lesson-1',
+      url: 'https://example.com/lesson-1.mp4',
+      destination: '/tmp/lesson-1.mp4',
+      group: 'course-1',
+    })
+
+    const calls = mockNativeModule.downloadFile.mock.calls
+    expect(calls[calls.length - 1][11]).toEqual({ group: 'course-1' })
+  })
+})
@@ -0,0 +1,73 @@
+/**
+ * Tests for the per-host limits of DownloadManager downloads (Android)
+ */
+
+const mockNativeModule = {
+  checkForExistingDownloads: jest.fn().mockResolvedValue([]),
+  completeHandler: jest.fn(),
+  downloadFile: jest.fn(),
+  setConfig: jest.fn(),
+  getHostQueues: jest.fn(),
+  addListener: jest.fn(),
+  removeListeners: jest.fn(),
+}
+
+function loadModule (os = 'android') {
+  jest.resetModules()
+  jest.clearAllMocks()
+  jest.doMock('react-native', () => ({
+    TurboModuleRegistry: {
+      getEnforcing: jest.fn().mockReturnValue(mockNativeModule),
+    },
+    NativeModules: {
+      RNBackgroundDownloader: mockNativeModule,
+    },
+    NativeEventEmitter: jest.fn().mockReturnValue({ addListener: jest.fn() }),
+    Platform: {
+      OS: os,
+      select: options => options[os],
+    },
+  }))
+  return require('../src/index')
+}
+
+describe('host limits', () => {
+  test('setConfig passes the limits to native', () => {
+    const { setConfig } = loadModule()
+    const hostLimits = { maxConcurrent: 8, maxPerHost: 4, hosts: { 'origin.example.com': 2 } }
+
+    setConfig({ hostLimits })
+
+    expect(mockNativeModule.setConfig).toHaveBeenCalledWith({ hostLimits })
+  })
+
+  test('invalid limits are rejected', () => {
+    const { setConfig } = loadModule()
+    const warn = jest.spyOn(console, 'warn').mockImplementation(() => {})
+
+    setConfig({ hostLimits: { maxPerHost: -1 } })
+    setConfig({ hostLimits: { hosts: { 'origin.example.com': 1.5 } } })
+
+    expect(mockNativeModule.setConfig).not.toHaveBeenCalled()
+    expect(warn).toHaveBeenCalledTimes(2)
+    warn.mockRestore()
+  })
+
+  test('getHostQueues resolves the queues of native', async () => {
+    const { getHostQueues } = loadModule()
+    const queues = [
+      { host: 'cdn.example.com', running: 4, queued: 120, limit: 4 },
+      { host: 'origin.example.com', running: 2, queued: 0, limit: 2 },
+    ]
+    mockNativeModule.getHostQueues.mockResolvedValueOnce(queues)
+
+    await expect(getHostQueues()).resolves.toEqual(queues)
+  })
+
+  test('getHostQueues resolves null on iOS', async () => {
+    const { getHostQueues } = loadModule('ios')
+
+    await expect(getHostQueues()).resolves.toBeNull()
+    expect(mockNativeModule.getHostQueues).not.toHaveBeenCalled()
+  })
+})
@@ -0,0 +1,58 @@
+/**
+ * Tests for the inline engine for small files (Android)
+ */
+
+import RNBackgroundDownloader from '../src/index'
+import { NativeModules } from 'react-native'
+import { lastDownloadFileOptions } from '../__mocks__/testUtils'
+
+const RNBackgroundDownloaderNative = NativeModules.RNBackgroundDownloader
+
+describe('inline engine', () => {
+  beforeEach(() => {
+    jest.clearAllMocks()
+  })
+
+  test('the engine is passed to native', () => {
+    RNBackgroundDownloader.download({
+      id: 'inline-thumbnail',
+      url: 'https://example.com/thumbnail.jpg',
+      destination: '/tmp/thumbnail.jpg',
+      engine: 'inline',
+    })
+
+    expect(lastDownloadFileOptions()).toEqual({ engine: 'inline' })
+  })
+
+  test('setConfig passes the size limit to native', () => {
+    RNBackgroundDownloader.setConfig({ inlineMaxBytes: 512 * 1024 })
+
+    expect(RNBackgroundDownloaderNative.setConfig).toHaveBeenCalledWith({ inlineMaxBytes: 512 * 1024 })
+  })
+
+  test('an invalid size limit is rejected', () => {
+    const warn = jest.spyOn(console, 'warn').mockImplementation(() => {})
+
+    RNBackgroundDownloader.setConfig({ inlineMaxBytes: 0 })
+
+    expect(RNBackgroundDownloaderNative.setConfig).not.toHaveBeenCalled()
+    expect(warn).toHaveBeenCalled()
+    warn.mockRestore()
+  })
+
+  test('setConfig passes the concurrency bounds to native', () => {
+    RNBackgroundDownloader.setConfig({ inlineConcurrency: { max: 8 } })
+
+    expect(RNBackgroundDownloaderNative.setConfig).toHaveBeenCalledWith({ inlineConcurrency: { min: 1, max: 8 } })
+  })
+
+  test('concurrency bounds out of order are rejected', () => {
+    const warn = jest.spyOn(console, 'warn').mockImplementation(() => {})
+
+    RNBackgroundDownloader.setConfig({ inlineConcurrency: { min: 6, max: 2 } })
+
+    expect(RNBackgroundDownloaderNative.setConfig).not.toHaveBeenCalled()
+    expect(warn).toHaveBeenCalled()
+    warn.mockRestore()
+  })
+})
@@ -0,0 +1,86 @@
+/**
+ * Tests for managed storage with a quota (Android)
+ */
+
+const mockNativeModule = {
+  checkForExistingDownloads: jest.fn().mockResolvedValue([]),
+  completeHandler: jest.fn(),
+  downloadFile: jest.fn(),
+  setConfig: jest.fn(),
+  touchStorageFile: jest.fn(),
+  addListener: jest.fn(),
+  removeListeners: jest.fn(),
+}
+const mockListeners = {}
+
+function loadModule (os = 'android') {
+  jest.resetModules()
+  jest.clearAllMocks()
+  jest.doMock('react-native', () => ({
+    TurboModuleRegistry: {
+      getEnforcing: jest.fn().mockReturnValue(mockNativeModule),
+    },
+    NativeModules: {
+      RNBackgroundDownloader: mockNativeModule,
+    },
+    NativeEventEmitter: jest.fn().mockReturnValue({
+      addListener: jest.fn((eventName, listener) => {
+        mockListeners[eventName] = listener
+      }),
+    }),
+    Platform: {
+      OS: os,
+      select: options => options[os],
+    },
+  }))
+  return require('../src/index')
+}
+
+describe('managed storage', () => {
+  test('setConfig passes the storage settings to native', () => {
+    const { setConfig } = loadModule()
+    const storage = { directory: '/data/cache', quota: 1024 * 1024 }
+
+    setConfig({ storage })
+
+    expect(mockNativeModule.setConfig).toHaveBeenCalledWith({ storage })
+  })
+
+  test('invalid storage settings are rejected', () => {
+    const { setConfig } = loadModule()
+    const warn = jest.spyOn(console, 'warn').mockImplementation(() => {})
+
+    setConfig({ storage: { directory: '/data/cache' } })
+    setConfig({ storage: { directory: '', quota: 1024 } })
+    setConfig({ storage: { directory: '/data/cache', quota: -1 } })
+
+    expect(mockNativeModule.setConfig).not.toHaveBeenCalled()
+    expect(warn).toHaveBeenCalledTimes(3)
+    warn.mockRestore()
+  })
+
+  test('evictions are passed to every handler until it is removed', () => {
+    const { onStorageEviction } = loadModule()
+    const handler = jest.fn()
+    const remove = onStorageEviction(handler)
+    const evictions = [
+      { path: '/data/cache/a.mp4', size: 100, lastAccessedAt: 1 },
+      { path: '/data/cache/b.mp4', size: 200, lastAccessedAt: 2 },
+    ]
+
+    mockListeners.storageEviction(evictions)
+    remove()
+    mockListeners.storageEviction(evictions)
+
+    expect(handler).toHaveBeenCalledTimes(2)
+    expect(handler).toHaveBeenCalledWith(evictions[1])
+  })
+
+  test('touchStorageFile is only sent on Android', () => {
+    loadModule().touchStorageFile('/data/cache/a.mp4')
+    expect(mockNativeModule.touchStorageFile).toHaveBeenCalledWith('/data/cache/a.mp4')
+
+    loadModule('ios').touchStorageFile('/data/cache/a.mp4')
+    expect(mockNativeModule.touchStorageFile).not.toHaveBeenCalled()
+  })
+})
@@ -0,0 +1,71 @@
+/**
+ * Tests for the mirrors option (Android)
+ */
+
+import RNBackgroundDownloader from '../src/index'
+import { NativeModules, NativeEventEmitter } from 'react-native'
+import { flushPromises, lastDownloadFileOptions } from '../__mocks__/testUtils'
+
+const RNBackgroundDownloaderNative = NativeModules.RNBackgroundDownloader
+const nativeEmitter = new NativeEventEmitter(RNBackgroundDownloaderNative)
+
+describe('mirrors option', () => {
+  beforeEach(() => {
+    jest.clearAllMocks()
+  })
+
+  test('the mirrors are passed to native', () => {
+    const mirrors = ['https://cdn-b.example.com/episode.mp4', 'https://cdn-c.example.com/episode.mp4']
+
+    RNBackgroundDownloader.download({
+      id: 'mirrors',
+      url: 'https://cdn-a.example.com/episode.mp4',
+      destination: '/tmp/episode.mp4',
+      mirrors,
+    })
+
+    expect(lastDownloadFileOptions()).toEqual({ mirrors })
+  })
+
+  test('mirror events reach the task they are for', () => {
+    const episodeHandler = jest.fn()
+    const trailerHandler = jest.fn()
+    RNBackgroundDownloader.download({
+      id: 'mirrors-episode',
+      url: 'https://cdn-a.example.com/episode.mp4',
+      destination: '/tmp/episode.mp4',
+      mirrors: ['https://cdn-b.example.com/episode.mp4'],
+    }).mirror(episodeHandler)
+    RNBackgroundDownloader.download({
+      id: 'mirrors-trailer',
+      url: 'https://cdn-a.example.com/trailer.mp4',
+      destination: '/tmp/trailer.mp4',
+      mirrors: ['https://cdn-b.example.com/trailer.mp4'],
+    }).mirror(trailerHandler)
+
+    nativeEmitter.emit('downloadMirror', { id: 'mirrors-episode', url: 'https://cdn-a.example.com/episode.mp4', failovers: 0 })
+    nativeEmitter.emit('downloadMirror', { id: 'mirrors-episode', url: 'https://cdn-b.example.com/episode.mp4', failovers: 1 })
+
+    expect(episodeHandler.mock.calls).toEqual([
+      [{ url: 'https://cdn-a.example.com/episode.mp4', failovers: 0 }],
+      [{ url: 'https://cdn-b.example.com/episode.mp4', failovers: 1 }],
+    ])
+    expect(trailerHandler).not.toHaveBeenCalled()
+  })
+
+  test('mirrors native rejects fail the task', async () => {
+    RNBackgroundDownloaderNative.downloadFile.mockRejectedValueOnce(new Error("mirrors can't be combined with extract"))
+    const error = jest.fn()
+
+    RNBackgroundDownloader.download({
+      id: 'mirrors-extract',
+      url: 'https://cdn-a.example.com/bundle.zip',
+      destination: '/tmp/bundle',
+      extract: true,
+      mirrors: ['https://cdn-b.example.com/bundle.zip'],
+    }).error(error)
+    await flushPromises()
+
+    expect(error).toHaveBeenCalledWith({ error: "mirrors can't be combined with extract", errorCode: -1 })
+  })
+})
@@ -0,0 +1,80 @@
+/**
+ * Tests for the shared connection pool settings and network metrics (Android)
+ */
+
+const mockNativeModule = {
+  checkForExistingDownloads: jest.fn().mockResolvedValue([]),
+  completeHandler: jest.fn(),
+  downloadFile: jest.fn(),
+  setConfig: jest.fn(),
+  getNetworkMetrics: jest.fn(),
+  addListener: jest.fn(),
+  removeListeners: jest.fn(),
+}
+
+function loadModule (os = 'android') {
+  jest.resetModules()
+  jest.clearAllMocks()
+  jest.doMock('react-native', () => ({
+    TurboModuleRegistry: {
+      getEnforcing: jest.fn().mockReturnValue(mockNativeModule),
+    },
+    NativeModules: {
+      RNBackgroundDownloader: mockNativeModule,
+    },
+    NativeEventEmitter: jest.fn().mockReturnValue({ addListener: jest.fn() }),
+    Platform: {
+      OS: os,
+      select: options => options[os],
+    },
+  }))
+  return require('../src/index')
+}
+
+describe('network pool', () => {
+  test('setConfig passes the pool settings to native', () => {
+    const { setConfig } = loadModule()
+    const network = { maxRequestsPerHost: 4, dnsCacheTtl: 30000, http2: false }
+
+    setConfig({ network })
+
+    expect(mockNativeModule.setConfig).toHaveBeenCalledWith({ network })
+  })
+
+  test('invalid pool settings are rejected', () => {
+    const { setConfig } = loadModule()
+    const warn = jest.spyOn(console, 'warn').mockImplementation(() => {})
+
+    setConfig({ network: 4 })
+
+    expect(mockNativeModule.setConfig).not.toHaveBeenCalled()
+    expect(warn).toHaveBeenCalled()
+    warn.mockRestore()
+  })
+
+  test('getNetworkMetrics resolves the native counters', async () => {
+    const { getNetworkMetrics } = loadModule()
+    const metrics = {
+      requests: 10,
+      http2Requests: 8,
+      connectionsOpened: 2,
+      connectionsReused: 8,
+      poolHitRate: 0.8,
+      averageConnectMs: 42.5,
+      dnsCacheHits: 1,
+      dnsCacheMisses: 1,
+      connectionCount: 1,
+      idleConnectionCount: 1,
+    }
+    mockNativeModule.getNetworkMetrics.mockResolvedValueOnce(metrics)
+
+    await expect(getNetworkMetrics()).resolves.toEqual(metrics)
+  })
+
+  test('getNetworkMetrics resolves null on iOS', async () => {
+    const { getNetworkMetrics } = loadModule('ios')
+
+    await expect(getNetworkMetrics()).resolves.toBeNull()
+    expect(mockNativeModule.getNetworkMetrics).not.toHaveBeenCalled()
+  })
+})
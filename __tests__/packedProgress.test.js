@@ -0,0 +1,115 @@
+/**
+ * Tests for the packed progress format
+ */
+
+const mockNativeModule = {
+  checkForExistingDownloads: jest.fn().mockResolvedValue([]),
+  completeHandler: jest.fn(),
+  downloadFile: jest.fn(),
+  setConfig: jest.fn(),
+  addListener: jest.fn(),
+  removeListeners: jest.fn(),
+}
+
+const mockEmitterInstance = {
+  addListener: jest.fn(),
+}
+
+function loadModule () {
+  jest.resetModules()
+  jest.clearAllMocks()
+  jest.doMock('react-native', () => ({
+    TurboModuleRegistry: {
+      getEnforcing: jest.fn().mockReturnValue(mockNativeModule),
+    },
+    NativeModules: {
+      RNBackgroundDownloader: mockNativeModule,
+    },
+    NativeEventEmitter: jest.fn().mockReturnValue(mockEmitterInstance),
+    Platform: {
+      OS: 'android',
+      select: options => options.android,
+    },
+  }))
+  return require('../src/index')
+}
+
+function emit (eventName, payload) {
+  const call = mockEmitterInstance.addListener.mock.calls.find(([name]) => name === eventName)
+  call[1](payload)
+}
+
+function startDownload (download, id) {
+  const task = download({ id, url: `https://example.com/${id}`, destination: `/tmp/${id}` })
+  const handler = jest.fn()
+  task.progress(handler)
+  return handler
+}
+
+describe('packed progress', () => {
+  test('setConfig passes the format to native', () => {
+    const { setConfig } = loadModule()
+
+    setConfig({ progressFormat: 'packed' })
+
+    expect(mockNativeModule.setConfig).toHaveBeenCalledWith({ progressFormat: 'packed' })
+  })
+
+  test('an unknown format is rejected', () => {
+    const { setConfig } = loadModule()
+    const warn = jest.spyOn(console, 'warn').mockImplementation(() => {})
+
+    setConfig({ progressFormat: 'json' })
+
+    expect(mockNativeModule.setConfig).not.toHaveBeenCalled()
+    expect(warn).toHaveBeenCalled()
+    warn.mockRestore()
+  })
+
+  test('batches are unpacked with the announced ids', () => {
+    const { download } = loadModule()
+    const first = startDownload(download, 'first')
+    const second = startDownload(download, 'second')
+
+    emit('downloadProgressPacked', {
+      index: [0, 1],
+      bytesDownloaded: [10, 20],
+      bytesTotal: [100, 200],
+      announcedIndex: [0, 1],
+      announcedId: ['first', 'second'],
+    })
+    // Later batches only carry the indexes.
+    emit('downloadProgressPacked', {
+      index: [1],
+      bytesDownloaded: [40],
+      bytesTotal: [200],
+    })
+
+    expect(first).toHaveBeenCalledWith({ bytesDownloaded: 10, bytesTotal: 100, bytesAvailable: 10 })
+    expect(second).toHaveBeenLastCalledWith({ bytesDownloaded: 40, bytesTotal: 200, bytesAvailable: 40 })
+  })
+
+  test('a reused index is mapped to the newly announced id', () => {
+    const { download } = loadModule()
+    const first = startDownload(download, 'first')
+    const third = startDownload(download, 'third')
+
+    emit('downloadProgressPacked', {
+      index: [0],
+      bytesDownloaded: [10],
+      bytesTotal: [100],
+      announcedIndex: [0],
+      announcedId: ['first'],
+    })
+    emit('downloadProgressPacked', {
+      index: [0],
+      bytesDownloaded: [5],
+      bytesTotal: [50],
+      announcedIndex: [0],
+      announcedId: ['third'],
+    })
+
+    expect(first).toHaveBeenCalledTimes(1)
+    expect(third).toHaveBeenCalledWith({ bytesDownloaded: 5, bytesTotal: 50, bytesAvailable: 5 })
+  })
+})
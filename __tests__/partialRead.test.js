@@ -0,0 +1,56 @@
+/**
+ * Tests for reading partially downloaded files (Android)
+ */
+
+import RNBackgroundDownloader from '../src/index'
+import { NativeModules } from 'react-native'
+
+const RNBackgroundDownloaderNative = NativeModules.RNBackgroundDownloader
+
+describe('partial reads', () => {
+  beforeEach(() => {
+    jest.clearAllMocks()
+  })
+
+  test('begin stores the partial path', () => {
+    const task = RNBackgroundDownloader.download({
+      id: 'partial-begin',
+      url: 'https://example.com/movie.mp4',
+      destination: '/tmp/movie.mp4',
+    })
+
+    task.onBegin({ expectedBytes: 100, headers: {}, partialPath: '/tmp/partial/movie.mp4' })
+
+    expect(task.partialPath).toBe('/tmp/partial/movie.mp4')
+  })
+
+  test('progress passes bytesAvailable and falls back to bytesDownloaded', () => {
+    const task = RNBackgroundDownloader.download({
+      id: 'partial-progress',
+      url: 'https://example.com/movie.mp4',
+      destination: '/tmp/movie.mp4',
+    })
+
+    const handler = jest.fn()
+    task.progress(handler)
+
+    task.onProgress({ bytesDownloaded: 50, bytesTotal: 100, bytesAvailable: 40 })
+    expect(handler).toHaveBeenLastCalledWith({ bytesDownloaded: 50, bytesTotal: 100, bytesAvailable: 40 })
+
+    task.onProgress({ bytesDownloaded: 60, bytesTotal: 100 })
+    expect(task.bytesAvailable).toBe(60)
+  })
+
+  test('readRange asks native for the range with the default timeout', async () => {
+    RNBackgroundDownloaderNative.readRange.mockResolvedValueOnce('AAEC')
+
+    const task = RNBackgroundDownloader.download({
+      id: 'partial-read',
+      url: 'https://example.com/movie.mp4',
+      destination: '/tmp/movie.mp4',
+    })
+
+    await expect(task.readRange(0, 3)).resolves.toBe('AAEC')
+    expect(RNBackgroundDownloaderNative.readRange).toHaveBeenCalledWith('partial-read', 0, 3, 30000)
+  })
+})
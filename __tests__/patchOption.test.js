@@ -0,0 +1,25 @@
+/**
+ * Tests for the patchFrom option (Android)
+ */
+
+import RNBackgroundDownloader from '../src/index'
+import { lastDownloadFileOptions } from '../__mocks__/testUtils'
+
+describe('patchFrom option', () => {
+  beforeEach(() => {
+    jest.clearAllMocks()
+  })
+
+  test('the patch is passed to native', () => {
+    const patchFrom = { url: 'https://example.com/v1-to-v2.patch', sha256: 'ab'.repeat(32) }
+
+    RNBackgroundDownloader.download({
+      id: 'patch',
+      url: 'https://example.com/v2.bin',
+      destination: '/tmp/app.bin',
+      patchFrom,
+    })
+
+    expect(lastDownloadFileOptions()).toEqual({ patchFrom })
+  })
+})
@@ -0,0 +1,80 @@
+/**
+ * Tests for progress acknowledgements and event metrics (Android)
+ */
+
+const mockNativeModule = {
+  checkForExistingDownloads: jest.fn().mockResolvedValue([]),
+  completeHandler: jest.fn(),
+  downloadFile: jest.fn(),
+  acknowledgeProgress: jest.fn(),
+  getEventMetrics: jest.fn(),
+  addListener: jest.fn(),
+  removeListeners: jest.fn(),
+}
+
+const mockEmitterInstance = {
+  addListener: jest.fn(),
+}
+
+function loadModule () {
+  jest.resetModules()
+  jest.clearAllMocks()
+  jest.doMock('react-native', () => ({
+    TurboModuleRegistry: {
+      getEnforcing: jest.fn().mockReturnValue(mockNativeModule),
+    },
+    NativeModules: {
+      RNBackgroundDownloader: mockNativeModule,
+    },
+    NativeEventEmitter: jest.fn().mockReturnValue(mockEmitterInstance),
+    Platform: {
+      OS: 'android',
+      select: options => options.android,
+    },
+  }))
+  return require('../src/index')
+}
+
+function emit (eventName, payload) {
+  const call = mockEmitterInstance.addListener.mock.calls.find(([name]) => name === eventName)
+  call[1](payload)
+}
+
+describe('progress acknowledgements', () => {
+  test('each progress batch is acknowledged after the handlers ran', () => {
+    const { download } = loadModule()
+    const task = download({ id: 'ack', url: 'https://example.com/ack', destination: '/tmp/ack' })
+    const handler = jest.fn(() => {
+      expect(mockNativeModule.acknowledgeProgress).not.toHaveBeenCalled()
+    })
+    task.progress(handler)
+
+    emit('downloadProgress', [{ id: 'ack', bytesDownloaded: 10, bytesTotal: 100 }])
+
+    expect(handler).toHaveBeenCalled()
+    expect(mockNativeModule.acknowledgeProgress).toHaveBeenCalledTimes(1)
+  })
+
+  test('packed batches are acknowledged too', () => {
+    loadModule()
+
+    emit('downloadProgressPacked', { index: [], bytesDownloaded: [], bytesTotal: [] })
+
+    expect(mockNativeModule.acknowledgeProgress).toHaveBeenCalledTimes(1)
+  })
+
+  test('getEventMetrics resolves the native counters', async () => {
+    const { getEventMetrics } = loadModule()
+    const metrics = {
+      progressBatchesEmitted: 3,
+      progressRecordsEmitted: 7,
+      progressRecordsMerged: 12,
+      progressRecordsDropped: 1,
+      progressRecordsPending: 0,
+      isAwaitingAck: false,
+    }
+    mockNativeModule.getEventMetrics.mockResolvedValueOnce(metrics)
+
+    await expect(getEventMetrics()).resolves.toEqual(metrics)
+  })
+})
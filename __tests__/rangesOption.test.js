@@ -0,0 +1,60 @@
+/**
+ * Tests for the ranges option (Android)
+ */
+
+import RNBackgroundDownloader from '../src/index'
+import { NativeModules, NativeEventEmitter } from 'react-native'
+import { flushPromises, lastDownloadFileOptions } from '../__mocks__/testUtils'
+
+const RNBackgroundDownloaderNative = NativeModules.RNBackgroundDownloader
+const nativeEmitter = new NativeEventEmitter(RNBackgroundDownloaderNative)
+
+describe('ranges option', () => {
+  beforeEach(() => {
+    jest.clearAllMocks()
+  })
+
+  test('the ranges are passed to native', () => {
+    const ranges = [{ offset: 0, length: 30 }, { offset: 4096, length: 576 }]
+
+    RNBackgroundDownloader.download({
+      id: 'ranges',
+      url: 'https://example.com/archive.zip',
+      destination: '/tmp/archive-index.bin',
+      ranges,
+    })
+
+    expect(lastDownloadFileOptions()).toEqual({ ranges })
+  })
+
+  test('the done event tells where each range starts in the file', () => {
+    const done = jest.fn()
+    RNBackgroundDownloader.download({
+      id: 'ranges-done',
+      url: 'https://example.com/archive.zip',
+      destination: '/tmp/archive-index.bin',
+      ranges: [{ offset: 0, length: 30 }, { offset: 4096, length: 576 }],
+    }).done(done)
+
+    const ranges = [{ offset: 0, length: 30, position: 0 }, { offset: 4096, length: 576, position: 30 }]
+    nativeEmitter.emit('downloadComplete', { id: 'ranges-done', location: '/tmp/archive-index.bin', bytesDownloaded: 606, bytesTotal: 606, ranges })
+
+    expect(done).toHaveBeenCalledWith({ location: '/tmp/archive-index.bin', bytesDownloaded: 606, bytesTotal: 606, ranges })
+  })
+
+  test('ranges rejected by native fail the task', async () => {
+    RNBackgroundDownloaderNative.downloadFile.mockRejectedValueOnce(new Error('ranges must not overlap'))
+    const errorHandler = jest.fn()
+
+    const task = RNBackgroundDownloader.download({
+      id: 'ranges-invalid',
+      url: 'https://example.com/archive.zip',
+      destination: '/tmp/archive-index.bin',
+      ranges: [{ offset: 0, length: 30 }, { offset: 10, length: 30 }],
+    }).error(errorHandler)
+    await flushPromises()
+
+    expect(errorHandler).toHaveBeenCalledWith({ error: 'ranges must not overlap', errorCode: -1 })
+    expect(task.state).toBe('FAILED')
+  })
+})
@@ -0,0 +1,25 @@
+/**
+ * Tests for the retry option (Android)
+ */
+
+import RNBackgroundDownloader from '../src/index'
+import { lastDownloadFileOptions } from '../__mocks__/testUtils'
+
+describe('retry option', () => {
+  beforeEach(() => {
+    jest.clearAllMocks()
+  })
+
+  test('the retry policy is passed to native', () => {
+    const retry = { maxAttempts: 5, initialDelay: 2000, jitter: 0.5, retryOn: ['network', 'server'] }
+
+    RNBackgroundDownloader.download({
+      id: 'retry-policy',
+      url: 'https://example.com/large.bin',
+      destination: '/tmp/large.bin',
+      retry,
+    })
+
+    expect(lastDownloadFileOptions()).toEqual({ retry })
+  })
+})
@@ -0,0 +1,43 @@
+/**
+ * Tests for the setConfig options of in-process transfers (Android)
+ */
+
+import RNBackgroundDownloader from '../src/index'
+import { NativeModules } from 'react-native'
+
+const RNBackgroundDownloaderNative = NativeModules.RNBackgroundDownloader
+
+describe('setConfig options', () => {
+  beforeEach(() => {
+    jest.clearAllMocks()
+  })
+
+  test.each([
+    { fsync: 'never' },
+    { fsync: 'complete' },
+    { fsync: 8 * 1024 * 1024 },
+    { checkpointInterval: 0 },
+    { checkpointInterval: 5000 },
+    { notificationInterval: 2000 },
+  ])('%p is passed to native', options => {
+    RNBackgroundDownloader.setConfig(options)
+
+    expect(RNBackgroundDownloaderNative.setConfig).toHaveBeenCalledWith(options)
+  })
+
+  test.each([
+    { fsync: 'always' },
+    { fsync: 0 },
+    { checkpointInterval: -1 },
+    { checkpointInterval: '5000' },
+    { notificationInterval: -1 },
+  ])('%p is rejected', options => {
+    const warn = jest.spyOn(console, 'warn').mockImplementation(() => {})
+
+    RNBackgroundDownloader.setConfig(options)
+
+    expect(RNBackgroundDownloaderNative.setConfig).not.toHaveBeenCalled()
+    expect(warn).toHaveBeenCalledTimes(1)
+    warn.mockRestore()
+  })
+})
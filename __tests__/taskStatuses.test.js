@@ -0,0 +1,73 @@
+/**
+ * Tests for the in-memory task statuses (Android)
+ */
+
+const mockNativeModule = {
+  checkForExistingDownloads: jest.fn().mockResolvedValue([]),
+  completeHandler: jest.fn(),
+  downloadFile: jest.fn(),
+  setConfig: jest.fn(),
+  getTaskStatuses: jest.fn(),
+  getTaskStatusesSync: jest.fn(),
+  addListener: jest.fn(),
+  removeListeners: jest.fn(),
+}
+
+function loadModule (os = 'android') {
+  jest.resetModules()
+  jest.clearAllMocks()
+  jest.doMock('react-native', () => ({
+    TurboModuleRegistry: {
+      getEnforcing: jest.fn().mockReturnValue(mockNativeModule),
+    },
+    NativeModules: {
+      RNBackgroundDownloader: mockNativeModule,
+    },
+    NativeEventEmitter: jest.fn().mockReturnValue({ addListener: jest.fn() }),
+    Platform: {
+      OS: os,
+      select: options => options[os],
+    },
+  }))
+  return require('../src/index')
+}
+
+const nativeStatuses = [
+  { id: 'running', state: 0, bytesDownloaded: 50, bytesTotal: 100 },
+  null,
+  { id: 'paused', state: 1, bytesDownloaded: 70, bytesTotal: 100 },
+]
+
+describe('task statuses', () => {
+  test('getTaskStatuses resolves the native statuses with state names', async () => {
+    const { getTaskStatuses } = loadModule()
+    mockNativeModule.getTaskStatuses.mockResolvedValueOnce(nativeStatuses)
+
+    await expect(getTaskStatuses(['running', 'unknown', 'paused'])).resolves.toEqual([
+      { id: 'running', state: 'DOWNLOADING', bytesDownloaded: 50, bytesTotal: 100 },
+      null,
+      { id: 'paused', state: 'PAUSED', bytesDownloaded: 70, bytesTotal: 100 },
+    ])
+    expect(mockNativeModule.getTaskStatuses).toHaveBeenCalledWith(['running', 'unknown', 'paused'])
+  })
+
+  test('getTaskStatusesSync returns the native statuses directly', () => {
+    const { getTaskStatusesSync } = loadModule()
+    mockNativeModule.getTaskStatusesSync.mockReturnValueOnce(nativeStatuses)
+
+    const statuses = getTaskStatusesSync(['running', 'unknown', 'paused'])
+
+    expect(statuses[0].state).toBe('DOWNLOADING')
+    expect(statuses[1]).toBeNull()
+    expect(statuses[2].bytesDownloaded).toBe(70)
+  })
+
+  test('statuses are null on iOS', async () => {
+    const { getTaskStatuses, getTaskStatusesSync } = loadModule('ios')
+
+    await expect(getTaskStatuses(['running'])).resolves.toBeNull()
+    expect(getTaskStatusesSync(['running'])).toBeNull()
+    expect(mockNativeModule.getTaskStatuses).not.toHaveBeenCalled()
+    expect(mockNativeModule.getTaskStatusesSync).not.toHaveBeenCalled()
+  })
+})
@@ -0,0 +1,93 @@
+/**
+ * Tests for the WorkManager engine options (Android)
+ */
+
+import RNBackgroundDownloader from '../src/index'
+import { NativeModules, Platform } from 'react-native'
+import { flushPromises, lastDownloadFileOptions } from '../__mocks__/testUtils'
+
+const RNBackgroundDownloaderNative = NativeModules.RNBackgroundDownloader
+
+describe('WorkManager engine', () => {
+  const originalOS = Platform.OS
+
+  beforeEach(() => {
+    jest.clearAllMocks()
+    Platform.OS = 'android'
+  })
+
+  afterAll(() => {
+    Platform.OS = originalOS
+  })
+
+  test('download passes engine, group and constraints to native', () => {
+    RNBackgroundDownloader.download({
+      id: 'nightly-1',
+      url: 'https://example.com/big.bin',
+      destination: '/tmp/big.bin',
+      engine: 'workManager',
+      group: 'nightly',
+      constraints: {
+        requiresCharging: true,
+        requiresDeviceIdle: true,
+        networkType: 'unmetered',
+      },
+    })
+
+    expect(lastDownloadFileOptions()).toEqual({
+      engine: 'workManager',
+      group: 'nightly',
+      constraints: {
+        requiresCharging: true,
+        requiresDeviceIdle: true,
+        networkType: 'unmetered',
+      },
+    })
+  })
+
+  test('download without engine options sends an empty options object', () => {
+    RNBackgroundDownloader.download({
+      id: 'plain',
+      url: 'https://example.com/file.zip',
+      destination: '/tmp/file.zip',
+    })
+
+    expect(lastDownloadFileOptions()).toEqual({})
+  })
+
+  test('a download WorkManager refused to schedule fails the task', async () => {
+    RNBackgroundDownloaderNative.downloadFile.mockRejectedValueOnce(new Error('Failed to schedule the download'))
+    const errorHandler = jest.fn()
+
+    const task = RNBackgroundDownloader.download({
+      id: 'work-refused',
+      url: 'https://example.com/nightly.bin',
+      destination: '/tmp/nightly.bin',
+      engine: 'workManager',
+    }).error(errorHandler)
+    await flushPromises()
+
+    expect(errorHandler).toHaveBeenCalledWith({ error: 'Failed to schedule the download', errorCode: -1 })
+    expect(task.state).toBe('FAILED')
+  })
+
+  test('setGroupConfig forwards the group constraints to native', () => {
+    RNBackgroundDownloader.setGroupConfig('nightly', {
+      constraints: { requiresCharging: true },
+    })
+
+    expect(RNBackgroundDownloaderNative.setGroupConfig).toHaveBeenCalledWith('nightly', {
+      constraints: { requiresCharging: true },
+    })
+  })
+
+  test('setGroupConfig is a no-op on iOS', () => {
+    Platform.OS = 'ios'
+
+    RNBackgroundDownloader.setGroupConfig('nightly', {
+      constraints: { requiresCharging: true },
+    })
+
+    expect(RNBackgroundDownloaderNative.setGroupConfig).not.toHaveBeenCalled()
+  })
+})
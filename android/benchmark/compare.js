@@ -0,0 +1,57 @@
+#!/usr/bin/env node
+// Compares two JMH JSON result files produced by `./gradlew -p benchmark jmh -PresultName=<name>`.
+// Usage: node benchmark/compare.js benchmark/results/before.json benchmark/results/after.json
+
+const fs = require('fs')
+
+const [beforePath, afterPath] = process.argv.slice(2)
+if (!beforePath || !afterPath) {
+  console.error('Usage: node compare.js <before.json> <after.json>')
+  process.exit(1)
+}
+
+function key (result) {
+  const params = Object.entries(result.params || {})
+    .map(([name, value]) => `${name}=${value}`)
+    .join(',')
+  const name = result.benchmark.replace('com.eko.benchmark.', '')
+  return params ? `${name}(${params})` : name
+}
+
+function load (path) {
+  const results = new Map()
+  for (const result of JSON.parse(fs.readFileSync(path, 'utf8'))) {
+    results.set(key(result), result)
+  }
+  return results
+}
+
+const before = load(beforePath)
+const after = load(afterPath)
+
+const rows = []
+for (const [name, result] of after) {
+  const base = before.get(name)
+  const metric = result.primaryMetric
+  const allocation = result.secondaryMetrics && result.secondaryMetrics['·gc.alloc.rate.norm']
+  const row = {
+    benchmark: name,
+    unit: metric.scoreUnit,
+    after: metric.score.toFixed(3),
+    'B/op': allocation ? allocation.score.toFixed(0) : '',
+  }
+
+  if (base) {
+    const baseScore = base.primaryMetric.score
+    // Throughput is better when higher, every other mode when lower.
+    const higherIsBetter = result.mode === 'thrpt'
+    const change = (metric.score - baseScore) / baseScore * 100
+    row.before = baseScore.toFixed(3)
+    row.change = `${change > 0 ? '+' : ''}${change.toFixed(1)}%`
+    row.verdict = Math.abs(change) < 5 ? '~' : (change > 0) === higherIsBetter ? 'faster' : 'slower'
+  }
+
+  rows.push(row)
+}
+
+console.table(rows, ['benchmark', 'unit', 'before', 'after', 'change', 'verdict', 'B/op'])
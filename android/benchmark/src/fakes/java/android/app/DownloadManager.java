@@ -0,0 +1,60 @@
+package android.app;
+
+import android.database.Cursor;
+
+/**
+ * JVM fake exposing the DownloadManager columns, statuses and reasons the library reads.
+ */
+public class DownloadManager {
+    public static final String ACTION_DOWNLOAD_COMPLETE = "android.intent.action.DOWNLOAD_COMPLETE";
+    public static final String EXTRA_DOWNLOAD_ID = "extra_download_id";
+
+    public static final String COLUMN_ID = "_id";
+    public static final String COLUMN_LOCAL_URI = "local_uri";
+    public static final String COLUMN_STATUS = "status";
+    public static final String COLUMN_REASON = "reason";
+    public static final String COLUMN_TOTAL_SIZE_BYTES = "total_size";
+    public static final String COLUMN_BYTES_DOWNLOADED_SO_FAR = "bytes_so_far";
+
+    public static final int STATUS_PENDING = 1 << 0;
+    public static final int STATUS_RUNNING = 1 << 1;
+    public static final int STATUS_PAUSED = 1 << 2;
+    public static final int STATUS_SUCCESSFUL = 1 << 3;
+    public static final int STATUS_FAILED = 1 << 4;
+
+    public static final int ERROR_UNKNOWN = 1000;
+    public static final int ERROR_FILE_ERROR = 1001;
+    public static final int ERROR_UNHANDLED_HTTP_CODE = 1002;
+    public static final int ERROR_HTTP_DATA_ERROR = 1004;
+    public static final int ERROR_TOO_MANY_REDIRECTS = 1005;
+    public static final int ERROR_INSUFFICIENT_SPACE = 1006;
+    public static final int ERROR_DEVICE_NOT_FOUND = 1007;
+    public static final int ERROR_CANNOT_RESUME = 1008;
+    public static final int ERROR_FILE_ALREADY_EXISTS = 1009;
+
+    public static final int PAUSED_WAITING_TO_RETRY = 1;
+    public static final int PAUSED_WAITING_FOR_NETWORK = 2;
+    public static final int PAUSED_QUEUED_FOR_WIFI = 3;
+    public static final int PAUSED_UNKNOWN = 4;
+
+    public long enqueue(Request request) {
+        throw new UnsupportedOperationException("enqueue is not faked");
+    }
+
+    public int remove(long... ids) {
+        return ids.length;
+    }
+
+    public Cursor query(Query query) {
+        throw new UnsupportedOperationException("query is not faked");
+    }
+
+    public static class Request {
+    }
+
+    public static class Query {
+        public Query setFilterById(long... ids) {
+            return this;
+        }
+    }
+}
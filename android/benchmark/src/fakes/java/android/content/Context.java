@@ -0,0 +1,25 @@
+package android.content;
+
+import java.io.File;
+
+/**
+ * JVM fake with just enough surface for Downloader and FileUtils.
+ */
+public class Context {
+    public static final String DOWNLOAD_SERVICE = "download";
+
+    public Object getSystemService(String name) {
+        return null;
+    }
+
+    public File getExternalFilesDir(String type) {
+        return null;
+    }
+
+    public File getFilesDir() {
+        return new File(System.getProperty("java.io.tmpdir"));
+    }
+
+    public void sendBroadcast(Intent intent) {
+    }
+}
@@ -0,0 +1,10 @@
+package android.content;
+
+public class Intent {
+    public Intent(String action) {
+    }
+
+    public Intent putExtra(String name, long value) {
+        return this;
+    }
+}
@@ -0,0 +1,29 @@
+package android.database;
+
+import java.io.Closeable;
+
+/**
+ * Subset of android.database.Cursor used by the library.
+ */
+public interface Cursor extends Closeable {
+    int getCount();
+
+    boolean moveToFirst();
+
+    boolean moveToNext();
+
+    int getColumnIndex(String columnName);
+
+    int getColumnIndexOrThrow(String columnName) throws IllegalArgumentException;
+
+    String getString(int columnIndex);
+
+    int getInt(int columnIndex);
+
+    long getLong(int columnIndex);
+
+    double getDouble(int columnIndex);
+
+    @Override
+    void close();
+}
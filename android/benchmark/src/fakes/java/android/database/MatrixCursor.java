@@ -0,0 +1,93 @@
+package android.database;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-memory cursor mirroring android.database.MatrixCursor semantics:
+ * values are stored as objects and converted on read, as the real provider cursor does.
+ */
+public class MatrixCursor implements Cursor {
+    private final String[] columnNames;
+    private final List<Object[]> rows = new ArrayList<>();
+    private int position = -1;
+
+    public MatrixCursor(String[] columnNames) {
+        this.columnNames = columnNames;
+    }
+
+    public void addRow(Object[] columnValues) {
+        if (columnValues.length != columnNames.length) {
+            throw new IllegalArgumentException("columnNames.length = " + columnNames.length + ", columnValues.length = " + columnValues.length);
+        }
+        rows.add(columnValues);
+    }
+
+    @Override
+    public int getCount() {
+        return rows.size();
+    }
+
+    @Override
+    public boolean moveToFirst() {
+        position = 0;
+        return !rows.isEmpty();
+    }
+
+    @Override
+    public boolean moveToNext() {
+        position++;
+        return position < rows.size();
+    }
+
+    @Override
+    public int getColumnIndex(String columnName) {
+        for (int i = 0; i < columnNames.length; i++) {
+            if (columnNames[i].equals(columnName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int getColumnIndexOrThrow(String columnName) {
+        int index = getColumnIndex(columnName);
+        if (index < 0) {
+            throw new IllegalArgumentException("column '" + columnName + "' does not exist");
+        }
+        return index;
+    }
+
+    private Object get(int columnIndex) {
+        return rows.get(position)[columnIndex];
+    }
+
+    @Override
+    public String getString(int columnIndex) {
+        Object value = get(columnIndex);
+        return value != null ? value.toString() : null;
+    }
+
+    @Override
+    public int getInt(int columnIndex) {
+        Object value = get(columnIndex);
+        return value instanceof Number ? ((Number) value).intValue() : Integer.parseInt(value.toString());
+    }
+
+    @Override
+    public long getLong(int columnIndex) {
+        Object value = get(columnIndex);
+        return value instanceof Number ? ((Number) value).longValue() : Long.parseLong(value.toString());
+    }
+
+    @Override
+    public double getDouble(int columnIndex) {
+        Object value = get(columnIndex);
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.parseDouble(value.toString());
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,15 @@
+package android.os;
+
+import java.io.File;
+
+public class StatFs {
+    private final File path;
+
+    public StatFs(String path) {
+        this.path = new File(path);
+    }
+
+    public long getAvailableBytes() {
+        return path.getUsableSpace();
+    }
+}
@@ -0,0 +1,10 @@
+package android.system;
+
+import java.io.FileDescriptor;
+
+public final class Os {
+    // The JVM can't fallocate, so files are left to grow as they are written, like on a file system without support.
+    public static void posix_fallocate(FileDescriptor fd, long offset, long length) throws ErrnoException {
+        throw new ErrnoException("posix_fallocate", OsConstants.EOPNOTSUPP);
+    }
+}
@@ -0,0 +1,6 @@
+package android.system;
+
+public final class OsConstants {
+    public static final int ENOSPC = 28;
+    public static final int EOPNOTSUPP = 95;
+}
@@ -0,0 +1,15 @@
+package com.facebook.react.bridge;
+
+/**
+ * Returns Java-only collections instead of the JNI-backed WritableNative* types,
+ * the same substitution React Native's own JVM tests make.
+ */
+public class Arguments {
+    public static WritableMap createMap() {
+        return new JavaOnlyMap();
+    }
+
+    public static WritableArray createArray() {
+        return new JavaOnlyArray();
+    }
+}
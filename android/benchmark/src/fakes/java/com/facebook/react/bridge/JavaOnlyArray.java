@@ -0,0 +1,82 @@
+package com.facebook.react.bridge;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class JavaOnlyArray implements WritableArray {
+    private final List<Object> backingList = new ArrayList<>();
+
+    @Override
+    public int size() {
+        return backingList.size();
+    }
+
+    @Override
+    public double getDouble(int index) {
+        return ((Number) backingList.get(index)).doubleValue();
+    }
+
+    @Override
+    public int getInt(int index) {
+        return ((Number) backingList.get(index)).intValue();
+    }
+
+    @Override
+    public String getString(int index) {
+        return (String) backingList.get(index);
+    }
+
+    @Override
+    public ReadableMap getMap(int index) {
+        return (ReadableMap) backingList.get(index);
+    }
+
+    @Override
+    public ArrayList<Object> toArrayList() {
+        ArrayList<Object> arrayList = new ArrayList<>(backingList.size());
+        for (Object value : backingList) {
+            if (value instanceof ReadableMap) {
+                value = ((ReadableMap) value).toHashMap();
+            } else if (value instanceof ReadableArray) {
+                value = ((ReadableArray) value).toArrayList();
+            }
+            arrayList.add(value);
+        }
+        return arrayList;
+    }
+
+    @Override
+    public void pushNull() {
+        backingList.add(null);
+    }
+
+    @Override
+    public void pushBoolean(boolean value) {
+        backingList.add(value);
+    }
+
+    @Override
+    public void pushDouble(double value) {
+        backingList.add(value);
+    }
+
+    @Override
+    public void pushInt(int value) {
+        backingList.add(value);
+    }
+
+    @Override
+    public void pushString(String value) {
+        backingList.add(value);
+    }
+
+    @Override
+    public void pushArray(ReadableArray array) {
+        backingList.add(array);
+    }
+
+    @Override
+    public void pushMap(ReadableMap map) {
+        backingList.add(map);
+    }
+}
@@ -0,0 +1,111 @@
+package com.facebook.react.bridge;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class JavaOnlyMap implements WritableMap {
+    private final Map<String, Object> backingMap;
+
+    public JavaOnlyMap() {
+        backingMap = new HashMap<>();
+    }
+
+    private JavaOnlyMap(Map<String, Object> source) {
+        backingMap = new HashMap<>(source);
+    }
+
+    @Override
+    public boolean hasKey(String name) {
+        return backingMap.containsKey(name);
+    }
+
+    @Override
+    public boolean isNull(String name) {
+        return backingMap.get(name) == null;
+    }
+
+    @Override
+    public boolean getBoolean(String name) {
+        return (Boolean) backingMap.get(name);
+    }
+
+    @Override
+    public double getDouble(String name) {
+        return ((Number) backingMap.get(name)).doubleValue();
+    }
+
+    @Override
+    public int getInt(String name) {
+        return ((Number) backingMap.get(name)).intValue();
+    }
+
+    @Override
+    public String getString(String name) {
+        return (String) backingMap.get(name);
+    }
+
+    @Override
+    public ReadableArray getArray(String name) {
+        return (ReadableArray) backingMap.get(name);
+    }
+
+    @Override
+    public ReadableMap getMap(String name) {
+        return (ReadableMap) backingMap.get(name);
+    }
+
+    @Override
+    public void putNull(String key) {
+        backingMap.put(key, null);
+    }
+
+    @Override
+    public void putBoolean(String key, boolean value) {
+        backingMap.put(key, value);
+    }
+
+    @Override
+    public void putDouble(String key, double value) {
+        backingMap.put(key, value);
+    }
+
+    @Override
+    public void putInt(String key, int value) {
+        backingMap.put(key, value);
+    }
+
+    @Override
+    public void putString(String key, String value) {
+        backingMap.put(key, value);
+    }
+
+    @Override
+    public void putArray(String key, ReadableArray value) {
+        backingMap.put(key, value);
+    }
+
+    @Override
+    public void putMap(String key, ReadableMap value) {
+        backingMap.put(key, value);
+    }
+
+    @Override
+    public HashMap<String, Object> toHashMap() {
+        HashMap<String, Object> hashMap = new HashMap<>();
+        for (Map.Entry<String, Object> entry : backingMap.entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof ReadableMap) {
+                value = ((ReadableMap) value).toHashMap();
+            } else if (value instanceof ReadableArray) {
+                value = ((ReadableArray) value).toArrayList();
+            }
+            hashMap.put(entry.getKey(), value);
+        }
+        return hashMap;
+    }
+
+    @Override
+    public WritableMap copy() {
+        return new JavaOnlyMap(backingMap);
+    }
+}
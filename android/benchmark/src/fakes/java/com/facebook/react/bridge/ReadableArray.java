@@ -0,0 +1,17 @@
+package com.facebook.react.bridge;
+
+import java.util.ArrayList;
+
+public interface ReadableArray {
+    int size();
+
+    double getDouble(int index);
+
+    int getInt(int index);
+
+    String getString(int index);
+
+    ReadableMap getMap(int index);
+
+    ArrayList<Object> toArrayList();
+}
@@ -0,0 +1,58 @@
+package com.eko.benchmark;
+
+import com.eko.RNBGDTaskConfig;
+import com.eko.utils.ConfigUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What saveDownloadIdToConfigMap / loadDownloadIdToConfigMap pay on every enqueue, completion and cold start.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConfigSerializationBenchmark {
+    @Param({"100", "1000", "10000"})
+    public int taskCount;
+
+    private Map<Long, RNBGDTaskConfig> downloadIdToConfig;
+    private String serialized;
+
+    @Setup
+    public void setup() {
+        downloadIdToConfig = new HashMap<>();
+        for (int i = 0; i < taskCount; i++) {
+            RNBGDTaskConfig config = new RNBGDTaskConfig(
+                    "task-" + i,
+                    "https://cdn.example.com/content/" + i + "/video.mp4",
+                    "/storage/emulated/0/Android/data/com.example/files/" + i + ".mp4",
+                    "{\"title\":\"Episode " + i + "\",\"season\":1}",
+                    "Episode " + i
+            );
+            config.reportedBegin = (i & 1) == 0;
+            downloadIdToConfig.put(1000L + i, config);
+        }
+        serialized = ConfigUtils.serializeConfigMap(downloadIdToConfig);
+    }
+
+    @Benchmark
+    public String save() {
+        return ConfigUtils.serializeConfigMap(downloadIdToConfig);
+    }
+
+    @Benchmark
+    public Map<Long, RNBGDTaskConfig> load() {
+        return ConfigUtils.deserializeConfigMap(serialized);
+    }
+}
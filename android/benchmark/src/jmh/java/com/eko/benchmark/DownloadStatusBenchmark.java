@@ -0,0 +1,120 @@
+package com.eko.benchmark;
+
+import android.app.DownloadManager;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+
+import com.eko.DownloadStatus;
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every row of a provider cursor read into one reused DownloadStatus, as checkForExistingDownloads does,
+ * against the WritableMap per row that Downloader built before the typed rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DownloadStatusBenchmark {
+    static final String[] COLUMNS = {
+            DownloadManager.COLUMN_ID,
+            DownloadManager.COLUMN_LOCAL_URI,
+            DownloadManager.COLUMN_STATUS,
+            DownloadManager.COLUMN_REASON,
+            DownloadManager.COLUMN_TOTAL_SIZE_BYTES,
+            DownloadManager.COLUMN_BYTES_DOWNLOADED_SO_FAR,
+    };
+
+    @Param({"1", "100", "5000"})
+    public int rowCount;
+
+    private MatrixCursor cursor;
+
+    @Setup
+    public void setup() {
+        cursor = createCursor(rowCount);
+    }
+
+    static MatrixCursor createCursor(int rowCount) {
+        MatrixCursor cursor = new MatrixCursor(COLUMNS);
+        for (int i = 0; i < rowCount; i++) {
+            int status = i % 5 == 0 ? DownloadManager.STATUS_FAILED : DownloadManager.STATUS_RUNNING;
+            int reason = status == DownloadManager.STATUS_FAILED ? DownloadManager.ERROR_HTTP_DATA_ERROR : 0;
+            cursor.addRow(new Object[]{
+                    (long) i,
+                    "file:///storage/emulated/0/Android/data/com.example/files/" + i + ".mp4",
+                    status,
+                    reason,
+                    104857600L,
+                    (long) i * 4096,
+            });
+        }
+        return cursor;
+    }
+
+    @Benchmark
+    public void readAllRows(Blackhole blackhole) {
+        if (cursor.moveToFirst()) {
+            DownloadStatus.Columns columns = new DownloadStatus.Columns(cursor);
+            DownloadStatus status = new DownloadStatus();
+            do {
+                status.read(cursor, columns);
+                blackhole.consume(status.bytesDownloaded);
+            } while (cursor.moveToNext());
+        }
+    }
+
+    @Benchmark
+    public void mapAllRows(Blackhole blackhole) {
+        if (cursor.moveToFirst()) {
+            do {
+                blackhole.consume(getDownloadStatus(cursor));
+            } while (cursor.moveToNext());
+        }
+    }
+
+    /**
+     * getDownloadStatus of Downloader as it was: column lookups, numbers read as strings and parsed,
+     * and a WritableMap for every row.
+     */
+    static WritableMap getDownloadStatus(Cursor cursor) {
+        String downloadId = cursor.getString(cursor.getColumnIndexOrThrow(DownloadManager.COLUMN_ID));
+        String localUri = cursor.getString(cursor.getColumnIndexOrThrow(DownloadManager.COLUMN_LOCAL_URI));
+        String bytesDownloadedSoFar = cursor.getString(cursor.getColumnIndexOrThrow(DownloadManager.COLUMN_BYTES_DOWNLOADED_SO_FAR));
+        String totalSizeBytes = cursor.getString(cursor.getColumnIndexOrThrow(DownloadManager.COLUMN_TOTAL_SIZE_BYTES));
+        int status = cursor.getInt(cursor.getColumnIndexOrThrow(DownloadManager.COLUMN_STATUS));
+        int reason = cursor.getInt(cursor.getColumnIndexOrThrow(DownloadManager.COLUMN_REASON));
+
+        if (localUri != null) {
+            localUri = localUri.replace("file://", "");
+        }
+
+        String reasonText = "";
+        if (status == DownloadManager.STATUS_PAUSED || status == DownloadManager.STATUS_FAILED) {
+            reasonText = DownloadStatus.getReasonText(status, reason);
+        }
+
+        WritableMap result = Arguments.createMap();
+        result.putString("downloadId", downloadId);
+        result.putInt("status", status);
+        result.putInt("reason", reason);
+        result.putString("reasonText", reasonText);
+        result.putDouble("bytesDownloaded", Long.parseLong(bytesDownloadedSoFar));
+        result.putDouble("bytesTotal", Long.parseLong(totalSizeBytes));
+        result.putString("localUri", localUri);
+
+        return result;
+    }
+}
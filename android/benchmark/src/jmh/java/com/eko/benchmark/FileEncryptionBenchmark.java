@@ -0,0 +1,113 @@
+package com.eko.benchmark;
+
+import com.eko.utils.FileEncryption;
+import com.eko.utils.FileUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+/**
+ * Finalizing a download encrypted: FileEncryption.mv in one pass with GCM and CTR, against the plain
+ * transferTo move and against that move followed by a second pass that rewrites the file encrypted.
+ * The key is a JVM key, as there is no Android Keystore here; on a device the cipher runs in the
+ * Keystore, so compare the passes rather than the absolute numbers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FileEncryptionBenchmark {
+    @Param({"1048576", "16777216", "268435456"})
+    public long fileSize;
+
+    private SecretKey key;
+    private File directory;
+    private File template;
+    private File source;
+    private File moved;
+    private File destination;
+
+    @Setup(Level.Trial)
+    public void createTemplate() throws IOException, NoSuchAlgorithmException {
+        KeyGenerator keyGenerator = KeyGenerator.getInstance("AES");
+        keyGenerator.init(256);
+        key = keyGenerator.generateKey();
+
+        directory = Files.createTempDirectory("rnbgd-encrypt").toFile();
+        template = new File(directory, "template.bin");
+        source = new File(directory, "source.bin");
+        moved = new File(directory, "moved.bin");
+        destination = new File(directory, "destination.bin");
+
+        byte[] chunk = new byte[1024 * 1024];
+        new Random(42).nextBytes(chunk);
+        try (RandomAccessFile file = new RandomAccessFile(template, "rw")) {
+            long written = 0;
+            while (written < fileSize) {
+                int length = (int) Math.min(chunk.length, fileSize - written);
+                file.write(chunk, 0, length);
+                written += length;
+            }
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void createSource() throws IOException {
+        Files.copy(template.toPath(), source.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        FileUtils.rm(moved);
+        FileUtils.rm(destination);
+    }
+
+    @Benchmark
+    public boolean transferTo() throws IOException {
+        return FileUtils.mv(source, destination);
+    }
+
+    @Benchmark
+    public boolean gcm() throws IOException {
+        FileEncryption.mv(source, destination, FileEncryption.createCipher(key, FileEncryption.MODE_GCM));
+        return source.delete();
+    }
+
+    @Benchmark
+    public boolean ctr() throws IOException {
+        FileEncryption.mv(source, destination, FileEncryption.createCipher(key, FileEncryption.MODE_CTR));
+        return source.delete();
+    }
+
+    // What apps did before: move the plaintext into place, then read it again and rewrite it encrypted.
+    @Benchmark
+    public boolean transferToThenGcm() throws IOException {
+        FileUtils.mv(source, moved);
+        FileEncryption.mv(moved, destination, FileEncryption.createCipher(key, FileEncryption.MODE_GCM));
+        return moved.delete();
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() {
+        FileUtils.rm(source);
+        FileUtils.rm(moved);
+        FileUtils.rm(destination);
+        FileUtils.rm(template);
+        FileUtils.rm(directory);
+    }
+}
@@ -0,0 +1,76 @@
+package com.eko.benchmark;
+
+import com.eko.utils.FileUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FileUtils.mv, the finalization copy every completed download goes through.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FileMoveBenchmark {
+    @Param({"65536", "1048576", "16777216", "268435456"})
+    public long fileSize;
+
+    private File directory;
+    private File template;
+    private File source;
+    private File destination;
+
+    @Setup(Level.Trial)
+    public void createTemplate() throws IOException {
+        directory = Files.createTempDirectory("rnbgd-mv").toFile();
+        template = new File(directory, "template.bin");
+        source = new File(directory, "source.bin");
+        destination = new File(directory, "destination.bin");
+
+        byte[] chunk = new byte[1024 * 1024];
+        new Random(42).nextBytes(chunk);
+        try (RandomAccessFile file = new RandomAccessFile(template, "rw")) {
+            long written = 0;
+            while (written < fileSize) {
+                int length = (int) Math.min(chunk.length, fileSize - written);
+                file.write(chunk, 0, length);
+                written += length;
+            }
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void createSource() throws IOException {
+        Files.copy(template.toPath(), source.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        FileUtils.rm(destination);
+    }
+
+    @Benchmark
+    public boolean mv() throws IOException {
+        return FileUtils.mv(source, destination);
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() {
+        FileUtils.rm(source);
+        FileUtils.rm(destination);
+        FileUtils.rm(template);
+        FileUtils.rm(directory);
+    }
+}
@@ -0,0 +1,78 @@
+package com.eko.benchmark;
+
+import com.eko.ProgressReporter;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.google.gson.Gson;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One progress batch of every active task in the map and the packed format.
+ * "batch" is the native cost of building the payload, "bridge" adds converting it to plain
+ * collections and JSON, which is roughly what crossing the bridge costs per element.
+ * The packed format is measured in its steady state, after the task ids were announced.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class ProgressEncodingBenchmark {
+    // Never reached, so every sample moves the task forward.
+    private static final long TOTAL_BYTES = Long.MAX_VALUE;
+
+    @Param({"10", "100", "500"})
+    public int taskCount;
+
+    @Param({ProgressReporter.FORMAT_MAP, ProgressReporter.FORMAT_PACKED})
+    public String format;
+
+    private final Gson gson = new Gson();
+    private ProgressReporter reporter;
+    private String[] configIds;
+    private long bytesDownloaded;
+
+    @Setup
+    public void setup() {
+        reporter = new ProgressReporter();
+        reporter.setFormat(format);
+        reporter.setProgressMinBytes(0);
+        configIds = new String[taskCount];
+        for (int i = 0; i < taskCount; i++) {
+            configIds[i] = "task-" + i;
+            reporter.setPercent(configIds[i], 0.0);
+        }
+        // Announces the ids once, like the first batch of a real session.
+        batch();
+    }
+
+    @Benchmark
+    public ProgressReporter.Batch batch() {
+        bytesDownloaded += 65536;
+
+        // Holds the batch back until every task reported, then flushes all of them at once.
+        reporter.setProgressInterval(Integer.MAX_VALUE);
+        for (int i = 0; i < taskCount - 1; i++) {
+            reporter.onProgress(configIds[i], bytesDownloaded, TOTAL_BYTES);
+        }
+        reporter.setProgressInterval(-1);
+        return reporter.onProgress(configIds[taskCount - 1], bytesDownloaded, TOTAL_BYTES);
+    }
+
+    @Benchmark
+    public String bridge() {
+        Object payload = batch().payload;
+        Object plain = payload instanceof ReadableArray
+            ? ((ReadableArray) payload).toArrayList()
+            : ((ReadableMap) payload).toHashMap();
+        return gson.toJson(plain);
+    }
+}
@@ -0,0 +1,69 @@
+package com.eko.benchmark;
+
+import com.eko.ProgressReporter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The onProgressDownload throttle path with several OnProgress pollers reporting at once.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ProgressReporterBenchmark {
+    private static final long TOTAL_BYTES = 1024L * 1024 * 1024;
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+        @Param({"0", "1000"})
+        public int progressInterval;
+
+        public final ProgressReporter reporter = new ProgressReporter();
+        public final AtomicInteger nextTask = new AtomicInteger();
+
+        @Setup
+        public void setup() {
+            reporter.setProgressInterval(progressInterval);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Task {
+        public String configId;
+        public long bytesDownloaded;
+
+        @Setup
+        public void setup(Shared shared) {
+            configId = "task-" + shared.nextTask.getAndIncrement();
+            shared.reporter.setPercent(configId, 0.0);
+        }
+
+        long advance() {
+            // ~64KB per poll, wrapping so the percent threshold keeps firing
+            bytesDownloaded = (bytesDownloaded + 65536) % TOTAL_BYTES;
+            return bytesDownloaded;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public ProgressReporter.Batch singleCaller(Shared shared, Task task) {
+        return shared.reporter.onProgress(task.configId, task.advance(), TOTAL_BYTES);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public ProgressReporter.Batch concurrentCallers(Shared shared, Task task) {
+        return shared.reporter.onProgress(task.configId, task.advance(), TOTAL_BYTES);
+    }
+}
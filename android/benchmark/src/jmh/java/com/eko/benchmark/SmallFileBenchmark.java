@@ -0,0 +1,186 @@
+package com.eko.benchmark;
+
+import com.eko.transfer.HttpTransfer;
+import com.eko.transfer.InlineDownloader;
+import com.eko.utils.FileUtils;
+import com.sun.net.httpserver.HttpServer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 1,000 small files from a local HTTP server through InlineDownloader, against the request pattern
+ * of a DownloadManager download: a HEAD request from OnBegin, a new connection per file and a copy
+ * into place by FileUtils.mv. DownloadManager's provider and broadcast round trips can't run on a JVM,
+ * so the baseline understates what it costs on a device.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SmallFileBenchmark {
+    private static final int FILE_COUNT = 1000;
+    // Same parallelism as InlineDownloader's pool.
+    private static final int THREAD_COUNT = 4;
+
+    @Param({"4096", "65536"})
+    public int fileSize;
+
+    private HttpServer server;
+    private ExecutorService baselineExecutor;
+    private InlineDownloader inlineDownloader;
+    private File directory;
+    private String baseUrl;
+
+    @Setup(Level.Trial)
+    public void startServer() throws IOException {
+        byte[] body = new byte[fileSize];
+        new Random(42).nextBytes(body);
+
+        // Without it the JDK server's separate header and body writes stall on kept-alive sockets
+        // for the 40ms of a delayed ACK, which no real server does.
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            boolean isHead = "HEAD".equals(exchange.getRequestMethod());
+            exchange.sendResponseHeaders(200, isHead ? -1 : body.length);
+            if (!isHead) {
+                try (OutputStream output = exchange.getResponseBody()) {
+                    output.write(body);
+                }
+            }
+            exchange.close();
+        });
+        server.setExecutor(Executors.newFixedThreadPool(THREAD_COUNT * 2));
+        server.start();
+
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/file-";
+        directory = Files.createTempDirectory("rnbgd-small").toFile();
+        baselineExecutor = Executors.newFixedThreadPool(THREAD_COUNT);
+        inlineDownloader = new InlineDownloader();
+    }
+
+    @Benchmark
+    public void inline() throws Exception {
+        CountDownLatch remaining = new CountDownLatch(FILE_COUNT);
+        AtomicReference<String> error = new AtomicReference<>();
+        InlineDownloader.Listener listener = new InlineDownloader.Listener() {
+            @Override
+            public void onBegin(String configId, Map<String, String> headers, long expectedBytes) {}
+
+            @Override
+            public void onProgress(String configId, long bytesDownloaded, long bytesTotal) {}
+
+            @Override
+            public void onComplete(String configId, String location, long bytesDownloaded, long bytesTotal) {
+                remaining.countDown();
+            }
+
+            @Override
+            public boolean onFailed(String configId, int errorCode, String message) {
+                error.set(configId + ": " + message);
+                remaining.countDown();
+                return false;
+            }
+
+            @Override
+            public void onTooLarge(String configId) {
+                error.set(configId + " is too large");
+                remaining.countDown();
+            }
+        };
+
+        Map<String, String> headers = new HashMap<>();
+        for (int i = 0; i < FILE_COUNT; i++) {
+            String id = "inline-" + i;
+            inlineDownloader.download(
+                id, baseUrl + i, headers, new File(directory, id + ".part"), new File(directory, id + ".bin"), listener);
+        }
+
+        remaining.await();
+        if (error.get() != null) {
+            throw new IllegalStateException(error.get());
+        }
+    }
+
+    @Benchmark
+    public void connectionPerFile() throws Exception {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Connection", "close");
+        HttpTransfer.Listener listener = new HttpTransfer.Listener() {
+            @Override
+            public void onBegin(Map<String, String> responseHeaders, long expectedBytes) {}
+
+            @Override
+            public void onProgress(long bytesDownloaded, long bytesTotal) {}
+        };
+
+        List<Callable<Boolean>> downloads = new ArrayList<>(FILE_COUNT);
+        for (int i = 0; i < FILE_COUNT; i++) {
+            String url = baseUrl + i;
+            File partFile = new File(directory, "baseline-" + i + ".part");
+            File destination = new File(directory, "baseline-" + i + ".bin");
+            downloads.add(() -> {
+                head(url);
+                new HttpTransfer(url, headers, partFile, listener).call();
+                return FileUtils.mv(partFile, destination);
+            });
+        }
+
+        for (Future<Boolean> download : baselineExecutor.invokeAll(downloads)) {
+            download.get();
+        }
+    }
+
+    private static void head(String url) throws IOException {
+        HttpURLConnection urlConnection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            urlConnection.setRequestMethod("HEAD");
+            urlConnection.setRequestProperty("Connection", "close");
+            urlConnection.getResponseCode();
+        } finally {
+            urlConnection.disconnect();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() {
+        inlineDownloader.shutdown();
+        baselineExecutor.shutdownNow();
+        server.stop(0);
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                FileUtils.rm(file);
+            }
+        }
+        FileUtils.rm(directory);
+    }
+}
@@ -0,0 +1,183 @@
+package com.eko.benchmark;
+
+import com.eko.ProgressReporter;
+import com.eko.RNBGDTaskConfig;
+import com.eko.TaskRegistry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Enqueue, cancel, receiver lookups and progress samples from 8 threads at once, through TaskRegistry
+ * and ProgressReporter against the maps behind one global lock that they replaced.
+ * Each call is a progress sample, one in 4 a receiver lookup by download id and one in 16 a cancel
+ * followed by an enqueue of the same task.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TaskRegistryBenchmark {
+    private static final long TOTAL_BYTES = 1024L * 1024 * 1024;
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+        @Param({"100", "10000"})
+        public int taskCount;
+
+        public RNBGDTaskConfig[] configs;
+        public final AtomicInteger nextCaller = new AtomicInteger();
+
+        public final TaskRegistry registry = new TaskRegistry();
+        public final ProgressReporter reporter = new ProgressReporter(registry);
+        public final GlobalLockMaps lockedMaps = new GlobalLockMaps();
+
+        @Setup
+        public void setup() {
+            reporter.setProgressInterval(1000);
+            configs = new RNBGDTaskConfig[taskCount];
+            for (int i = 0; i < taskCount; i++) {
+                configs[i] = new RNBGDTaskConfig("task-" + i, "https://example.com/" + i, "/tmp/" + i, null, null);
+                enqueue(i);
+                lockedMaps.enqueue(i + 1, configs[i]);
+            }
+        }
+
+        void enqueue(int task) {
+            registry.putDownload(task + 1, configs[task]);
+            reporter.setPercent(configs[task].id, 0.0);
+        }
+
+        void cancel(int task) {
+            RNBGDTaskConfig config = registry.removeDownload(task + 1);
+            if (config != null) {
+                reporter.remove(config.id);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Caller {
+        public int next;
+        public int calls;
+        public long bytesDownloaded;
+
+        @Setup
+        public void setup(Shared shared) {
+            next = shared.nextCaller.getAndIncrement();
+        }
+
+        int advance(Shared shared) {
+            calls++;
+            // Every caller cycles through its own tasks, like one poller per task.
+            next = (next + 8) % shared.taskCount;
+            // ~64KB per poll, wrapping so the percent threshold keeps firing
+            bytesDownloaded = (bytesDownloaded + 65536) % TOTAL_BYTES;
+            return next;
+        }
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object taskRegistry(Shared shared, Caller caller) {
+        int task = caller.advance(shared);
+        if ((caller.calls & 15) == 0) {
+            shared.cancel(task);
+            shared.enqueue(task);
+        }
+        if ((caller.calls & 3) == 0) {
+            return shared.registry.getConfig(task + 1);
+        }
+        return shared.reporter.onProgress(shared.configs[task].id, caller.bytesDownloaded, TOTAL_BYTES);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object globalLock(Shared shared, Caller caller) {
+        int task = caller.advance(shared);
+        if ((caller.calls & 15) == 0) {
+            shared.lockedMaps.cancel(task + 1);
+            shared.lockedMaps.enqueue(task + 1, shared.configs[task]);
+        }
+        if ((caller.calls & 3) == 0) {
+            return shared.lockedMaps.getConfig(task + 1);
+        }
+        return shared.lockedMaps.onProgress(shared.configs[task].id, caller.bytesDownloaded, TOTAL_BYTES);
+    }
+
+    /**
+     * The task maps of the module and the reporter as they were: boxed keys and values, every access
+     * under one lock.
+     */
+    public static class GlobalLockMaps {
+        private final Object sharedLock = new Object();
+        private final Map<Long, RNBGDTaskConfig> downloadIdToConfig = new HashMap<>();
+        private final Map<String, Long> configIdToDownloadId = new HashMap<>();
+        private final Map<String, Double> configIdToPercent = new HashMap<>();
+        private final Map<String, Long> configIdToLastBytes = new HashMap<>();
+        private final Map<String, long[]> progressReports = new LinkedHashMap<>();
+        private long lastProgressReportedAt = System.currentTimeMillis();
+
+        void enqueue(long downloadId, RNBGDTaskConfig config) {
+            synchronized (sharedLock) {
+                configIdToDownloadId.put(config.id, downloadId);
+                configIdToPercent.put(config.id, 0.0);
+                downloadIdToConfig.put(downloadId, config);
+            }
+        }
+
+        void cancel(long downloadId) {
+            synchronized (sharedLock) {
+                RNBGDTaskConfig config = downloadIdToConfig.remove(downloadId);
+                if (config != null) {
+                    configIdToDownloadId.remove(config.id);
+                    configIdToPercent.remove(config.id);
+                    configIdToLastBytes.remove(config.id);
+                    progressReports.remove(config.id);
+                }
+            }
+        }
+
+        RNBGDTaskConfig getConfig(long downloadId) {
+            synchronized (sharedLock) {
+                return downloadIdToConfig.get(downloadId);
+            }
+        }
+
+        Object onProgress(String configId, long bytesDownloaded, long bytesTotal) {
+            synchronized (sharedLock) {
+                Double existPercent = configIdToPercent.get(configId);
+                Long existLastBytes = configIdToLastBytes.get(configId);
+                double prevPercent = existPercent != null ? existPercent : 0.0;
+                long prevBytes = existLastBytes != null ? existLastBytes : 0;
+                double percent = (double) bytesDownloaded / bytesTotal;
+
+                if (percent - prevPercent > 0.01 || bytesDownloaded - prevBytes >= 1024 * 1024) {
+                    progressReports.put(configId, new long[]{bytesDownloaded, bytesTotal});
+                    configIdToPercent.put(configId, percent);
+                    configIdToLastBytes.put(configId, bytesDownloaded);
+                }
+
+                long now = System.currentTimeMillis();
+                if (now - lastProgressReportedAt <= 1000 || progressReports.isEmpty()) {
+                    return null;
+                }
+                lastProgressReportedAt = now;
+                Object batch = new HashMap<>(progressReports);
+                progressReports.clear();
+                return batch;
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.eko.benchmark;
+
+import com.eko.transfer.HttpClientPool;
+import com.eko.transfer.HttpTransfer;
+import com.eko.transfer.TransferCheckpoint;
+import com.eko.utils.FileUtils;
+import com.sun.net.httpserver.HttpServer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Request;
+
+/**
+ * One large body from a local HTTP server into a partial file, through HttpTransfer's pooled direct
+ * buffers and positional channel writes, against a stream copy with a byte[] and a FileOutputStream.
+ * Both read the body through the same HttpClientPool, so only the write path differs.
+ * Compare throughput (size / score) and gc.count / gc.alloc.rate.norm of the gc profiler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TransferWriteBenchmark {
+    private static final int CHUNK_SIZE = 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Param({"1073741824"})
+    public long size;
+
+    private HttpServer server;
+    private File directory;
+    private File partFile;
+    private String url;
+
+    @Setup(Level.Trial)
+    public void startServer() throws IOException {
+        byte[] chunk = new byte[CHUNK_SIZE];
+        new Random(42).nextBytes(chunk);
+
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.sendResponseHeaders(200, size);
+            try (OutputStream output = exchange.getResponseBody()) {
+                for (long sent = 0; sent < size; sent += CHUNK_SIZE) {
+                    output.write(chunk, 0, (int) Math.min(CHUNK_SIZE, size - sent));
+                }
+            }
+        });
+        server.start();
+
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/large.bin";
+        directory = Files.createTempDirectory("rnbgd-write").toFile();
+        partFile = new File(directory, "large.part");
+    }
+
+    @Setup(Level.Invocation)
+    public void removePartFile() {
+        TransferCheckpoint.rm(partFile);
+    }
+
+    @Benchmark
+    public long channelWriter() throws IOException {
+        HttpTransfer.Listener listener = new HttpTransfer.Listener() {
+            @Override
+            public void onBegin(Map<String, String> headers, long expectedBytes) {}
+
+            @Override
+            public void onProgress(long bytesDownloaded, long bytesTotal) {}
+        };
+        return new HttpTransfer(url, new HashMap<>(), partFile, listener).call().bytesDownloaded;
+    }
+
+    @Benchmark
+    public long streamCopy() throws IOException {
+        HttpClientPool pool = HttpClientPool.getInstance();
+        Call call = pool.newCall(new Request.Builder().url(url).header("Accept-Encoding", "identity").build());
+        try (
+                HttpClientPool.Exchange exchange = pool.execute(call);
+                InputStream input = exchange.response.body().byteStream();
+                OutputStream output = new FileOutputStream(partFile)
+        ) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long bytesDownloaded = 0;
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+                bytesDownloaded += read;
+            }
+            return bytesDownloaded;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() {
+        server.stop(0);
+        TransferCheckpoint.rm(partFile);
+        FileUtils.rm(directory);
+    }
+}
@@ -0,0 +1,213 @@
+package com.eko;
+
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.annotation.Nullable;
+
+/**
+ * Shares one transfer between downloads of the same URL and request headers that are in flight together.
+ * The first download owns the transfer and later ones subscribe to it, so its events are sent to
+ * every id and its file is handed to every destination. Cancelling a download only cancels the
+ * transfer once nobody else is waiting for it.
+ * Subscribers are persisted in the owner's config, so this only indexes the configs of the module.
+ */
+public class DownloadCoalescer {
+  private static class Begin {
+    final WritableMap headers;
+    final long expectedBytes;
+
+    Begin(WritableMap headers, long expectedBytes) {
+      this.headers = headers;
+      this.expectedBytes = expectedBytes;
+    }
+  }
+
+  private final Map<String, RNBGDTaskConfig> requestKeyToOwner = new HashMap<>();
+  private final Map<String, RNBGDTaskConfig> configIdToOwner = new HashMap<>();
+  // Replayed to downloads that subscribe after the transfer began.
+  private final Map<String, Begin> ownerIdToBegin = new HashMap<>();
+
+  /**
+   * Header names are case-insensitive and their order doesn't matter, so both are normalized.
+   */
+  public static String getRequestKey(String url, Map<String, String> headers) {
+    Map<String, String> sortedHeaders = new TreeMap<>();
+    for (Map.Entry<String, String> header : headers.entrySet()) {
+      sortedHeaders.put(header.getKey().toLowerCase(), header.getValue());
+    }
+
+    StringBuilder key = new StringBuilder(url);
+    for (Map.Entry<String, String> header : sortedHeaders.entrySet()) {
+      key.append('\n').append(header.getKey()).append(':').append(header.getValue());
+    }
+    return key.toString();
+  }
+
+  /**
+   * Tracks the transfer of a config with a requestKey, including the subscribers it was persisted with.
+   */
+  public synchronized void addOwner(RNBGDTaskConfig owner) {
+    if (owner.requestKey == null) {
+      return;
+    }
+
+    requestKeyToOwner.put(owner.requestKey, owner);
+    configIdToOwner.put(owner.id, owner);
+    if (owner.subscribers != null) {
+      for (RNBGDTaskConfig subscriber : owner.subscribers) {
+        configIdToOwner.put(subscriber.id, owner);
+      }
+    }
+  }
+
+  /**
+   * Adds a download to the transfer in flight for requestKey and returns its owner, or null if there is none.
+   */
+  @Nullable
+  public synchronized RNBGDTaskConfig subscribe(String requestKey, RNBGDTaskConfig subscriber) {
+    RNBGDTaskConfig owner = requestKeyToOwner.get(requestKey);
+    if (owner == null || configIdToOwner.containsKey(subscriber.id)) {
+      return null;
+    }
+
+    if (owner.subscribers == null) {
+      owner.subscribers = new ArrayList<>();
+    }
+    owner.subscribers.add(subscriber);
+    configIdToOwner.put(subscriber.id, owner);
+    return owner;
+  }
+
+  /**
+   * The owner of the transfer a download is part of, or null if its transfer isn't shared.
+   */
+  @Nullable
+  public synchronized RNBGDTaskConfig getOwner(String configId) {
+    return configIdToOwner.get(configId);
+  }
+
+  /**
+   * Configs of the downloads that get the events of a transfer: the owner unless it was cancelled,
+   * and its subscribers. A transfer that isn't shared only has its owner.
+   */
+  public synchronized List<RNBGDTaskConfig> getEventConfigs(RNBGDTaskConfig owner) {
+    if (!configIdToOwner.containsKey(owner.id)) {
+      return Collections.singletonList(owner);
+    }
+
+    List<RNBGDTaskConfig> configs = new ArrayList<>();
+    if (!owner.isDetached) {
+      configs.add(owner);
+    }
+    if (owner.subscribers != null) {
+      configs.addAll(owner.subscribers);
+    }
+    return configs;
+  }
+
+  /**
+   * Ids of the downloads that get the events of the transfer owned by ownerId.
+   */
+  public synchronized List<String> getEventIds(String ownerId) {
+    RNBGDTaskConfig owner = configIdToOwner.get(ownerId);
+    if (owner == null || owner.subscribers == null || owner.subscribers.isEmpty()) {
+      return Collections.singletonList(ownerId);
+    }
+
+    List<String> ids = new ArrayList<>(owner.subscribers.size() + 1);
+    if (!owner.isDetached) {
+      ids.add(ownerId);
+    }
+    for (RNBGDTaskConfig subscriber : owner.subscribers) {
+      ids.add(subscriber.id);
+    }
+    return ids;
+  }
+
+  public synchronized void onBegin(String ownerId, WritableMap headers, long expectedBytes) {
+    if (isOwner(ownerId)) {
+      ownerIdToBegin.put(ownerId, new Begin(headers.copy(), expectedBytes));
+    }
+  }
+
+  /**
+   * Headers of the begin event of a transfer that already began, or null.
+   */
+  @Nullable
+  public synchronized WritableMap getBeginHeaders(String ownerId) {
+    Begin begin = ownerIdToBegin.get(ownerId);
+    return begin != null ? begin.headers.copy() : null;
+  }
+
+  public synchronized long getBeginExpectedBytes(String ownerId) {
+    Begin begin = ownerIdToBegin.get(ownerId);
+    return begin != null ? begin.expectedBytes : 0;
+  }
+
+  /**
+   * Removes a cancelled download from its transfer. Returns true when nobody is left waiting for the
+   * transfer, so it has to be cancelled as well.
+   */
+  public synchronized boolean unsubscribe(String configId) {
+    RNBGDTaskConfig owner = configIdToOwner.get(configId);
+    if (owner == null) {
+      return true;
+    }
+
+    if (owner.id.equals(configId)) {
+      owner.isDetached = true;
+    } else {
+      configIdToOwner.remove(configId);
+      for (int i = 0; i < owner.subscribers.size(); i++) {
+        if (owner.subscribers.get(i).id.equals(configId)) {
+          owner.subscribers.remove(i);
+          break;
+        }
+      }
+    }
+
+    boolean hasSubscribers = owner.subscribers != null && !owner.subscribers.isEmpty();
+    if (owner.isDetached && !hasSubscribers) {
+      finish(owner.id);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Stops sharing a transfer that finished and returns the downloads that get its outcome,
+   * or null if the transfer wasn't shared.
+   */
+  @Nullable
+  public synchronized List<RNBGDTaskConfig> finish(String ownerId) {
+    if (!isOwner(ownerId)) {
+      return null;
+    }
+    RNBGDTaskConfig owner = configIdToOwner.get(ownerId);
+
+    List<RNBGDTaskConfig> configs = getEventConfigs(owner);
+    if (requestKeyToOwner.get(owner.requestKey) == owner) {
+      requestKeyToOwner.remove(owner.requestKey);
+    }
+    configIdToOwner.remove(ownerId);
+    if (owner.subscribers != null) {
+      for (RNBGDTaskConfig subscriber : owner.subscribers) {
+        configIdToOwner.remove(subscriber.id);
+      }
+    }
+    ownerIdToBegin.remove(ownerId);
+    return configs;
+  }
+
+  private boolean isOwner(String configId) {
+    RNBGDTaskConfig owner = configIdToOwner.get(configId);
+    return owner != null && owner.id.equals(configId);
+  }
+}
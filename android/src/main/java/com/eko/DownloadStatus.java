@@ -0,0 +1,116 @@
+package com.eko;
+
+import android.app.DownloadManager;
+import android.database.Cursor;
+
+import javax.annotation.Nullable;
+
+/**
+ * Status of one DownloadManager download, as read from its provider row.
+ * Rows are read with primitive getters into a reusable instance, so walking a cursor allocates
+ * nothing per row.
+ */
+public class DownloadStatus {
+    /**
+     * Column indexes of a DownloadManager cursor, resolved once per cursor instead of once per row.
+     */
+    public static class Columns {
+        final int id;
+        final int localUri;
+        final int status;
+        final int reason;
+        final int bytesDownloaded;
+        final int bytesTotal;
+
+        public Columns(Cursor cursor) {
+            id = cursor.getColumnIndexOrThrow(DownloadManager.COLUMN_ID);
+            localUri = cursor.getColumnIndexOrThrow(DownloadManager.COLUMN_LOCAL_URI);
+            status = cursor.getColumnIndexOrThrow(DownloadManager.COLUMN_STATUS);
+            reason = cursor.getColumnIndexOrThrow(DownloadManager.COLUMN_REASON);
+            bytesDownloaded = cursor.getColumnIndexOrThrow(DownloadManager.COLUMN_BYTES_DOWNLOADED_SO_FAR);
+            bytesTotal = cursor.getColumnIndexOrThrow(DownloadManager.COLUMN_TOTAL_SIZE_BYTES);
+        }
+    }
+
+    public long downloadId;
+    public int status;
+    public int reason;
+    public String reasonText = "";
+    public long bytesDownloaded;
+    public long bytesTotal;
+    // Path without the file:// scheme.
+    @Nullable
+    public String localUri;
+
+    public static DownloadStatus failed(long downloadId, int reason, String reasonText) {
+        DownloadStatus result = new DownloadStatus();
+        result.downloadId = downloadId;
+        result.status = DownloadManager.STATUS_FAILED;
+        result.reason = reason;
+        result.reasonText = reasonText;
+        return result;
+    }
+
+    /**
+     * Overwrites this status with the cursor's current row.
+     */
+    public DownloadStatus read(Cursor cursor, Columns columns) {
+        downloadId = cursor.getLong(columns.id);
+        status = cursor.getInt(columns.status);
+        reason = cursor.getInt(columns.reason);
+        bytesDownloaded = cursor.getLong(columns.bytesDownloaded);
+        bytesTotal = cursor.getLong(columns.bytesTotal);
+
+        localUri = cursor.getString(columns.localUri);
+        if (localUri != null) {
+            localUri = localUri.replace("file://", "");
+        }
+
+        reasonText = "";
+        if (status == DownloadManager.STATUS_PAUSED || status == DownloadManager.STATUS_FAILED) {
+            reasonText = getReasonText(status, reason);
+        }
+        return this;
+    }
+
+    public static String getReasonText(int status, int reason) {
+        switch (status) {
+            case DownloadManager.STATUS_FAILED:
+                switch (reason) {
+                    case DownloadManager.ERROR_CANNOT_RESUME:
+                        return "ERROR_CANNOT_RESUME";
+                    case DownloadManager.ERROR_DEVICE_NOT_FOUND:
+                        return "ERROR_DEVICE_NOT_FOUND";
+                    case DownloadManager.ERROR_FILE_ALREADY_EXISTS:
+                        return "ERROR_FILE_ALREADY_EXISTS";
+                    case DownloadManager.ERROR_FILE_ERROR:
+                        return "ERROR_FILE_ERROR";
+                    case DownloadManager.ERROR_HTTP_DATA_ERROR:
+                        return "ERROR_HTTP_DATA_ERROR";
+                    case DownloadManager.ERROR_INSUFFICIENT_SPACE:
+                        return "ERROR_INSUFFICIENT_SPACE";
+                    case DownloadManager.ERROR_TOO_MANY_REDIRECTS:
+                        return "ERROR_TOO_MANY_REDIRECTS";
+                    case DownloadManager.ERROR_UNHANDLED_HTTP_CODE:
+                        return "ERROR_UNHANDLED_HTTP_CODE";
+                    default:
+                        return "ERROR_UNKNOWN";
+                }
+            case DownloadManager.STATUS_PAUSED:
+                switch (reason) {
+                    case DownloadManager.PAUSED_QUEUED_FOR_WIFI:
+                        return "PAUSED_QUEUED_FOR_WIFI";
+                    case DownloadManager.PAUSED_UNKNOWN:
+                        return "PAUSED_UNKNOWN";
+                    case DownloadManager.PAUSED_WAITING_FOR_NETWORK:
+                        return "PAUSED_WAITING_FOR_NETWORK";
+                    case DownloadManager.PAUSED_WAITING_TO_RETRY:
+                        return "PAUSED_WAITING_TO_RETRY";
+                    default:
+                        return "UNKNOWN";
+                }
+            default:
+                return "UNKNOWN";
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.eko;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+/**
+ * Sums the progress of the tasks of a group into one "groupProgress" report per group.
+ * Reports are batched like task progress and flushed at most once per progressInterval,
+ * plus once whenever a member finishes so the completed count is never stale.
+ * Groups can turn off the per-member "downloadProgress" reports of their tasks.
+ */
+public class GroupProgressTracker {
+  // Weight of the latest throughput sample in the smoothed rate used for the ETA.
+  private static final double RATE_SMOOTHING = 0.3;
+
+  private static class Member {
+    long bytesDownloaded = 0;
+    long bytesTotal = 0;
+  }
+
+  private static class Group {
+    final Map<String, Member> members = new HashMap<>();
+    int tasksCompleted = 0;
+    int tasksFailed = 0;
+    // Bytes of finished members, so totals don't drop when a member leaves.
+    long finishedBytesDownloaded = 0;
+    long finishedBytesTotal = 0;
+    long lastReportedBytes = 0;
+    long lastReportedAt = 0;
+    double bytesPerSecond = 0;
+  }
+
+  private final Map<String, Group> groups = new HashMap<>();
+  private final Map<String, String> configIdToGroup = new HashMap<>();
+  private final Set<String> groupsWithoutMemberProgress = new HashSet<>();
+  private final Set<String> dirtyGroups = new HashSet<>();
+  private long lastProgressReportedAt = 0;
+
+  public synchronized void setMemberProgressEnabled(String group, boolean isEnabled) {
+    if (isEnabled) {
+      groupsWithoutMemberProgress.remove(group);
+    } else {
+      groupsWithoutMemberProgress.add(group);
+    }
+  }
+
+  public synchronized boolean isMemberProgressEnabled(String configId) {
+    String group = configIdToGroup.get(configId);
+    return group == null || !groupsWithoutMemberProgress.contains(group);
+  }
+
+  public synchronized void addMember(@Nullable String group, String configId) {
+    if (group == null) {
+      return;
+    }
+
+    Group state = groups.get(group);
+    if (state == null) {
+      state = new Group();
+      groups.put(group, state);
+    }
+    if (!state.members.containsKey(configId)) {
+      state.members.put(configId, new Member());
+      configIdToGroup.put(configId, group);
+      dirtyGroups.add(group);
+    }
+  }
+
+  /**
+   * Records a progress sample of a member and returns the reports to emit, or null when nothing is due yet.
+   */
+  @Nullable
+  public synchronized WritableArray onProgress(String configId, long bytesDownloaded, long bytesTotal, int progressInterval) {
+    String group = configIdToGroup.get(configId);
+    if (group == null) {
+      return null;
+    }
+
+    Member member = groups.get(group).members.get(configId);
+    member.bytesDownloaded = bytesDownloaded;
+    member.bytesTotal = bytesTotal;
+    dirtyGroups.add(group);
+
+    long now = System.currentTimeMillis();
+    if (now - lastProgressReportedAt <= progressInterval) {
+      return null;
+    }
+
+    WritableArray reportsArray = Arguments.createArray();
+    for (String dirtyGroup : dirtyGroups) {
+      reportsArray.pushMap(createReport(dirtyGroup, groups.get(dirtyGroup), now));
+    }
+    dirtyGroups.clear();
+    lastProgressReportedAt = now;
+    return reportsArray;
+  }
+
+  /**
+   * Removes a finished member and returns the report of its group, or null if it had none.
+   * Cancelled members leave the group without counting as completed or failed.
+   */
+  @Nullable
+  public synchronized WritableArray onFinished(String configId, boolean isCompleted, boolean isCancelled) {
+    String group = configIdToGroup.remove(configId);
+    if (group == null) {
+      return null;
+    }
+
+    Group state = groups.get(group);
+    Member member = state.members.remove(configId);
+    if (!isCancelled) {
+      if (isCompleted) {
+        state.tasksCompleted++;
+        state.finishedBytesDownloaded += Math.max(member.bytesTotal, member.bytesDownloaded);
+        state.finishedBytesTotal += Math.max(member.bytesTotal, member.bytesDownloaded);
+      } else {
+        state.tasksFailed++;
+      }
+    }
+
+    WritableArray reportsArray = Arguments.createArray();
+    reportsArray.pushMap(createReport(group, state, System.currentTimeMillis()));
+
+    // The group starts over once every member finished, e.g. when a bundle is downloaded again.
+    if (state.members.isEmpty()) {
+      groups.remove(group);
+      dirtyGroups.remove(group);
+    }
+    return reportsArray;
+  }
+
+  private WritableMap createReport(String group, Group state, long now) {
+    long bytesDownloaded = state.finishedBytesDownloaded;
+    long bytesTotal = state.finishedBytesTotal;
+    boolean isTotalKnown = true;
+    for (Member member : state.members.values()) {
+      bytesDownloaded += member.bytesDownloaded;
+      bytesTotal += member.bytesTotal;
+      isTotalKnown &= member.bytesTotal > 0;
+    }
+
+    if (state.lastReportedAt > 0 && now > state.lastReportedAt) {
+      double sample = (bytesDownloaded - state.lastReportedBytes) * 1000.0 / (now - state.lastReportedAt);
+      state.bytesPerSecond = state.bytesPerSecond > 0
+          ? RATE_SMOOTHING * sample + (1 - RATE_SMOOTHING) * state.bytesPerSecond
+          : sample;
+    }
+    state.lastReportedBytes = bytesDownloaded;
+    state.lastReportedAt = now;
+
+    // Without every member's size the remaining bytes, and so the ETA, are unknown.
+    double eta = -1;
+    if (isTotalKnown && state.bytesPerSecond > 0) {
+      eta = Math.max(0, bytesTotal - bytesDownloaded) / state.bytesPerSecond;
+    } else if (state.members.isEmpty()) {
+      eta = 0;
+    }
+
+    WritableMap params = Arguments.createMap();
+    params.putString("group", group);
+    params.putDouble("bytesDownloaded", bytesDownloaded);
+    params.putDouble("bytesTotal", bytesTotal);
+    params.putInt("tasksTotal", state.members.size() + state.tasksCompleted + state.tasksFailed);
+    params.putInt("tasksCompleted", state.tasksCompleted);
+    params.putInt("tasksFailed", state.tasksFailed);
+    params.putDouble("bytesPerSecond", Math.max(0, state.bytesPerSecond));
+    params.putDouble("eta", eta);
+    return params;
+  }
+}
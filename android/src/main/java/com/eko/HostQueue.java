@@ -0,0 +1,227 @@
+package com.eko;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Limits how many downloads run at once, in total and per host, and keeps the others waiting.
+ * A freed slot goes to the hosts with waiting downloads in turn, so a bulk job against one host
+ * doesn't hold back downloads from the others. Downloads of one host start in the order they came.
+ * A limit of UNLIMITED (0) doesn't limit anything, which is the default.
+ */
+public class HostQueue {
+  public static final int UNLIMITED = 0;
+
+  public static class HostState {
+    public final String host;
+    public final int running;
+    public final int queued;
+    public final int limit;
+
+    HostState(String host, int running, int queued, int limit) {
+      this.host = host;
+      this.running = running;
+      this.queued = queued;
+      this.limit = limit;
+    }
+  }
+
+  private int maxConcurrent = UNLIMITED;
+  private int maxPerHost = UNLIMITED;
+  private Map<String, Integer> hostLimits = new HashMap<>();
+
+  private final Map<String, String> runningIdToHost = new HashMap<>();
+  private final Map<String, Integer> hostToRunning = new HashMap<>();
+  private final Map<String, Deque<RNBGDTaskConfig>> hostToQueued = new HashMap<>();
+  // Hosts with waiting downloads, the one whose turn it is first.
+  private final Deque<String> turns = new ArrayDeque<>();
+
+  /**
+   * Host names are case-insensitive. URLs without one share the empty host.
+   */
+  public static String getHost(String url) {
+    try {
+      String host = new URI(url).getHost();
+      return host != null ? host.toLowerCase() : "";
+    } catch (Exception e) {
+      return "";
+    }
+  }
+
+  public synchronized int getMaxConcurrent() {
+    return maxConcurrent;
+  }
+
+  public synchronized int getMaxPerHost() {
+    return maxPerHost;
+  }
+
+  public synchronized Map<String, Integer> getHostLimits() {
+    return new HashMap<>(hostLimits);
+  }
+
+  /**
+   * Replaces the limits. hostLimits overrides maxPerHost for the hosts in it.
+   * Returns the downloads that can start now because the limits were raised.
+   */
+  public synchronized List<RNBGDTaskConfig> setLimits(int maxConcurrent, int maxPerHost, Map<String, Integer> hostLimits) {
+    this.maxConcurrent = Math.max(UNLIMITED, maxConcurrent);
+    this.maxPerHost = Math.max(UNLIMITED, maxPerHost);
+    this.hostLimits = new HashMap<>();
+    for (Map.Entry<String, Integer> entry : hostLimits.entrySet()) {
+      this.hostLimits.put(entry.getKey().toLowerCase(), Math.max(UNLIMITED, entry.getValue()));
+    }
+    return dispatch();
+  }
+
+  /**
+   * Counts the download as running when there is a slot for it and no download of its host is
+   * waiting for one, and otherwise puts it at the end of its host's queue.
+   * Returns whether it can start now.
+   */
+  public synchronized boolean offer(RNBGDTaskConfig config) {
+    String host = getHost(config.url);
+    if (!hostToQueued.containsKey(host) && hasSlot(host)) {
+      start(config.id, host);
+      return true;
+    }
+
+    Deque<RNBGDTaskConfig> queued = hostToQueued.get(host);
+    if (queued == null) {
+      queued = new ArrayDeque<>();
+      hostToQueued.put(host, queued);
+      turns.addLast(host);
+    }
+    queued.addLast(config);
+    return false;
+  }
+
+  /**
+   * Counts a download that was started without asking, e.g. one that was running before the app restarted.
+   */
+  public synchronized void markRunning(RNBGDTaskConfig config) {
+    if (!runningIdToHost.containsKey(config.id)) {
+      start(config.id, getHost(config.url));
+    }
+  }
+
+  public synchronized boolean isQueued(String configId) {
+    for (Deque<RNBGDTaskConfig> queued : hostToQueued.values()) {
+      for (RNBGDTaskConfig config : queued) {
+        if (config.id.equals(configId)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Frees the slot of a download that finished or was cancelled, or takes it out of its queue.
+   * Returns the downloads that can start in its place, already counted as running.
+   */
+  public synchronized List<RNBGDTaskConfig> release(String configId) {
+    String host = runningIdToHost.remove(configId);
+    if (host != null) {
+      int running = hostToRunning.get(host) - 1;
+      if (running > 0) {
+        hostToRunning.put(host, running);
+      } else {
+        hostToRunning.remove(host);
+      }
+      return dispatch();
+    }
+
+    for (Iterator<Map.Entry<String, Deque<RNBGDTaskConfig>>> entries = hostToQueued.entrySet().iterator(); entries.hasNext(); ) {
+      Map.Entry<String, Deque<RNBGDTaskConfig>> entry = entries.next();
+      Iterator<RNBGDTaskConfig> queued = entry.getValue().iterator();
+      while (queued.hasNext()) {
+        if (queued.next().id.equals(configId)) {
+          queued.remove();
+          if (entry.getValue().isEmpty()) {
+            entries.remove();
+            turns.remove(entry.getKey());
+          }
+          return Collections.emptyList();
+        }
+      }
+    }
+    return Collections.emptyList();
+  }
+
+  /**
+   * Running and waiting downloads of every host that has any, ordered by host.
+   */
+  public synchronized List<HostState> getHostStates() {
+    Map<String, HostState> states = new TreeMap<>();
+    for (Map.Entry<String, Integer> entry : hostToRunning.entrySet()) {
+      String host = entry.getKey();
+      Deque<RNBGDTaskConfig> queued = hostToQueued.get(host);
+      states.put(host, new HostState(host, entry.getValue(), queued != null ? queued.size() : 0, getLimit(host)));
+    }
+    for (Map.Entry<String, Deque<RNBGDTaskConfig>> entry : hostToQueued.entrySet()) {
+      String host = entry.getKey();
+      if (!states.containsKey(host)) {
+        states.put(host, new HostState(host, 0, entry.getValue().size(), getLimit(host)));
+      }
+    }
+    return new ArrayList<>(states.values());
+  }
+
+  private List<RNBGDTaskConfig> dispatch() {
+    List<RNBGDTaskConfig> started = new ArrayList<>();
+    boolean isStarted = true;
+    while (isStarted && !turns.isEmpty()) {
+      isStarted = false;
+      // Hosts at their own limit keep their turn for when they have a free slot.
+      for (Iterator<String> hosts = turns.iterator(); hosts.hasNext(); ) {
+        String host = hosts.next();
+        if (!hasSlot(host)) {
+          continue;
+        }
+
+        hosts.remove();
+        Deque<RNBGDTaskConfig> queued = hostToQueued.get(host);
+        RNBGDTaskConfig config = queued.pollFirst();
+        if (queued.isEmpty()) {
+          hostToQueued.remove(host);
+        } else {
+          turns.addLast(host);
+        }
+        start(config.id, host);
+        started.add(config);
+        isStarted = true;
+        break;
+      }
+    }
+    return started;
+  }
+
+  private boolean hasSlot(String host) {
+    if (maxConcurrent != UNLIMITED && runningIdToHost.size() >= maxConcurrent) {
+      return false;
+    }
+    int limit = getLimit(host);
+    Integer running = hostToRunning.get(host);
+    return limit == UNLIMITED || running == null || running < limit;
+  }
+
+  private int getLimit(String host) {
+    Integer limit = hostLimits.get(host);
+    return limit != null ? limit : maxPerHost;
+  }
+
+  private void start(String configId, String host) {
+    runningIdToHost.put(configId, host);
+    Integer running = hostToRunning.get(host);
+    hostToRunning.put(host, running != null ? running + 1 : 1);
+  }
+}
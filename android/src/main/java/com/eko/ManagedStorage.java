@@ -0,0 +1,276 @@
+package com.eko;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Opt-in storage area with a byte quota. Downloads completed into its directory are indexed with
+ * their size and last access, and when a download is admitted or completes while the area is over
+ * its quota, the least recently used files are deleted until it fits again. Bytes that running
+ * downloads expect count towards the quota, and their destinations are never evicted.
+ *
+ * The index is a journal of one line per change, kept in the directory and replayed when the area is
+ * opened, so starting up never lists or stats the files. It is rewritten once most of its lines are
+ * outdated. A line lost to a crash leaves a file unindexed or its last access older, never the index
+ * unreadable.
+ */
+public class ManagedStorage {
+  static final String INDEX_NAME = ".downloads-index";
+  private static final int MIN_JOURNAL_LINES = 64;
+
+  public static class Entry {
+    public final String path;
+    public final long size;
+    public final long lastAccessedAt;
+
+    Entry(String path, long size, long lastAccessedAt) {
+      this.path = path;
+      this.size = size;
+      this.lastAccessedAt = lastAccessedAt;
+    }
+  }
+
+  private static class Reservation {
+    final String path;
+    long bytes;
+
+    Reservation(String path) {
+      this.path = path;
+    }
+  }
+
+  private final File directory;
+  private final String directoryPrefix;
+  private final File indexFile;
+  private long quota;
+  // Keyed by path relative to the directory, least recently used first.
+  private final LinkedHashMap<String, Entry> pathToEntry = new LinkedHashMap<>(16, 0.75f, true);
+  private final Map<String, Reservation> configIdToReservation = new HashMap<>();
+  private long usedBytes = 0;
+  private long reservedBytes = 0;
+  private int journalLines = 0;
+
+  public ManagedStorage(File directory, long quota) {
+    this.directory = directory.getAbsoluteFile();
+    this.directoryPrefix = this.directory.getPath() + File.separator;
+    this.indexFile = new File(this.directory, INDEX_NAME);
+    this.quota = quota;
+    load();
+  }
+
+  public File getDirectory() {
+    return directory;
+  }
+
+  public synchronized long getUsedBytes() {
+    return usedBytes;
+  }
+
+  public boolean isManaged(String path) {
+    return new File(path).getAbsolutePath().startsWith(directoryPrefix);
+  }
+
+  /**
+   * Changes the quota and returns the files evicted to fit it.
+   */
+  public synchronized List<Entry> setQuota(long quota) {
+    this.quota = quota;
+    return evict(null);
+  }
+
+  /**
+   * Admits a download into the area. Its destination isn't evicted until it completes or fails.
+   */
+  public synchronized List<Entry> admit(String configId, String path) {
+    release(configId);
+    configIdToReservation.put(configId, new Reservation(getKey(path)));
+    return evict(null);
+  }
+
+  /**
+   * Reserves the size of an admitted download once it is known, evicting files to make room for it.
+   */
+  public synchronized List<Entry> reserve(String configId, long bytes) {
+    Reservation reservation = configIdToReservation.get(configId);
+    if (reservation == null || bytes <= 0) {
+      return new ArrayList<>();
+    }
+    reservedBytes += bytes - reservation.bytes;
+    reservation.bytes = bytes;
+    return evict(null);
+  }
+
+  public synchronized void release(String configId) {
+    Reservation reservation = configIdToReservation.remove(configId);
+    if (reservation != null) {
+      reservedBytes -= reservation.bytes;
+    }
+  }
+
+  /**
+   * Indexes a completed download and returns the files evicted to make room for it. The download
+   * itself is kept even when it is larger than the quota.
+   */
+  public synchronized List<Entry> add(String configId, String path) {
+    release(configId);
+    String key = getKey(path);
+    put(key, getSize(new File(path)), System.currentTimeMillis());
+    return evict(key);
+  }
+
+  /**
+   * Marks a file as used now, so it is evicted after those used before it.
+   */
+  public synchronized void touch(String path) {
+    String key = getKey(path);
+    Entry entry = pathToEntry.get(key);
+    if (entry != null) {
+      put(key, entry.size, System.currentTimeMillis());
+    }
+  }
+
+  private String getKey(String path) {
+    String absolutePath = new File(path).getAbsolutePath();
+    return absolutePath.startsWith(directoryPrefix) ? absolutePath.substring(directoryPrefix.length()) : absolutePath;
+  }
+
+  private void put(String key, long size, long lastAccessedAt) {
+    Entry previous = pathToEntry.remove(key);
+    if (previous != null) {
+      usedBytes -= previous.size;
+    }
+    pathToEntry.put(key, new Entry(key, size, lastAccessedAt));
+    usedBytes += size;
+    append("+ " + lastAccessedAt + " " + size + " " + key);
+  }
+
+  private List<Entry> evict(String keptKey) {
+    List<Entry> evicted = new ArrayList<>();
+    if (usedBytes + reservedBytes <= quota) {
+      return evicted;
+    }
+
+    List<String> inUseKeys = new ArrayList<>();
+    for (Reservation reservation : configIdToReservation.values()) {
+      inUseKeys.add(reservation.path);
+    }
+
+    Iterator<Entry> iterator = pathToEntry.values().iterator();
+    while (usedBytes + reservedBytes > quota && iterator.hasNext()) {
+      Entry entry = iterator.next();
+      if (entry.path.equals(keptKey) || inUseKeys.contains(entry.path)) {
+        continue;
+      }
+      iterator.remove();
+      usedBytes -= entry.size;
+      delete(new File(directory, entry.path));
+      append("- " + entry.path);
+      evicted.add(new Entry(new File(directory, entry.path).getPath(), entry.size, entry.lastAccessedAt));
+    }
+    return evicted;
+  }
+
+  private static long getSize(File file) {
+    if (!file.isDirectory()) {
+      return file.length();
+    }
+    long size = 0;
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        size += getSize(child);
+      }
+    }
+    return size;
+  }
+
+  private static void delete(File file) {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        delete(child);
+      }
+    }
+    file.delete();
+  }
+
+  private void load() {
+    if (!indexFile.exists()) {
+      return;
+    }
+
+    try (BufferedReader reader = new BufferedReader(
+        new InputStreamReader(new FileInputStream(indexFile), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        journalLines++;
+        replay(line);
+      }
+    } catch (IOException e) {
+      // Whatever was read so far is kept.
+    }
+  }
+
+  private void replay(String line) {
+    try {
+      if (line.startsWith("+ ")) {
+        String[] parts = line.split(" ", 4);
+        long lastAccessedAt = Long.parseLong(parts[1]);
+        long size = Long.parseLong(parts[2]);
+        Entry previous = pathToEntry.put(parts[3], new Entry(parts[3], size, lastAccessedAt));
+        usedBytes += size - (previous != null ? previous.size : 0);
+      } else if (line.startsWith("- ")) {
+        Entry previous = pathToEntry.remove(line.substring(2));
+        if (previous != null) {
+          usedBytes -= previous.size;
+        }
+      }
+    } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+      // A line cut short by a crash.
+    }
+  }
+
+  private void append(String line) {
+    if (journalLines >= MIN_JOURNAL_LINES && journalLines > pathToEntry.size() * 2) {
+      compact();
+      return;
+    }
+
+    directory.mkdirs();
+    try (Writer writer = new OutputStreamWriter(new FileOutputStream(indexFile, true), StandardCharsets.UTF_8)) {
+      writer.write(line + "\n");
+      journalLines++;
+    } catch (IOException e) {
+      // The index only falls behind; the next compaction writes it in full.
+    }
+  }
+
+  // Rewrites the journal with a single line per indexed file, in access order.
+  private void compact() {
+    File tempFile = new File(directory, INDEX_NAME + ".tmp");
+    try (Writer writer = new OutputStreamWriter(new FileOutputStream(tempFile), StandardCharsets.UTF_8)) {
+      for (Entry entry : pathToEntry.values()) {
+        writer.write("+ " + entry.lastAccessedAt + " " + entry.size + " " + entry.path + "\n");
+      }
+    } catch (IOException e) {
+      tempFile.delete();
+      return;
+    }
+    if (tempFile.renameTo(indexFile)) {
+      journalLines = pathToEntry.size();
+    }
+  }
+}
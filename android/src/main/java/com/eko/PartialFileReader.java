@@ -0,0 +1,146 @@
+package com.eko;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+import javax.annotation.Nullable;
+
+/**
+ * Serves byte ranges of downloads that are still in progress.
+ * Both engines write their partial file front to back, so the bytes reported by progress updates
+ * are a contiguous watermark. Reads wait for the watermark to pass the requested range and switch to
+ * the destination once the download completed.
+ * A transfer that starts over, e.g. because the server answered a resume with the whole body, reports
+ * progress below the watermark before rewriting the file, so the watermark moves back down with it.
+ */
+public class PartialFileReader {
+  // Completed downloads stay readable for a while, so a reader racing the completion event still succeeds.
+  private static final int MAX_FINISHED_ENTRIES = 64;
+
+  private static class Entry {
+    final String partialPath;
+    long bytesAvailable = 0;
+    String location;
+    String error;
+
+    Entry(String partialPath) {
+      this.partialPath = partialPath;
+    }
+  }
+
+  private final Map<String, Entry> configIdToEntry = new HashMap<>();
+  private final Map<String, Entry> finishedEntries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+      return size() > MAX_FINISHED_ENTRIES;
+    }
+  };
+
+  public synchronized void register(String configId, @Nullable String partialPath) {
+    if (partialPath == null) {
+      return;
+    }
+    finishedEntries.remove(configId);
+    configIdToEntry.put(configId, new Entry(partialPath));
+  }
+
+  @Nullable
+  public synchronized String getPartialPath(String configId) {
+    Entry entry = configIdToEntry.get(configId);
+    return entry != null ? entry.partialPath : null;
+  }
+
+  public synchronized void onProgress(String configId, long bytesAvailable) {
+    Entry entry = configIdToEntry.get(configId);
+    if (entry == null || bytesAvailable == entry.bytesAvailable) {
+      return;
+    }
+    boolean isRestarted = bytesAvailable < entry.bytesAvailable;
+    entry.bytesAvailable = bytesAvailable;
+    if (!isRestarted) {
+      notifyAll();
+    }
+  }
+
+  public synchronized void onComplete(String configId, String location) {
+    finish(configId, location, null);
+  }
+
+  public synchronized void onFailed(String configId, String error) {
+    finish(configId, null, error);
+  }
+
+  /**
+   * Waits until the range is on disk and reads it. A range reaching past the end of a completed
+   * download is cut short at the end of the file.
+   */
+  public byte[] read(String configId, long offset, int length, long timeoutMs)
+      throws IOException, InterruptedException, TimeoutException {
+    long deadline = System.currentTimeMillis() + timeoutMs;
+    String path;
+
+    synchronized (this) {
+      while (true) {
+        Entry entry = configIdToEntry.get(configId);
+        if (entry == null) {
+          entry = finishedEntries.get(configId);
+        }
+        if (entry == null) {
+          throw new IOException("No partial file for download: " + configId);
+        }
+        if (entry.error != null) {
+          throw new IOException(entry.error);
+        }
+        if (entry.location != null) {
+          path = entry.location;
+          break;
+        }
+        if (entry.bytesAvailable >= offset + length) {
+          path = entry.partialPath;
+          break;
+        }
+
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+          throw new TimeoutException(
+              "Only " + entry.bytesAvailable + " bytes of " + configId + " are available, needed " + (offset + length)
+          );
+        }
+        wait(remaining);
+      }
+    }
+
+    return readFile(new File(path), offset, length);
+  }
+
+  private void finish(String configId, @Nullable String location, @Nullable String error) {
+    Entry entry = configIdToEntry.remove(configId);
+    if (entry == null) {
+      return;
+    }
+    entry.location = location;
+    entry.error = error;
+    finishedEntries.put(configId, entry);
+    notifyAll();
+  }
+
+  private byte[] readFile(File file, long offset, int length) throws IOException {
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+      long fileLength = randomAccessFile.length();
+      if (offset >= fileLength) {
+        throw new EOFException("Offset " + offset + " is past the end of " + file.getName());
+      }
+
+      byte[] bytes = new byte[(int) Math.min(length, fileLength - offset)];
+      randomAccessFile.seek(offset);
+      randomAccessFile.readFully(bytes);
+      return bytes;
+    }
+  }
+}
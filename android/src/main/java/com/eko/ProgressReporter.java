@@ -0,0 +1,346 @@
+package com.eko;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+/**
+ * Throttles per-task progress updates into batched "downloadProgress" reports.
+ * A task is reported when it moved more than 1% or progressMinBytes since its last report
+ * (or its total is unknown), and batches are flushed at most once per progressInterval.
+ * Called concurrently from every OnProgress poller. The per-task state lives in the task's
+ * {@link TaskRegistry} record and is checked under that record's lock, so samples that don't cross a
+ * threshold before the next flush is due return without taking this reporter's lock. Batching state
+ * is guarded by this, and a task's lock is never taken while holding it.
+ *
+ * In the packed format a batch is a single "downloadProgressPacked" map of parallel numeric arrays.
+ * Every task gets a small index when it is added, and its id is sent along with the first batch
+ * that reports it, so ids are not repeated in every batch.
+ *
+ * Once JS acknowledges batches, the next batch waits for the previous one to be acknowledged.
+ * Meanwhile each task keeps a single pending report that newer samples replace, so a busy JS thread
+ * gets one fresh batch instead of a backlog of stale ones.
+ *
+ * Reports that are left pending are flushed by the FlushScheduler once they are due, so the latest
+ * progress of a download that stalls, or that sent it while a batch awaited acknowledgement, still arrives.
+ */
+public class ProgressReporter {
+  public static final String EVENT_PROGRESS = "downloadProgress";
+  public static final String EVENT_PROGRESS_PACKED = "downloadProgressPacked";
+  public static final String FORMAT_MAP = "map";
+  public static final String FORMAT_PACKED = "packed";
+  // A batch that is not acknowledged in time is treated as delivered, so progress never stops for good.
+  private static final long ACK_TIMEOUT = 5000;
+
+  public interface FlushScheduler {
+    /**
+     * Calls flushPending() after the delay, from any thread.
+     */
+    void schedule(long delay);
+  }
+
+  public static class Batch {
+    public final String eventName;
+    public final Object payload;
+
+    Batch(String eventName, Object payload) {
+      this.eventName = eventName;
+      this.payload = payload;
+    }
+  }
+
+  private static class Report {
+    final long bytesDownloaded;
+    final long bytesTotal;
+
+    Report(long bytesDownloaded, long bytesTotal) {
+      this.bytesDownloaded = bytesDownloaded;
+      this.bytesTotal = bytesTotal;
+    }
+  }
+
+  private final TaskRegistry registry;
+  private final Map<String, Report> progressReports = new LinkedHashMap<>();
+  private final Set<String> announcedConfigIds = new HashSet<>();
+  // Indexes of removed tasks are reused, so they stay small however many tasks come and go.
+  private final Deque<Integer> freeIndexes = new ArrayDeque<>();
+  private int nextIndex = 0;
+  private boolean isPacked = false;
+  private boolean isAckEnabled = false;
+  private boolean isAwaitingAck = false;
+  private long batchesEmitted = 0;
+  private long recordsEmitted = 0;
+  private long recordsMerged = 0;
+  private long recordsDropped = 0;
+  private volatile int progressInterval = 0;
+  private volatile long progressMinBytes = 1024 * 1024;
+  private volatile long lastProgressReportedAt = System.currentTimeMillis();
+  @Nullable
+  private FlushScheduler flushScheduler;
+  // When the earliest scheduled flush runs, or 0 when none is.
+  private long scheduledFlushAt = 0;
+
+  public ProgressReporter() {
+    this(new TaskRegistry());
+  }
+
+  public ProgressReporter(TaskRegistry registry) {
+    this.registry = registry;
+  }
+
+  public synchronized int getProgressInterval() {
+    return progressInterval;
+  }
+
+  public synchronized void setProgressInterval(int progressInterval) {
+    this.progressInterval = progressInterval;
+  }
+
+  public synchronized long getProgressMinBytes() {
+    return progressMinBytes;
+  }
+
+  public synchronized void setProgressMinBytes(long progressMinBytes) {
+    this.progressMinBytes = progressMinBytes;
+  }
+
+  public synchronized void setFlushScheduler(@Nullable FlushScheduler flushScheduler) {
+    this.flushScheduler = flushScheduler;
+  }
+
+  public synchronized void setFormat(String format) {
+    isPacked = FORMAT_PACKED.equals(format);
+    announcedConfigIds.clear();
+  }
+
+  /**
+   * Forgets what was delivered to JS, e.g. after it was reloaded: the ids of packed batches are sent
+   * again, and a batch the old runtime never acknowledged is not waited for.
+   */
+  public synchronized void resetDelivery() {
+    announcedConfigIds.clear();
+    isAwaitingAck = false;
+  }
+
+  /**
+   * Marks the last batch as delivered and returns the batch that waited for it, if one is due.
+   */
+  @Nullable
+  public synchronized Batch onAcknowledged() {
+    isAckEnabled = true;
+    isAwaitingAck = false;
+
+    long now = System.currentTimeMillis();
+    if (progressReports.isEmpty() || now - lastProgressReportedAt <= progressInterval) {
+      scheduleFlush(now);
+      return null;
+    }
+    return flush(now);
+  }
+
+  /**
+   * Returns the pending reports once they are due. Called by the FlushScheduler.
+   */
+  @Nullable
+  public synchronized Batch flushPending() {
+    scheduledFlushAt = 0;
+    long now = System.currentTimeMillis();
+    if (progressReports.isEmpty()) {
+      return null;
+    }
+    if (now - lastProgressReportedAt <= progressInterval || !isDelivered(now)) {
+      // Due later than scheduled, e.g. because another batch was sent meanwhile.
+      scheduleFlush(now);
+      return null;
+    }
+    return flush(now);
+  }
+
+  /**
+   * Drops the pending report of a task that finished, so it doesn't arrive after the task's final event.
+   */
+  public synchronized void discardPending(String configId) {
+    if (progressReports.remove(configId) != null) {
+      recordsDropped++;
+    }
+  }
+
+  public synchronized WritableMap getMetrics() {
+    WritableMap metrics = Arguments.createMap();
+    metrics.putDouble("progressBatchesEmitted", batchesEmitted);
+    metrics.putDouble("progressRecordsEmitted", recordsEmitted);
+    metrics.putDouble("progressRecordsMerged", recordsMerged);
+    metrics.putDouble("progressRecordsDropped", recordsDropped);
+    metrics.putInt("progressRecordsPending", progressReports.size());
+    metrics.putBoolean("isAwaitingAck", isAwaitingAck);
+    return metrics;
+  }
+
+  public synchronized void setPercent(String configId, double percent) {
+    TaskRegistry.Task task = registry.retainReporting(configId);
+    task.percent = percent;
+    if (task.index < 0) {
+      Integer index = freeIndexes.poll();
+      task.index = index != null ? index : nextIndex++;
+    }
+  }
+
+  public synchronized void remove(String configId) {
+    discardPending(configId);
+    announcedConfigIds.remove(configId);
+    TaskRegistry.Task task = registry.get(configId);
+    if (task != null) {
+      task.percent = 0;
+      task.lastBytes = 0;
+      if (task.index >= 0) {
+        freeIndexes.push(task.index);
+        task.index = -1;
+      }
+    }
+    registry.releaseReporting(configId);
+  }
+
+  /**
+   * Records a progress sample and returns the batch to emit, or null when nothing is due yet.
+   */
+  @Nullable
+  public Batch onProgress(String configId, long bytesDownloaded, long bytesTotal) {
+    double percent = bytesTotal > 0.0 ? ((double) bytesDownloaded / bytesTotal) : 0.0;
+    boolean isReported;
+    TaskRegistry.Task task = registry.get(configId);
+    if (task != null) {
+      synchronized (task) {
+        isReported = isThresholdMet(task.percent, task.lastBytes, percent, bytesDownloaded, bytesTotal);
+        if (isReported) {
+          task.percent = percent;
+          task.lastBytes = bytesDownloaded;
+        }
+      }
+    } else {
+      isReported = isThresholdMet(0.0, 0, percent, bytesDownloaded, bytesTotal);
+    }
+
+    long now = System.currentTimeMillis();
+    boolean isReportTimeDifference = now - lastProgressReportedAt > progressInterval;
+    if (!isReported && !isReportTimeDifference) {
+      return null;
+    }
+
+    synchronized (this) {
+      if (isReported && progressReports.put(configId, new Report(bytesDownloaded, bytesTotal)) != null) {
+        recordsMerged++;
+      }
+
+      isReportTimeDifference = now - lastProgressReportedAt > progressInterval;
+      boolean isReportNotEmpty = !progressReports.isEmpty();
+      if (!isReportTimeDifference || !isReportNotEmpty || !isDelivered(now)) {
+        scheduleFlush(now);
+        return null;
+      }
+
+      return flush(now);
+    }
+  }
+
+  private boolean isDelivered(long now) {
+    return !isAwaitingAck || now - lastProgressReportedAt > ACK_TIMEOUT;
+  }
+
+  /**
+   * Schedules a flush for when the pending reports are due, unless an earlier one is already scheduled.
+   */
+  private void scheduleFlush(long now) {
+    if (flushScheduler == null || progressReports.isEmpty()) {
+      return;
+    }
+
+    long dueAt = lastProgressReportedAt + Math.max(progressInterval, 0) + 1;
+    if (isAwaitingAck) {
+      dueAt = Math.max(dueAt, lastProgressReportedAt + ACK_TIMEOUT + 1);
+    }
+    dueAt = Math.max(dueAt, now);
+    if (scheduledFlushAt != 0 && scheduledFlushAt <= dueAt) {
+      return;
+    }
+
+    scheduledFlushAt = dueAt;
+    flushScheduler.schedule(dueAt - now);
+  }
+
+  private boolean isThresholdMet(double prevPercent, long prevBytes, double percent, long bytesDownloaded, long bytesTotal) {
+    boolean percentThresholdMet = percent - prevPercent > 0.01;
+    boolean bytesThresholdMet = bytesDownloaded - prevBytes >= progressMinBytes;
+    return percentThresholdMet || bytesThresholdMet || bytesTotal <= 0;
+  }
+
+  private Batch flush(long now) {
+    Batch batch = isPacked
+        ? new Batch(EVENT_PROGRESS_PACKED, createPackedReport())
+        : new Batch(EVENT_PROGRESS, createReportsArray());
+    batchesEmitted++;
+    recordsEmitted += progressReports.size();
+    lastProgressReportedAt = now;
+    isAwaitingAck = isAckEnabled;
+    progressReports.clear();
+    return batch;
+  }
+
+  private WritableArray createReportsArray() {
+    WritableArray reportsArray = Arguments.createArray();
+    for (Map.Entry<String, Report> entry : progressReports.entrySet()) {
+      Report report = entry.getValue();
+      WritableMap params = Arguments.createMap();
+      params.putString("id", entry.getKey());
+      params.putDouble("bytesDownloaded", report.bytesDownloaded);
+      params.putDouble("bytesTotal", report.bytesTotal);
+      // Both engines write front to back, so every downloaded byte is readable from the partial file.
+      params.putDouble("bytesAvailable", report.bytesDownloaded);
+      reportsArray.pushMap(params);
+    }
+    return reportsArray;
+  }
+
+  private WritableMap createPackedReport() {
+    WritableArray indexes = Arguments.createArray();
+    WritableArray bytesDownloaded = Arguments.createArray();
+    WritableArray bytesTotal = Arguments.createArray();
+    WritableArray announcedIndexes = Arguments.createArray();
+    WritableArray announcedIds = Arguments.createArray();
+
+    for (Map.Entry<String, Report> entry : progressReports.entrySet()) {
+      String configId = entry.getKey();
+      TaskRegistry.Task task = registry.get(configId);
+      int index = task != null ? task.index : -1;
+      if (index < 0) {
+        // Reported without being added first, e.g. by a task that was just removed.
+        continue;
+      }
+      if (announcedConfigIds.add(configId)) {
+        announcedIndexes.pushInt(index);
+        announcedIds.pushString(configId);
+      }
+      indexes.pushInt(index);
+      bytesDownloaded.pushDouble(entry.getValue().bytesDownloaded);
+      bytesTotal.pushDouble(entry.getValue().bytesTotal);
+    }
+
+    WritableMap packed = Arguments.createMap();
+    packed.putArray("index", indexes);
+    packed.putArray("bytesDownloaded", bytesDownloaded);
+    packed.putArray("bytesTotal", bytesTotal);
+    if (announcedIndexes.size() > 0) {
+      packed.putArray("announcedIndex", announcedIndexes);
+      packed.putArray("announcedId", announcedIds);
+    }
+    return packed;
+  }
+}
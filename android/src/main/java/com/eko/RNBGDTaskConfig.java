@@ -1,13 +1,47 @@
 package com.eko;
 
 import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
 
 public class RNBGDTaskConfig implements Serializable {
     public String id;
     public String url;
+    // Other URLs of the same file. All of them are probed and the fastest is used, or null for url only.
+    public List<String> mirrors;
     public String destination;
     public String metadata = "{}";
     public String notificationTitle;
+    public String group;
+    // Archive format to extract into the destination directory, or null to keep the file as is.
+    public String extract;
+    // {offset, length} pairs of the resource to fetch, written back to back into destination in this order, or null for all of it.
+    public long[][] ranges;
+    // Patch to apply to the file already at destination instead of downloading url, and the SHA-256 (hex) of the result.
+    public String patchUrl;
+    public String patchSha256;
+    // Android Keystore alias of the AES key the file is encrypted with at destination, or null to keep it as is.
+    public String encryptKeyAlias;
+    // "gcm" or "ctr".
+    public String encryptMode;
+    // File the engine writes to while downloading, readable through readRange.
+    public String partialPath;
+    // Null to fail on the first error.
+    public RetryPolicy retryPolicy;
+    // Attempts that failed so far, carried over when the task is enqueued again.
+    public int retryAttempts;
+    // Request settings of tasks that are requested after the original request is gone: retried ones,
+    // and DownloadManager tasks that waited for a free slot of their host.
+    public Map<String, String> headers;
+    public boolean isAllowedOverRoaming = true;
+    public boolean isAllowedOverMetered = true;
+    public boolean isNotificationVisible;
+    // Set on tasks whose transfer is shared with later downloads of the same URL and headers.
+    public String requestKey;
+    // Downloads that joined this task's transfer. They get its events and their own copy of its file.
+    public List<RNBGDTaskConfig> subscribers;
+    // Cancelled while subscribers still need its transfer, so it no longer gets events itself.
+    public boolean isDetached;
     public boolean reportedBegin;
 
     public RNBGDTaskConfig(String id, String url, String destination, String metadata, String notificationTitle) {
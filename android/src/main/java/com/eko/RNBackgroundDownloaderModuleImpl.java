@@ -6,16 +6,32 @@ import android.util.Log;
 import com.eko.handlers.OnBegin;
 import com.eko.handlers.OnProgress;
 import com.eko.handlers.OnBeginState;
-import com.eko.handlers.OnProgressState;
+import com.eko.handlers.ProgressPoller;
+import com.eko.transfer.ConcurrencyController;
+import com.eko.transfer.MirrorSelector;
+import com.eko.transfer.DownloadService;
+import com.eko.transfer.HttpClientPool;
+import com.eko.transfer.InlineDownloader;
+import com.eko.transfer.PartFileWriter;
+import com.eko.transfer.TransferCheckpoint;
+import com.eko.utils.ArchiveUtils;
+import com.eko.utils.ConfigUtils;
+import com.eko.utils.FileEncryption;
 import com.eko.utils.FileUtils;
+import com.eko.work.DownloadWorker;
+import com.eko.work.TaskConstraints;
+import com.eko.work.WorkEvents;
+import com.eko.work.WorkScheduler;
 
 import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
 import com.facebook.react.bridge.ReadableMapKeySetIterator;
+import com.facebook.react.bridge.ReadableType;
 import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.modules.core.DeviceEventManagerModule;
@@ -26,13 +42,16 @@ import android.app.DownloadManager.Request;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.annotation.Nullable;
 
@@ -45,12 +64,15 @@ import android.net.Uri;
 import android.webkit.MimeTypeMap;
 import android.database.Cursor;
 import android.os.Build;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.util.Base64;
 
 import androidx.annotation.NonNull;
+import androidx.work.Data;
+import androidx.work.WorkInfo;
 
 import com.tencent.mmkv.MMKV;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 import android.content.SharedPreferences;
 
 public class RNBackgroundDownloaderModuleImpl extends ReactContextBaseJavaModule {
@@ -62,8 +84,20 @@ public class RNBackgroundDownloaderModuleImpl extends ReactContextBaseJavaModule
   private static final int TASK_CANCELING = 2;
   private static final int TASK_COMPLETED = 3;
 
-  private final ExecutorService cachedExecutorPool = Executors.newCachedThreadPool();
+  // Bounded so resuming hundreds of tasks at startup can't spawn a thread per task.
+  private static final int BEGIN_POOL_SIZE = 4;
+  private static final int RANGE_READ_POOL_SIZE = 4;
+  // Ranges are returned base64 encoded over the bridge, so large reads are refused.
+  private static final int MAX_RANGE_LENGTH = 8 * 1024 * 1024;
+  private static final String INLINE_CONFIG_KEY_PREFIX = "_inlineConfig_";
+  private static final String QUEUED_CONFIG_KEY_PREFIX = "_queuedConfig_";
+
+  private final ExecutorService beginExecutorPool = Executors.newFixedThreadPool(BEGIN_POOL_SIZE);
   private final ExecutorService fixedExecutorPool = Executors.newFixedThreadPool(1);
+  private final ExecutorService rangeReadExecutorPool = Executors.newFixedThreadPool(RANGE_READ_POOL_SIZE);
+  private final ExecutorService queueExecutorPool = Executors.newFixedThreadPool(1);
+  // Flushes progress that is left pending when no newer sample comes to flush it.
+  private final ScheduledExecutorService progressFlushExecutor = Executors.newSingleThreadScheduledExecutor();
   private static final Map<Integer, Integer> stateMap = new HashMap<Integer, Integer>() {
     {
       put(DownloadManager.STATUS_FAILED, TASK_CANCELING);
@@ -78,43 +112,40 @@ public class RNBackgroundDownloaderModuleImpl extends ReactContextBaseJavaModule
   private static SharedPreferences sharedPreferences;
   private static boolean isMMKVAvailable = false;
   private final Downloader downloader;
+  private final ProgressPoller progressPoller;
   private BroadcastReceiver downloadReceiver;
   private static final Object sharedLock = new Object();
-  private Map<Long, RNBGDTaskConfig> downloadIdToConfig = new HashMap<>();
-  private final Map<String, Long> configIdToDownloadId = new HashMap<>();
-  private final Map<String, Double> configIdToPercent = new HashMap<>();
-  private final Map<String, Long> configIdToLastBytes = new HashMap<>();
-  private final Map<String, Future<OnProgressState>> configIdToProgressFuture = new HashMap<>();
-  private final Map<String, WritableMap> progressReports = new HashMap<>();
-  private int progressInterval = 0;
-  private long progressMinBytes = 1024 * 1024;
-  private Date lastProgressReportedAt = new Date();
+  // Orders saves of the DownloadManager tasks, which don't need sharedLock otherwise.
+  private final Object downloadConfigLock = new Object();
+  private final TaskRegistry taskRegistry = new TaskRegistry();
+  private final ProgressReporter progressReporter = new ProgressReporter(taskRegistry);
+  private final PartialFileReader partialFileReader = new PartialFileReader();
+  private final GroupProgressTracker groupProgressTracker = new GroupProgressTracker();
+  private final DownloadCoalescer coalescer = new DownloadCoalescer();
+  private final InlineDownloader inlineDownloader = new InlineDownloader();
+  private final HostQueue hostQueue = new HostQueue();
+  @Nullable
+  private volatile ManagedStorage managedStorage;
+  private final WorkScheduler workScheduler;
+  private Map<String, RNBGDTaskConfig> configIdToWorkConfig = new HashMap<>();
+  // Persisted one key per task, since inline downloads come and go by the hundreds.
+  private final Map<String, RNBGDTaskConfig> configIdToInlineConfig = new HashMap<>();
+  // DownloadManager downloads waiting for a slot of their host, persisted like inline downloads.
+  private final Map<String, RNBGDTaskConfig> configIdToQueuedConfig = new HashMap<>();
   private DeviceEventManagerModule.RCTDeviceEventEmitter ee;
 
   public RNBackgroundDownloaderModuleImpl(ReactApplicationContext reactContext) {
     super(reactContext);
-    
-    sharedPreferences = reactContext.getSharedPreferences(getName() + "_prefs", Context.MODE_PRIVATE);
-    
-    try {
-      MMKV.initialize(reactContext);
-      mmkv = MMKV.mmkvWithID(getName());
-      isMMKVAvailable = true;
-      Log.d(getName(), "MMKV initialized successfully");
-    } catch (UnsatisfiedLinkError e) {
-      Log.e(getName(), "Failed to initialize MMKV: " + e.getMessage());
-      mmkv = null;
-      isMMKVAvailable = false;
-    } catch (Exception e) {
-      Log.e(getName(), "Failed to initialize MMKV: " + e.getMessage());
-      mmkv = null;
-      isMMKVAvailable = false;
-    }
+
+    initStorage(reactContext);
 
     loadDownloadIdToConfigMap();
+    loadWorkConfigMap();
     loadConfigMap();
 
     downloader = new Downloader(reactContext);
+    progressPoller = new ProgressPoller(downloader);
+    workScheduler = new WorkScheduler(reactContext);
   }
 
   @NonNull
@@ -150,18 +181,56 @@ public class RNBackgroundDownloaderModuleImpl extends ReactContextBaseJavaModule
   public void initialize() {
     super.initialize();
     ee = getReactApplicationContext().getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class);
+    progressReporter.setFlushScheduler(delay -> progressFlushExecutor.schedule(
+        () -> emitProgressBatch(progressReporter.flushPending()), delay, TimeUnit.MILLISECONDS));
     registerDownloadReceiver();
+    WorkEvents.setListener(workListener);
 
-    for (Map.Entry<Long, RNBGDTaskConfig> entry : downloadIdToConfig.entrySet()) {
+    for (Map.Entry<Long, RNBGDTaskConfig> entry : taskRegistry.getDownloadConfigs().entrySet()) {
       Long downloadId = entry.getKey();
       RNBGDTaskConfig config = entry.getValue();
+      restoreTransfer(config);
+      hostQueue.markRunning(config);
       resumeTasks(downloadId, config);
     }
+
+    for (RNBGDTaskConfig config : configIdToWorkConfig.values()) {
+      restoreTransfer(config);
+    }
+
+    // Inline downloads of a process that died continue through WorkManager from their checkpoint.
+    for (RNBGDTaskConfig config : loadTaskConfigs(INLINE_CONFIG_KEY_PREFIX)) {
+      Log.d(getName(), "initialize: continuing inline download " + config.id + " through WorkManager");
+      restoreTransfer(config);
+      handOverToWork(config, 0);
+    }
+
+    // Downloads that waited for a slot wait for one again, behind those DownloadManager still runs.
+    for (RNBGDTaskConfig config : loadTaskConfigs(QUEUED_CONFIG_KEY_PREFIX)) {
+      restoreTransfer(config);
+      progressReporter.setPercent(config.id, 0.0);
+      removeTaskConfig(QUEUED_CONFIG_KEY_PREFIX, config.id);
+      queueDownload(config);
+    }
+  }
+
+  private void restoreTransfer(RNBGDTaskConfig config) {
+    coalescer.addOwner(config);
+    for (RNBGDTaskConfig eventConfig : coalescer.getEventConfigs(config)) {
+      partialFileReader.register(eventConfig.id, config.partialPath);
+      groupProgressTracker.addMember(eventConfig.group, eventConfig.id);
+    }
   }
 
   @Override
   public void invalidate() {
     unregisterDownloadReceiver();
+    WorkEvents.clearListener(workListener);
+    progressReporter.setFlushScheduler(null);
+    progressFlushExecutor.shutdownNow();
+    progressPoller.shutdown();
+    inlineDownloader.shutdown();
+    DownloadService.clear();
   }
 
   private void registerDownloadReceiver() {
@@ -172,34 +241,40 @@ public class RNBackgroundDownloaderModuleImpl extends ReactContextBaseJavaModule
       @Override
       public void onReceive(Context context, Intent intent) {
         long downloadId = intent.getLongExtra(DownloadManager.EXTRA_DOWNLOAD_ID, -1);
-        RNBGDTaskConfig config = downloadIdToConfig.get(downloadId);
+        TaskRegistry.Task task = taskRegistry.getByDownloadId(downloadId);
+        if (task == null) {
+          return;
+        }
 
-        if (config != null) {
-          WritableMap downloadStatus = downloader.checkDownloadStatus(downloadId);
-          int status = downloadStatus.getInt("status");
-          String localUri = downloadStatus.getString("localUri");
+        // Only this task is locked, so enqueue, cancel and progress of the others carry on meanwhile.
+        synchronized (task) {
+          RNBGDTaskConfig config = task.getConfig();
+          if (config == null || task.getDownloadId() != downloadId) {
+            return;
+          }
+
+          DownloadStatus downloadStatus = downloader.checkDownloadStatus(downloadId);
+          String localUri = downloadStatus.localUri;
 
           stopTaskProgress(config.id);
 
-          synchronized (sharedLock) {
-            switch (status) {
-              case DownloadManager.STATUS_SUCCESSFUL: {
-                onSuccessfulDownload(config, downloadStatus);
-                break;
-              }
-              case DownloadManager.STATUS_FAILED: {
-                onFailedDownload(config, downloadStatus);
-                break;
-              }
+          switch (downloadStatus.status) {
+            case DownloadManager.STATUS_SUCCESSFUL: {
+              onSuccessfulDownload(config, downloadStatus);
+              break;
             }
-
-            if (localUri != null) {
-              String[] paths = new String[]{localUri};
-              MediaScannerConnection.scanFile(context, paths, null, (path, uri) -> stopTask(config.id));
-            } else {
-              stopTask(config.id);
+            case DownloadManager.STATUS_FAILED: {
+              onFailedDownload(config, downloadStatus);
+              break;
             }
           }
+
+          if (localUri != null) {
+            String[] paths = new String[]{localUri};
+            MediaScannerConnection.scanFile(context, paths, null, (path, uri) -> stopTask(config.id));
+          } else {
+            stopTask(config.id);
+          }
         }
       }
     };
@@ -224,42 +299,34 @@ public class RNBackgroundDownloaderModuleImpl extends ReactContextBaseJavaModule
   }
 
   private void resumeTasks(Long downloadId, RNBGDTaskConfig config) {
-    new Thread(() -> {
+    beginExecutorPool.submit(() -> {
       try {
         long bytesDownloaded = 0;
         long bytesTotal = 0;
 
         if (!config.reportedBegin) {
           OnBegin onBeginCallable = new OnBegin(config, this::onBeginDownload);
-          Future<OnBeginState> onBeginFuture = cachedExecutorPool.submit(onBeginCallable);
-          OnBeginState onBeginState = onBeginFuture.get();
+          OnBeginState onBeginState = onBeginCallable.call();
           bytesTotal = onBeginState.expectedBytes;
 
           config.reportedBegin = true;
-          downloadIdToConfig.put(downloadId, config);
           saveDownloadIdToConfigMap();
         }
 
-        OnProgress onProgressCallable = new OnProgress(config, downloader, downloadId, bytesDownloaded, bytesTotal, this::onProgressDownload);
-        Future<OnProgressState> onProgressFuture = cachedExecutorPool.submit(onProgressCallable);
-        configIdToProgressFuture.put(config.id, onProgressFuture);
+        OnProgress onProgress = new OnProgress(config, downloader, downloadId, bytesDownloaded, bytesTotal, this::onProgressDownload);
+        progressPoller.add(onProgress);
       } catch (Exception e) {
         Log.e(getName(), "resumeTasks: " + Log.getStackTraceString(e));
       }
-    }).start();
+    });
   }
 
   private void removeTaskFromMap(long downloadId) {
-    synchronized (sharedLock) {
-      RNBGDTaskConfig config = downloadIdToConfig.get(downloadId);
-
-      if (config != null) {
-        configIdToDownloadId.remove(config.id);
-        configIdToPercent.remove(config.id);
-        configIdToLastBytes.remove(config.id);
-        downloadIdToConfig.remove(downloadId);
-        saveDownloadIdToConfigMap();
-      }
+    RNBGDTaskConfig config = taskRegistry.removeDownload(downloadId);
+    if (config != null) {
+      progressReporter.remove(config.id);
+      saveDownloadIdToConfigMap();
+      releaseDownload(config.id);
     }
   }
 
@@ -276,6 +343,7 @@ public class RNBackgroundDownloaderModuleImpl extends ReactContextBaseJavaModule
       boolean isAllowedOverMetered,
       boolean isNotificationVisible,
       @Nullable String notificationTitle,
+      @Nullable ReadableMap options,
       Promise promise
   ) {
     if (id == null || url == null || destinationPath == null) {
@@ -283,60 +351,294 @@ public class RNBackgroundDownloaderModuleImpl extends ReactContextBaseJavaModule
       return;
     }
 
-    if (progressIntervalScope > 0) {
-      progressInterval = (int) progressIntervalScope;
-      saveConfigMap();
+    // Sent with every download, so only persisted when it actually changes.
+    boolean isConfigChanged = false;
+    if (progressIntervalScope > 0 && (int) progressIntervalScope != progressReporter.getProgressInterval()) {
+      progressReporter.setProgressInterval((int) progressIntervalScope);
+      isConfigChanged = true;
+    }
+
+    if (progressMinBytesScope > 0 && (long) progressMinBytesScope != progressReporter.getProgressMinBytes()) {
+      progressReporter.setProgressMinBytes((long) progressMinBytesScope);
+      isConfigChanged = true;
     }
 
-    if (progressMinBytesScope > 0) {
-      progressMinBytes = (long) progressMinBytesScope;
+    if (isConfigChanged) {
       saveConfigMap();
     }
 
-    final Request request = new Request(Uri.parse(url));
-    request.setAllowedOverRoaming(isAllowedOverRoaming);
-    request.setAllowedOverMetered(isAllowedOverMetered);
-    request.setNotificationVisibility(isNotificationVisible ? Request.VISIBILITY_VISIBLE : Request.VISIBILITY_HIDDEN);
-    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
-      request.setRequiresCharging(false);
+    Map<String, String> requestHeaders = getRequestHeaders(headers);
+    String group = getString(options, "group");
+    String extract = getString(options, "extract");
+    TaskConstraints constraints = TaskConstraints.fromMap(getMap(options, "constraints"));
+    RetryPolicy retryPolicy = RetryPolicy.fromMap(getMap(options, "retry"));
+    long[][] ranges;
+    try {
+      ranges = getRanges(options);
+    } catch (IllegalArgumentException e) {
+      promise.reject("E_PARAMS", e.getMessage());
+      return;
+    }
+    if (ranges != null && extract != null) {
+      promise.reject("E_PARAMS", "ranges can't be combined with extract");
+      return;
+    }
+    List<String> mirrors = getMirrors(options);
+    if (mirrors != null && extract != null) {
+      promise.reject("E_PARAMS", "mirrors can't be combined with extract");
+      return;
+    }
+
+    ReadableMap encrypt = getMap(options, "encrypt");
+    String encryptKeyAlias = getString(encrypt, "keyAlias");
+    String encryptMode = getString(encrypt, "mode") != null ? getString(encrypt, "mode") : FileEncryption.MODE_GCM;
+    if (encrypt != null && (encryptKeyAlias == null || !FileEncryption.isMode(encryptMode) || extract != null)) {
+      promise.reject("E_PARAMS", "encrypt needs a keyAlias and a mode of 'gcm' or 'ctr', and can't be combined with extract");
+      return;
     }
 
-    if (notificationTitle != null) {
-      request.setTitle(notificationTitle);
+    // Only once the options are valid, as admitting may evict other files.
+    ManagedStorage storage = managedStorage;
+    if (storage != null && storage.isManaged(destinationPath)) {
+      emitEvictions(storage.admit(id, destinationPath));
     }
 
-    request.addRequestHeader("Connection", "keep-alive");
-    request.addRequestHeader("Keep-Alive", "timeout=600, max=1000");
+    // Patches only apply to a plain file already at the destination, and are only applied by DownloadWorker.
+    ReadableMap patchFrom = getMap(options, "patchFrom");
+    String patchUrl = getString(patchFrom, "url");
+    String patchSha256 = getString(patchFrom, "sha256");
+    boolean isPatched = patchUrl != null && patchSha256 != null && extract == null && encryptKeyAlias == null
+        && ranges == null && new File(destinationPath).isFile();
+
+    // Ranges and mirrors are only handled by DownloadWorker, as DownloadManager always downloads the
+    // whole resource from one URL.
+    if (isPatched || ranges != null || mirrors != null || workScheduler.shouldSchedule(getString(options, "engine"), group, constraints)) {
+      RNBGDTaskConfig config = new RNBGDTaskConfig(id, url, destinationPath, metadata, notificationTitle);
+      config.group = group;
+      config.extract = extract;
+      config.retryPolicy = retryPolicy;
+      config.encryptKeyAlias = encryptKeyAlias;
+      config.encryptMode = encryptMode;
+      config.ranges = ranges;
+      config.mirrors = mirrors;
+      config.headers = requestHeaders;
+      if (isPatched) {
+        config.patchUrl = patchUrl;
+        config.patchSha256 = patchSha256;
+      }
+      // Extracted archives stream into the destination and have no partial file.
+      if (extract == null) {
+        config.partialPath = FileUtils.getPartFile(getReactApplicationContext(), id).getAbsolutePath();
+      }
+      partialFileReader.register(id, config.partialPath);
+      groupProgressTracker.addMember(group, id);
+
+      synchronized (sharedLock) {
+        progressReporter.setPercent(id, 0.0);
+        configIdToWorkConfig.put(id, config);
+        saveWorkConfigMap();
+      }
 
-    if (!hasUserAgentHeader(headers)) {
-      request.addRequestHeader("User-Agent", "ReactNative-BackgroundDownloader/3.2.6");
+      try {
+        workScheduler.enqueue(config, constraints, isAllowedOverRoaming, isAllowedOverMetered);
+      } catch (Exception e) {
+        removeWorkTask(id);
+        releaseStorage(id);
+        promise.reject("E_WORK", e.getMessage(), e);
+        return;
+      }
+
+      promise.resolve(null);
+      return;
     }
 
-    if (headers != null) {
-      ReadableMapKeySetIterator iterator = headers.keySetIterator();
-      while (iterator.hasNextKey()) {
-        String headerKey = iterator.nextKey();
-        request.addRequestHeader(headerKey, headers.getString(headerKey));
+    // Inline downloads run on whatever connection is up, so downloads restricted to some networks are left to DownloadManager.
+    // Encrypted downloads are left to the engines that finalize with the task's config.
+    if ("inline".equals(getString(options, "engine")) && extract == null && encryptKeyAlias == null
+        && isAllowedOverRoaming && isAllowedOverMetered) {
+      RNBGDTaskConfig config = new RNBGDTaskConfig(id, url, destinationPath, metadata, notificationTitle);
+      config.group = group;
+      config.retryPolicy = retryPolicy;
+      config.headers = requestHeaders;
+      File partFile = FileUtils.getPartFile(getReactApplicationContext(), id);
+      config.partialPath = partFile.getAbsolutePath();
+      partialFileReader.register(id, config.partialPath);
+      groupProgressTracker.addMember(group, id);
+
+      synchronized (sharedLock) {
+        progressReporter.setPercent(id, 0.0);
+        configIdToInlineConfig.put(id, config);
+        saveTaskConfig(INLINE_CONFIG_KEY_PREFIX, config);
+      }
+
+      // With a notification the download is kept in the foreground, so it runs here whatever its size.
+      if (isNotificationVisible) {
+        DownloadService.add(getReactApplicationContext(), id, notificationTitle);
+        inlineDownloader.download(id, url, requestHeaders, partFile, new File(destinationPath), Long.MAX_VALUE, inlineListener);
+      } else {
+        inlineDownloader.download(id, url, requestHeaders, partFile, new File(destinationPath), inlineListener);
+      }
+      promise.resolve(null);
+      return;
+    }
+
+    // Archives are extracted into a directory of their own and encrypted files get a key of their own,
+    // so only plain files share a transfer.
+    String requestKey = null;
+    if (extract == null && encryptKeyAlias == null && (options == null || !options.hasKey("coalesce") || options.isNull("coalesce") || options.getBoolean("coalesce"))) {
+      requestKey = DownloadCoalescer.getRequestKey(url, requestHeaders);
+      RNBGDTaskConfig subscriber = new RNBGDTaskConfig(id, url, destinationPath, metadata, notificationTitle);
+      subscriber.group = group;
+      if (subscribeDownload(requestKey, subscriber)) {
+        promise.resolve(null);
+        return;
+      }
+    }
+
+    RNBGDTaskConfig config = new RNBGDTaskConfig(id, url, destinationPath, metadata, notificationTitle);
+    config.group = group;
+    config.extract = extract;
+    config.encryptKeyAlias = encryptKeyAlias;
+    config.encryptMode = encryptMode;
+    config.requestKey = requestKey;
+    config.retryPolicy = retryPolicy;
+    config.headers = requestHeaders;
+    config.isAllowedOverRoaming = isAllowedOverRoaming;
+    config.isAllowedOverMetered = isAllowedOverMetered;
+    config.isNotificationVisible = isNotificationVisible;
+    groupProgressTracker.addMember(group, id);
+    progressReporter.setPercent(id, 0.0);
+    coalescer.addOwner(config);
+
+    queueDownload(config);
+
+    promise.resolve(null);
+  }
+
+  /**
+   * Starts a DownloadManager download when its host has a free slot, and otherwise keeps it waiting
+   * for one. Waiting downloads are persisted, so they still start after the app restarts.
+   */
+  private void queueDownload(RNBGDTaskConfig config) {
+    synchronized (sharedLock) {
+      if (!hostQueue.offer(config)) {
+        configIdToQueuedConfig.put(config.id, config);
+        saveTaskConfig(QUEUED_CONFIG_KEY_PREFIX, config);
+        return;
+      }
+    }
+    startDownload(config);
+  }
+
+  /**
+   * Starts downloads whose host got a free slot. They are started one at a time off the thread that
+   * freed the slot, as it may hold the lock of a task, and under sharedLock so a cancel either still
+   * finds them waiting or finds them in DownloadManager.
+   */
+  private void startQueuedDownloads(List<RNBGDTaskConfig> configs) {
+    for (RNBGDTaskConfig config : configs) {
+      queueExecutorPool.submit(() -> {
+        Exception error = null;
+        synchronized (sharedLock) {
+          // Cancelled while its start was on the way, which already freed its slot.
+          if (configIdToQueuedConfig.remove(config.id) == null) {
+            return;
+          }
+          removeTaskConfig(QUEUED_CONFIG_KEY_PREFIX, config.id);
+
+          try {
+            startDownload(config);
+          } catch (Exception e) {
+            error = e;
+          }
+        }
+
+        if (error != null) {
+          Log.e(getName(), "startQueuedDownloads: " + Log.getStackTraceString(error));
+          releaseDownload(config.id);
+          onTransferFailed(config.id, DownloadManager.ERROR_UNKNOWN, error.getMessage());
+        }
+      });
+    }
+  }
+
+  private void releaseDownload(String configId) {
+    startQueuedDownloads(hostQueue.release(configId));
+  }
+
+  private void startDownload(RNBGDTaskConfig config) {
+    final Request request = new Request(Uri.parse(config.url));
+    request.setAllowedOverRoaming(config.isAllowedOverRoaming);
+    request.setAllowedOverMetered(config.isAllowedOverMetered);
+    request.setNotificationVisibility(config.isNotificationVisible ? Request.VISIBILITY_VISIBLE : Request.VISIBILITY_HIDDEN);
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+      request.setRequiresCharging(false);
+    }
+
+    if (config.notificationTitle != null) {
+      request.setTitle(config.notificationTitle);
+    }
+
+    if (config.headers != null) {
+      for (Map.Entry<String, String> header : config.headers.entrySet()) {
+        request.addRequestHeader(header.getKey(), header.getValue());
       }
     }
 
     int uuid = (int) (System.currentTimeMillis() & 0xfffffff);
-    String extension = MimeTypeMap.getFileExtensionFromUrl(destinationPath);
+    String extension = MimeTypeMap.getFileExtensionFromUrl(config.destination);
     String filename = uuid + "." + extension;
     request.setDestinationInExternalFilesDir(this.getReactApplicationContext(), null, filename);
 
     long downloadId = downloader.download(request);
-    RNBGDTaskConfig config = new RNBGDTaskConfig(id, url, destinationPath, metadata, notificationTitle);
+    File externalFilesDirectory = getReactApplicationContext().getExternalFilesDir(null);
+    if (externalFilesDirectory != null) {
+      config.partialPath = new File(externalFilesDirectory, filename).getAbsolutePath();
+    }
+    // Downloads that joined it while it was waiting had no partial file yet.
+    for (RNBGDTaskConfig eventConfig : coalescer.getEventConfigs(config)) {
+      eventConfig.partialPath = config.partialPath;
+      partialFileReader.register(eventConfig.id, config.partialPath);
+    }
+
+    taskRegistry.putDownload(downloadId, config);
+    saveDownloadIdToConfigMap();
+    resumeTasks(downloadId, config);
+  }
 
+  /**
+   * Joins the transfer of a download of the same request that is in flight instead of starting another one.
+   */
+  private boolean subscribeDownload(String requestKey, RNBGDTaskConfig config) {
+    RNBGDTaskConfig owner;
     synchronized (sharedLock) {
-      configIdToDownloadId.put(id, downloadId);
-      configIdToPercent.put(id, 0.0);
-      downloadIdToConfig.put(downloadId, config);
-      saveDownloadIdToConfigMap();
-      resumeTasks(downloadId, config);
+      owner = coalescer.subscribe(requestKey, config);
+      if (owner == null) {
+        return false;
+      }
+
+      config.partialPath = owner.partialPath;
+      progressReporter.setPercent(config.id, 0.0);
+      saveTransferConfig(owner);
     }
+    partialFileReader.register(config.id, config.partialPath);
+    groupProgressTracker.addMember(config.group, config.id);
 
-    promise.resolve(null);
+    WritableMap headers = coalescer.getBeginHeaders(owner.id);
+    if (headers != null) {
+      emitBegin(config.id, headers, coalescer.getBeginExpectedBytes(owner.id));
+    }
+    return true;
+  }
+
+  private void saveTransferConfig(RNBGDTaskConfig owner) {
+    if (taskRegistry.getDownloadId(owner.id) != TaskRegistry.NO_DOWNLOAD_ID) {
+      saveDownloadIdToConfigMap();
+    } else if (configIdToWorkConfig.containsKey(owner.id)) {
+      saveWorkConfigMap();
+    } else if (configIdToQueuedConfig.containsKey(owner.id)) {
+      saveTaskConfig(QUEUED_CONFIG_KEY_PREFIX, owner);
+    }
   }
 
   @ReactMethod
@@ -352,13 +654,212 @@ public class RNBackgroundDownloaderModuleImpl extends ReactContextBaseJavaModule
   @ReactMethod
   public void cancelDownload(String configId) {
     synchronized (sharedLock) {
-      Long downloadId = configIdToDownloadId.get(configId);
-      if (downloadId != null) {
-        stopTaskProgress(configId);
+      String transferId = configId;
+      RNBGDTaskConfig owner = coalescer.getOwner(configId);
+      if (owner != null) {
+        transferId = owner.id;
+        // The transfer keeps going for the downloads that share it.
+        if (!coalescer.unsubscribe(configId)) {
+          transferId = null;
+          saveTransferConfig(owner);
+        }
+      }
+
+      long downloadId = transferId != null ? taskRegistry.getDownloadId(transferId) : TaskRegistry.NO_DOWNLOAD_ID;
+      if (downloadId != TaskRegistry.NO_DOWNLOAD_ID) {
+        stopTaskProgress(transferId);
         removeTaskFromMap(downloadId);
         downloader.cancel(downloadId);
+      } else if (transferId != null && configIdToWorkConfig.containsKey(transferId)) {
+        workScheduler.cancel(transferId);
+        removeWorkTask(transferId);
+      } else if (transferId != null && configIdToQueuedConfig.remove(transferId) != null) {
+        removeTaskConfig(QUEUED_CONFIG_KEY_PREFIX, transferId);
+        releaseDownload(transferId);
+      } else if (transferId != null && inlineDownloader.cancel(transferId)) {
+        configIdToInlineConfig.remove(transferId);
+        removeTaskConfig(INLINE_CONFIG_KEY_PREFIX, transferId);
+        DownloadService.remove(transferId);
+      }
+      progressReporter.remove(configId);
+    }
+    partialFileReader.onFailed(configId, "Download was cancelled");
+    releaseStorage(configId);
+    onGroupMemberFinished(configId, false, true);
+  }
+
+  @ReactMethod
+  public void readRange(String configId, double offset, double length, double timeoutMs, Promise promise) {
+    if (offset < 0 || length <= 0 || length > MAX_RANGE_LENGTH) {
+      promise.reject("E_PARAMS", "offset must be >= 0 and length between 1 and " + MAX_RANGE_LENGTH);
+      return;
+    }
+
+    rangeReadExecutorPool.submit(() -> {
+      try {
+        byte[] bytes = partialFileReader.read(configId, (long) offset, (int) length, (long) timeoutMs);
+        promise.resolve(Base64.encodeToString(bytes, Base64.NO_WRAP));
+      } catch (TimeoutException e) {
+        promise.reject("E_TIMEOUT", e.getMessage());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        promise.reject("E_READ", e.getMessage());
+      } catch (Exception e) {
+        promise.reject("E_READ", e.getMessage());
+      }
+    });
+  }
+
+  @ReactMethod
+  public void acknowledgeProgress() {
+    emitProgressBatch(progressReporter.onAcknowledged());
+  }
+
+  @ReactMethod
+  public void getEventMetrics(Promise promise) {
+    promise.resolve(progressReporter.getMetrics());
+  }
+
+  @ReactMethod
+  public void getNetworkMetrics(Promise promise) {
+    WritableMap metrics = HttpClientPool.getInstance().getMetrics();
+    ConcurrencyController concurrencyController = inlineDownloader.getConcurrencyController();
+    metrics.putInt("inlineConcurrency", concurrencyController.getLimit());
+    metrics.putDouble("inlineBytesPerSecond", concurrencyController.getBytesPerSecond());
+    metrics.putDouble("mirrorProbes", MirrorSelector.getProbeCount());
+    metrics.putDouble("mirrorFailovers", MirrorSelector.getFailoverCount());
+    promise.resolve(metrics);
+  }
+
+  /**
+   * Running and waiting DownloadManager downloads of every host that has any.
+   */
+  @ReactMethod
+  public void getHostQueues(Promise promise) {
+    WritableArray hosts = Arguments.createArray();
+    for (HostQueue.HostState state : hostQueue.getHostStates()) {
+      WritableMap host = Arguments.createMap();
+      host.putString("host", state.host);
+      host.putInt("running", state.running);
+      host.putInt("queued", state.queued);
+      host.putInt("limit", state.limit);
+      hosts.pushMap(host);
+    }
+    promise.resolve(hosts);
+  }
+
+  @ReactMethod
+  public void touchStorageFile(String path) {
+    ManagedStorage storage = managedStorage;
+    if (storage != null && path != null) {
+      storage.touch(path);
+    }
+  }
+
+  @ReactMethod
+  public void getTaskStatuses(ReadableArray ids, Promise promise) {
+    promise.resolve(getTaskStatusesSync(ids));
+  }
+
+  /**
+   * State and progress of each id as last recorded in memory, without querying DownloadManager or
+   * WorkManager. Ids of tasks that aren't running (anymore) get null.
+   */
+  @ReactMethod(isBlockingSynchronousMethod = true)
+  public WritableArray getTaskStatusesSync(ReadableArray ids) {
+    WritableArray statuses = Arguments.createArray();
+    for (int i = 0; i < ids.size(); i++) {
+      String id = ids.getString(i);
+      TaskRegistry.Task task = id != null ? taskRegistry.get(id) : null;
+      if (task == null) {
+        statuses.pushNull();
+        continue;
+      }
+
+      WritableMap status = Arguments.createMap();
+      status.putString("id", id);
+      status.putInt("state", task.getState());
+      status.putDouble("bytesDownloaded", task.getBytesDownloaded());
+      status.putDouble("bytesTotal", task.getBytesTotal());
+      statuses.pushMap(status);
+    }
+    return statuses;
+  }
+
+  @ReactMethod
+  public void setConfig(@Nullable ReadableMap config) {
+    String progressFormat = getString(config, "progressFormat");
+    if (progressFormat != null) {
+      progressReporter.setFormat(progressFormat);
+    }
+    if (config != null && config.hasKey("inlineMaxBytes") && !config.isNull("inlineMaxBytes")) {
+      inlineDownloader.setMaxBytes((long) config.getDouble("inlineMaxBytes"));
+    }
+    ReadableMap inlineConcurrency = getMap(config, "inlineConcurrency");
+    if (inlineConcurrency != null) {
+      ConcurrencyController concurrencyController = inlineDownloader.getConcurrencyController();
+      concurrencyController.setRange(
+          inlineConcurrency.hasKey("min") ? inlineConcurrency.getInt("min") : ConcurrencyController.DEFAULT_MIN,
+          inlineConcurrency.hasKey("max") ? inlineConcurrency.getInt("max") : ConcurrencyController.DEFAULT_MAX
+      );
+    }
+    if (config != null && config.hasKey("network")) {
+      HttpClientPool.getInstance().configure(getMap(config, "network"));
+    }
+    ReadableMap hostLimits = getMap(config, "hostLimits");
+    if (hostLimits != null) {
+      setHostLimits(hostLimits);
+    }
+    ReadableMap storageConfig = getMap(config, "storage");
+    if (storageConfig != null) {
+      setStorage(getString(storageConfig, "directory"), storageConfig);
+    }
+    if (config != null && config.hasKey("notificationInterval") && !config.isNull("notificationInterval")) {
+      DownloadService.setNotificationInterval((long) config.getDouble("notificationInterval"));
+    }
+    if (config != null && config.hasKey("checkpointInterval") && !config.isNull("checkpointInterval")) {
+      PartFileWriter.setDefaultCheckpointInterval((long) config.getDouble("checkpointInterval"));
+    }
+    if (config != null && config.hasKey("fsync") && !config.isNull("fsync")) {
+      if (config.getType("fsync") == ReadableType.Number) {
+        PartFileWriter.setDefaultSyncInterval((long) config.getDouble("fsync"));
+      } else {
+        PartFileWriter.setDefaultSyncInterval(
+            "never".equals(config.getString("fsync")) ? PartFileWriter.SYNC_NEVER : PartFileWriter.SYNC_ON_COMPLETE
+        );
+      }
+    }
+  }
+
+  private void setHostLimits(ReadableMap hostLimits) {
+    Map<String, Integer> limits = new HashMap<>();
+    ReadableMap hosts = getMap(hostLimits, "hosts");
+    if (hosts != null) {
+      ReadableMapKeySetIterator iterator = hosts.keySetIterator();
+      while (iterator.hasNextKey()) {
+        String host = iterator.nextKey();
+        if (!hosts.isNull(host)) {
+          limits.put(host, hosts.getInt(host));
+        }
       }
     }
+    startQueuedDownloads(hostQueue.setLimits(
+        hostLimits.hasKey("maxConcurrent") && !hostLimits.isNull("maxConcurrent") ? hostLimits.getInt("maxConcurrent") : HostQueue.UNLIMITED,
+        hostLimits.hasKey("maxPerHost") && !hostLimits.isNull("maxPerHost") ? hostLimits.getInt("maxPerHost") : HostQueue.UNLIMITED,
+        limits
+    ));
+    // Downloads still waiting when the app restarts are dispatched before JS can set the limits again.
+    saveConfigMap();
+  }
+
+  @ReactMethod
+  public void setGroupConfig(String group, @Nullable ReadableMap groupConfig) {
+    workScheduler.setGroupConstraints(group, TaskConstraints.fromMap(getMap(groupConfig, "constraints")));
+    boolean isMemberProgressEnabled = groupConfig == null
+        || !groupConfig.hasKey("memberProgress")
+        || groupConfig.isNull("memberProgress")
+        || groupConfig.getBoolean("memberProgress");
+    groupProgressTracker.setMemberProgressEnabled(group, isMemberProgressEnabled);
   }
 
   @ReactMethod
@@ -371,165 +872,671 @@ public class RNBackgroundDownloaderModuleImpl extends ReactContextBaseJavaModule
   public void checkForExistingDownloads(final Promise promise) {
     WritableArray foundTasks = Arguments.createArray();
 
-    synchronized (sharedLock) {
-      DownloadManager.Query query = new DownloadManager.Query();
-      try (Cursor cursor = downloader.downloadManager.query(query)) {
-        if (cursor.moveToFirst()) {
-          do {
-            WritableMap downloadStatus = downloader.getDownloadStatus(cursor);
-            Long downloadId = Long.parseLong(downloadStatus.getString("downloadId"));
-
-            if (downloadIdToConfig.containsKey(downloadId)) {
-              RNBGDTaskConfig config = downloadIdToConfig.get(downloadId);
+    // Task locks are taken before sharedLock everywhere else, so the DownloadManager tasks are listed without it.
+    DownloadManager.Query query = new DownloadManager.Query();
+    try (Cursor cursor = downloader.downloadManager.query(query)) {
+      if (cursor.moveToFirst()) {
+        DownloadStatus.Columns columns = new DownloadStatus.Columns(cursor);
+        DownloadStatus downloadStatus = new DownloadStatus();
+        do {
+          downloadStatus.read(cursor, columns);
+          long downloadId = downloadStatus.downloadId;
+          TaskRegistry.Task task = taskRegistry.getByDownloadId(downloadId);
+
+          if (task != null) {
+            // Locked like in the receiver, so a download completing meanwhile is handled once.
+            synchronized (task) {
+              RNBGDTaskConfig config = task.getConfig();
 
               if (config != null) {
-                int status = downloadStatus.getInt("status");
+                List<RNBGDTaskConfig> eventConfigs = coalescer.getEventConfigs(config);
+                int status = downloadStatus.status;
                 if (status == DownloadManager.STATUS_SUCCESSFUL) {
-                  String localUri = downloadStatus.getString("localUri");
+                  String localUri = downloadStatus.localUri;
                   if (localUri != null) {
                     try {
-                      Future<Boolean> future = setFileChangesBeforeCompletion(localUri, config.destination);
+                      Future<Boolean> future = setFileChangesBeforeCompletion(localUri, config);
                       future.get();
+                      List<RNBGDTaskConfig> finishedConfigs = coalescer.finish(config.id);
+                      if (finishedConfigs != null) {
+                        shareTransferFile(config.id, finishedConfigs, config.destination);
+                      }
                     } catch (Exception e) {
                       Log.e(getName(), "Error moving completed download file: " + e.getMessage());
                     }
                   }
                 }
 
-                WritableMap params = Arguments.createMap();
-                params.putString("id", config.id);
-                params.putString("metadata", config.metadata);
                 Integer statusMapping = stateMap.get(status);
                 int state = statusMapping != null ? statusMapping : 0;
-                params.putInt("state", state);
-
-                double bytesDownloaded = downloadStatus.getDouble("bytesDownloaded");
-                params.putDouble("bytesDownloaded", bytesDownloaded);
-                double bytesTotal = downloadStatus.getDouble("bytesTotal");
-                params.putDouble("bytesTotal", bytesTotal);
+                double bytesDownloaded = downloadStatus.bytesDownloaded;
+                double bytesTotal = downloadStatus.bytesTotal;
                 double percent = bytesTotal > 0 ? bytesDownloaded / bytesTotal : 0;
 
-                foundTasks.pushMap(params);
-                configIdToDownloadId.put(config.id, downloadId);
-                configIdToPercent.put(config.id, percent);
+                for (RNBGDTaskConfig eventConfig : eventConfigs) {
+                  WritableMap params = Arguments.createMap();
+                  params.putString("id", eventConfig.id);
+                  params.putString("metadata", eventConfig.metadata);
+                  if (eventConfig.partialPath != null) {
+                    params.putString("partialPath", eventConfig.partialPath);
+                  }
+                  params.putInt("state", state);
+                  params.putDouble("bytesDownloaded", bytesDownloaded);
+                  params.putDouble("bytesTotal", bytesTotal);
+
+                  foundTasks.pushMap(params);
+                  progressReporter.setPercent(eventConfig.id, percent);
+                  setTaskStatus(eventConfig.id, state, downloadStatus.bytesDownloaded, downloadStatus.bytesTotal);
+                }
               }
-            } else {
-              downloader.cancel(downloadId);
             }
-          } while (cursor.moveToNext());
-        }
-      } catch (Exception e) {
-        Log.e(getName(), "checkForExistingDownloads: " + Log.getStackTraceString(e));
+          } else {
+            downloader.cancel(downloadId);
+          }
+        } while (cursor.moveToNext());
+      }
+    } catch (Exception e) {
+      Log.e(getName(), "checkForExistingDownloads: " + Log.getStackTraceString(e));
+    }
+
+    synchronized (sharedLock) {
+      if (!configIdToWorkConfig.isEmpty()) {
+        addExistingWorkTasks(foundTasks);
       }
+      addQueuedTasks(foundTasks);
     }
 
     promise.resolve(foundTasks);
   }
 
+  private void addExistingWorkTasks(WritableArray foundTasks) {
+    Map<String, WorkInfo> configIdToWorkInfo;
+    try {
+      configIdToWorkInfo = workScheduler.getWorkInfos();
+    } catch (Exception e) {
+      Log.e(getName(), "checkForExistingDownloads: " + Log.getStackTraceString(e));
+      return;
+    }
+
+    for (RNBGDTaskConfig config : new ArrayList<>(configIdToWorkConfig.values())) {
+      WorkInfo workInfo = configIdToWorkInfo.get(config.id);
+      if (workInfo == null) {
+        removeWorkTask(config.id);
+        continue;
+      }
+
+      int state;
+      Data data = workInfo.getProgress();
+      switch (workInfo.getState()) {
+        case RUNNING:
+          state = TASK_RUNNING;
+          break;
+        case ENQUEUED:
+        case BLOCKED:
+          // Waiting for its constraints.
+          state = TASK_SUSPENDED;
+          break;
+        case SUCCEEDED:
+          state = TASK_COMPLETED;
+          data = workInfo.getOutputData();
+          break;
+        default:
+          state = TASK_CANCELING;
+          break;
+      }
+
+      double bytesDownloaded = data.getLong(DownloadWorker.KEY_BYTES_DOWNLOADED, 0);
+      double bytesTotal = data.getLong(DownloadWorker.KEY_BYTES_TOTAL, 0);
+      boolean isFinished = workInfo.getState().isFinished();
+      // Work waiting to run again has no progress, but its checkpoint knows what is already downloaded.
+      if (!isFinished && bytesDownloaded == 0 && config.partialPath != null) {
+        File partFile = new File(config.partialPath);
+        TransferCheckpoint checkpoint = TransferCheckpoint.read(partFile);
+        if (checkpoint != null) {
+          bytesDownloaded = Math.min(checkpoint.bytesConfirmed, partFile.length());
+          bytesTotal = checkpoint.bytesTotal;
+        }
+      }
+
+      List<RNBGDTaskConfig> eventConfigs = coalescer.getEventConfigs(config);
+      if (isFinished) {
+        List<RNBGDTaskConfig> finishedConfigs = coalescer.finish(config.id);
+        if (finishedConfigs != null && state == TASK_COMPLETED) {
+          shareTransferFile(config.id, finishedConfigs, config.destination);
+        }
+      }
+
+      for (RNBGDTaskConfig eventConfig : eventConfigs) {
+        WritableMap params = Arguments.createMap();
+        params.putString("id", eventConfig.id);
+        params.putString("metadata", eventConfig.metadata);
+        if (eventConfig.partialPath != null) {
+          params.putString("partialPath", eventConfig.partialPath);
+        }
+        params.putInt("state", state);
+        params.putDouble("bytesDownloaded", bytesDownloaded);
+        params.putDouble("bytesTotal", bytesTotal);
+        foundTasks.pushMap(params);
+
+        if (!isFinished) {
+          progressReporter.setPercent(eventConfig.id, bytesTotal > 0 ? bytesDownloaded / bytesTotal : 0);
+          setTaskStatus(eventConfig.id, state, (long) bytesDownloaded, (long) bytesTotal);
+        }
+      }
+
+      if (isFinished) {
+        removeWorkTask(config.id);
+      }
+    }
+  }
+
+  private void addQueuedTasks(WritableArray foundTasks) {
+    for (RNBGDTaskConfig config : configIdToQueuedConfig.values()) {
+      for (RNBGDTaskConfig eventConfig : coalescer.getEventConfigs(config)) {
+        WritableMap params = Arguments.createMap();
+        params.putString("id", eventConfig.id);
+        params.putString("metadata", eventConfig.metadata);
+        // Waiting for a slot of its host.
+        params.putInt("state", TASK_SUSPENDED);
+        params.putDouble("bytesDownloaded", 0);
+        params.putDouble("bytesTotal", 0);
+        foundTasks.pushMap(params);
+      }
+    }
+  }
+
   @ReactMethod
-  public void addListener(String eventName) {}
+  public void addListener(String eventName) {
+    // A new JS runtime subscribes again. It has no index to id mapping yet and won't acknowledge old batches.
+    if (ProgressReporter.EVENT_PROGRESS.equals(eventName) || ProgressReporter.EVENT_PROGRESS_PACKED.equals(eventName)) {
+      progressReporter.resetDelivery();
+    }
+  }
 
   @ReactMethod
   public void removeListeners(Integer count) {}
 
   private void onBeginDownload(String configId, WritableMap headers, long expectedBytes) {
+    coalescer.onBegin(configId, headers, expectedBytes);
+    List<String> eventIds = coalescer.getEventIds(configId);
+    for (int i = 0; i < eventIds.size(); i++) {
+      // Emitted maps are consumed, so every id but the last gets a copy.
+      emitBegin(eventIds.get(i), i < eventIds.size() - 1 ? headers.copy() : headers, expectedBytes);
+    }
+  }
+
+  private void emitBegin(String configId, WritableMap headers, long expectedBytes) {
+    ManagedStorage storage = managedStorage;
+    if (storage != null) {
+      emitEvictions(storage.reserve(configId, expectedBytes));
+    }
+
     WritableMap params = Arguments.createMap();
     params.putString("id", configId);
     params.putMap("headers", headers);
     params.putDouble("expectedBytes", expectedBytes);
+    String partialPath = partialFileReader.getPartialPath(configId);
+    if (partialPath != null) {
+      params.putString("partialPath", partialPath);
+    }
     ee.emit("downloadBegin", params);
   }
 
   private void onProgressDownload(String configId, long bytesDownloaded, long bytesTotal) {
-    Double existPercent = configIdToPercent.get(configId);
-    Long existLastBytes = configIdToLastBytes.get(configId);
-    double prevPercent = existPercent != null ? existPercent : 0.0;
-    long prevBytes = existLastBytes != null ? existLastBytes : 0;
-    double percent = bytesTotal > 0.0 ? ((double) bytesDownloaded / bytesTotal) : 0.0;
-
-    boolean percentThresholdMet = percent - prevPercent > 0.01;
-    boolean bytesThresholdMet = bytesDownloaded - prevBytes >= progressMinBytes;
-
-    if (percentThresholdMet || bytesThresholdMet || bytesTotal <= 0) {
-      WritableMap params = Arguments.createMap();
-      params.putString("id", configId);
-      params.putDouble("bytesDownloaded", bytesDownloaded);
-      params.putDouble("bytesTotal", bytesTotal);
-      progressReports.put(configId, params);
-      configIdToPercent.put(configId, percent);
-      configIdToLastBytes.put(configId, bytesDownloaded);
-    }
-
-    Date now = new Date();
-    boolean isReportTimeDifference = now.getTime() - lastProgressReportedAt.getTime() > progressInterval;
-    boolean isReportNotEmpty = !progressReports.isEmpty();
-    if (isReportTimeDifference && isReportNotEmpty) {
-      List<WritableMap> reportsList = new ArrayList<>(progressReports.values());
-      WritableArray reportsArray = Arguments.createArray();
-      for (WritableMap report : reportsList) {
-        if (report != null) {
-          reportsArray.pushMap(report.copy());
-        }
-      }
-      ee.emit("downloadProgress", reportsArray);
-      lastProgressReportedAt = now;
-      progressReports.clear();
+    for (String eventId : coalescer.getEventIds(configId)) {
+      onTaskProgress(eventId, bytesDownloaded, bytesTotal);
     }
   }
 
-  private void onSuccessfulDownload(RNBGDTaskConfig config, WritableMap downloadStatus) {
-    String localUri = downloadStatus.getString("localUri");
+  private void setTaskStatus(String configId, int state, long bytesDownloaded, long bytesTotal) {
+    TaskRegistry.Task task = taskRegistry.get(configId);
+    if (task != null) {
+      task.setState(state);
+      task.setProgress(bytesDownloaded, bytesTotal);
+    }
+  }
 
-    try {
-      Future<Boolean> future = setFileChangesBeforeCompletion(localUri, config.destination);
-      future.get();
-    } catch (Exception e) {
-      WritableMap newDownloadStatus = Arguments.createMap();
-      newDownloadStatus.putString("downloadId", downloadStatus.getString("downloadId"));
-      newDownloadStatus.putInt("status", DownloadManager.STATUS_FAILED);
-      newDownloadStatus.putInt("reason", DownloadManager.ERROR_UNKNOWN);
-      newDownloadStatus.putString("reasonText", e.getMessage());
-      onFailedDownload(config, newDownloadStatus);
-      return;
+  private void onTaskProgress(String configId, long bytesDownloaded, long bytesTotal) {
+    TaskRegistry.Task task = taskRegistry.get(configId);
+    if (task != null) {
+      task.setProgress(bytesDownloaded, bytesTotal);
+    }
+    partialFileReader.onProgress(configId, bytesDownloaded);
+    if (groupProgressTracker.isMemberProgressEnabled(configId)) {
+      emitProgressBatch(progressReporter.onProgress(configId, bytesDownloaded, bytesTotal));
     }
 
-    WritableMap params = Arguments.createMap();
-    params.putString("id", config.id);
-    params.putString("location", config.destination);
-    params.putDouble("bytesDownloaded", downloadStatus.getDouble("bytesDownloaded"));
-    params.putDouble("bytesTotal", downloadStatus.getDouble("bytesTotal"));
-    ee.emit("downloadComplete", params);
+    WritableArray groupReportsArray = groupProgressTracker.onProgress(
+        configId, bytesDownloaded, bytesTotal, progressReporter.getProgressInterval());
+    if (groupReportsArray != null) {
+      ee.emit("groupProgress", groupReportsArray);
+    }
   }
 
-  private void onFailedDownload(RNBGDTaskConfig config, WritableMap downloadStatus) {
-    Log.e(getName(), "onFailedDownload: " +
-            downloadStatus.getInt("status") + ":" +
-            downloadStatus.getInt("reason") + ":" +
-            downloadStatus.getString("reasonText")
-    );
+  private void emitProgressBatch(@Nullable ProgressReporter.Batch batch) {
+    if (batch != null) {
+      ee.emit(batch.eventName, batch.payload);
+    }
+  }
 
-    int reason = downloadStatus.getInt("reason");
-    String reasonText = downloadStatus.getString("reasonText");
+  private void setStorage(@Nullable String directory, ReadableMap storageConfig) {
+    if (directory == null || !storageConfig.hasKey("quota") || storageConfig.isNull("quota")) {
+      Log.w(getName(), "setConfig: storage needs a directory and a quota");
+      return;
+    }
 
-    if (reason == DownloadManager.ERROR_CANNOT_RESUME) {
-      Log.w(getName(), "ERROR_CANNOT_RESUME detected for download: " + config.id);
-      removeTaskFromMap(Long.parseLong(downloadStatus.getString("downloadId")));
-      reasonText = "ERROR_CANNOT_RESUME - Unable to resume download. Try restarting.";
+    long quota = (long) storageConfig.getDouble("quota");
+    ManagedStorage storage = managedStorage;
+    if (storage != null && storage.getDirectory().equals(new File(directory).getAbsoluteFile())) {
+      emitEvictions(storage.setQuota(quota));
+      return;
     }
 
-    WritableMap params = Arguments.createMap();
-    params.putString("id", config.id);
-    params.putInt("errorCode", reason);
-    params.putString("error", reasonText);
-    ee.emit("downloadFailed", params);
+    storage = new ManagedStorage(new File(directory), quota);
+    managedStorage = storage;
+    emitEvictions(storage.setQuota(quota));
   }
 
-  private void saveDownloadIdToConfigMap() {
-    synchronized (sharedLock) {
-      try {
-        Gson gson = new Gson();
-        String str = gson.toJson(downloadIdToConfig);
-        
+  private void releaseStorage(String configId) {
+    ManagedStorage storage = managedStorage;
+    if (storage != null) {
+      storage.release(configId);
+    }
+  }
+
+  private void emitEvictions(List<ManagedStorage.Entry> evicted) {
+    if (evicted.isEmpty()) {
+      return;
+    }
+
+    WritableArray evictions = Arguments.createArray();
+    for (ManagedStorage.Entry entry : evicted) {
+      WritableMap params = Arguments.createMap();
+      params.putString("path", entry.path);
+      params.putDouble("size", entry.size);
+      params.putDouble("lastAccessedAt", entry.lastAccessedAt);
+      evictions.pushMap(params);
+    }
+    ee.emit("storageEviction", evictions);
+  }
+
+  private void onGroupMemberFinished(String configId, boolean isCompleted, boolean isCancelled) {
+    WritableArray groupReportsArray = groupProgressTracker.onFinished(configId, isCompleted, isCancelled);
+    if (groupReportsArray != null) {
+      ee.emit("groupProgress", groupReportsArray);
+    }
+  }
+
+  private final WorkEvents.Listener workListener = new WorkEvents.Listener() {
+    @Override
+    public void onBegin(String configId, Map<String, String> headers, long expectedBytes) {
+      WritableMap headersMap = Arguments.createMap();
+      for (Map.Entry<String, String> header : headers.entrySet()) {
+        headersMap.putString(header.getKey(), header.getValue());
+      }
+      onBeginDownload(configId, headersMap, expectedBytes);
+    }
+
+    @Override
+    public void onProgress(String configId, long bytesDownloaded, long bytesTotal) {
+      onProgressDownload(configId, bytesDownloaded, bytesTotal);
+    }
+
+    @Override
+    public void onExtractProgress(String configId, String entry, int entriesExtracted, long bytesExtracted) {
+      RNBackgroundDownloaderModuleImpl.this.onExtractProgress(configId, entry, entriesExtracted, bytesExtracted);
+    }
+
+    @Override
+    public void onMirror(String configId, String url, int failovers) {
+      WritableMap params = Arguments.createMap();
+      params.putString("id", configId);
+      params.putString("url", url);
+      params.putInt("failovers", failovers);
+      ee.emit("downloadMirror", params);
+    }
+
+    @Override
+    public void onComplete(String configId, String location, long bytesDownloaded, long bytesTotal) {
+      RNBGDTaskConfig config;
+      synchronized (sharedLock) {
+        config = configIdToWorkConfig.get(configId);
+      }
+      removeWorkTask(configId);
+      // Ranged downloads never share their transfer.
+      if (config != null && config.ranges != null) {
+        emitComplete(configId, location, bytesDownloaded, bytesTotal, config.ranges);
+        return;
+      }
+      onTransferComplete(configId, location, bytesDownloaded, bytesTotal);
+    }
+
+    @Override
+    public void onFailed(String configId, int errorCode, String error) {
+      removeWorkTask(configId);
+      onTransferFailed(configId, errorCode, error);
+    }
+  };
+
+  private final InlineDownloader.Listener inlineListener = new InlineDownloader.Listener() {
+    @Override
+    public void onBegin(String configId, Map<String, String> headers, long expectedBytes) {
+      workListener.onBegin(configId, headers, expectedBytes);
+    }
+
+    @Override
+    public void onProgress(String configId, long bytesDownloaded, long bytesTotal) {
+      DownloadService.setProgress(configId, bytesDownloaded, bytesTotal);
+      onProgressDownload(configId, bytesDownloaded, bytesTotal);
+    }
+
+    @Override
+    public void onComplete(String configId, String location, long bytesDownloaded, long bytesTotal) {
+      removeInlineTask(configId);
+      onTransferComplete(configId, location, bytesDownloaded, bytesTotal);
+    }
+
+    @Override
+    public boolean onFailed(String configId, int errorCode, String error) {
+      RNBGDTaskConfig config;
+      synchronized (sharedLock) {
+        config = configIdToInlineConfig.get(configId);
+      }
+      RetryPolicy retryPolicy = config != null ? config.retryPolicy : null;
+      if (retryPolicy != null && retryPolicy.shouldRetry(errorCode, config.retryAttempts)) {
+        long delay = retryPolicy.getDelay(config.retryAttempts);
+        config.retryAttempts++;
+        return handOverToWork(config, delay);
+      }
+
+      removeInlineTask(configId);
+      onTransferFailed(configId, errorCode, error);
+      return false;
+    }
+
+    @Override
+    public void onTooLarge(String configId) {
+      RNBGDTaskConfig config;
+      synchronized (sharedLock) {
+        config = configIdToInlineConfig.get(configId);
+      }
+      if (config != null) {
+        Log.d(getName(), "onTooLarge: continuing " + configId + " through WorkManager");
+        handOverToWork(config, 0);
+      }
+    }
+  };
+
+  private void removeInlineTask(String configId) {
+    synchronized (sharedLock) {
+      progressReporter.remove(configId);
+      configIdToInlineConfig.remove(configId);
+      removeTaskConfig(INLINE_CONFIG_KEY_PREFIX, configId);
+    }
+    DownloadService.remove(configId);
+  }
+
+  /**
+   * Continues an inline download through WorkManager, from the bytes already in its partial file.
+   * Returns false when the work couldn't be enqueued, in which case the task has failed.
+   */
+  private boolean handOverToWork(RNBGDTaskConfig config, long delay) {
+    synchronized (sharedLock) {
+      configIdToInlineConfig.remove(config.id);
+      configIdToWorkConfig.put(config.id, config);
+      saveWorkConfigMap();
+      removeTaskConfig(INLINE_CONFIG_KEY_PREFIX, config.id);
+    }
+    DownloadService.remove(config.id);
+
+    try {
+      workScheduler.enqueue(config, null, true, true, delay);
+      return true;
+    } catch (Exception e) {
+      Log.e(getName(), "handOverToWork: " + Log.getStackTraceString(e));
+      removeWorkTask(config.id);
+      TransferCheckpoint.rm(FileUtils.getPartFile(getReactApplicationContext(), config.id));
+      onTransferFailed(config.id, DownloadManager.ERROR_UNKNOWN, e.getMessage());
+      return false;
+    }
+  }
+
+  private void onExtractProgress(String configId, String entry, int entriesExtracted, long bytesExtracted) {
+    WritableMap params = Arguments.createMap();
+    params.putString("id", configId);
+    params.putString("entry", entry);
+    params.putInt("entriesExtracted", entriesExtracted);
+    params.putDouble("bytesExtracted", bytesExtracted);
+    ee.emit("extractProgress", params);
+  }
+
+  private void onSuccessfulDownload(RNBGDTaskConfig config, DownloadStatus downloadStatus) {
+    String localUri = downloadStatus.localUri;
+
+    try {
+      Future<Boolean> future = setFileChangesBeforeCompletion(localUri, config);
+      future.get();
+    } catch (Exception e) {
+      onFailedDownload(
+          config, DownloadStatus.failed(downloadStatus.downloadId, DownloadManager.ERROR_UNKNOWN, e.getMessage()));
+      return;
+    }
+
+    onTransferComplete(config.id, config.destination, downloadStatus.bytesDownloaded, downloadStatus.bytesTotal);
+  }
+
+  private void onFailedDownload(RNBGDTaskConfig config, DownloadStatus downloadStatus) {
+    Log.e(getName(), "onFailedDownload: " +
+            downloadStatus.status + ":" +
+            downloadStatus.reason + ":" +
+            downloadStatus.reasonText
+    );
+
+    int reason = downloadStatus.reason;
+    String reasonText = downloadStatus.reasonText;
+
+    if (retryDownload(config, reason, downloadStatus.downloadId)) {
+      return;
+    }
+
+    if (reason == DownloadManager.ERROR_CANNOT_RESUME) {
+      Log.w(getName(), "ERROR_CANNOT_RESUME detected for download: " + config.id);
+      removeTaskFromMap(downloadStatus.downloadId);
+      reasonText = "ERROR_CANNOT_RESUME - Unable to resume download. Try restarting.";
+    }
+
+    onTransferFailed(config.id, reason, reasonText);
+  }
+
+  private void onTransferComplete(String configId, String location, double bytesDownloaded, double bytesTotal) {
+    List<RNBGDTaskConfig> eventConfigs = coalescer.finish(configId);
+    if (eventConfigs == null) {
+      emitComplete(configId, location, bytesDownloaded, bytesTotal);
+      return;
+    }
+
+    Map<String, String> errors = shareTransferFile(configId, eventConfigs, location);
+    for (RNBGDTaskConfig eventConfig : eventConfigs) {
+      String error = errors.get(eventConfig.id);
+      if (error != null) {
+        emitFailed(eventConfig.id, DownloadManager.ERROR_FILE_ERROR, error);
+      } else {
+        emitComplete(eventConfig.id, eventConfig.id.equals(configId) ? location : eventConfig.destination, bytesDownloaded, bytesTotal);
+      }
+      if (!eventConfig.id.equals(configId)) {
+        progressReporter.remove(eventConfig.id);
+      }
+    }
+  }
+
+  private void onTransferFailed(String configId, int errorCode, String error) {
+    List<RNBGDTaskConfig> eventConfigs = coalescer.finish(configId);
+    if (eventConfigs == null) {
+      emitFailed(configId, errorCode, error);
+      return;
+    }
+
+    for (RNBGDTaskConfig eventConfig : eventConfigs) {
+      emitFailed(eventConfig.id, errorCode, error);
+      if (!eventConfig.id.equals(configId)) {
+        progressReporter.remove(eventConfig.id);
+      }
+    }
+  }
+
+  private void emitComplete(String configId, String location, double bytesDownloaded, double bytesTotal) {
+    emitComplete(configId, location, bytesDownloaded, bytesTotal, null);
+  }
+
+  private void emitComplete(String configId, String location, double bytesDownloaded, double bytesTotal, @Nullable long[][] ranges) {
+    partialFileReader.onComplete(configId, location);
+    progressReporter.discardPending(configId);
+    ManagedStorage storage = managedStorage;
+    if (storage != null && storage.isManaged(location)) {
+      emitEvictions(storage.add(configId, location));
+    }
+
+    WritableMap params = Arguments.createMap();
+    params.putString("id", configId);
+    params.putString("location", location);
+    params.putDouble("bytesDownloaded", bytesDownloaded);
+    params.putDouble("bytesTotal", bytesTotal);
+    if (ranges != null) {
+      // Where each requested range starts in the file.
+      WritableArray rangesArray = Arguments.createArray();
+      long position = 0;
+      for (long[] range : ranges) {
+        WritableMap rangeMap = Arguments.createMap();
+        rangeMap.putDouble("offset", range[0]);
+        rangeMap.putDouble("length", range[1]);
+        rangeMap.putDouble("position", position);
+        rangesArray.pushMap(rangeMap);
+        position += range[1];
+      }
+      params.putArray("ranges", rangesArray);
+    }
+    ee.emit("downloadComplete", params);
+    onGroupMemberFinished(configId, true, false);
+  }
+
+  private void emitFailed(String configId, int errorCode, String error) {
+    partialFileReader.onFailed(configId, error);
+    progressReporter.discardPending(configId);
+    releaseStorage(configId);
+
+    WritableMap params = Arguments.createMap();
+    params.putString("id", configId);
+    params.putInt("errorCode", errorCode);
+    params.putString("error", error);
+    ee.emit("downloadFailed", params);
+    onGroupMemberFinished(configId, false, false);
+  }
+
+  /**
+   * Gives every download sharing a completed transfer its own hard link or copy of the file, and
+   * returns the error of those that didn't get one. The file of an owner that was cancelled meanwhile
+   * is removed once the others have theirs.
+   */
+  private Map<String, String> shareTransferFile(String ownerId, List<RNBGDTaskConfig> eventConfigs, String location) {
+    File file = new File(location);
+    Map<String, String> errors = new HashMap<>();
+    boolean isFileKept = false;
+
+    for (RNBGDTaskConfig eventConfig : eventConfigs) {
+      File destination = new File(eventConfig.destination);
+      if (eventConfig.id.equals(ownerId) || destination.getAbsolutePath().equals(file.getAbsolutePath())) {
+        isFileKept = true;
+        continue;
+      }
+
+      try {
+        FileUtils.rm(destination);
+        FileUtils.mkdirParent(destination);
+        linkOrCopy(file, destination);
+      } catch (IOException e) {
+        Log.e(getName(), "shareTransferFile: " + eventConfig.id + ": " + e.getMessage());
+        errors.put(eventConfig.id, e.getMessage());
+      }
+    }
+
+    if (!isFileKept) {
+      FileUtils.rm(file);
+    }
+    return errors;
+  }
+
+  private void linkOrCopy(File source, File destination) throws IOException {
+    try {
+      Os.link(source.getAbsolutePath(), destination.getAbsolutePath());
+    } catch (ErrnoException e) {
+      // Hard links don't work across file systems, e.g. to a destination on other storage.
+      FileUtils.cp(source, destination);
+    }
+  }
+
+  /**
+   * Hands a failed DownloadManager task over to WorkManager when its retry policy allows another attempt.
+   * DownloadManager can't be asked to continue a file it gave up on, while WorkManager tasks resume
+   * from their partial file with a Range request, so whatever arrived so far is moved there first.
+   */
+  private boolean retryDownload(RNBGDTaskConfig config, int reason, long downloadId) {
+    RetryPolicy retryPolicy = config.retryPolicy;
+    if (retryPolicy == null || !retryPolicy.shouldRetry(reason, config.retryAttempts)) {
+      return false;
+    }
+
+    long delay = retryPolicy.getDelay(config.retryAttempts);
+    config.retryAttempts++;
+    Log.w(getName(), "retryDownload: " + config.id + " attempt " + (config.retryAttempts + 1) + " in " + delay + "ms");
+
+    File partFile = FileUtils.getPartFile(getReactApplicationContext(), config.id);
+    TransferCheckpoint.rm(partFile);
+    if (config.extract == null && config.partialPath != null) {
+      File downloadedFile = new File(config.partialPath);
+      if (downloadedFile.length() > 0) {
+        try {
+          FileUtils.mkdirParent(partFile);
+          if (!downloadedFile.renameTo(partFile)) {
+            FileUtils.mv(downloadedFile, partFile);
+          }
+        } catch (IOException e) {
+          Log.w(getName(), "retryDownload: starting " + config.id + " over: " + e.getMessage());
+          TransferCheckpoint.rm(partFile);
+        }
+      }
+    }
+    config.partialPath = config.extract == null ? partFile.getAbsolutePath() : null;
+
+    synchronized (sharedLock) {
+      stopTaskProgress(config.id);
+      removeTaskFromMap(downloadId);
+      downloader.cancel(downloadId);
+      configIdToWorkConfig.put(config.id, config);
+      for (RNBGDTaskConfig eventConfig : coalescer.getEventConfigs(config)) {
+        eventConfig.partialPath = config.partialPath;
+        progressReporter.setPercent(eventConfig.id, 0.0);
+      }
+      saveWorkConfigMap();
+    }
+    for (String eventId : coalescer.getEventIds(config.id)) {
+      partialFileReader.register(eventId, config.partialPath);
+    }
+
+    try {
+      workScheduler.enqueue(config, null, config.isAllowedOverRoaming, config.isAllowedOverMetered, delay);
+    } catch (Exception e) {
+      Log.e(getName(), "retryDownload: " + Log.getStackTraceString(e));
+      removeWorkTask(config.id);
+      return false;
+    }
+    return true;
+  }
+
+  private void saveDownloadIdToConfigMap() {
+    synchronized (downloadConfigLock) {
+      try {
+        String str = ConfigUtils.serializeConfigMap(taskRegistry.getDownloadConfigs());
+
         if (isMMKVAvailable && mmkv != null) {
           mmkv.encode(getName() + "_downloadIdToConfig", str);
         } else if (sharedPreferences != null) {
@@ -544,9 +1551,9 @@ public class RNBackgroundDownloaderModuleImpl extends ReactContextBaseJavaModule
   }
 
   private void loadDownloadIdToConfigMap() {
-    synchronized (sharedLock) {
-      downloadIdToConfig = new HashMap<>();
-      
+    synchronized (downloadConfigLock) {
+      Map<Long, RNBGDTaskConfig> downloadIdToConfig = new HashMap<>();
+
       try {
         String str = null;
         
@@ -557,27 +1564,196 @@ public class RNBackgroundDownloaderModuleImpl extends ReactContextBaseJavaModule
         }
         
         if (str != null) {
-          Gson gson = new Gson();
-          TypeToken<Map<Long, RNBGDTaskConfig>> mapType = new TypeToken<Map<Long, RNBGDTaskConfig>>() {};
-          downloadIdToConfig = gson.fromJson(str, mapType);
+          downloadIdToConfig = ConfigUtils.deserializeConfigMap(str);
         }
       } catch (Exception e) {
         Log.e(getName(), "Failed to load download config: " + e.getMessage());
         downloadIdToConfig = new HashMap<>();
       }
+      taskRegistry.setDownloadConfigs(downloadIdToConfig);
+    }
+  }
+
+  private void removeWorkTask(String configId) {
+    synchronized (sharedLock) {
+      progressReporter.remove(configId);
+      if (configIdToWorkConfig.remove(configId) != null) {
+        saveWorkConfigMap();
+      }
+    }
+  }
+
+  private void saveWorkConfigMap() {
+    synchronized (sharedLock) {
+      try {
+        String str = ConfigUtils.serializeWorkConfigMap(configIdToWorkConfig);
+
+        if (isMMKVAvailable && mmkv != null) {
+          mmkv.encode(getName() + "_configIdToWorkConfig", str);
+        } else if (sharedPreferences != null) {
+          sharedPreferences.edit()
+            .putString(getName() + "_configIdToWorkConfig", str)
+            .apply();
+        }
+      } catch (Exception e) {
+        Log.e(getName(), "Failed to save work config: " + e.getMessage());
+      }
+    }
+  }
+
+  private static void initStorage(Context context) {
+    sharedPreferences = context.getSharedPreferences(NAME + "_prefs", Context.MODE_PRIVATE);
+
+    try {
+      MMKV.initialize(context);
+      mmkv = MMKV.mmkvWithID(NAME);
+      isMMKVAvailable = true;
+      Log.d(NAME, "MMKV initialized successfully");
+    } catch (UnsatisfiedLinkError e) {
+      Log.e(NAME, "Failed to initialize MMKV: " + e.getMessage());
+      mmkv = null;
+      isMMKVAvailable = false;
+    } catch (Exception e) {
+      Log.e(NAME, "Failed to initialize MMKV: " + e.getMessage());
+      mmkv = null;
+      isMMKVAvailable = false;
+    }
+  }
+
+  /**
+   * Looks up the config of a WorkManager task for its worker. WorkManager input data is limited to
+   * 10KB, so it only carries the task id. The worker may run before this module was created, e.g.
+   * when WorkManager started the app for it.
+   */
+  @Nullable
+  public static RNBGDTaskConfig loadWorkConfig(Context context, String configId) {
+    synchronized (sharedLock) {
+      if (sharedPreferences == null) {
+        initStorage(context);
+      }
+
+      try {
+        String str = null;
+
+        if (isMMKVAvailable && mmkv != null) {
+          str = mmkv.decodeString(NAME + "_configIdToWorkConfig");
+        } else if (sharedPreferences != null) {
+          str = sharedPreferences.getString(NAME + "_configIdToWorkConfig", null);
+        }
+
+        return str != null ? ConfigUtils.deserializeWorkConfigMap(str).get(configId) : null;
+      } catch (Exception e) {
+        Log.e(NAME, "Failed to load work config: " + e.getMessage());
+        return null;
+      }
+    }
+  }
+
+  private void loadWorkConfigMap() {
+    synchronized (sharedLock) {
+      configIdToWorkConfig = new HashMap<>();
+
+      try {
+        String str = null;
+
+        if (isMMKVAvailable && mmkv != null) {
+          str = mmkv.decodeString(getName() + "_configIdToWorkConfig");
+        } else if (sharedPreferences != null) {
+          str = sharedPreferences.getString(getName() + "_configIdToWorkConfig", null);
+        }
+
+        if (str != null) {
+          configIdToWorkConfig = ConfigUtils.deserializeWorkConfigMap(str);
+        }
+      } catch (Exception e) {
+        Log.e(getName(), "Failed to load work config: " + e.getMessage());
+        configIdToWorkConfig = new HashMap<>();
+      }
+    }
+  }
+
+  private void saveTaskConfig(String keyPrefix, RNBGDTaskConfig config) {
+    try {
+      String key = getName() + keyPrefix + config.id;
+      String str = ConfigUtils.serializeConfig(config);
+
+      if (isMMKVAvailable && mmkv != null) {
+        mmkv.encode(key, str);
+      } else if (sharedPreferences != null) {
+        sharedPreferences.edit()
+          .putString(key, str)
+          .apply();
+      }
+    } catch (Exception e) {
+      Log.e(getName(), "Failed to save task config: " + e.getMessage());
+    }
+  }
+
+  private void removeTaskConfig(String keyPrefix, String configId) {
+    String key = getName() + keyPrefix + configId;
+    if (isMMKVAvailable && mmkv != null) {
+      mmkv.removeValueForKey(key);
+    } else if (sharedPreferences != null) {
+      sharedPreferences.edit()
+        .remove(key)
+        .apply();
     }
   }
 
+  private List<RNBGDTaskConfig> loadTaskConfigs(String keyPrefix) {
+    List<RNBGDTaskConfig> configs = new ArrayList<>();
+    String prefix = getName() + keyPrefix;
+
+    try {
+      Map<String, String> keyToValue = new HashMap<>();
+      if (isMMKVAvailable && mmkv != null) {
+        String[] keys = mmkv.allKeys();
+        if (keys != null) {
+          for (String key : keys) {
+            if (key.startsWith(prefix)) {
+              keyToValue.put(key, mmkv.decodeString(key));
+            }
+          }
+        }
+      } else if (sharedPreferences != null) {
+        for (Map.Entry<String, ?> entry : sharedPreferences.getAll().entrySet()) {
+          if (entry.getKey().startsWith(prefix) && entry.getValue() instanceof String) {
+            keyToValue.put(entry.getKey(), (String) entry.getValue());
+          }
+        }
+      }
+
+      for (Map.Entry<String, String> entry : keyToValue.entrySet()) {
+        RNBGDTaskConfig config = entry.getValue() != null ? ConfigUtils.deserializeConfig(entry.getValue()) : null;
+        if (config != null) {
+          configs.add(config);
+        } else {
+          removeTaskConfig(keyPrefix, entry.getKey().substring(prefix.length()));
+        }
+      }
+    } catch (Exception e) {
+      Log.e(getName(), "Failed to load task configs: " + e.getMessage());
+    }
+
+    return configs;
+  }
+
   private void saveConfigMap() {
     synchronized (sharedLock) {
       try {
         if (isMMKVAvailable && mmkv != null) {
-          mmkv.encode(getName() + "_progressInterval", progressInterval);
-          mmkv.encode(getName() + "_progressMinBytes", progressMinBytes);
+          mmkv.encode(getName() + "_progressInterval", progressReporter.getProgressInterval());
+          mmkv.encode(getName() + "_progressMinBytes", progressReporter.getProgressMinBytes());
+          mmkv.encode(getName() + "_maxConcurrent", hostQueue.getMaxConcurrent());
+          mmkv.encode(getName() + "_maxPerHost", hostQueue.getMaxPerHost());
+          mmkv.encode(getName() + "_hostLimits", ConfigUtils.serializeHostLimits(hostQueue.getHostLimits()));
         } else if (sharedPreferences != null) {
           sharedPreferences.edit()
-            .putInt(getName() + "_progressInterval", progressInterval)
-            .putLong(getName() + "_progressMinBytes", progressMinBytes)
+            .putInt(getName() + "_progressInterval", progressReporter.getProgressInterval())
+            .putLong(getName() + "_progressMinBytes", progressReporter.getProgressMinBytes())
+            .putInt(getName() + "_maxConcurrent", hostQueue.getMaxConcurrent())
+            .putInt(getName() + "_maxPerHost", hostQueue.getMaxPerHost())
+            .putString(getName() + "_hostLimits", ConfigUtils.serializeHostLimits(hostQueue.getHostLimits()))
             .apply();
         }
       } catch (Exception e) {
@@ -592,21 +1768,33 @@ public class RNBackgroundDownloaderModuleImpl extends ReactContextBaseJavaModule
         if (isMMKVAvailable && mmkv != null) {
           int progressIntervalScope = mmkv.decodeInt(getName() + "_progressInterval");
           if (progressIntervalScope > 0) {
-            progressInterval = progressIntervalScope;
+            progressReporter.setProgressInterval(progressIntervalScope);
           }
           long progressMinBytesScope = mmkv.decodeLong(getName() + "_progressMinBytes");
           if (progressMinBytesScope > 0) {
-            progressMinBytes = progressMinBytesScope;
+            progressReporter.setProgressMinBytes(progressMinBytesScope);
           }
+          String hostLimits = mmkv.decodeString(getName() + "_hostLimits");
+          hostQueue.setLimits(
+              mmkv.decodeInt(getName() + "_maxConcurrent"),
+              mmkv.decodeInt(getName() + "_maxPerHost"),
+              hostLimits != null ? ConfigUtils.deserializeHostLimits(hostLimits) : new HashMap<>()
+          );
         } else if (sharedPreferences != null) {
           int progressIntervalScope = sharedPreferences.getInt(getName() + "_progressInterval", 0);
           if (progressIntervalScope > 0) {
-            progressInterval = progressIntervalScope;
+            progressReporter.setProgressInterval(progressIntervalScope);
           }
           long progressMinBytesScope = sharedPreferences.getLong(getName() + "_progressMinBytes", 0);
           if (progressMinBytesScope > 0) {
-            progressMinBytes = progressMinBytesScope;
+            progressReporter.setProgressMinBytes(progressMinBytesScope);
           }
+          String hostLimits = sharedPreferences.getString(getName() + "_hostLimits", null);
+          hostQueue.setLimits(
+              sharedPreferences.getInt(getName() + "_maxConcurrent", HostQueue.UNLIMITED),
+              sharedPreferences.getInt(getName() + "_maxPerHost", HostQueue.UNLIMITED),
+              hostLimits != null ? ConfigUtils.deserializeHostLimits(hostLimits) : new HashMap<>()
+          );
         }
       } catch (Exception e) {
         Log.e(getName(), "Failed to load config: " + e.getMessage());
@@ -615,36 +1803,48 @@ public class RNBackgroundDownloaderModuleImpl extends ReactContextBaseJavaModule
   }
 
   private void stopTaskProgress(String configId) {
-    Future<OnProgressState> onProgressFuture = configIdToProgressFuture.get(configId);
-    if (onProgressFuture != null) {
-      onProgressFuture.cancel(true);
-      configIdToPercent.remove(configId);
-      configIdToLastBytes.remove(configId);
-      configIdToProgressFuture.remove(configId);
+    if (progressPoller.remove(configId)) {
+      progressReporter.remove(configId);
     }
   }
 
   private void stopTask(String configId) {
-    synchronized (sharedLock) {
-      Long downloadId = configIdToDownloadId.get(configId);
-      if (downloadId != null) {
-        stopTaskProgress(configId);
-        removeTaskFromMap(downloadId);
-        downloader.cancel(downloadId);
-      }
+    long downloadId = taskRegistry.getDownloadId(configId);
+    if (downloadId != TaskRegistry.NO_DOWNLOAD_ID) {
+      stopTaskProgress(configId);
+      removeTaskFromMap(downloadId);
+      downloader.cancel(downloadId);
     }
   }
 
-  private Future<Boolean> setFileChangesBeforeCompletion(String targetSrc, String destinationSrc) {
+  private Future<Boolean> setFileChangesBeforeCompletion(String targetSrc, RNBGDTaskConfig config) {
     return fixedExecutorPool.submit(() -> {
       File file = new File(targetSrc);
-      File destination = new File(destinationSrc);
+      File destination = new File(config.destination);
+
+      // Archives are extracted straight from DownloadManager's file instead of being moved first.
+      if (config.extract != null) {
+        if (file.exists()) {
+          try {
+            ArchiveUtils.extract(file, config.extract, destination, (entry, entriesExtracted, bytesExtracted) ->
+                onExtractProgress(config.id, entry, entriesExtracted, bytesExtracted));
+          } catch (IOException e) {
+            throw new Exception(e);
+          }
+        }
+        return true;
+      }
+
       File destinationParent = null;
       try {
         if (file.exists()) {
           FileUtils.rm(destination);
           destinationParent = FileUtils.mkdirParent(destination);
-          FileUtils.mv(file, destination);
+          if (config.encryptKeyAlias != null) {
+            FileEncryption.mv(file, destination, config.encryptKeyAlias, config.encryptMode);
+          } else {
+            FileUtils.mv(file, destination);
+          }
         }
       } catch (IOException e) {
         FileUtils.rm(file);
@@ -657,6 +1857,80 @@ public class RNBackgroundDownloaderModuleImpl extends ReactContextBaseJavaModule
     });
   }
 
+  private Map<String, String> getRequestHeaders(@Nullable ReadableMap headers) {
+    Map<String, String> requestHeaders = new LinkedHashMap<>();
+    requestHeaders.put("Connection", "keep-alive");
+    requestHeaders.put("Keep-Alive", "timeout=600, max=1000");
+
+    if (!hasUserAgentHeader(headers)) {
+      requestHeaders.put("User-Agent", "ReactNative-BackgroundDownloader/3.2.6");
+    }
+
+    if (headers != null) {
+      ReadableMapKeySetIterator iterator = headers.keySetIterator();
+      while (iterator.hasNextKey()) {
+        String headerKey = iterator.nextKey();
+        requestHeaders.put(headerKey, headers.getString(headerKey));
+      }
+    }
+
+    return requestHeaders;
+  }
+
+  @Nullable
+  private String getString(@Nullable ReadableMap map, String key) {
+    return map != null && map.hasKey(key) && !map.isNull(key) ? map.getString(key) : null;
+  }
+
+  @Nullable
+  private ReadableMap getMap(@Nullable ReadableMap map, String key) {
+    return map != null && map.hasKey(key) && !map.isNull(key) ? map.getMap(key) : null;
+  }
+
+  // {offset, length} pairs of the ranges option, or null without one.
+  @Nullable
+  private long[][] getRanges(@Nullable ReadableMap options) {
+    if (options == null || !options.hasKey("ranges") || options.isNull("ranges")) {
+      return null;
+    }
+
+    ReadableArray rangesArray = options.getArray("ranges");
+    if (rangesArray == null || rangesArray.size() == 0) {
+      throw new IllegalArgumentException("ranges must hold at least one range");
+    }
+    long[][] ranges = new long[rangesArray.size()][];
+    for (int i = 0; i < rangesArray.size(); i++) {
+      ReadableMap range = rangesArray.getMap(i);
+      if (range == null || !range.hasKey("offset") || !range.hasKey("length")) {
+        throw new IllegalArgumentException("Every range needs an offset and a length");
+      }
+      long offset = (long) range.getDouble("offset");
+      long length = (long) range.getDouble("length");
+      if (offset < 0 || length <= 0) {
+        throw new IllegalArgumentException("Range " + offset + "+" + length + " is not valid");
+      }
+      ranges[i] = new long[]{offset, length};
+    }
+    return ranges;
+  }
+
+  // Strings of the mirrors option, or null without any.
+  @Nullable
+  private List<String> getMirrors(@Nullable ReadableMap options) {
+    if (options == null || !options.hasKey("mirrors") || options.isNull("mirrors")) {
+      return null;
+    }
+
+    ReadableArray mirrorsArray = options.getArray("mirrors");
+    List<String> mirrors = new ArrayList<>();
+    for (int i = 0; mirrorsArray != null && i < mirrorsArray.size(); i++) {
+      if (mirrorsArray.getType(i) == ReadableType.String) {
+        mirrors.add(mirrorsArray.getString(i));
+      }
+    }
+    return mirrors.isEmpty() ? null : mirrors;
+  }
+
   private boolean hasUserAgentHeader(@Nullable ReadableMap headers) {
     if (headers == null) {
       return false;
@@ -0,0 +1,115 @@
+package com.eko;
+
+import android.app.DownloadManager;
+
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.annotation.Nullable;
+
+/**
+ * When and how often a failed download is tried again, as given in the `retry` option of a download.
+ * Error codes are the ones of downloadFailed: DownloadManager reasons, or the HTTP status for HTTP errors.
+ * Persisted with its task, so it is a plain Gson-serializable object.
+ */
+public class RetryPolicy implements Serializable {
+  // Connection drops, truncated bodies and downloads DownloadManager can't continue.
+  public static final String RETRY_ON_NETWORK = "network";
+  // 5xx responses.
+  public static final String RETRY_ON_SERVER = "server";
+  // 408 and 429 responses.
+  public static final String RETRY_ON_THROTTLED = "throttled";
+
+  public int maxAttempts = 3;
+  public long initialDelay = 10000;
+  public long maxDelay = 10 * 60 * 1000;
+  public double multiplier = 2;
+  // Share of the delay that is randomized, so tasks that failed together don't retry together.
+  public double jitter = 0.2;
+  public List<String> retryOn = new ArrayList<>(Arrays.asList(RETRY_ON_NETWORK, RETRY_ON_SERVER, RETRY_ON_THROTTLED));
+
+  /**
+   * What the WorkManager engine did before policies could be given per task.
+   */
+  public static RetryPolicy getWorkDefault() {
+    RetryPolicy policy = new RetryPolicy();
+    policy.maxAttempts = 5;
+    policy.initialDelay = 30000;
+    policy.retryOn = new ArrayList<>(Arrays.asList(RETRY_ON_NETWORK, RETRY_ON_SERVER));
+    return policy;
+  }
+
+  @Nullable
+  public static RetryPolicy fromMap(@Nullable ReadableMap map) {
+    if (map == null) {
+      return null;
+    }
+
+    RetryPolicy policy = new RetryPolicy();
+    if (map.hasKey("maxAttempts") && !map.isNull("maxAttempts")) {
+      policy.maxAttempts = Math.max(1, map.getInt("maxAttempts"));
+    }
+    if (map.hasKey("initialDelay") && !map.isNull("initialDelay")) {
+      policy.initialDelay = Math.max(0, (long) map.getDouble("initialDelay"));
+    }
+    if (map.hasKey("maxDelay") && !map.isNull("maxDelay")) {
+      policy.maxDelay = Math.max(0, (long) map.getDouble("maxDelay"));
+    }
+    if (map.hasKey("multiplier") && !map.isNull("multiplier")) {
+      policy.multiplier = Math.max(1, map.getDouble("multiplier"));
+    }
+    if (map.hasKey("jitter") && !map.isNull("jitter")) {
+      policy.jitter = Math.min(1, Math.max(0, map.getDouble("jitter")));
+    }
+    if (map.hasKey("retryOn") && !map.isNull("retryOn")) {
+      ReadableArray retryOn = map.getArray("retryOn");
+      policy.retryOn = new ArrayList<>();
+      for (int i = 0; i < retryOn.size(); i++) {
+        policy.retryOn.add(retryOn.getString(i));
+      }
+    }
+    return policy;
+  }
+
+  /**
+   * Whether an attempt that failed with errorCode is followed by another one,
+   * given how many attempts failed before it.
+   */
+  public boolean shouldRetry(int errorCode, int previousAttempts) {
+    if (previousAttempts + 1 >= maxAttempts) {
+      return false;
+    }
+
+    String errorClass = getErrorClass(errorCode);
+    return errorClass != null && retryOn.contains(errorClass);
+  }
+
+  /**
+   * Delay before the retry that follows the given number of failed attempts.
+   */
+  public long getDelay(int previousAttempts) {
+    double delay = Math.min(maxDelay, initialDelay * Math.pow(multiplier, previousAttempts));
+    double spread = delay * jitter;
+    return (long) Math.max(0, delay - spread + ThreadLocalRandom.current().nextDouble() * 2 * spread);
+  }
+
+  @Nullable
+  static String getErrorClass(int errorCode) {
+    if (errorCode == DownloadManager.ERROR_HTTP_DATA_ERROR || errorCode == DownloadManager.ERROR_CANNOT_RESUME) {
+      return RETRY_ON_NETWORK;
+    }
+    if (errorCode >= 500 && errorCode < 600) {
+      return RETRY_ON_SERVER;
+    }
+    if (errorCode == 408 || errorCode == 429) {
+      return RETRY_ON_THROTTLED;
+    }
+    return null;
+  }
+}
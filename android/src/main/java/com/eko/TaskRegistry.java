@@ -0,0 +1,315 @@
+package com.eko;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.Nullable;
+
+/**
+ * One record per task with everything the module tracks about it: its DownloadManager id and config,
+ * its last known state and progress, and the progress throttling state of {@link ProgressReporter}.
+ * Records are found by config id or by download id without taking a lock. The download id index is
+ * an open addressing table of primitive longs, so the receiver and pollers don't box a Long per lookup.
+ * Updates lock a single record (or hash bin), never the whole registry.
+ *
+ * A record lives as long as it is either reported on or bound to a download.
+ */
+public class TaskRegistry {
+  public static final long NO_DOWNLOAD_ID = -1;
+
+  public static class Task {
+    public final String id;
+    private volatile long downloadId = NO_DOWNLOAD_ID;
+    @Nullable
+    private volatile RNBGDTaskConfig config;
+    private volatile boolean isReporting = false;
+    // Last known state and progress, written by every sample and read without a lock, so a reader may
+    // see bytes of one sample next to the total of the one before.
+    private volatile int state;
+    private volatile long bytesDownloaded;
+    private volatile long bytesTotal;
+    // Progress throttling, compared and updated under the task's lock and reset without it.
+    volatile double percent;
+    volatile long lastBytes;
+    // Index of the packed progress format, guarded by the ProgressReporter.
+    int index = -1;
+
+    Task(String id) {
+      this.id = id;
+    }
+
+    public long getDownloadId() {
+      return downloadId;
+    }
+
+    @Nullable
+    public RNBGDTaskConfig getConfig() {
+      return config;
+    }
+
+    public int getState() {
+      return state;
+    }
+
+    public void setState(int state) {
+      this.state = state;
+    }
+
+    public long getBytesDownloaded() {
+      return bytesDownloaded;
+    }
+
+    public long getBytesTotal() {
+      return bytesTotal;
+    }
+
+    public void setProgress(long bytesDownloaded, long bytesTotal) {
+      this.bytesTotal = bytesTotal;
+      this.bytesDownloaded = bytesDownloaded;
+    }
+
+    private boolean isUnused() {
+      return !isReporting && downloadId == NO_DOWNLOAD_ID;
+    }
+  }
+
+  private final ConcurrentHashMap<String, Task> idToTask = new ConcurrentHashMap<>();
+  private final DownloadIdIndex downloadIdToTask = new DownloadIdIndex();
+
+  @Nullable
+  public Task get(String configId) {
+    return idToTask.get(configId);
+  }
+
+  @Nullable
+  public Task getByDownloadId(long downloadId) {
+    return downloadIdToTask.get(downloadId);
+  }
+
+  @Nullable
+  public RNBGDTaskConfig getConfig(long downloadId) {
+    Task task = downloadIdToTask.get(downloadId);
+    return task != null ? task.config : null;
+  }
+
+  public long getDownloadId(String configId) {
+    Task task = idToTask.get(configId);
+    return task != null ? task.downloadId : NO_DOWNLOAD_ID;
+  }
+
+  public int size() {
+    return idToTask.size();
+  }
+
+  /**
+   * Binds a task to its DownloadManager download, replacing the config of an earlier binding.
+   */
+  public Task putDownload(long downloadId, RNBGDTaskConfig config) {
+    long[] previousDownloadId = {NO_DOWNLOAD_ID};
+    Task task = idToTask.compute(config.id, (id, existing) -> {
+      Task current = existing != null ? existing : new Task(id);
+      previousDownloadId[0] = current.downloadId;
+      current.config = config;
+      current.downloadId = downloadId;
+      return current;
+    });
+    downloadIdToTask.put(downloadId, task);
+    if (previousDownloadId[0] != NO_DOWNLOAD_ID && previousDownloadId[0] != downloadId) {
+      downloadIdToTask.remove(previousDownloadId[0]);
+    }
+    return task;
+  }
+
+  /**
+   * Unbinds a download and returns its config, or null when it wasn't bound.
+   */
+  @Nullable
+  public RNBGDTaskConfig removeDownload(long downloadId) {
+    Task task = downloadIdToTask.remove(downloadId);
+    if (task == null) {
+      return null;
+    }
+
+    RNBGDTaskConfig[] config = new RNBGDTaskConfig[1];
+    idToTask.computeIfPresent(task.id, (id, current) -> {
+      if (current != task || current.downloadId != downloadId) {
+        return current;
+      }
+      config[0] = current.config;
+      current.config = null;
+      current.downloadId = NO_DOWNLOAD_ID;
+      return current.isUnused() ? null : current;
+    });
+    return config[0];
+  }
+
+  /**
+   * Returns the configs of all bound downloads, e.g. to persist them.
+   */
+  public Map<Long, RNBGDTaskConfig> getDownloadConfigs() {
+    Map<Long, RNBGDTaskConfig> downloadIdToConfig = new HashMap<>();
+    for (Task task : idToTask.values()) {
+      long downloadId = task.downloadId;
+      RNBGDTaskConfig config = task.config;
+      if (downloadId != NO_DOWNLOAD_ID && config != null) {
+        downloadIdToConfig.put(downloadId, config);
+      }
+    }
+    return downloadIdToConfig;
+  }
+
+  /**
+   * Replaces all download bindings, e.g. with those loaded from storage.
+   */
+  public void setDownloadConfigs(Map<Long, RNBGDTaskConfig> downloadIdToConfig) {
+    for (Task task : new ArrayList<>(idToTask.values())) {
+      long downloadId = task.downloadId;
+      if (downloadId != NO_DOWNLOAD_ID) {
+        removeDownload(downloadId);
+      }
+    }
+    for (Map.Entry<Long, RNBGDTaskConfig> entry : downloadIdToConfig.entrySet()) {
+      putDownload(entry.getKey(), entry.getValue());
+    }
+  }
+
+  Task retainReporting(String configId) {
+    return idToTask.compute(configId, (id, existing) -> {
+      Task current = existing != null ? existing : new Task(id);
+      current.isReporting = true;
+      return current;
+    });
+  }
+
+  void releaseReporting(String configId) {
+    idToTask.computeIfPresent(configId, (id, current) -> {
+      current.isReporting = false;
+      return current.isUnused() ? null : current;
+    });
+  }
+
+  /**
+   * Open addressing table from positive download ids to tasks.
+   * Readers probe the current table without locking; writers are serialized and publish a slot's
+   * task before its key, so a reader that finds a key also finds its task. Removed slots keep their
+   * key with no task until the next resize, which copies the live slots into a fresh table.
+   */
+  static class DownloadIdIndex {
+    private static final long EMPTY = 0;
+    private static final int MIN_CAPACITY = 16;
+
+    private static class Table {
+      final AtomicLongArray keys;
+      final AtomicReferenceArray<Task> tasks;
+      final int mask;
+
+      Table(int capacity) {
+        keys = new AtomicLongArray(capacity);
+        tasks = new AtomicReferenceArray<>(capacity);
+        mask = capacity - 1;
+      }
+    }
+
+    private volatile Table table = new Table(MIN_CAPACITY);
+    // Guarded by this.
+    private int size = 0;
+    private int usedSlots = 0;
+
+    private static int slot(long key, int mask) {
+      long hash = key * 0x9E3779B97F4A7C15L;
+      return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    @Nullable
+    Task get(long key) {
+      Table current = table;
+      for (int i = slot(key, current.mask); ; i = (i + 1) & current.mask) {
+        long slotKey = current.keys.get(i);
+        if (slotKey == key) {
+          return current.tasks.get(i);
+        }
+        if (slotKey == EMPTY) {
+          return null;
+        }
+      }
+    }
+
+    synchronized void put(long key, Task task) {
+      if (key <= EMPTY) {
+        throw new IllegalArgumentException("Download ids are positive: " + key);
+      }
+      if ((usedSlots + 1) * 2 > table.keys.length()) {
+        resize();
+      }
+
+      Table current = table;
+      for (int i = slot(key, current.mask); ; i = (i + 1) & current.mask) {
+        long slotKey = current.keys.get(i);
+        if (slotKey == key) {
+          if (current.tasks.getAndSet(i, task) == null) {
+            size++;
+          }
+          return;
+        }
+        if (slotKey == EMPTY) {
+          current.tasks.set(i, task);
+          current.keys.set(i, key);
+          size++;
+          usedSlots++;
+          return;
+        }
+      }
+    }
+
+    @Nullable
+    synchronized Task remove(long key) {
+      Table current = table;
+      for (int i = slot(key, current.mask); ; i = (i + 1) & current.mask) {
+        long slotKey = current.keys.get(i);
+        if (slotKey == key) {
+          Task task = current.tasks.getAndSet(i, null);
+          if (task != null) {
+            size--;
+          }
+          return task;
+        }
+        if (slotKey == EMPTY) {
+          return null;
+        }
+      }
+    }
+
+    synchronized int size() {
+      return size;
+    }
+
+    private void resize() {
+      Table current = table;
+      int capacity = MIN_CAPACITY;
+      while (capacity < (size + 1) * 4) {
+        capacity <<= 1;
+      }
+
+      Table resized = new Table(capacity);
+      for (int i = 0; i < current.keys.length(); i++) {
+        Task task = current.tasks.get(i);
+        if (task == null) {
+          continue;
+        }
+        long key = current.keys.get(i);
+        int j = slot(key, resized.mask);
+        while (resized.keys.get(j) != EMPTY) {
+          j = (j + 1) & resized.mask;
+        }
+        resized.tasks.set(j, task);
+        resized.keys.set(j, key);
+      }
+      usedSlots = size;
+      table = resized;
+    }
+  }
+}
@@ -1,19 +1,19 @@
 package com.eko.handlers;
 
 import java.net.HttpURLConnection;
-import java.net.URL;
-import java.net.URLConnection;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.Callable;
 
 import com.eko.interfaces.BeginCallback;
 import com.eko.RNBGDTaskConfig;
+import com.eko.transfer.HttpClientPool;
 
 import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.bridge.Arguments;
 
+import okhttp3.Headers;
+import okhttp3.Request;
+import okhttp3.Response;
+
 public class OnBegin implements Callable<OnBeginState> {
   private final RNBGDTaskConfig config;
   private final BeginCallback callback;
@@ -25,60 +25,49 @@ public class OnBegin implements Callable<OnBeginState> {
 
   @Override
   public OnBeginState call() throws Exception {
-    HttpURLConnection urlConnection = null;
-    try {
-      urlConnection = getConnection(config.url);
-      Map<String, List<String>> urlHeaders = urlConnection.getHeaderFields();
-      WritableMap headers = getHeaders(urlConnection, urlHeaders);
-      urlConnection.getInputStream().close();
-
-      long bytesExpected = getContentLength(headers);
+    try (HttpClientPool.Exchange exchange = getExchange(config.url)) {
+      Response response = exchange.response;
+      WritableMap headers = getHeaders(response.headers());
+
+      long bytesExpected = getContentLength(response);
       callback.onBegin(config.id, headers, bytesExpected);
       return new OnBeginState(config.id, headers, bytesExpected);
     } catch (Exception e) {
       throw new Exception(e);
-    } finally {
-      if (urlConnection != null) {
-        urlConnection.disconnect();
-      }
     }
   }
 
-  private HttpURLConnection getConnection(String urlString) throws Exception {
-    URL url = new URL(urlString);
-    HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
-    // Requests only headers from the server.
-    // Prevents memory leaks for invalid connections.
-    urlConnection.setRequestMethod("HEAD");
-
-    // Set timeout values to prevent downloads from staying in PENDING state
-    // when URLs are slow to respond (e.g., taking 2-6 minutes)
-    urlConnection.setConnectTimeout(30000); // 30 seconds to establish connection
-    urlConnection.setReadTimeout(60000);    // 60 seconds to read initial response
+  private HttpClientPool.Exchange getExchange(String url) throws Exception {
+    // Requests only headers from the server, over a pooled connection.
+    // Timeouts of the pool keep downloads from staying in PENDING state
+    // when URLs are slow to respond (e.g., taking 2-6 minutes).
+    Request request = new Request.Builder().url(url).head().build();
+    HttpClientPool pool = HttpClientPool.getInstance();
+    HttpClientPool.Exchange exchange = pool.execute(pool.newCall(request));
 
     // 200 and 206 codes are successful http codes.
-    int httpStatusCode = urlConnection.getResponseCode();
+    int httpStatusCode = exchange.response.code();
     if (httpStatusCode != HttpURLConnection.HTTP_OK && httpStatusCode != HttpURLConnection.HTTP_PARTIAL) {
+      exchange.close();
       throw new Exception("HTTP response not valid: " + httpStatusCode);
     }
 
-    return urlConnection;
+    return exchange;
   }
 
-  private WritableMap getHeaders(URLConnection urlConnection, Map<String, List<String>> urlHeaders) {
+  private WritableMap getHeaders(Headers responseHeaders) {
     WritableMap headers = Arguments.createMap();
 
-    Set<String> keys = urlHeaders.keySet();
-    for (String key : keys) {
-      String val = urlConnection.getHeaderField(key);
-      headers.putString(key, val);
+    for (String name : responseHeaders.names()) {
+      headers.putString(name, responseHeaders.get(name));
     }
 
     return headers;
   }
 
-  private long getContentLength(WritableMap headersMap) {
-    String contentLengthString = headersMap.getString("Content-Length");
+  private long getContentLength(Response response) {
+    // HTTP/2 header names are lowercase, so look it up case-insensitively.
+    String contentLengthString = response.header("Content-Length");
 
     if (contentLengthString != null) {
       try {
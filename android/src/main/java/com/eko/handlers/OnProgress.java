@@ -1,7 +1,6 @@
 package com.eko.handlers;
 
 import android.app.DownloadManager;
-import android.os.SystemClock;
 
 import android.database.Cursor;
 
@@ -9,17 +8,18 @@ import com.eko.Downloader;
 import com.eko.interfaces.ProgressCallback;
 import com.eko.RNBGDTaskConfig;
 
-import java.util.concurrent.Callable;
-
-public class OnProgress implements Callable<OnProgressState> {
+/**
+ * Progress state of a single download. Rows are fed by {@link ProgressPoller},
+ * which queries the provider once per tick for every task that is due.
+ */
+public class OnProgress {
   private final RNBGDTaskConfig config;
   private final Downloader downloader;
   private final long downloadId;
   private long bytesDownloaded;
   private long bytesTotal;
   private final ProgressCallback callback;
-  private volatile boolean isRunning = true;
-  private volatile boolean isCompleted = true;
+  private long nextPollAt = 0;
 
   public OnProgress(
           RNBGDTaskConfig config,
@@ -37,58 +37,42 @@ public class OnProgress implements Callable<OnProgressState> {
     this.callback = callback;
   }
 
-  @Override
-  public OnProgressState call() throws Exception {
-    while (isRunning) {
-      int status = -1;
-      DownloadManager.Query query = new DownloadManager.Query();
-      query.setFilterById(downloadId);
-
-      try (Cursor cursor = downloader.downloadManager.query(query)) {
-        if (!cursor.moveToFirst()) {
-          stopLoopWithFail();
-          break;
-        }
-
-        // TODO: Maybe we can write some logic in the pause codes here.
-        //       For example; PAUSED_WAITING_TO_RETRY attempts count?
-        status = cursor.getInt(cursor.getColumnIndexOrThrow(DownloadManager.COLUMN_STATUS));
-        if (status == DownloadManager.STATUS_SUCCESSFUL) {
-          stopLoopWithSuccess();
-          break;
-        }
-        if (status == DownloadManager.STATUS_FAILED) {
-          int reason = cursor.getInt(cursor.getColumnIndexOrThrow(DownloadManager.COLUMN_REASON));
-          String reasonText = downloader.getReasonText(status, reason);
-          throw new Exception(reasonText);
-        }
-
-        boolean completed = updateProgress(cursor);
-        if (completed) {
-          stopLoopWithSuccess();
-          break;
-        }
-      } catch (Exception e) {
-        stopLoopWithFail();
-        // if reached maximum memory while downloading, the downloader broadcast can not receive event normally
-        downloader.broadcast(downloadId);
-        throw e;
-      }
-
-      SystemClock.sleep(getSleepDuration(status));
-    }
+  public long getDownloadId() {
+    return downloadId;
+  }
 
-    return isCompleted ? new OnProgressState(config.id, bytesDownloaded, bytesTotal) : null;
+  public String getConfigId() {
+    return config.id;
   }
 
-  private void stopLoopWithSuccess() {
-    this.isRunning = false;
-    this.isCompleted = true;
+  public boolean isDue(long now) {
+    return now >= nextPollAt;
   }
 
-  private void stopLoopWithFail() {
-    this.isRunning = false;
-    this.isCompleted = false;
+  /**
+   * Handles this task's row of the batched query.
+   * Returns false once the download reached a final state and should no longer be polled.
+   */
+  public boolean onRow(Cursor cursor, long now) {
+    // TODO: Maybe we can write some logic in the pause codes here.
+    //       For example; PAUSED_WAITING_TO_RETRY attempts count?
+    int status = cursor.getInt(cursor.getColumnIndexOrThrow(DownloadManager.COLUMN_STATUS));
+    if (status == DownloadManager.STATUS_SUCCESSFUL) {
+      return false;
+    }
+    if (status == DownloadManager.STATUS_FAILED) {
+      // if reached maximum memory while downloading, the downloader broadcast can not receive event normally
+      downloader.broadcast(downloadId);
+      return false;
+    }
+
+    boolean completed = updateProgress(cursor);
+    if (completed) {
+      return false;
+    }
+
+    nextPollAt = now + getSleepDuration(status);
+    return true;
   }
 
   private boolean updateProgress(Cursor cursor) {
@@ -0,0 +1,146 @@
+package com.eko.handlers;
+
+import android.app.DownloadManager;
+import android.database.Cursor;
+import android.util.Log;
+
+import com.eko.Downloader;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polls DownloadManager for every active task from a single thread.
+ * Each tick issues one provider query per batch of due tasks instead of
+ * one query (and one blocked thread) per task.
+ */
+public class ProgressPoller implements Runnable {
+  private static final long TICK_INTERVAL = 250;
+  // Stays below SQLite's 999 host parameter limit on older Android versions.
+  private static final int MAX_IDS_PER_QUERY = 500;
+
+  private final Downloader downloader;
+  private final Map<Long, OnProgress> downloadIdToProgress = new ConcurrentHashMap<>();
+  private final Map<String, Long> configIdToDownloadId = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+  private ScheduledFuture<?> tick;
+
+  public ProgressPoller(Downloader downloader) {
+    this.downloader = downloader;
+  }
+
+  public synchronized void add(OnProgress onProgress) {
+    downloadIdToProgress.put(onProgress.getDownloadId(), onProgress);
+    configIdToDownloadId.put(onProgress.getConfigId(), onProgress.getDownloadId());
+
+    if (tick == null) {
+      tick = scheduler.scheduleWithFixedDelay(this, 0, TICK_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  public boolean remove(String configId) {
+    Long downloadId = configIdToDownloadId.remove(configId);
+    return downloadId != null && downloadIdToProgress.remove(downloadId) != null;
+  }
+
+  public int size() {
+    return downloadIdToProgress.size();
+  }
+
+  public synchronized void shutdown() {
+    if (tick != null) {
+      tick.cancel(false);
+      tick = null;
+    }
+    scheduler.shutdownNow();
+  }
+
+  @Override
+  public void run() {
+    try {
+      poll();
+    } catch (Exception e) {
+      // An exception escaping a scheduled task would cancel every future tick.
+      Log.e("RNBackgroundDownloader", "ProgressPoller: " + Log.getStackTraceString(e));
+    }
+  }
+
+  private void poll() {
+    long now = TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    List<OnProgress> due = new ArrayList<>();
+    for (OnProgress onProgress : downloadIdToProgress.values()) {
+      if (onProgress.isDue(now)) {
+        due.add(onProgress);
+      }
+    }
+
+    for (int start = 0; start < due.size(); start += MAX_IDS_PER_QUERY) {
+      pollBatch(due.subList(start, Math.min(start + MAX_IDS_PER_QUERY, due.size())), now);
+    }
+
+    stopWhenIdle();
+  }
+
+  private void pollBatch(List<OnProgress> batch, long now) {
+    long[] ids = new long[batch.size()];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = batch.get(i).getDownloadId();
+    }
+
+    DownloadManager.Query query = new DownloadManager.Query();
+    query.setFilterById(ids);
+
+    Set<Long> seen = new HashSet<>();
+    try (Cursor cursor = downloader.downloadManager.query(query)) {
+      if (cursor != null && cursor.moveToFirst()) {
+        int idIndex = cursor.getColumnIndexOrThrow(DownloadManager.COLUMN_ID);
+        do {
+          long downloadId = cursor.getLong(idIndex);
+          OnProgress onProgress = downloadIdToProgress.get(downloadId);
+          if (onProgress == null) {
+            continue;
+          }
+
+          seen.add(downloadId);
+          boolean isActive;
+          try {
+            isActive = onProgress.onRow(cursor, now);
+          } catch (Exception e) {
+            Log.e("RNBackgroundDownloader", "ProgressPoller: " + Log.getStackTraceString(e));
+            isActive = false;
+          }
+          if (!isActive) {
+            stop(onProgress);
+          }
+        } while (cursor.moveToNext());
+      }
+    }
+
+    // Tasks missing from the provider were removed outside of this module.
+    for (OnProgress onProgress : batch) {
+      if (!seen.contains(onProgress.getDownloadId())) {
+        stop(onProgress);
+      }
+    }
+  }
+
+  private void stop(OnProgress onProgress) {
+    downloadIdToProgress.remove(onProgress.getDownloadId());
+    configIdToDownloadId.remove(onProgress.getConfigId(), onProgress.getDownloadId());
+  }
+
+  private synchronized void stopWhenIdle() {
+    if (downloadIdToProgress.isEmpty() && tick != null) {
+      tick.cancel(false);
+      tick = null;
+    }
+  }
+}
@@ -0,0 +1,144 @@
+package com.eko.transfer;
+
+/**
+ * Picks how many transfers run at once from the throughput they reach together, additive increase
+ * and multiplicative decrease style.
+ * Bytes are counted in windows. A window in which every slot was busy is the throughput of the
+ * current limit, and is kept as the estimate for that limit. The limit shrinks by one when it doesn't
+ * beat the estimate of one slot less, and otherwise grows by one unless one slot more is known not
+ * to help. Then one slot less is tried if it has no estimate, so the limit also finds its way down.
+ * Errors halve it. Estimates expire, so a changed network is probed again.
+ */
+public class ConcurrencyController {
+  public static final int DEFAULT_MIN = 1;
+  public static final int DEFAULT_MAX = 16;
+  public static final int INITIAL = 4;
+  static final long WINDOW = 2000;
+  static final long ESTIMATE_TTL = 30000;
+  // Throughput has to improve by this much for a slot to count as useful.
+  static final double MIN_GAIN = 0.1;
+
+  public interface Listener {
+    void onLimitChanged(int limit);
+  }
+
+  private final Listener listener;
+  private int min = DEFAULT_MIN;
+  private int max = DEFAULT_MAX;
+  private int limit = INITIAL;
+  // Indexed by limit: bytes per second measured at it, when, and whether it was at all.
+  private double[] estimates = new double[max + 2];
+  private long[] estimatedAt = new long[max + 2];
+  private boolean[] isEstimated = new boolean[max + 2];
+
+  private long windowStart = -1;
+  private long windowBytes = 0;
+  private boolean isWindowSaturated = true;
+  private boolean hasWindowErrors = false;
+  private double bytesPerSecond = 0;
+
+  public ConcurrencyController(Listener listener) {
+    this.listener = listener;
+  }
+
+  public synchronized int getLimit() {
+    return limit;
+  }
+
+  public synchronized int getMin() {
+    return min;
+  }
+
+  public synchronized int getMax() {
+    return max;
+  }
+
+  // Throughput of the last complete window.
+  public synchronized double getBytesPerSecond() {
+    return bytesPerSecond;
+  }
+
+  public synchronized void setRange(int min, int max) {
+    this.min = Math.max(1, min);
+    this.max = Math.max(this.min, max);
+    estimates = new double[this.max + 2];
+    estimatedAt = new long[this.max + 2];
+    isEstimated = new boolean[this.max + 2];
+    setLimit(Math.min(Math.max(limit, this.min), this.max));
+    // The running window measured the previous range.
+    isWindowSaturated = false;
+  }
+
+  /**
+   * Counts bytes that arrived, with the number of transfers that wanted to run at the time.
+   */
+  public synchronized void onBytes(long count, int demand, long now) {
+    advance(now);
+    windowBytes += count;
+    isWindowSaturated &= demand >= limit;
+  }
+
+  /**
+   * Counts a transfer that failed in a way more load can cause: a dropped connection, a server error or throttling.
+   */
+  public synchronized void onError(long now) {
+    advance(now);
+    hasWindowErrors = true;
+  }
+
+  private void advance(long now) {
+    if (windowStart < 0) {
+      windowStart = now;
+      return;
+    }
+    if (now - windowStart < WINDOW) {
+      return;
+    }
+
+    // Nothing arrived for a while, e.g. no transfers ran, so the window says nothing about the limit.
+    boolean isIdle = now - windowStart >= 2 * WINDOW;
+    bytesPerSecond = windowBytes * 1000.0 / (now - windowStart);
+    if (hasWindowErrors) {
+      setLimit(Math.max(min, limit / 2));
+    } else if (isWindowSaturated && !isIdle) {
+      estimates[limit] = bytesPerSecond;
+      estimatedAt[limit] = now;
+      isEstimated[limit] = true;
+      adjust(now);
+    }
+
+    windowStart = now;
+    windowBytes = 0;
+    isWindowSaturated = true;
+    hasWindowErrors = false;
+  }
+
+  private void adjust(long now) {
+    double current = estimates[limit];
+    if (limit > min && isKnown(limit - 1, now) && current < estimates[limit - 1] * (1 + MIN_GAIN)) {
+      // The last slot added nothing.
+      setLimit(limit - 1);
+      return;
+    }
+
+    boolean isMoreUseful = !isKnown(limit + 1, now) || estimates[limit + 1] >= current * (1 + MIN_GAIN);
+    if (limit < max && isMoreUseful) {
+      setLimit(limit + 1);
+    } else if (limit > min && !isKnown(limit - 1, now)) {
+      // More doesn't help and fewer wasn't measured lately, e.g. after the network got slower.
+      setLimit(limit - 1);
+    }
+  }
+
+  private boolean isKnown(int level, long now) {
+    return level >= 1 && level < isEstimated.length && isEstimated[level] && now - estimatedAt[level] < ESTIMATE_TTL;
+  }
+
+  private void setLimit(int newLimit) {
+    if (newLimit == limit) {
+      return;
+    }
+    limit = newLimit;
+    listener.onLimitChanged(newLimit);
+  }
+}
@@ -0,0 +1,53 @@
+package com.eko.transfer;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Direct buffers for in-process transfers. Allocating a direct buffer is slow and its memory is only
+ * freed by a GC, so transfers borrow one and give it back instead of allocating their own.
+ * Buffers beyond maxPooled are dropped on release, which bounds the pool by the busiest moment.
+ */
+public class DirectBufferPool {
+  public static final int BUFFER_SIZE = 64 * 1024;
+  private static final int MAX_POOLED = 8;
+
+  private static final DirectBufferPool SHARED = new DirectBufferPool(BUFFER_SIZE, MAX_POOLED);
+
+  public static DirectBufferPool getShared() {
+    return SHARED;
+  }
+
+  private final ConcurrentLinkedQueue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pooledCount = new AtomicInteger();
+  private final int bufferSize;
+  private final int maxPooled;
+
+  public DirectBufferPool(int bufferSize, int maxPooled) {
+    this.bufferSize = bufferSize;
+    this.maxPooled = maxPooled;
+  }
+
+  public ByteBuffer acquire() {
+    ByteBuffer buffer = buffers.poll();
+    if (buffer == null) {
+      return ByteBuffer.allocateDirect(bufferSize);
+    }
+    pooledCount.decrementAndGet();
+    return buffer;
+  }
+
+  public void release(ByteBuffer buffer) {
+    if (pooledCount.incrementAndGet() > maxPooled) {
+      pooledCount.decrementAndGet();
+      return;
+    }
+    buffer.clear();
+    buffers.offer(buffer);
+  }
+
+  public int getPooledCount() {
+    return pooledCount.get();
+  }
+}
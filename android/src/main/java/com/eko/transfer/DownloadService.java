@@ -0,0 +1,240 @@
+package com.eko.transfer;
+
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.os.Build;
+import android.os.IBinder;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.core.app.NotificationCompat;
+
+import com.eko.utils.NotificationUtils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Foreground service that keeps the app process running while in-process transfers are active, so
+ * they survive the app going to the background. It doesn't run transfers itself: they stay on the
+ * threads of {@link InlineDownloader} and are only registered here, and the service is started with
+ * the first one and stops itself when the last one is removed.
+ * All transfers share one summary notification, updated at most every notificationInterval ms
+ * independently of the progress events sent to JS.
+ */
+public class DownloadService extends Service {
+  public static final long DEFAULT_NOTIFICATION_INTERVAL = 1000;
+  private static final String TAG = "RNBackgroundDownloader";
+  private static final int NOTIFICATION_ID = "RNBackgroundDownloader.DownloadService".hashCode();
+
+  private static class Transfer {
+    @Nullable
+    final String title;
+    long bytesDownloaded;
+    long bytesTotal;
+
+    Transfer(@Nullable String title) {
+      this.title = title;
+    }
+  }
+
+  private static final Object lock = new Object();
+  private static final Map<String, Transfer> configIdToTransfer = new LinkedHashMap<>();
+  private static volatile long notificationInterval = DEFAULT_NOTIFICATION_INTERVAL;
+  private static DownloadService instance;
+  private static boolean isStarting = false;
+  private static long lastNotificationAt;
+
+  private int lastStartId;
+
+  public static long getNotificationInterval() {
+    return notificationInterval;
+  }
+
+  public static void setNotificationInterval(long interval) {
+    notificationInterval = interval;
+  }
+
+  /**
+   * Registers a transfer, starting the service if it isn't running yet.
+   */
+  public static void add(Context context, String configId, @Nullable String title) {
+    synchronized (lock) {
+      configIdToTransfer.put(configId, new Transfer(title));
+      if (instance != null) {
+        instance.updateNotification();
+        return;
+      }
+      if (isStarting) {
+        return;
+      }
+      isStarting = true;
+    }
+
+    Intent intent = new Intent(context, DownloadService.class);
+    try {
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+        context.startForegroundService(intent);
+      } else {
+        context.startService(intent);
+      }
+    } catch (IllegalStateException | SecurityException e) {
+      // Android 12+ refuses foreground services started from the background. Transfers keep running, just unprotected.
+      Log.w(TAG, "DownloadService: running transfers without foreground: " + e.getMessage());
+      synchronized (lock) {
+        isStarting = false;
+      }
+    }
+  }
+
+  public static void setProgress(String configId, long bytesDownloaded, long bytesTotal) {
+    synchronized (lock) {
+      Transfer transfer = configIdToTransfer.get(configId);
+      if (transfer == null) {
+        return;
+      }
+      transfer.bytesDownloaded = bytesDownloaded;
+      transfer.bytesTotal = bytesTotal;
+      if (instance != null) {
+        instance.updateNotification();
+      }
+    }
+  }
+
+  /**
+   * Unregisters a transfer, and stops the service when it was the last one.
+   */
+  public static void remove(String configId) {
+    synchronized (lock) {
+      if (configIdToTransfer.remove(configId) == null) {
+        return;
+      }
+      if (instance != null) {
+        if (configIdToTransfer.isEmpty()) {
+          instance.stop();
+        } else {
+          instance.updateNotification();
+        }
+      }
+    }
+  }
+
+  public static void clear() {
+    synchronized (lock) {
+      configIdToTransfer.clear();
+      if (instance != null) {
+        instance.stop();
+      }
+    }
+  }
+
+  @Override
+  public int onStartCommand(Intent intent, int flags, int startId) {
+    Notification notification;
+    synchronized (lock) {
+      instance = this;
+      isStarting = false;
+      lastStartId = startId;
+      lastNotificationAt = System.currentTimeMillis();
+      notification = createNotification();
+    }
+
+    // Has to be called for every start, even when there is nothing left to host.
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+      startForeground(NOTIFICATION_ID, notification, ServiceInfo.FOREGROUND_SERVICE_TYPE_DATA_SYNC);
+    } else {
+      startForeground(NOTIFICATION_ID, notification);
+    }
+
+    synchronized (lock) {
+      if (configIdToTransfer.isEmpty()) {
+        stop();
+      }
+    }
+    return START_NOT_STICKY;
+  }
+
+  // Android 15+ limits how long dataSync services run. Transfers continue, the process is just no longer protected.
+  @Override
+  public void onTimeout(int startId, int foregroundServiceType) {
+    Log.w(TAG, "DownloadService: foreground time limit reached");
+    synchronized (lock) {
+      stop();
+    }
+  }
+
+  @Override
+  public void onDestroy() {
+    synchronized (lock) {
+      if (instance == this) {
+        instance = null;
+      }
+    }
+  }
+
+  @Nullable
+  @Override
+  public IBinder onBind(Intent intent) {
+    return null;
+  }
+
+  // Called with the lock held.
+  private void stop() {
+    instance = null;
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+      stopForeground(STOP_FOREGROUND_REMOVE);
+    } else {
+      stopForeground(true);
+    }
+    // Only stops if no start was requested since, which would otherwise expect startForeground in vain.
+    stopSelfResult(lastStartId);
+  }
+
+  // Called with the lock held.
+  private void updateNotification() {
+    long now = System.currentTimeMillis();
+    if (now - lastNotificationAt < notificationInterval) {
+      return;
+    }
+
+    lastNotificationAt = now;
+    NotificationManager notificationManager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+    if (notificationManager != null) {
+      notificationManager.notify(NOTIFICATION_ID, createNotification());
+    }
+  }
+
+  // Called with the lock held.
+  private Notification createNotification() {
+    NotificationUtils.createChannel(this);
+
+    String title = "Downloading";
+    long bytesDownloaded = 0;
+    long bytesTotal = 0;
+    boolean isIndeterminate = configIdToTransfer.isEmpty();
+    for (Transfer transfer : configIdToTransfer.values()) {
+      bytesDownloaded += transfer.bytesDownloaded;
+      bytesTotal += transfer.bytesTotal;
+      isIndeterminate |= transfer.bytesTotal <= 0;
+      if (configIdToTransfer.size() == 1 && transfer.title != null && !transfer.title.isEmpty()) {
+        title = transfer.title;
+      }
+    }
+    if (configIdToTransfer.size() > 1) {
+      title = "Downloading " + configIdToTransfer.size() + " files";
+    }
+
+    int percent = bytesTotal > 0 ? (int) (Math.min(bytesDownloaded, bytesTotal) * 100 / bytesTotal) : 0;
+    return new NotificationCompat.Builder(this, NotificationUtils.CHANNEL_ID)
+        .setSmallIcon(android.R.drawable.stat_sys_download)
+        .setContentTitle(title)
+        .setProgress(100, percent, isIndeterminate)
+        .setOngoing(true)
+        .setOnlyAlertOnce(true)
+        .build();
+  }
+}
@@ -0,0 +1,257 @@
+package com.eko.transfer;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.Dns;
+import okhttp3.EventListener;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * The one HTTP client of the process, shared by HEAD probes, inline downloads and workers.
+ * Connections are kept alive and reused per host, HTTP/2 servers get all requests multiplexed over
+ * a single connection, and DNS answers are cached for dnsCacheTtl.
+ * Requests to a host beyond maxRequestsPerHost wait for one of the host's requests to finish.
+ * Workers can run without the module, so settings from setConfig only apply to the running process.
+ */
+public class HttpClientPool {
+  public static final int DEFAULT_MAX_REQUESTS_PER_HOST = 6;
+  public static final int DEFAULT_MAX_IDLE_CONNECTIONS = 8;
+  public static final long DEFAULT_KEEP_ALIVE_DURATION = 5 * 60 * 1000;
+  public static final long DEFAULT_DNS_CACHE_TTL = 60 * 1000;
+  private static final long CONNECT_TIMEOUT = 30000;
+  private static final long READ_TIMEOUT = 60000;
+  // How often a request waiting for a host permit checks whether it was cancelled.
+  private static final long PERMIT_POLL_INTERVAL = 100;
+
+  private static HttpClientPool instance;
+
+  public static synchronized HttpClientPool getInstance() {
+    if (instance == null) {
+      instance = new HttpClientPool();
+    }
+    return instance;
+  }
+
+  /**
+   * A response and the host permit it holds. Closing it releases both.
+   */
+  public static class Exchange implements Closeable {
+    public final Response response;
+    private final Semaphore permits;
+    private boolean isClosed = false;
+
+    Exchange(Response response, Semaphore permits) {
+      this.response = response;
+      this.permits = permits;
+    }
+
+    @Override
+    public synchronized void close() {
+      if (!isClosed) {
+        isClosed = true;
+        response.close();
+        permits.release();
+      }
+    }
+  }
+
+  private static class DnsEntry {
+    final List<InetAddress> addresses;
+    final long expiresAt;
+
+    DnsEntry(List<InetAddress> addresses, long expiresAt) {
+      this.addresses = addresses;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+  private final Map<String, DnsEntry> hostToDnsEntry = new ConcurrentHashMap<>();
+  private final Map<String, Semaphore> hostToPermits = new ConcurrentHashMap<>();
+  private final AtomicLong requests = new AtomicLong();
+  private final AtomicLong http2Requests = new AtomicLong();
+  private final AtomicLong connectionsAcquired = new AtomicLong();
+  private final AtomicLong connectionsOpened = new AtomicLong();
+  private final AtomicLong connectTimeNanos = new AtomicLong();
+  private final AtomicLong dnsCacheHits = new AtomicLong();
+  private final AtomicLong dnsCacheMisses = new AtomicLong();
+  private volatile OkHttpClient client;
+  private volatile int maxRequestsPerHost = DEFAULT_MAX_REQUESTS_PER_HOST;
+  private volatile long dnsCacheTtl = DEFAULT_DNS_CACHE_TTL;
+
+  public HttpClientPool() {
+    client = buildClient(DEFAULT_MAX_IDLE_CONNECTIONS, DEFAULT_KEEP_ALIVE_DURATION, true);
+  }
+
+  /**
+   * Applies the "network" map of setConfig. Missing keys go back to their defaults.
+   */
+  public synchronized void configure(@Nullable ReadableMap network) {
+    int maxIdleConnections = (int) getNumber(network, "maxIdleConnections", DEFAULT_MAX_IDLE_CONNECTIONS);
+    long keepAliveDuration = (long) getNumber(network, "keepAliveDuration", DEFAULT_KEEP_ALIVE_DURATION);
+    boolean isHttp2Enabled = network == null || !network.hasKey("http2") || network.isNull("http2")
+        || network.getBoolean("http2");
+
+    maxRequestsPerHost = Math.max(1, (int) getNumber(network, "maxRequestsPerHost", DEFAULT_MAX_REQUESTS_PER_HOST));
+    dnsCacheTtl = (long) getNumber(network, "dnsCacheTtl", DEFAULT_DNS_CACHE_TTL);
+    // Permits of requests in flight go back to the semaphore they came from, so new limits need new semaphores.
+    hostToPermits.clear();
+    hostToDnsEntry.clear();
+
+    OkHttpClient previousClient = client;
+    client = buildClient(maxIdleConnections, keepAliveDuration, isHttp2Enabled);
+    previousClient.connectionPool().evictAll();
+  }
+
+  public Call newCall(Request request) {
+    return client.newCall(request);
+  }
+
+  /**
+   * Runs the call once its host has a free permit. The returned exchange must be closed.
+   */
+  public Exchange execute(Call call) throws IOException {
+    Semaphore permits = getPermits(call.request().url().host());
+    try {
+      while (!permits.tryAcquire(PERMIT_POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+        if (call.isCanceled()) {
+          throw new IOException("Canceled");
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for a connection", e);
+    }
+
+    try {
+      return new Exchange(call.execute(), permits);
+    } catch (IOException | RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+  }
+
+  public WritableMap getMetrics() {
+    long acquired = connectionsAcquired.get();
+    long opened = connectionsOpened.get();
+
+    WritableMap metrics = Arguments.createMap();
+    metrics.putDouble("requests", requests.get());
+    metrics.putDouble("http2Requests", http2Requests.get());
+    metrics.putDouble("connectionsOpened", opened);
+    metrics.putDouble("connectionsReused", Math.max(0, acquired - opened));
+    metrics.putDouble("poolHitRate", acquired > 0 ? (double) Math.max(0, acquired - opened) / acquired : 0);
+    metrics.putDouble("averageConnectMs", opened > 0 ? connectTimeNanos.get() / 1e6 / opened : 0);
+    metrics.putDouble("dnsCacheHits", dnsCacheHits.get());
+    metrics.putDouble("dnsCacheMisses", dnsCacheMisses.get());
+    metrics.putInt("connectionCount", client.connectionPool().connectionCount());
+    metrics.putInt("idleConnectionCount", client.connectionPool().idleConnectionCount());
+    return metrics;
+  }
+
+  private Semaphore getPermits(String host) {
+    Semaphore permits = hostToPermits.get(host);
+    if (permits == null) {
+      Semaphore newPermits = new Semaphore(maxRequestsPerHost);
+      permits = hostToPermits.putIfAbsent(host, newPermits);
+      if (permits == null) {
+        permits = newPermits;
+      }
+    }
+    return permits;
+  }
+
+  private OkHttpClient buildClient(int maxIdleConnections, long keepAliveDuration, boolean isHttp2Enabled) {
+    List<Protocol> protocols = isHttp2Enabled
+        ? Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1)
+        : Collections.singletonList(Protocol.HTTP_1_1);
+
+    return new OkHttpClient.Builder()
+        .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveDuration, TimeUnit.MILLISECONDS))
+        .protocols(protocols)
+        .dns(this::lookup)
+        .eventListenerFactory(call -> new MetricsListener())
+        .connectTimeout(CONNECT_TIMEOUT, TimeUnit.MILLISECONDS)
+        .readTimeout(READ_TIMEOUT, TimeUnit.MILLISECONDS)
+        .build();
+  }
+
+  private List<InetAddress> lookup(String host) throws UnknownHostException {
+    long now = System.currentTimeMillis();
+    DnsEntry entry = hostToDnsEntry.get(host);
+    if (entry != null && entry.expiresAt > now) {
+      dnsCacheHits.incrementAndGet();
+      return entry.addresses;
+    }
+
+    dnsCacheMisses.incrementAndGet();
+    // Failed lookups are not cached, so a device coming back online resolves right away.
+    List<InetAddress> addresses = Dns.SYSTEM.lookup(host);
+    if (dnsCacheTtl > 0) {
+      hostToDnsEntry.put(host, new DnsEntry(addresses, now + dnsCacheTtl));
+    }
+    return addresses;
+  }
+
+  private static double getNumber(@Nullable ReadableMap map, String key, double fallback) {
+    if (map == null || !map.hasKey(key) || map.isNull(key)) {
+      return fallback;
+    }
+    return map.getDouble(key);
+  }
+
+  /**
+   * Created per call. A connection acquired without connecting first came from the pool.
+   */
+  private class MetricsListener extends EventListener {
+    private long connectStartedAt = 0;
+
+    @Override
+    public void callStart(Call call) {
+      requests.incrementAndGet();
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+      connectStartedAt = System.nanoTime();
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, @Nullable Protocol protocol) {
+      connectionsOpened.incrementAndGet();
+      connectTimeNanos.addAndGet(System.nanoTime() - connectStartedAt);
+    }
+
+    @Override
+    public void connectionAcquired(Call call, Connection connection) {
+      connectionsAcquired.incrementAndGet();
+      if (connection.protocol() == Protocol.HTTP_2) {
+        http2Requests.incrementAndGet();
+      }
+    }
+  }
+}
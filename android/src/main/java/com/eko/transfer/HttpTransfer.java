@@ -0,0 +1,448 @@
+package com.eko.transfer;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+
+import javax.annotation.Nullable;
+
+import okhttp3.Call;
+import okhttp3.Headers;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Streams a URL into a partial file on the calling thread, over a connection of {@link HttpClientPool}.
+ * When the partial file already has bytes the transfer continues from its {@link TransferCheckpoint}
+ * with a Range request, so a retried or rescheduled task, or one whose process died, does not start over.
+ * The partial file is written by a {@link PartFileWriter} from pooled direct buffers.
+ * With a {@link BodyConsumer} the body is handed over as it arrives instead and always starts from zero.
+ * With ranges only those bytes of the body are fetched, one Range request per range, and written one
+ * after another into the partial file.
+ */
+public class HttpTransfer implements Callable<HttpTransfer.Result> {
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final long PROGRESS_INTERVAL = 250;
+
+  public interface Listener {
+    void onBegin(Map<String, String> headers, long expectedBytes);
+
+    void onProgress(long bytesDownloaded, long bytesTotal);
+  }
+
+  public interface BodyConsumer {
+    void accept(InputStream body) throws IOException;
+  }
+
+  public static class Result {
+    public final long bytesDownloaded;
+    public final long bytesTotal;
+
+    Result(long bytesDownloaded, long bytesTotal) {
+      this.bytesDownloaded = bytesDownloaded;
+      this.bytesTotal = bytesTotal;
+    }
+  }
+
+  public static class HttpStatusException extends IOException {
+    public final int statusCode;
+
+    HttpStatusException(int statusCode) {
+      super("HTTP response not valid: " + statusCode);
+      this.statusCode = statusCode;
+    }
+  }
+
+  private final String url;
+  private final Map<String, String> headers;
+  private final File partFile;
+  private final BodyConsumer bodyConsumer;
+  // {offset, length} pairs, or null for the whole body.
+  private final long[][] ranges;
+  private final Listener listener;
+  private volatile Call call;
+  private volatile boolean isCancelled = false;
+
+  public HttpTransfer(String url, Map<String, String> headers, File partFile, Listener listener) {
+    this(url, headers, partFile, null, listener);
+  }
+
+  public HttpTransfer(String url, Map<String, String> headers, File partFile, @Nullable long[][] ranges, Listener listener) {
+    this.url = url;
+    this.headers = headers;
+    this.partFile = partFile;
+    this.bodyConsumer = null;
+    this.ranges = ranges;
+    this.listener = listener;
+  }
+
+  public HttpTransfer(String url, Map<String, String> headers, BodyConsumer bodyConsumer, Listener listener) {
+    this.url = url;
+    this.headers = headers;
+    this.partFile = null;
+    this.bodyConsumer = bodyConsumer;
+    this.ranges = null;
+    this.listener = listener;
+  }
+
+  public void cancel() {
+    isCancelled = true;
+    Call currentCall = call;
+    if (currentCall != null) {
+      // Unblocks a read that is waiting on the network.
+      currentCall.cancel();
+    }
+  }
+
+  @Override
+  public Result call() throws IOException {
+    try {
+      return ranges != null ? transferRanges() : transfer();
+    } catch (IOException e) {
+      if (isCancelled) {
+        throw new CancellationException();
+      }
+      throw e;
+    }
+  }
+
+  private Result transfer() throws IOException {
+    TransferCheckpoint checkpoint = partFile != null ? TransferCheckpoint.reconcile(partFile) : null;
+    long resumedFrom = checkpoint != null ? checkpoint.bytesConfirmed : 0;
+    long offset = resumedFrom;
+
+    while (true) {
+      call = HttpClientPool.getInstance().newCall(getRequest(offset, checkpoint));
+      if (isCancelled) {
+        throw new CancellationException();
+      }
+
+      // Closing a response whose body was read to the end leaves the connection in the pool for the next request.
+      try (HttpClientPool.Exchange exchange = HttpClientPool.getInstance().execute(call)) {
+        Response response = exchange.response;
+        int httpStatusCode = response.code();
+
+        if (httpStatusCode == 416 && offset > 0) {
+          // The partial file already holds the whole body.
+          listener.onBegin(getHeaders(response), offset);
+          return new Result(offset, offset);
+        }
+        if (httpStatusCode == HttpURLConnection.HTTP_OK) {
+          // Server ignored the Range header or the body changed since the partial file was written, so start over.
+          offset = 0;
+        } else if (httpStatusCode != HttpURLConnection.HTTP_PARTIAL) {
+          throw new HttpStatusException(httpStatusCode);
+        } else if (!isRangeFrom(response, offset)) {
+          // Other bytes than asked for, e.g. from a proxy, would corrupt the partial file, so start over.
+          if (offset == 0) {
+            throw new IOException("Expected bytes 0-, got " + response.header("Content-Range"));
+          }
+          offset = 0;
+          continue;
+        }
+
+        ResponseBody body = response.body();
+        if (body == null) {
+          throw new IOException("HTTP response has no body");
+        }
+
+        long contentLength = body.contentLength();
+        long bytesTotal = contentLength >= 0 ? offset + contentLength : 0;
+        listener.onBegin(getHeaders(response), bytesTotal);
+        if (offset < resumedFrom) {
+          // Before the bytes already reported are overwritten, so nobody reads them as part of the new body.
+          listener.onProgress(0, bytesTotal);
+        }
+
+        if (checkpoint != null) {
+          checkpoint.setValidators(response.header("ETag"), response.header("Last-Modified"));
+        }
+        long bytesDownloaded = copy(body, offset, bytesTotal, checkpoint);
+        checkLength(bytesDownloaded, bytesTotal);
+
+        return new Result(bytesDownloaded, bytesTotal > 0 ? bytesTotal : bytesDownloaded);
+      }
+    }
+  }
+
+  private static boolean isRangeFrom(Response response, long offset) {
+    String contentRange = response.header("Content-Range");
+    return contentRange != null && contentRange.startsWith("bytes " + offset + "-");
+  }
+
+  /**
+   * Fetches the ranges in order. The partial file holds them back to back, so its checkpoint tells
+   * which range to continue and from where, and progress counts against the sum of their lengths.
+   */
+  private Result transferRanges() throws IOException {
+    TransferCheckpoint checkpoint = TransferCheckpoint.reconcile(partFile);
+    long bytesTotal = 0;
+    for (long[] range : ranges) {
+      bytesTotal += range[1];
+    }
+    long offset = Math.min(checkpoint.bytesConfirmed, bytesTotal);
+    if (offset == bytesTotal) {
+      listener.onBegin(new HashMap<>(), bytesTotal);
+      return new Result(bytesTotal, bytesTotal);
+    }
+
+    Progress progress = new Progress(offset, bytesTotal);
+    DirectBufferPool bufferPool = DirectBufferPool.getShared();
+    ByteBuffer buffer = bufferPool.acquire();
+    try (PartFileWriter writer = new PartFileWriter(partFile, checkpoint, offset, bytesTotal)) {
+      long position = 0;
+      boolean isBegun = false;
+      for (long[] range : ranges) {
+        long skipped = Math.max(offset - position, 0);
+        position += range[1];
+        if (skipped >= range[1]) {
+          continue;
+        }
+
+        long start = range[0] + skipped;
+        long end = range[0] + range[1] - 1;
+        call = HttpClientPool.getInstance().newCall(getRangeRequest(start, end, checkpoint));
+        if (isCancelled) {
+          throw new CancellationException();
+        }
+
+        try (HttpClientPool.Exchange exchange = HttpClientPool.getInstance().execute(call)) {
+          Response response = exchange.response;
+          // A 200 is the whole body: the server ignores ranges or the body changed since the first range.
+          if (response.code() != HttpURLConnection.HTTP_PARTIAL) {
+            throw new HttpStatusException(response.code());
+          }
+          if (!isRangeFrom(response, start)) {
+            throw new IOException("Expected bytes " + start + "-" + end + ", got " + response.header("Content-Range"));
+          }
+          ResponseBody body = response.body();
+          if (body == null) {
+            throw new IOException("HTTP response has no body");
+          }
+
+          if (!isBegun) {
+            isBegun = true;
+            listener.onBegin(getHeaders(response), bytesTotal);
+          }
+          checkpoint.setValidators(response.header("ETag"), response.header("Last-Modified"));
+          writeRange(body.source(), buffer, writer, progress, end - start + 1);
+        }
+      }
+
+      writer.complete();
+    } finally {
+      bufferPool.release(buffer);
+    }
+
+    listener.onProgress(progress.bytesDownloaded, bytesTotal);
+    return new Result(progress.bytesDownloaded, bytesTotal);
+  }
+
+  // Never reads past the range, so a server sending more than asked can't shift the ranges after it.
+  private static void writeRange(
+      ReadableByteChannel source,
+      ByteBuffer buffer,
+      PartFileWriter writer,
+      Progress progress,
+      long length
+  ) throws IOException {
+    long remaining = length;
+    buffer.clear();
+    while (remaining > 0) {
+      buffer.limit((int) Math.min(buffer.capacity(), buffer.position() + remaining));
+      int read = source.read(buffer);
+      if (read == -1) {
+        break;
+      }
+      remaining -= read;
+      if (!buffer.hasRemaining()) {
+        flush(buffer, writer, progress);
+      }
+    }
+    flush(buffer, writer, progress);
+
+    if (remaining > 0) {
+      throw new IOException("Connection closed after " + (length - remaining) + " of " + length + " bytes of a range");
+    }
+  }
+
+  private Request getRangeRequest(long start, long end, TransferCheckpoint checkpoint) {
+    Request.Builder builder = getRequestBuilder();
+    builder.header("Range", "bytes=" + start + "-" + end);
+    String ifRange = checkpoint.getIfRange();
+    if (ifRange != null) {
+      builder.header("If-Range", ifRange);
+    }
+    return builder.build();
+  }
+
+  private Request getRequest(long offset, @Nullable TransferCheckpoint checkpoint) {
+    Request.Builder builder = getRequestBuilder();
+    if (offset > 0) {
+      builder.header("Range", "bytes=" + offset + "-");
+      String ifRange = checkpoint != null ? checkpoint.getIfRange() : null;
+      if (ifRange != null) {
+        builder.header("If-Range", ifRange);
+      }
+    }
+
+    return builder.build();
+  }
+
+  private Request.Builder getRequestBuilder() {
+    Request.Builder builder = new Request.Builder().url(url);
+
+    boolean hasAcceptEncoding = false;
+    for (Map.Entry<String, String> header : headers.entrySet()) {
+      builder.header(header.getKey(), header.getValue());
+      hasAcceptEncoding |= "Accept-Encoding".equalsIgnoreCase(header.getKey());
+    }
+    // Otherwise the client asks for gzip and unzips it on the fly, and byte counts no longer match Content-Length.
+    if (!hasAcceptEncoding) {
+      builder.header("Accept-Encoding", "identity");
+    }
+    return builder;
+  }
+
+  private long copy(ResponseBody body, long offset, long bytesTotal, @Nullable TransferCheckpoint checkpoint) throws IOException {
+    Progress progress = new Progress(offset, bytesTotal);
+    if (bodyConsumer != null) {
+      try (ProgressInputStream input = new ProgressInputStream(body.byteStream(), progress)) {
+        bodyConsumer.accept(input);
+        // Drain whatever the consumer left, e.g. a zip's central directory, so the byte count is complete.
+        byte[] buffer = new byte[BUFFER_SIZE];
+        while (input.read(buffer) != -1) {
+          // Discard.
+        }
+      }
+    } else {
+      writePartFile(body.source(), progress, checkpoint);
+    }
+
+    listener.onProgress(progress.bytesDownloaded, bytesTotal);
+    return progress.bytesDownloaded;
+  }
+
+  /**
+   * Reads the body into a pooled direct buffer and writes it whenever the buffer is full, so a
+   * transfer allocates nothing per read. Progress counts written bytes only, because partial reads
+   * trust it to be on disk.
+   */
+  private void writePartFile(ReadableByteChannel source, Progress progress, TransferCheckpoint checkpoint) throws IOException {
+    DirectBufferPool bufferPool = DirectBufferPool.getShared();
+    ByteBuffer buffer = bufferPool.acquire();
+    try (PartFileWriter writer = new PartFileWriter(partFile, checkpoint, progress.bytesDownloaded, progress.bytesTotal)) {
+      while (source.read(buffer) != -1) {
+        if (!buffer.hasRemaining()) {
+          flush(buffer, writer, progress);
+        }
+      }
+      flush(buffer, writer, progress);
+
+      checkLength(progress.bytesDownloaded, progress.bytesTotal);
+      writer.complete();
+    } finally {
+      bufferPool.release(buffer);
+    }
+  }
+
+  private static void flush(ByteBuffer buffer, PartFileWriter writer, Progress progress) throws IOException {
+    buffer.flip();
+    int count = buffer.remaining();
+    writer.write(buffer);
+    buffer.clear();
+    progress.onRead(count);
+  }
+
+  private static void checkLength(long bytesDownloaded, long bytesTotal) throws IOException {
+    if (bytesTotal > 0 && bytesDownloaded < bytesTotal) {
+      throw new IOException("Connection closed after " + bytesDownloaded + " of " + bytesTotal + " bytes");
+    }
+  }
+
+  /**
+   * Counts the bytes of the body, reports throttled progress and stops on cancel.
+   */
+  private class Progress {
+    private final long bytesTotal;
+    private long bytesDownloaded;
+    private long lastProgressAt = 0;
+
+    Progress(long offset, long bytesTotal) {
+      this.bytesDownloaded = offset;
+      this.bytesTotal = bytesTotal;
+    }
+
+    void onRead(long count) {
+      if (isCancelled) {
+        throw new CancellationException();
+      }
+
+      bytesDownloaded += count;
+      long now = System.currentTimeMillis();
+      if (now - lastProgressAt >= PROGRESS_INTERVAL) {
+        lastProgressAt = now;
+        listener.onProgress(bytesDownloaded, bytesTotal);
+      }
+    }
+  }
+
+  private static class ProgressInputStream extends FilterInputStream {
+    private final Progress progress;
+
+    ProgressInputStream(InputStream input, Progress progress) {
+      super(input);
+      this.progress = progress;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b != -1) {
+        progress.onRead(1);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      int read = super.read(buffer, offset, length);
+      if (read > 0) {
+        progress.onRead(read);
+      }
+      return read;
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+      long skipped = super.skip(count);
+      if (skipped > 0) {
+        progress.onRead(skipped);
+      }
+      return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+  }
+
+  private static Map<String, String> getHeaders(Response response) {
+    Map<String, String> headers = new HashMap<>();
+    Headers responseHeaders = response.headers();
+    for (String name : responseHeaders.names()) {
+      headers.put(name, responseHeaders.get(name));
+    }
+    return headers;
+  }
+}
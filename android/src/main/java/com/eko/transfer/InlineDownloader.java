@@ -0,0 +1,240 @@
+package com.eko.transfer;
+
+import android.app.DownloadManager;
+
+import com.eko.utils.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Downloads small files on a few threads of the module itself instead of through DownloadManager.
+ * A DownloadManager download costs a provider insert, a HEAD request, polling, a broadcast and a copy
+ * to the destination, which outweighs the transfer of a small file. Here connections are kept alive
+ * and reused per host, and the file is renamed into place.
+ * How many downloads run at once is picked by a {@link ConcurrencyController} from the throughput
+ * they reach together.
+ * Responses larger than maxBytes are stopped and handed over, with the bytes that arrived so far
+ * left in the partial file to resume from. Downloads hosted by {@link DownloadService} can be given no
+ * limit, since the process is kept alive for them.
+ */
+public class InlineDownloader {
+  public static final long DEFAULT_MAX_BYTES = 256 * 1024;
+
+  public interface Listener {
+    void onBegin(String configId, Map<String, String> headers, long expectedBytes);
+
+    void onProgress(String configId, long bytesDownloaded, long bytesTotal);
+
+    void onComplete(String configId, String location, long bytesDownloaded, long bytesTotal);
+
+    /**
+     * Returns whether the download is tried again, in which case its partial file is kept to resume from.
+     */
+    boolean onFailed(String configId, int errorCode, String error);
+
+    void onTooLarge(String configId);
+  }
+
+  private final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+      ConcurrencyController.INITIAL,
+      ConcurrencyController.INITIAL,
+      0,
+      TimeUnit.MILLISECONDS,
+      new LinkedBlockingQueue<>()
+  );
+  private final ConcurrencyController concurrencyController = new ConcurrencyController(this::setPoolSize);
+  private final Map<String, Task> configIdToTask = new ConcurrentHashMap<>();
+  private volatile long maxBytes = DEFAULT_MAX_BYTES;
+
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  public void setMaxBytes(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  public ConcurrencyController getConcurrencyController() {
+    return concurrencyController;
+  }
+
+  // Running downloads are never stopped, a smaller pool just starts no more until it is below its size.
+  private void setPoolSize(int size) {
+    if (size > executor.getMaximumPoolSize()) {
+      executor.setMaximumPoolSize(size);
+      executor.setCorePoolSize(size);
+    } else {
+      executor.setCorePoolSize(size);
+      executor.setMaximumPoolSize(size);
+    }
+  }
+
+  private static long now() {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+  }
+
+  public void download(String configId, String url, Map<String, String> headers, File partFile, File destination, Listener listener) {
+    download(configId, url, headers, partFile, destination, maxBytes, listener);
+  }
+
+  public void download(
+      String configId,
+      String url,
+      Map<String, String> headers,
+      File partFile,
+      File destination,
+      long maxBytes,
+      Listener listener
+  ) {
+    Task task = new Task(configId, url, headers, partFile, destination, maxBytes, listener);
+    configIdToTask.put(configId, task);
+    executor.submit(task);
+  }
+
+  /**
+   * Stops a download without reporting it, and returns whether there was one.
+   */
+  public boolean cancel(String configId) {
+    Task task = configIdToTask.remove(configId);
+    if (task == null) {
+      return false;
+    }
+    task.cancel();
+    return true;
+  }
+
+  public void shutdown() {
+    for (String configId : configIdToTask.keySet()) {
+      cancel(configId);
+    }
+    executor.shutdown();
+  }
+
+  private class Task implements Runnable, HttpTransfer.Listener {
+    private final String configId;
+    private final String url;
+    private final Map<String, String> headers;
+    private final File partFile;
+    private final File destination;
+    private final long maxBytes;
+    private final Listener listener;
+    private volatile HttpTransfer transfer;
+    private volatile boolean isCancelled = false;
+    private volatile boolean isTooLarge = false;
+    private long lastBytesDownloaded = 0;
+
+    Task(String configId, String url, Map<String, String> headers, File partFile, File destination, long maxBytes, Listener listener) {
+      this.configId = configId;
+      this.url = url;
+      this.headers = headers;
+      this.partFile = partFile;
+      this.destination = destination;
+      this.maxBytes = maxBytes;
+      this.listener = listener;
+    }
+
+    void cancel() {
+      isCancelled = true;
+      HttpTransfer currentTransfer = transfer;
+      if (currentTransfer != null) {
+        currentTransfer.cancel();
+      }
+    }
+
+    @Override
+    public void run() {
+      try {
+        if (!isCancelled) {
+          // Small files are fetched whole, never continued from a leftover of an earlier attempt.
+          TransferCheckpoint.rm(partFile);
+          transfer = new HttpTransfer(url, headers, partFile, this);
+          finish(transfer.call());
+        }
+      } catch (CancellationException e) {
+        if (isTooLarge && !isCancelled) {
+          configIdToTask.remove(configId, this);
+          listener.onTooLarge(configId);
+        } else {
+          TransferCheckpoint.rm(partFile);
+        }
+      } catch (HttpTransfer.HttpStatusException e) {
+        if (e.statusCode == 429 || e.statusCode >= 500) {
+          concurrencyController.onError(now());
+        }
+        fail(e.statusCode, e.getMessage());
+      } catch (IOException e) {
+        concurrencyController.onError(now());
+        fail(DownloadManager.ERROR_HTTP_DATA_ERROR, e.getMessage());
+      } finally {
+        configIdToTask.remove(configId, this);
+      }
+    }
+
+    @Override
+    public void onBegin(Map<String, String> responseHeaders, long expectedBytes) {
+      // Known to be too large before a byte of the body was read.
+      if (expectedBytes > maxBytes) {
+        stopTooLarge();
+        return;
+      }
+      listener.onBegin(configId, responseHeaders, expectedBytes);
+    }
+
+    @Override
+    public void onProgress(long bytesDownloaded, long bytesTotal) {
+      if (bytesTotal <= 0 && bytesDownloaded > maxBytes) {
+        stopTooLarge();
+        return;
+      }
+      concurrencyController.onBytes(bytesDownloaded - lastBytesDownloaded, configIdToTask.size(), now());
+      lastBytesDownloaded = bytesDownloaded;
+      listener.onProgress(configId, bytesDownloaded, bytesTotal);
+    }
+
+    private void stopTooLarge() {
+      isTooLarge = true;
+      transfer.cancel();
+    }
+
+    private void finish(HttpTransfer.Result result) {
+      if (isCancelled) {
+        TransferCheckpoint.rm(partFile);
+        return;
+      }
+
+      try {
+        FileUtils.rm(destination);
+        FileUtils.mkdirParent(destination);
+        if (!partFile.renameTo(destination)) {
+          FileUtils.mv(partFile, destination);
+        }
+      } catch (IOException e) {
+        FileUtils.rm(destination);
+        fail(DownloadManager.ERROR_FILE_ERROR, e.getMessage());
+        return;
+      }
+
+      configIdToTask.remove(configId, this);
+      listener.onComplete(configId, destination.getPath(), result.bytesDownloaded, result.bytesTotal);
+    }
+
+    private void fail(int errorCode, String error) {
+      if (isCancelled) {
+        TransferCheckpoint.rm(partFile);
+        return;
+      }
+
+      configIdToTask.remove(configId, this);
+      if (!listener.onFailed(configId, errorCode, error)) {
+        TransferCheckpoint.rm(partFile);
+      }
+    }
+  }
+}
@@ -0,0 +1,188 @@
+package com.eko.transfer;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Picks which of several URLs of the same file a transfer uses.
+ * All of them are probed at once with a Range request for the first PROBE_BYTES bytes, and they are
+ * used fastest first, the ones whose probe failed last. A transfer moves on to the next one when its
+ * URL fails, or when it stays below SLOW_RATIO of what the next one reached in its probe for
+ * SLOW_WINDOWS windows in a row. A URL that was left isn't used again by the same transfer.
+ */
+public class MirrorSelector {
+  static final int PROBE_BYTES = 64 * 1024;
+  static final long PROBE_TIMEOUT = 5000;
+  static final long WINDOW = 5000;
+  static final int SLOW_WINDOWS = 2;
+  static final double SLOW_RATIO = 0.5;
+  private static final int BUFFER_SIZE = 16 * 1024;
+
+  private static final ExecutorService probeExecutor = Executors.newCachedThreadPool();
+  private static final AtomicLong probes = new AtomicLong();
+  private static final AtomicLong failovers = new AtomicLong();
+
+  public static class Mirror {
+    public final String url;
+    public final boolean isReachable;
+    // Of the probe, including the time to connect and to the first byte.
+    public final double bytesPerSecond;
+
+    public Mirror(String url, boolean isReachable, double bytesPerSecond) {
+      this.url = url;
+      this.isReachable = isReachable;
+      this.bytesPerSecond = bytesPerSecond;
+    }
+  }
+
+  private final List<Mirror> mirrors;
+  private int index = 0;
+  private int failoverCount = 0;
+  private long windowStart = -1;
+  private long windowStartBytes = 0;
+  private int slowWindows = 0;
+
+  public MirrorSelector(List<Mirror> mirrors) {
+    this.mirrors = new ArrayList<>(mirrors);
+    // Stable, so mirrors that probed alike keep the order they were given in.
+    this.mirrors.sort((a, b) -> {
+      if (a.isReachable != b.isReachable) {
+        return a.isReachable ? -1 : 1;
+      }
+      return Double.compare(b.bytesPerSecond, a.bytesPerSecond);
+    });
+  }
+
+  /**
+   * Probes every URL at the same time and waits for all of them, at most PROBE_TIMEOUT.
+   */
+  public static MirrorSelector probe(List<String> urls, Map<String, String> headers) {
+    List<Call> calls = new ArrayList<>();
+    List<Future<Mirror>> futures = new ArrayList<>();
+    for (String url : urls) {
+      Request.Builder builder = new Request.Builder().url(url);
+      for (Map.Entry<String, String> header : headers.entrySet()) {
+        builder.header(header.getKey(), header.getValue());
+      }
+      builder.header("Range", "bytes=0-" + (PROBE_BYTES - 1));
+      builder.header("Accept-Encoding", "identity");
+      Call call = HttpClientPool.getInstance().newCall(builder.build());
+      calls.add(call);
+      futures.add(probeExecutor.submit(() -> probe(url, call)));
+    }
+
+    List<Mirror> mirrors = new ArrayList<>();
+    long deadline = System.currentTimeMillis() + PROBE_TIMEOUT;
+    for (int i = 0; i < urls.size(); i++) {
+      Mirror mirror;
+      try {
+        mirror = futures.get(i).get(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+      } catch (Exception e) {
+        calls.get(i).cancel();
+        mirror = new Mirror(urls.get(i), false, 0);
+      }
+      mirrors.add(mirror);
+    }
+    probes.addAndGet(urls.size());
+    return new MirrorSelector(mirrors);
+  }
+
+  private static Mirror probe(String url, Call call) {
+    long start = System.nanoTime();
+    try (HttpClientPool.Exchange exchange = HttpClientPool.getInstance().execute(call)) {
+      Response response = exchange.response;
+      int httpStatusCode = response.code();
+      ResponseBody body = response.body();
+      if ((httpStatusCode != HttpURLConnection.HTTP_OK && httpStatusCode != HttpURLConnection.HTTP_PARTIAL) || body == null) {
+        return new Mirror(url, false, 0);
+      }
+
+      // A server ignoring the Range header sends the whole body, of which only the first bytes are read.
+      long bytesRead = 0;
+      byte[] buffer = new byte[BUFFER_SIZE];
+      try (InputStream input = body.byteStream()) {
+        int read;
+        while (bytesRead < PROBE_BYTES && (read = input.read(buffer, 0, (int) Math.min(buffer.length, PROBE_BYTES - bytesRead))) != -1) {
+          bytesRead += read;
+        }
+      }
+      long elapsedMs = Math.max(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), 1);
+      return new Mirror(url, true, bytesRead * 1000.0 / elapsedMs);
+    } catch (Exception e) {
+      return new Mirror(url, false, 0);
+    }
+  }
+
+  public static long getProbeCount() {
+    return probes.get();
+  }
+
+  public static long getFailoverCount() {
+    return failovers.get();
+  }
+
+  public synchronized Mirror getMirror() {
+    return mirrors.get(index);
+  }
+
+  public synchronized int getFailovers() {
+    return failoverCount;
+  }
+
+  public synchronized boolean hasNext() {
+    return index + 1 < mirrors.size();
+  }
+
+  /**
+   * Moves on to the next mirror. Only call it when hasNext().
+   */
+  public synchronized Mirror next() {
+    index++;
+    failoverCount++;
+    failovers.incrementAndGet();
+    windowStart = -1;
+    slowWindows = 0;
+    return mirrors.get(index);
+  }
+
+  /**
+   * Counts the progress of the transfer from the current mirror. Returns true once it has been slow
+   * long enough to move on to the next one.
+   */
+  public synchronized boolean onProgress(long bytesDownloaded, long now) {
+    if (windowStart < 0 || bytesDownloaded < windowStartBytes) {
+      // First progress from this mirror, or the transfer started over.
+      windowStart = now;
+      windowStartBytes = bytesDownloaded;
+      return false;
+    }
+    if (now - windowStart < WINDOW) {
+      return false;
+    }
+
+    double bytesPerSecond = (bytesDownloaded - windowStartBytes) * 1000.0 / (now - windowStart);
+    windowStart = now;
+    windowStartBytes = bytesDownloaded;
+
+    Mirror next = hasNext() ? mirrors.get(index + 1) : null;
+    if (next != null && next.isReachable && bytesPerSecond < next.bytesPerSecond * SLOW_RATIO) {
+      slowWindows++;
+    } else {
+      slowWindows = 0;
+    }
+    return slowWindows >= SLOW_WINDOWS;
+  }
+}
@@ -0,0 +1,149 @@
+package com.eko.transfer;
+
+import com.eko.utils.FileUtils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Writes a transfer into its partial file with positional channel writes.
+ * When the total is known the file is preallocated to it with {@link FileUtils#preallocate}.
+ *
+ * A preallocated file is longer than the bytes written, and a process can die between a write and the
+ * next checkpoint, so the file's length can't tell where to resume. The {@link TransferCheckpoint}
+ * next to it can: it is written when the writer opens, every checkpointInterval ms and every
+ * syncInterval bytes, and when it closes. {@link TransferCheckpoint#reconcile} cuts the file back to it.
+ * syncInterval picks how often data is flushed to disk: every syncInterval bytes, only on completion
+ * or never. Checkpoints flush the data first unless the policy is never.
+ */
+public class PartFileWriter implements Closeable {
+  public static final long SYNC_NEVER = -1;
+  public static final long SYNC_ON_COMPLETE = 0;
+  public static final long DEFAULT_CHECKPOINT_INTERVAL = 5000;
+
+  private static volatile long defaultSyncInterval = SYNC_ON_COMPLETE;
+  private static volatile long defaultCheckpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+
+  public static long getDefaultSyncInterval() {
+    return defaultSyncInterval;
+  }
+
+  public static void setDefaultSyncInterval(long syncInterval) {
+    defaultSyncInterval = syncInterval;
+  }
+
+  public static long getDefaultCheckpointInterval() {
+    return defaultCheckpointInterval;
+  }
+
+  public static void setDefaultCheckpointInterval(long checkpointInterval) {
+    defaultCheckpointInterval = checkpointInterval;
+  }
+
+  private final File partFile;
+  private final TransferCheckpoint checkpoint;
+  private final RandomAccessFile file;
+  private final FileChannel channel;
+  private final long syncInterval;
+  private final long checkpointInterval;
+  private long position;
+  private long syncedPosition;
+  private long checkpointedAt;
+  private boolean isComplete = false;
+
+  public PartFileWriter(File partFile, TransferCheckpoint checkpoint, long offset, long bytesTotal) throws IOException {
+    this(partFile, checkpoint, offset, bytesTotal, defaultSyncInterval, defaultCheckpointInterval);
+  }
+
+  public PartFileWriter(
+      File partFile,
+      TransferCheckpoint checkpoint,
+      long offset,
+      long bytesTotal,
+      long syncInterval,
+      long checkpointInterval
+  ) throws IOException {
+    FileUtils.mkdirParent(partFile);
+    this.partFile = partFile;
+    this.checkpoint = checkpoint;
+    this.file = new RandomAccessFile(partFile, "rw");
+    this.channel = file.getChannel();
+    this.syncInterval = syncInterval;
+    this.checkpointInterval = checkpointInterval;
+    this.position = offset;
+    this.syncedPosition = offset;
+
+    try {
+      file.setLength(offset);
+      checkpoint.bytesTotal = bytesTotal;
+      // The checkpoint has to be on disk before the file is longer than its data.
+      writeCheckpoint();
+      if (bytesTotal > offset) {
+        FileUtils.preallocate(file.getFD(), bytesTotal);
+      }
+    } catch (IOException e) {
+      file.close();
+      throw e;
+    }
+  }
+
+  public long getPosition() {
+    return position;
+  }
+
+  /**
+   * Writes the remaining bytes of the buffer at the current position.
+   */
+  public void write(ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      position += channel.write(buffer, position);
+    }
+
+    if (syncInterval > 0 && position - syncedPosition >= syncInterval) {
+      writeCheckpoint();
+    } else if (checkpointInterval > 0 && System.currentTimeMillis() - checkpointedAt >= checkpointInterval) {
+      writeCheckpoint();
+    }
+  }
+
+  /**
+   * Cuts the file to the bytes written and, unless the policy is never, syncs it.
+   */
+  public void complete() throws IOException {
+    channel.truncate(position);
+    if (syncInterval != SYNC_NEVER) {
+      channel.force(false);
+    }
+    isComplete = true;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      if (isComplete) {
+        TransferCheckpoint.delete(partFile);
+      } else {
+        // Leaves a file that is exactly as long as its data, with a checkpoint for the next attempt.
+        channel.truncate(position);
+        writeCheckpoint();
+      }
+    } finally {
+      file.close();
+    }
+  }
+
+  private void writeCheckpoint() throws IOException {
+    boolean isSynced = syncInterval != SYNC_NEVER;
+    if (isSynced && position > syncedPosition) {
+      channel.force(false);
+    }
+    syncedPosition = position;
+    checkpointedAt = System.currentTimeMillis();
+    checkpoint.setConfirmed(position);
+    checkpoint.write(partFile, isSynced);
+  }
+}
@@ -0,0 +1,127 @@
+package com.eko.transfer;
+
+import com.eko.utils.FileUtils;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import javax.annotation.Nullable;
+
+/**
+ * What is known about a partial file once the process that wrote it is gone: the bytes confirmed to
+ * be in it and the validators of the response they came from. Both engines write front to back, so
+ * the confirmed bytes are always the start of the file.
+ * It is kept next to the partial file rather than with the task, so workers running without the
+ * module write it too, and replaced atomically so a process dying mid-write leaves the previous one.
+ */
+public class TransferCheckpoint {
+  private static final Gson gson = new Gson();
+
+  public long bytesConfirmed;
+  public long bytesTotal;
+  @Nullable
+  public String etag;
+  @Nullable
+  public String lastModified;
+
+  private static File getFile(File partFile) {
+    return new File(partFile.getPath() + ".checkpoint");
+  }
+
+  @Nullable
+  public static TransferCheckpoint read(File partFile) {
+    File file = getFile(partFile);
+    if (!file.exists()) {
+      return null;
+    }
+    try {
+      return gson.fromJson(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8), TransferCheckpoint.class);
+    } catch (IOException | JsonParseException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Returns the bytes of the partial file that can be continued from: those of the checkpoint that
+   * are still in the file. Anything past them, e.g. preallocated space or bytes written after the
+   * last checkpoint, is cut off.
+   */
+  public static TransferCheckpoint reconcile(File partFile) throws IOException {
+    TransferCheckpoint checkpoint = read(partFile);
+    if (!partFile.exists()) {
+      delete(partFile);
+      return new TransferCheckpoint();
+    }
+
+    long length = partFile.length();
+    if (checkpoint == null) {
+      // Written without checkpoints, e.g. moved over from DownloadManager, so every byte counts.
+      checkpoint = new TransferCheckpoint();
+      checkpoint.setConfirmed(length);
+      return checkpoint;
+    }
+
+    long offset = Math.min(checkpoint.bytesConfirmed, length);
+    if (offset < length) {
+      try (RandomAccessFile file = new RandomAccessFile(partFile, "rw")) {
+        file.setLength(offset);
+      }
+    }
+    checkpoint.setConfirmed(offset);
+    return checkpoint;
+  }
+
+  /**
+   * Removes a partial file together with its checkpoint.
+   */
+  public static boolean rm(File partFile) {
+    delete(partFile);
+    return FileUtils.rm(partFile);
+  }
+
+  static void delete(File partFile) {
+    FileUtils.rm(getFile(partFile));
+  }
+
+  public void setConfirmed(long bytes) {
+    bytesConfirmed = bytes;
+  }
+
+  public void setValidators(@Nullable String etag, @Nullable String lastModified) {
+    this.etag = etag;
+    this.lastModified = lastModified;
+  }
+
+  /**
+   * Value of an If-Range header, so the server only continues the body the confirmed bytes came from.
+   * Weak ETags can't be used for ranges.
+   */
+  @Nullable
+  public String getIfRange() {
+    if (etag != null && !etag.startsWith("W/")) {
+      return etag;
+    }
+    return lastModified;
+  }
+
+  void write(File partFile, boolean isSynced) throws IOException {
+    File file = getFile(partFile);
+    File temporaryFile = new File(file.getPath() + ".tmp");
+    try (FileOutputStream output = new FileOutputStream(temporaryFile)) {
+      output.write(gson.toJson(this).getBytes(StandardCharsets.UTF_8));
+      if (isSynced) {
+        output.getFD().sync();
+      }
+    }
+    if (!temporaryFile.renameTo(file)) {
+      FileUtils.rm(temporaryFile);
+      throw new IOException("Could not write checkpoint of " + partFile.getName());
+    }
+  }
+}
@@ -0,0 +1,297 @@
+package com.eko.utils;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+public class ArchiveUtils {
+    public static final String FORMAT_AUTO = "auto";
+    public static final String FORMAT_ZIP = "zip";
+    public static final String FORMAT_TAR = "tar";
+    public static final String FORMAT_TAR_GZ = "tar.gz";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int TAR_BLOCK_SIZE = 512;
+    // Long names and pax records are read into memory, so their size is capped.
+    private static final int MAX_HEADER_SIZE = 1024 * 1024;
+
+    public interface EntryCallback {
+        void onEntry(String name, int entriesExtracted, long bytesExtracted);
+    }
+
+    /**
+     * Extracts an archive file into a directory and deletes the archive, whether or not extraction succeeded.
+     */
+    public static int extract(File archive, String format, File destinationDirectory, EntryCallback callback) throws IOException {
+        try (InputStream input = new FileInputStream(archive)) {
+            return extract(input, format, destinationDirectory, callback);
+        } finally {
+            FileUtils.rm(archive);
+        }
+    }
+
+    /**
+     * Extracts an archive from a stream into a directory, so it can be fed straight from the network.
+     * Entries that would land outside the directory fail the extraction, and files written before
+     * a failure are removed again.
+     */
+    public static int extract(InputStream input, String format, File destinationDirectory, EntryCallback callback) throws IOException {
+        BufferedInputStream bufferedInput = new BufferedInputStream(input, BUFFER_SIZE);
+        String resolvedFormat = FORMAT_AUTO.equals(format) ? detectFormat(bufferedInput) : format;
+
+        if (!destinationDirectory.exists() && !destinationDirectory.mkdirs()) {
+            throw new IOException("Could not create " + destinationDirectory);
+        }
+
+        List<File> written = new ArrayList<>();
+        try {
+            switch (resolvedFormat) {
+                case FORMAT_ZIP:
+                    return extractZip(bufferedInput, destinationDirectory, callback, written);
+                case FORMAT_TAR_GZ:
+                    return extractTar(new GZIPInputStream(bufferedInput, BUFFER_SIZE), destinationDirectory, callback, written);
+                case FORMAT_TAR:
+                    return extractTar(bufferedInput, destinationDirectory, callback, written);
+                default:
+                    throw new IOException("Unsupported archive format: " + resolvedFormat);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Runtime exceptions include a cancelled transfer feeding the stream.
+            for (File file : written) {
+                FileUtils.rm(file);
+            }
+            throw e;
+        }
+    }
+
+    static String detectFormat(BufferedInputStream input) throws IOException {
+        byte[] magic = new byte[262];
+        input.mark(magic.length);
+        int read = readFully(input, magic, 0, magic.length);
+        input.reset();
+
+        if (read >= 4 && magic[0] == 'P' && magic[1] == 'K' && magic[2] == 3 && magic[3] == 4) {
+            return FORMAT_ZIP;
+        }
+        if (read >= 2 && (magic[0] & 0xff) == 0x1f && (magic[1] & 0xff) == 0x8b) {
+            return FORMAT_TAR_GZ;
+        }
+        if (read >= 262 && new String(magic, 257, 5, StandardCharsets.US_ASCII).equals("ustar")) {
+            return FORMAT_TAR;
+        }
+        throw new IOException("Unrecognized archive format");
+    }
+
+    static File resolveEntry(File destinationDirectory, String name) throws IOException {
+        File entry = new File(destinationDirectory, name);
+        // Entries like "./" are the destination itself, which tar puts first when archiving a directory.
+        String directoryPath = destinationDirectory.getCanonicalPath();
+        String entryPath = entry.getCanonicalPath();
+        if (!entryPath.equals(directoryPath) && !entryPath.startsWith(directoryPath + File.separator)) {
+            throw new IOException("Archive entry is outside of the destination: " + name);
+        }
+        return entry;
+    }
+
+    private static int extractZip(InputStream input, File destinationDirectory, EntryCallback callback, List<File> written) throws IOException {
+        ZipInputStream zipInput = new ZipInputStream(input);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int entriesExtracted = 0;
+        long bytesExtracted = 0;
+
+        ZipEntry zipEntry;
+        while ((zipEntry = zipInput.getNextEntry()) != null) {
+            File entry = resolveEntry(destinationDirectory, zipEntry.getName());
+            if (zipEntry.isDirectory()) {
+                entry.mkdirs();
+            } else {
+                bytesExtracted += writeEntry(zipInput, entry, Long.MAX_VALUE, buffer, written);
+                entriesExtracted++;
+                callback.onEntry(zipEntry.getName(), entriesExtracted, bytesExtracted);
+            }
+            zipInput.closeEntry();
+        }
+
+        return entriesExtracted;
+    }
+
+    private static int extractTar(InputStream input, File destinationDirectory, EntryCallback callback, List<File> written) throws IOException {
+        byte[] header = new byte[TAR_BLOCK_SIZE];
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int entriesExtracted = 0;
+        long bytesExtracted = 0;
+        String longName = null;
+
+        while (readFully(input, header, 0, TAR_BLOCK_SIZE) == TAR_BLOCK_SIZE && !isZeroBlock(header)) {
+            long size = parseTarSize(header);
+            char type = (char) header[156];
+            String name = longName != null ? longName : getTarName(header);
+            longName = null;
+
+            long padding = (TAR_BLOCK_SIZE - size % TAR_BLOCK_SIZE) % TAR_BLOCK_SIZE;
+            switch (type) {
+                case 'L':
+                    // GNU long name: the name of the next entry is this entry's data.
+                    longName = readString(input, size);
+                    break;
+                case 'x':
+                    // PAX header: only the path of the next entry is used.
+                    longName = getPaxPath(readString(input, size));
+                    break;
+                case '5':
+                    resolveEntry(destinationDirectory, name).mkdirs();
+                    skipFully(input, size);
+                    break;
+                case '0':
+                case '\0':
+                case '7': {
+                    File entry = resolveEntry(destinationDirectory, name);
+                    bytesExtracted += writeEntry(input, entry, size, buffer, written);
+                    entriesExtracted++;
+                    callback.onEntry(name, entriesExtracted, bytesExtracted);
+                    break;
+                }
+                default:
+                    // Links, devices and global headers are never extracted.
+                    skipFully(input, size);
+                    break;
+            }
+            skipFully(input, padding);
+        }
+
+        return entriesExtracted;
+    }
+
+    private static long writeEntry(InputStream input, File entry, long size, byte[] buffer, List<File> written) throws IOException {
+        FileUtils.mkdirParent(entry);
+        written.add(entry);
+
+        long remaining = size;
+        long total = 0;
+        try (OutputStream output = new FileOutputStream(entry)) {
+            while (remaining > 0) {
+                int read = input.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read == -1) {
+                    if (size == Long.MAX_VALUE) {
+                        break;
+                    }
+                    throw new IOException("Archive ended inside " + entry.getName());
+                }
+                output.write(buffer, 0, read);
+                remaining -= read;
+                total += read;
+            }
+        }
+        return total;
+    }
+
+    private static String getTarName(byte[] header) {
+        String name = readCString(header, 0, 100);
+        // ustar splits long paths into a prefix and a name.
+        if (new String(header, 257, 5, StandardCharsets.US_ASCII).equals("ustar")) {
+            String prefix = readCString(header, 345, 155);
+            if (!prefix.isEmpty()) {
+                return prefix + "/" + name;
+            }
+        }
+        return name;
+    }
+
+    private static long parseTarSize(byte[] header) throws IOException {
+        // Sizes of 8GB and more are stored in base-256 with the high bit set.
+        if ((header[124] & 0x80) != 0) {
+            long size = 0;
+            for (int i = 125; i < 136; i++) {
+                size = (size << 8) | (header[i] & 0xff);
+            }
+            if (size < 0) {
+                throw new IOException("Invalid tar entry size: " + size);
+            }
+            return size;
+        }
+
+        String octal = readCString(header, 124, 12).trim();
+        if (octal.isEmpty()) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(octal, 8);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid tar entry size: " + octal);
+        }
+    }
+
+    private static String getPaxPath(String records) {
+        for (String record : records.split("\n")) {
+            int separator = record.indexOf(" path=");
+            if (separator != -1) {
+                return record.substring(separator + " path=".length());
+            }
+        }
+        return null;
+    }
+
+    private static String readString(InputStream input, long size) throws IOException {
+        if (size < 0 || size > MAX_HEADER_SIZE) {
+            throw new IOException("Invalid tar header size: " + size);
+        }
+        byte[] bytes = new byte[(int) size];
+        if (readFully(input, bytes, 0, bytes.length) != bytes.length) {
+            throw new IOException("Archive ended inside a header");
+        }
+        return readCString(bytes, 0, bytes.length);
+    }
+
+    private static String readCString(byte[] bytes, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && bytes[end] != 0) {
+            end++;
+        }
+        return new String(bytes, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isZeroBlock(byte[] block) {
+        for (byte b : block) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int readFully(InputStream input, byte[] bytes, int offset, int length) throws IOException {
+        int total = 0;
+        while (total < length) {
+            int read = input.read(bytes, offset + total, length - total);
+            if (read == -1) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private static void skipFully(InputStream input, long count) throws IOException {
+        long remaining = count;
+        while (remaining > 0) {
+            long skipped = input.skip(remaining);
+            if (skipped <= 0) {
+                if (input.read() == -1) {
+                    throw new IOException("Archive ended early");
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.eko.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Applies bsdiff patches in the BSDIFF40 layout: a header, then a control, a diff and an extra block.
+ * bzip2, which bsdiff compresses the blocks with, is neither part of Android nor of this library, so
+ * blocks are expected gzip compressed instead.
+ * The new file is streamed out in one pass while the old one is read where the control block points,
+ * and the SHA-256 of the new file is computed on the way.
+ */
+public class BinaryPatch {
+    private static final String MAGIC = "BSDIFF40";
+    private static final int HEADER_SIZE = 32;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Writes oldFile patched with patchFile to newFile and returns the SHA-256 of newFile.
+     */
+    public static byte[] apply(File oldFile, File patchFile, File newFile) throws IOException {
+        long patchSize = patchFile.length();
+        byte[] header = new byte[HEADER_SIZE];
+        try (DataInputStream input = new DataInputStream(new FileInputStream(patchFile))) {
+            input.readFully(header);
+        } catch (EOFException e) {
+            throw new IOException("Patch is truncated");
+        }
+        if (!MAGIC.equals(new String(header, 0, MAGIC.length(), StandardCharsets.US_ASCII))) {
+            throw new IOException("Not a BSDIFF40 patch");
+        }
+
+        long controlSize = readOffset(header, 8);
+        long diffSize = readOffset(header, 16);
+        long newSize = readOffset(header, 24);
+        if (controlSize < 0 || diffSize < 0 || newSize < 0 || HEADER_SIZE + controlSize + diffSize > patchSize) {
+            throw new IOException("Patch header is corrupt");
+        }
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+
+        try (DataInputStream control = new DataInputStream(openBlock(patchFile, HEADER_SIZE, controlSize));
+             InputStream diff = openBlock(patchFile, HEADER_SIZE + controlSize, diffSize);
+             InputStream extra = openBlock(patchFile, HEADER_SIZE + controlSize + diffSize, patchSize - HEADER_SIZE - controlSize - diffSize);
+             RandomAccessFile oldInput = new RandomAccessFile(oldFile, "r");
+             OutputStream output = new DigestOutputStream(new BufferedOutputStream(new FileOutputStream(newFile), BUFFER_SIZE), digest)) {
+            FileChannel oldChannel = oldInput.getChannel();
+            long oldSize = oldChannel.size();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            byte[] oldBuffer = new byte[BUFFER_SIZE];
+            byte[] entry = new byte[24];
+            long oldPosition = 0;
+            long newPosition = 0;
+
+            while (newPosition < newSize) {
+                try {
+                    control.readFully(entry);
+                } catch (EOFException e) {
+                    throw new IOException("Patch control block is truncated");
+                }
+                long diffLength = readOffset(entry, 0);
+                long extraLength = readOffset(entry, 8);
+                long seek = readOffset(entry, 16);
+                if (diffLength < 0 || extraLength < 0 || newPosition + diffLength + extraLength > newSize) {
+                    throw new IOException("Patch control block is corrupt");
+                }
+
+                // Diff bytes are added to the old bytes at the same offset; offsets outside the old file count as 0.
+                for (long done = 0; done < diffLength; ) {
+                    int length = (int) Math.min(BUFFER_SIZE, diffLength - done);
+                    readFully(diff, buffer, length);
+                    readOld(oldChannel, oldSize, oldPosition + done, oldBuffer, length);
+                    for (int i = 0; i < length; i++) {
+                        buffer[i] += oldBuffer[i];
+                    }
+                    output.write(buffer, 0, length);
+                    done += length;
+                }
+                newPosition += diffLength;
+                oldPosition += diffLength;
+
+                for (long done = 0; done < extraLength; ) {
+                    int length = (int) Math.min(BUFFER_SIZE, extraLength - done);
+                    readFully(extra, buffer, length);
+                    output.write(buffer, 0, length);
+                    done += length;
+                }
+                newPosition += extraLength;
+                oldPosition += seek;
+            }
+        } catch (IOException e) {
+            FileUtils.rm(newFile);
+            throw e;
+        }
+
+        return digest.digest();
+    }
+
+    public static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    private static InputStream openBlock(File patchFile, long offset, long length) throws IOException {
+        byte[] magic = new byte[3];
+        if (length < magic.length) {
+            throw new IOException("Patch block is truncated");
+        }
+        try (RandomAccessFile file = new RandomAccessFile(patchFile, "r")) {
+            file.seek(offset);
+            file.readFully(magic);
+        }
+        if (magic[0] == 'B' && magic[1] == 'Z' && magic[2] == 'h') {
+            throw new IOException("bzip2 compressed patches are not supported, compress the blocks with gzip");
+        }
+        if ((magic[0] & 0xff) != 0x1f || (magic[1] & 0xff) != 0x8b) {
+            throw new IOException("Patch block is not gzip compressed");
+        }
+
+        FileInputStream input = new FileInputStream(patchFile);
+        try {
+            input.getChannel().position(offset);
+            return new GZIPInputStream(new BlockInputStream(input, length), BUFFER_SIZE);
+        } catch (IOException e) {
+            input.close();
+            throw e;
+        }
+    }
+
+    private static void readOld(FileChannel channel, long oldSize, long position, byte[] buffer, int length) throws IOException {
+        Arrays.fill(buffer, 0, length, (byte) 0);
+        long start = Math.max(position, 0);
+        long end = Math.min(position + length, oldSize);
+        if (start >= end) {
+            return;
+        }
+
+        ByteBuffer target = ByteBuffer.wrap(buffer, (int) (start - position), (int) (end - start));
+        long readPosition = start;
+        while (target.hasRemaining()) {
+            int read = channel.read(target, readPosition);
+            if (read < 0) {
+                throw new IOException("Old file changed while patching");
+            }
+            readPosition += read;
+        }
+    }
+
+    private static void readFully(InputStream input, byte[] buffer, int length) throws IOException {
+        int offset = 0;
+        while (offset < length) {
+            int read = input.read(buffer, offset, length - offset);
+            if (read < 0) {
+                throw new IOException("Patch block is truncated");
+            }
+            offset += read;
+        }
+    }
+
+    // Offsets are stored as 8 bytes little endian magnitude with the sign in the top bit.
+    private static long readOffset(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 7; i >= 0; i--) {
+            value = (value << 8) | (bytes[offset + i] & 0xff);
+        }
+        value &= Long.MAX_VALUE;
+        return (bytes[offset + 7] & 0x80) != 0 ? -value : value;
+    }
+
+    // Ends at the end of a block, so each block's decompressor stops there.
+    private static class BlockInputStream extends FilterInputStream {
+        private long remaining;
+
+        BlockInputStream(InputStream input, long length) {
+            super(new BufferedInputStream(input, BUFFER_SIZE));
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int value = super.read();
+            if (value >= 0) {
+                remaining--;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+    }
+}
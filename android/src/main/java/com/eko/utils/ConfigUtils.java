@@ -0,0 +1,53 @@
+package com.eko.utils;
+
+import com.eko.RNBGDTaskConfig;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Map;
+
+public class ConfigUtils {
+    // Gson instances are thread-safe and cache their type adapters,
+    // so one instance is shared instead of being rebuilt on every save.
+    private static final Gson gson = new Gson();
+    private static final Type configMapType = new TypeToken<Map<Long, RNBGDTaskConfig>>() {}.getType();
+    private static final Type workConfigMapType = new TypeToken<Map<String, RNBGDTaskConfig>>() {}.getType();
+    private static final Type hostLimitsType = new TypeToken<Map<String, Integer>>() {}.getType();
+
+    public static String serializeConfigMap(Map<Long, RNBGDTaskConfig> downloadIdToConfig) {
+        return gson.toJson(downloadIdToConfig, configMapType);
+    }
+
+    public static Map<Long, RNBGDTaskConfig> deserializeConfigMap(String str) {
+        Map<Long, RNBGDTaskConfig> map = gson.fromJson(str, configMapType);
+        return map != null ? map : new HashMap<>();
+    }
+
+    public static String serializeWorkConfigMap(Map<String, RNBGDTaskConfig> configIdToWorkConfig) {
+        return gson.toJson(configIdToWorkConfig, workConfigMapType);
+    }
+
+    public static Map<String, RNBGDTaskConfig> deserializeWorkConfigMap(String str) {
+        Map<String, RNBGDTaskConfig> map = gson.fromJson(str, workConfigMapType);
+        return map != null ? map : new HashMap<>();
+    }
+
+    public static String serializeConfig(RNBGDTaskConfig config) {
+        return gson.toJson(config);
+    }
+
+    public static RNBGDTaskConfig deserializeConfig(String str) {
+        return gson.fromJson(str, RNBGDTaskConfig.class);
+    }
+
+    public static String serializeHostLimits(Map<String, Integer> hostLimits) {
+        return gson.toJson(hostLimits, hostLimitsType);
+    }
+
+    public static Map<String, Integer> deserializeHostLimits(String str) {
+        Map<String, Integer> hostLimits = gson.fromJson(str, hostLimitsType);
+        return hostLimits != null ? hostLimits : new HashMap<>();
+    }
+}
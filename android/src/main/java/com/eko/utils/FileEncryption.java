@@ -0,0 +1,122 @@
+package com.eko.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+
+/**
+ * Encrypts a finished download while it is moved to its destination, so the plaintext is read once
+ * and never written there.
+ * The destination holds the IV (12 bytes for GCM, 16 for CTR) followed by the ciphertext, which for
+ * GCM ends with the 16 byte authentication tag.
+ */
+public class FileEncryption {
+    public static final String MODE_GCM = "gcm";
+    public static final String MODE_CTR = "ctr";
+    private static final String KEY_STORE = "AndroidKeyStore";
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    public static boolean isMode(String mode) {
+        return MODE_GCM.equals(mode) || MODE_CTR.equals(mode);
+    }
+
+    /**
+     * Moves sourceFile to destinationFile encrypted with the AES key stored under keyAlias in the Android Keystore.
+     */
+    public static boolean mv(File sourceFile, File destinationFile, String keyAlias, String mode) throws IOException {
+        mv(sourceFile, destinationFile, createCipher(getKey(keyAlias), mode));
+        return sourceFile.delete();
+    }
+
+    public static SecretKey getKey(String keyAlias) throws IOException {
+        Key key;
+        try {
+            KeyStore keyStore = KeyStore.getInstance(KEY_STORE);
+            keyStore.load(null);
+            key = keyStore.getKey(keyAlias, null);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Couldn't load key " + keyAlias + ": " + e.getMessage(), e);
+        }
+        if (!(key instanceof SecretKey)) {
+            throw new IOException("No secret key with alias " + keyAlias);
+        }
+        return (SecretKey) key;
+    }
+
+    /**
+     * Creates a cipher for one file. Its IV is random, as Keystore keys refuse IVs given by the caller.
+     */
+    public static Cipher createCipher(SecretKey key, String mode) throws IOException {
+        if (!isMode(mode)) {
+            throw new IOException("Unknown encryption mode " + mode);
+        }
+        try {
+            Cipher cipher = Cipher.getInstance(MODE_GCM.equals(mode) ? "AES/GCM/NoPadding" : "AES/CTR/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, key);
+            return cipher;
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Couldn't create " + mode + " cipher: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes the IV and sourceFile encrypted with cipher to destinationFile. The destination is removed if it fails.
+     */
+    public static void mv(File sourceFile, File destinationFile, Cipher cipher) throws IOException {
+        try (
+                FileChannel inChannel = new FileInputStream(sourceFile).getChannel();
+                FileChannel outChannel = new FileOutputStream(destinationFile).getChannel()
+        ) {
+            write(outChannel, ByteBuffer.wrap(cipher.getIV()));
+
+            ByteBuffer input = ByteBuffer.allocate(BUFFER_SIZE);
+            ByteBuffer output = ByteBuffer.allocate(cipher.getOutputSize(BUFFER_SIZE));
+            while (inChannel.read(input) >= 0) {
+                input.flip();
+                output = crypt(cipher, input, output, false);
+                write(outChannel, output);
+                input.clear();
+            }
+            input.flip();
+            write(outChannel, crypt(cipher, input, output, true));
+        } catch (IOException e) {
+            FileUtils.rm(destinationFile);
+            throw e;
+        }
+    }
+
+    private static ByteBuffer crypt(Cipher cipher, ByteBuffer input, ByteBuffer output, boolean isFinal) throws IOException {
+        // Bytes a cipher held back from earlier updates can make its output larger than its input.
+        int outputSize = cipher.getOutputSize(input.remaining());
+        if (output.capacity() < outputSize) {
+            output = ByteBuffer.allocate(outputSize);
+        }
+        output.clear();
+        try {
+            if (isFinal) {
+                cipher.doFinal(input, output);
+            } else {
+                cipher.update(input, output);
+            }
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Encryption failed: " + e.getMessage(), e);
+        }
+        output.flip();
+        return output;
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
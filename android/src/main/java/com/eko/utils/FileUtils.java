@@ -2,8 +2,12 @@ package com.eko.utils;
 
 import android.content.Context;
 import android.os.StatFs;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
 
 import java.io.File;
+import java.io.FileDescriptor;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -23,7 +27,21 @@ public class FileUtils {
         return statFs.getAvailableBytes();
     }
 
+    // Partial files of in-process transfers live next to DownloadManager's temporary files.
+    // The id is sanitized for the file name and its hash keeps sanitized ids apart.
+    public static File getPartFile(Context context, String configId) {
+        File externalDirectory = context.getExternalFilesDir(null);
+        File directory = externalDirectory != null ? externalDirectory : context.getFilesDir();
+        String name = configId.replaceAll("[^A-Za-z0-9._-]", "_") + "-" + Integer.toHexString(configId.hashCode());
+        return new File(new File(directory, "RNBackgroundDownloader"), name + ".part");
+    }
+
     public static boolean mv(File sourceFile, File destinationFile) throws IOException {
+        cp(sourceFile, destinationFile);
+        return sourceFile.delete();
+    }
+
+    public static void cp(File sourceFile, File destinationFile) throws IOException {
         try (
                 FileChannel inChannel = new FileInputStream(sourceFile).getChannel();
                 FileChannel outChannel = new FileOutputStream(destinationFile).getChannel()
@@ -36,7 +54,19 @@ public class FileUtils {
                 long transferredBytes = inChannel.transferTo(bytesTransferred, chunkSize, outChannel);
                 bytesTransferred += transferredBytes;
             }
-            return sourceFile.delete();
+        }
+    }
+
+    // Reserves the blocks of a file up to length, which also makes the file that long.
+    // A full disk fails here instead of halfway through writing, and the file isn't scattered across the disk.
+    // File systems without fallocate leave the file as it is and it grows as it is written.
+    public static void preallocate(FileDescriptor fd, long length) throws IOException {
+        try {
+            Os.posix_fallocate(fd, 0, length);
+        } catch (ErrnoException e) {
+            if (e.errno == OsConstants.ENOSPC) {
+                throw new IOException("Not enough space for " + length + " bytes", e);
+            }
         }
     }
 
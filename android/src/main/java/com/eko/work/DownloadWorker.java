@@ -0,0 +1,361 @@
+package com.eko.work;
+
+import android.app.DownloadManager;
+import android.app.Notification;
+import android.content.Context;
+import android.content.pm.ServiceInfo;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.app.NotificationCompat;
+import androidx.work.Data;
+import androidx.work.ForegroundInfo;
+import androidx.work.WorkInfo;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.eko.RNBGDTaskConfig;
+import com.eko.RNBackgroundDownloaderModuleImpl;
+import com.eko.RetryPolicy;
+import com.eko.transfer.HttpTransfer;
+import com.eko.transfer.MirrorSelector;
+import com.eko.transfer.TransferCheckpoint;
+import com.eko.utils.ArchiveUtils;
+import com.eko.utils.BinaryPatch;
+import com.eko.utils.FileEncryption;
+import com.eko.utils.FileUtils;
+import com.eko.utils.NotificationUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Runs one download in-process once its WorkManager constraints are met.
+ * Transfers that are long or of unknown size are promoted to foreground work so they survive
+ * the execution window of regular background work.
+ * Archives are extracted while they stream in, so they are never written to disk as a whole.
+ */
+public class DownloadWorker extends Worker {
+  static final String KEY_CONFIG_ID = "configId";
+  public static final String KEY_BYTES_DOWNLOADED = "bytesDownloaded";
+  public static final String KEY_BYTES_TOTAL = "bytesTotal";
+  public static final String KEY_ERROR_CODE = "errorCode";
+  public static final String KEY_ERROR = "error";
+
+  private static final long LONG_TRANSFER_BYTES = 50 * 1024 * 1024;
+  private static final long NOTIFICATION_INTERVAL = 1000;
+
+  @Nullable
+  private final RNBGDTaskConfig config;
+  private volatile HttpTransfer transfer;
+  @Nullable
+  private volatile MirrorSelector mirrorSelector;
+  // Set when the transfer is cancelled to continue from the next mirror.
+  private volatile boolean isSwitchingMirror = false;
+  private boolean isForeground = false;
+  private boolean isBegun = false;
+  private long lastNotificationAt = 0;
+
+  public DownloadWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+    super(context, workerParams);
+    config = RNBackgroundDownloaderModuleImpl.loadWorkConfig(context, getInputData().getString(KEY_CONFIG_ID));
+  }
+
+  @NonNull
+  @Override
+  public Result doWork() {
+    // Removed when the task was cancelled before its work ran.
+    if (config == null) {
+      return Result.failure();
+    }
+
+    Map<String, String> headers = config.headers != null ? config.headers : new HashMap<>();
+    File partFile = FileUtils.getPartFile(getApplicationContext(), config.id);
+    File destination = new File(config.destination);
+
+    HttpTransfer.Listener listener = new HttpTransfer.Listener() {
+      @Override
+      public void onBegin(Map<String, String> headers, long expectedBytes) {
+        if (expectedBytes <= 0 || expectedBytes >= LONG_TRANSFER_BYTES) {
+          promoteToForeground(0, expectedBytes);
+        }
+        // Retries continue the same transfer and a full download continues a failed patch, so begin is reported once.
+        if (getRunAttemptCount() == 0 && !isBegun) {
+          isBegun = true;
+          WorkEvents.onBegin(config.id, headers, expectedBytes);
+        }
+      }
+
+      @Override
+      public void onProgress(long bytesDownloaded, long bytesTotal) {
+        setProgressAsync(getBytesData(bytesDownloaded, bytesTotal));
+        updateNotification(bytesDownloaded, bytesTotal);
+        WorkEvents.onProgress(config.id, bytesDownloaded, bytesTotal);
+
+        MirrorSelector currentSelector = mirrorSelector;
+        HttpTransfer currentTransfer = transfer;
+        if (currentSelector != null && currentTransfer != null
+            && currentSelector.onProgress(bytesDownloaded, System.currentTimeMillis())) {
+          isSwitchingMirror = true;
+          currentTransfer.cancel();
+        }
+      }
+    };
+
+    if (config.patchUrl != null && config.extract == null && config.ranges == null && destination.isFile()) {
+      Result patchResult = patch(headers, partFile, destination, listener);
+      if (patchResult != null) {
+        return patchResult;
+      }
+    }
+
+    String url = config.url;
+    if (config.mirrors != null && !config.mirrors.isEmpty()) {
+      List<String> urls = new ArrayList<>();
+      urls.add(config.url);
+      urls.addAll(config.mirrors);
+      MirrorSelector selector = MirrorSelector.probe(urls, headers);
+      mirrorSelector = selector;
+      url = selector.getMirror().url;
+      WorkEvents.onMirror(config.id, url, 0);
+    }
+
+    HttpTransfer.Result result;
+    while (true) {
+      try {
+        result = transfer(url, headers, partFile, destination, listener);
+        break;
+      } catch (CancellationException e) {
+        if (isSwitchingMirror && !isStopped()) {
+          isSwitchingMirror = false;
+          url = nextMirror("throughput stayed below the next mirror");
+          continue;
+        }
+        // Stopped by WorkManager. Constraint losses keep the partial file to resume from.
+        if (getStopReason() == WorkInfo.STOP_REASON_CANCELLED_BY_APP) {
+          TransferCheckpoint.rm(partFile);
+        }
+        return Result.failure();
+      } catch (HttpTransfer.HttpStatusException e) {
+        if (hasNextMirror()) {
+          url = nextMirror(e.getMessage());
+          continue;
+        }
+        // Client errors won't change on retry, server errors and throttling might.
+        if (canRetry(e.statusCode)) {
+          return Result.retry();
+        }
+        TransferCheckpoint.rm(partFile);
+        return fail(e.statusCode, e.getMessage());
+      } catch (IOException e) {
+        if (isStopped()) {
+          return Result.failure();
+        }
+        if (hasNextMirror()) {
+          url = nextMirror(e.getMessage());
+          continue;
+        }
+        if (canRetry(DownloadManager.ERROR_HTTP_DATA_ERROR)) {
+          Log.w("RNBackgroundDownloader", "DownloadWorker: retrying " + config.id + ": " + e.getMessage());
+          return Result.retry();
+        }
+        TransferCheckpoint.rm(partFile);
+        return fail(DownloadManager.ERROR_HTTP_DATA_ERROR, e.getMessage());
+      }
+    }
+
+    if (config.extract != null) {
+      WorkEvents.onComplete(config.id, config.destination, result.bytesDownloaded, result.bytesTotal);
+      return Result.success(getBytesData(result.bytesDownloaded, result.bytesTotal));
+    }
+
+    try {
+      FileUtils.rm(destination);
+      FileUtils.mkdirParent(destination);
+      if (config.encryptKeyAlias != null) {
+        FileEncryption.mv(partFile, destination, config.encryptKeyAlias, config.encryptMode);
+      } else if (!partFile.renameTo(destination)) {
+        FileUtils.mv(partFile, destination);
+      }
+    } catch (IOException e) {
+      TransferCheckpoint.rm(partFile);
+      FileUtils.rm(destination);
+      return fail(DownloadManager.ERROR_FILE_ERROR, e.getMessage());
+    }
+
+    WorkEvents.onComplete(config.id, config.destination, result.bytesDownloaded, result.bytesTotal);
+    return Result.success(getBytesData(result.bytesDownloaded, result.bytesTotal));
+  }
+
+  private HttpTransfer.Result transfer(
+      String url,
+      Map<String, String> headers,
+      File partFile,
+      File destination,
+      HttpTransfer.Listener listener
+  ) throws IOException {
+    if (config.extract != null) {
+      transfer = new HttpTransfer(url, headers, body -> ArchiveUtils.extract(
+          body,
+          config.extract,
+          destination,
+          (entry, entriesExtracted, bytesExtracted) -> WorkEvents.onExtractProgress(config.id, entry, entriesExtracted, bytesExtracted)
+      ), listener);
+    } else {
+      transfer = new HttpTransfer(url, headers, partFile, config.ranges, listener);
+    }
+    return transfer.call();
+  }
+
+  private boolean hasNextMirror() {
+    MirrorSelector selector = mirrorSelector;
+    return selector != null && selector.hasNext();
+  }
+
+  /**
+   * Continues from the next mirror. The partial file is kept, so the transfer resumes where the last
+   * mirror left off as long as the file has the same validators there.
+   */
+  private String nextMirror(String reason) {
+    MirrorSelector selector = mirrorSelector;
+    String url = selector.next().url;
+    Log.w("RNBackgroundDownloader", "DownloadWorker: " + config.id + " continues from " + url + ": " + reason);
+    WorkEvents.onMirror(config.id, url, selector.getFailovers());
+    return url;
+  }
+
+  /**
+   * Downloads the patch next to the part file and applies it to the destination, streaming the
+   * result out and hashing it on the way. Returns null when the patch can't be used, so the full
+   * url is downloaded instead.
+   */
+  @Nullable
+  private Result patch(Map<String, String> headers, File partFile, File destination, HttpTransfer.Listener listener) {
+    File patchFile = new File(partFile.getPath() + ".patch");
+    File patchedFile = new File(partFile.getPath() + ".patched");
+
+    HttpTransfer.Result result;
+    try {
+      transfer = new HttpTransfer(config.patchUrl, headers, patchFile, listener);
+      result = transfer.call();
+
+      String sha256 = BinaryPatch.toHex(BinaryPatch.apply(destination, patchFile, patchedFile));
+      if (!sha256.equalsIgnoreCase(config.patchSha256)) {
+        throw new IOException("Patched file has SHA-256 " + sha256 + ", expected " + config.patchSha256);
+      }
+
+      FileUtils.rm(destination);
+      if (!patchedFile.renameTo(destination)) {
+        FileUtils.mv(patchedFile, destination);
+      }
+    } catch (CancellationException e) {
+      if (getStopReason() == WorkInfo.STOP_REASON_CANCELLED_BY_APP) {
+        TransferCheckpoint.rm(patchFile);
+      }
+      return Result.failure();
+    } catch (IOException e) {
+      if (isStopped()) {
+        return Result.failure();
+      }
+      Log.w("RNBackgroundDownloader", "DownloadWorker: downloading " + config.id + " in full: " + e.getMessage());
+      TransferCheckpoint.rm(patchFile);
+      return null;
+    } finally {
+      FileUtils.rm(patchedFile);
+    }
+
+    TransferCheckpoint.rm(patchFile);
+    WorkEvents.onComplete(config.id, config.destination, result.bytesDownloaded, result.bytesTotal);
+    return Result.success(getBytesData(result.bytesDownloaded, result.bytesTotal));
+  }
+
+  @Override
+  public void onStopped() {
+    HttpTransfer currentTransfer = transfer;
+    if (currentTransfer != null) {
+      currentTransfer.cancel();
+    }
+  }
+
+  // Called by WorkManager for expedited work on Android 11 and lower.
+  @NonNull
+  @Override
+  public ForegroundInfo getForegroundInfo() {
+    return createForegroundInfo(0, 0);
+  }
+
+  private boolean canRetry(int errorCode) {
+    RetryPolicy retryPolicy = config.retryPolicy != null ? config.retryPolicy : RetryPolicy.getWorkDefault();
+    // Attempts made by DownloadManager before the task was handed over here count too.
+    return retryPolicy.shouldRetry(errorCode, config.retryAttempts + getRunAttemptCount());
+  }
+
+  private Result fail(int errorCode, String error) {
+    Log.e("RNBackgroundDownloader", "DownloadWorker: " + config.id + ": " + errorCode + ":" + error);
+    WorkEvents.onFailed(config.id, errorCode, error);
+
+    Data outputData = new Data.Builder()
+        .putInt(KEY_ERROR_CODE, errorCode)
+        .putString(KEY_ERROR, error)
+        .build();
+    return Result.failure(outputData);
+  }
+
+  private void promoteToForeground(long bytesDownloaded, long bytesTotal) {
+    try {
+      setForegroundAsync(createForegroundInfo(bytesDownloaded, bytesTotal)).get();
+      isForeground = true;
+    } catch (Exception e) {
+      // Android 12+ refuses foreground services started from the background unless the work is expedited.
+      Log.w("RNBackgroundDownloader", "DownloadWorker: running " + config.id + " without foreground: " + e.getMessage());
+    }
+  }
+
+  private void updateNotification(long bytesDownloaded, long bytesTotal) {
+    long now = System.currentTimeMillis();
+    if (!isForeground || now - lastNotificationAt < NOTIFICATION_INTERVAL) {
+      return;
+    }
+
+    lastNotificationAt = now;
+    setForegroundAsync(createForegroundInfo(bytesDownloaded, bytesTotal));
+  }
+
+  private ForegroundInfo createForegroundInfo(long bytesDownloaded, long bytesTotal) {
+    Context context = getApplicationContext();
+    NotificationUtils.createChannel(context);
+
+    // Asked for before doWork, so also when the config of the task is already gone.
+    String notificationTitle = config != null ? config.notificationTitle : null;
+    int percent = bytesTotal > 0 ? (int) (bytesDownloaded * 100 / bytesTotal) : 0;
+    Notification notification = new NotificationCompat.Builder(context, NotificationUtils.CHANNEL_ID)
+        .setSmallIcon(android.R.drawable.stat_sys_download)
+        .setContentTitle(notificationTitle != null && !notificationTitle.isEmpty()
+            ? notificationTitle
+            : "Downloading")
+        .setProgress(100, percent, bytesTotal <= 0)
+        .setOngoing(true)
+        .setOnlyAlertOnce(true)
+        .build();
+
+    int notificationId = config != null ? config.id.hashCode() : getId().hashCode();
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+      return new ForegroundInfo(notificationId, notification, ServiceInfo.FOREGROUND_SERVICE_TYPE_DATA_SYNC);
+    }
+    return new ForegroundInfo(notificationId, notification);
+  }
+
+  private static Data getBytesData(long bytesDownloaded, long bytesTotal) {
+    return new Data.Builder()
+        .putLong(KEY_BYTES_DOWNLOADED, bytesDownloaded)
+        .putLong(KEY_BYTES_TOTAL, bytesTotal)
+        .build();
+  }
+}
@@ -0,0 +1,110 @@
+package com.eko.work;
+
+import android.os.Build;
+
+import androidx.work.Constraints;
+import androidx.work.NetworkType;
+
+import com.facebook.react.bridge.ReadableMap;
+
+import javax.annotation.Nullable;
+
+/**
+ * Device conditions a WorkManager task waits for, as given in the
+ * `constraints` option of a download or of its group.
+ * Unset fields fall back to the group's value and then to the task's roaming and metered flags.
+ */
+public class TaskConstraints {
+  public Boolean requiresCharging;
+  public Boolean requiresDeviceIdle;
+  public Boolean requiresBatteryNotLow;
+  public Boolean requiresStorageNotLow;
+  public String networkType;
+
+  @Nullable
+  public static TaskConstraints fromMap(@Nullable ReadableMap map) {
+    if (map == null) {
+      return null;
+    }
+
+    TaskConstraints constraints = new TaskConstraints();
+    constraints.requiresCharging = getBoolean(map, "requiresCharging");
+    constraints.requiresDeviceIdle = getBoolean(map, "requiresDeviceIdle");
+    constraints.requiresBatteryNotLow = getBoolean(map, "requiresBatteryNotLow");
+    constraints.requiresStorageNotLow = getBoolean(map, "requiresStorageNotLow");
+    constraints.networkType = map.hasKey("networkType") && !map.isNull("networkType")
+        ? map.getString("networkType")
+        : null;
+    return constraints;
+  }
+
+  /**
+   * Returns these constraints with unset fields taken from the given defaults.
+   */
+  public TaskConstraints withDefaults(@Nullable TaskConstraints defaults) {
+    if (defaults == null) {
+      return this;
+    }
+
+    TaskConstraints merged = new TaskConstraints();
+    merged.requiresCharging = requiresCharging != null ? requiresCharging : defaults.requiresCharging;
+    merged.requiresDeviceIdle = requiresDeviceIdle != null ? requiresDeviceIdle : defaults.requiresDeviceIdle;
+    merged.requiresBatteryNotLow = requiresBatteryNotLow != null ? requiresBatteryNotLow : defaults.requiresBatteryNotLow;
+    merged.requiresStorageNotLow = requiresStorageNotLow != null ? requiresStorageNotLow : defaults.requiresStorageNotLow;
+    merged.networkType = networkType != null ? networkType : defaults.networkType;
+    return merged;
+  }
+
+  /**
+   * Expedited work only supports network and storage constraints.
+   */
+  public boolean allowsExpedited() {
+    return !isTrue(requiresCharging) && !isTrue(requiresDeviceIdle) && !isTrue(requiresBatteryNotLow);
+  }
+
+  public Constraints toConstraints(boolean isAllowedOverRoaming, boolean isAllowedOverMetered) {
+    Constraints.Builder builder = new Constraints.Builder()
+        .setRequiredNetworkType(getNetworkType(isAllowedOverRoaming, isAllowedOverMetered))
+        .setRequiresCharging(isTrue(requiresCharging))
+        .setRequiresBatteryNotLow(isTrue(requiresBatteryNotLow))
+        .setRequiresStorageNotLow(isTrue(requiresStorageNotLow));
+
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+      builder.setRequiresDeviceIdle(isTrue(requiresDeviceIdle));
+    }
+
+    return builder.build();
+  }
+
+  private NetworkType getNetworkType(boolean isAllowedOverRoaming, boolean isAllowedOverMetered) {
+    if (networkType != null) {
+      switch (networkType) {
+        case "unmetered":
+          return NetworkType.UNMETERED;
+        case "notRoaming":
+          return NetworkType.NOT_ROAMING;
+        case "metered":
+          return NetworkType.METERED;
+        case "connected":
+          return NetworkType.CONNECTED;
+      }
+    }
+
+    if (!isAllowedOverMetered) {
+      return NetworkType.UNMETERED;
+    }
+    if (!isAllowedOverRoaming) {
+      return NetworkType.NOT_ROAMING;
+    }
+    return NetworkType.CONNECTED;
+  }
+
+  @Nullable
+  private static Boolean getBoolean(ReadableMap map, String key) {
+    return map.hasKey(key) && !map.isNull(key) ? map.getBoolean(key) : null;
+  }
+
+  private static boolean isTrue(@Nullable Boolean value) {
+    return value != null && value;
+  }
+}
@@ -0,0 +1,78 @@
+package com.eko.work;
+
+import java.util.Map;
+
+/**
+ * Hands worker results to the React module when one is alive in this process.
+ * Workers can run while JS is not loaded, so every call is a no-op without a listener
+ * and the outcome is picked up later by checkForExistingDownloads.
+ */
+public class WorkEvents {
+  public interface Listener {
+    void onBegin(String configId, Map<String, String> headers, long expectedBytes);
+
+    void onProgress(String configId, long bytesDownloaded, long bytesTotal);
+
+    void onExtractProgress(String configId, String entry, int entriesExtracted, long bytesExtracted);
+
+    void onMirror(String configId, String url, int failovers);
+
+    void onComplete(String configId, String location, long bytesDownloaded, long bytesTotal);
+
+    void onFailed(String configId, int errorCode, String error);
+  }
+
+  private static volatile Listener listener;
+
+  public static synchronized void setListener(Listener newListener) {
+    listener = newListener;
+  }
+
+  public static synchronized void clearListener(Listener oldListener) {
+    if (listener == oldListener) {
+      listener = null;
+    }
+  }
+
+  static void onBegin(String configId, Map<String, String> headers, long expectedBytes) {
+    Listener current = listener;
+    if (current != null) {
+      current.onBegin(configId, headers, expectedBytes);
+    }
+  }
+
+  static void onProgress(String configId, long bytesDownloaded, long bytesTotal) {
+    Listener current = listener;
+    if (current != null) {
+      current.onProgress(configId, bytesDownloaded, bytesTotal);
+    }
+  }
+
+  static void onExtractProgress(String configId, String entry, int entriesExtracted, long bytesExtracted) {
+    Listener current = listener;
+    if (current != null) {
+      current.onExtractProgress(configId, entry, entriesExtracted, bytesExtracted);
+    }
+  }
+
+  static void onMirror(String configId, String url, int failovers) {
+    Listener current = listener;
+    if (current != null) {
+      current.onMirror(configId, url, failovers);
+    }
+  }
+
+  static void onComplete(String configId, String location, long bytesDownloaded, long bytesTotal) {
+    Listener current = listener;
+    if (current != null) {
+      current.onComplete(configId, location, bytesDownloaded, bytesTotal);
+    }
+  }
+
+  static void onFailed(String configId, int errorCode, String error) {
+    Listener current = listener;
+    if (current != null) {
+      current.onFailed(configId, errorCode, error);
+    }
+  }
+}
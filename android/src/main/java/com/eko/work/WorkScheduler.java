@@ -0,0 +1,169 @@
+package com.eko.work;
+
+import android.content.Context;
+
+import androidx.work.BackoffPolicy;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.OutOfQuotaPolicy;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+import androidx.work.WorkRequest;
+
+import com.eko.RNBGDTaskConfig;
+import com.eko.RetryPolicy;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+/**
+ * Schedules downloads as WorkManager work so they wait for the constraints of their task or group.
+ * Tasks of a group share one set of constraints and a tag, so they become runnable in the same window.
+ */
+public class WorkScheduler {
+  public static final String TAG = "RNBackgroundDownloader";
+  private static final String TASK_TAG_PREFIX = TAG + ":task:";
+  private static final String GROUP_TAG_PREFIX = TAG + ":group:";
+
+  private final Context context;
+  private final Map<String, TaskConstraints> groupConstraints = new ConcurrentHashMap<>();
+  private WorkManager workManager;
+
+  public WorkScheduler(Context context) {
+    this.context = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+  }
+
+  public void setGroupConstraints(String group, @Nullable TaskConstraints constraints) {
+    if (constraints != null) {
+      groupConstraints.put(group, constraints);
+    } else {
+      groupConstraints.remove(group);
+    }
+  }
+
+  /**
+   * DownloadManager can't wait for charging or idle, so any task with constraints of its own
+   * or from its group is routed here.
+   */
+  public boolean shouldSchedule(@Nullable String engine, @Nullable String group, @Nullable TaskConstraints constraints) {
+    return "workManager".equals(engine)
+        || constraints != null
+        || (group != null && groupConstraints.containsKey(group));
+  }
+
+  public void enqueue(
+      RNBGDTaskConfig config,
+      @Nullable TaskConstraints taskConstraints,
+      boolean isAllowedOverRoaming,
+      boolean isAllowedOverMetered
+  ) {
+    enqueue(config, taskConstraints, isAllowedOverRoaming, isAllowedOverMetered, 0);
+  }
+
+  /**
+   * The config must already be persisted with the other work configs, as the worker loads it from there.
+   */
+  public void enqueue(
+      RNBGDTaskConfig config,
+      @Nullable TaskConstraints taskConstraints,
+      boolean isAllowedOverRoaming,
+      boolean isAllowedOverMetered,
+      long initialDelay
+  ) {
+    TaskConstraints constraints = taskConstraints != null ? taskConstraints : new TaskConstraints();
+    if (config.group != null) {
+      constraints = constraints.withDefaults(groupConstraints.get(config.group));
+    }
+
+    // Input data is limited to 10KB, which metadata, subscribers or mirrors can exceed.
+    Data inputData = new Data.Builder()
+        .putString(DownloadWorker.KEY_CONFIG_ID, config.id)
+        .build();
+
+    OneTimeWorkRequest.Builder builder = new OneTimeWorkRequest.Builder(DownloadWorker.class)
+        .setInputData(inputData)
+        .setConstraints(constraints.toConstraints(isAllowedOverRoaming, isAllowedOverMetered))
+        .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, getBackoffDelay(config), TimeUnit.MILLISECONDS)
+        .addTag(TAG)
+        .addTag(TASK_TAG_PREFIX + config.id);
+
+    if (config.group != null) {
+      builder.addTag(GROUP_TAG_PREFIX + config.group);
+    }
+
+    // Tasks that may start right away are expedited; deferred ones run whenever their window opens.
+    // Expedited work can't be delayed, so retries scheduled with a delay are regular work.
+    if (initialDelay > 0) {
+      builder.setInitialDelay(initialDelay, TimeUnit.MILLISECONDS);
+    } else if (constraints.allowsExpedited()) {
+      builder.setExpedited(OutOfQuotaPolicy.RUN_AS_NON_EXPEDITED_WORK_REQUEST);
+    }
+
+    getWorkManager().enqueueUniqueWork(getUniqueWorkName(config.id), ExistingWorkPolicy.REPLACE, builder.build());
+  }
+
+  public void cancel(String configId) {
+    getWorkManager().cancelUniqueWork(getUniqueWorkName(configId));
+  }
+
+  /**
+   * Returns the latest WorkInfo of every task scheduled by this library, keyed by task id.
+   */
+  public Map<String, WorkInfo> getWorkInfos() throws Exception {
+    List<WorkInfo> workInfos = getWorkManager().getWorkInfosByTag(TAG).get();
+
+    Map<String, WorkInfo> configIdToWorkInfo = new HashMap<>();
+    for (WorkInfo workInfo : workInfos) {
+      String configId = getConfigId(workInfo);
+      if (configId == null) {
+        continue;
+      }
+
+      // A task re-enqueued with the same id leaves its replaced work behind until it is pruned.
+      WorkInfo existing = configIdToWorkInfo.get(configId);
+      if (existing == null || existing.getState().isFinished()) {
+        configIdToWorkInfo.put(configId, workInfo);
+      }
+    }
+    return configIdToWorkInfo;
+  }
+
+  @Nullable
+  private String getConfigId(WorkInfo workInfo) {
+    for (String tag : workInfo.getTags()) {
+      if (tag.startsWith(TASK_TAG_PREFIX)) {
+        return tag.substring(TASK_TAG_PREFIX.length());
+      }
+    }
+    return null;
+  }
+
+  /**
+   * WorkManager backs off without jitter, so the jitter of the policy is applied once per task instead,
+   * which still keeps tasks that failed together from retrying together.
+   * It also always doubles the delay and caps it at 5 hours, so the multiplier and maxDelay of the policy
+   * only shape the delay it starts from: the one after the attempts made before the task was handed over.
+   */
+  private long getBackoffDelay(RNBGDTaskConfig config) {
+    RetryPolicy retryPolicy = config.retryPolicy != null ? config.retryPolicy : RetryPolicy.getWorkDefault();
+    return Math.max(WorkRequest.MIN_BACKOFF_MILLIS, retryPolicy.getDelay(config.retryAttempts));
+  }
+
+  private String getUniqueWorkName(String configId) {
+    return TASK_TAG_PREFIX + configId;
+  }
+
+  // WorkManager is initialized by the host app on startup, so it is only looked up on first use.
+  private synchronized WorkManager getWorkManager() {
+    if (workManager == null) {
+      workManager = WorkManager.getInstance(context);
+    }
+    return workManager;
+  }
+}
@@ -6,7 +6,9 @@ import androidx.annotation.Nullable;
 import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
 
 public abstract class NativeRNBackgroundDownloaderSpec extends com.facebook.react.bridge.ReactContextBaseJavaModule {
 
@@ -31,6 +33,7 @@ public abstract class NativeRNBackgroundDownloaderSpec extends com.facebook.reac
         boolean isAllowedOverMetered,
         boolean isNotificationVisible,
         @Nullable String notificationTitle,
+        @Nullable ReadableMap options,
         Promise promise
     );
 
@@ -46,6 +49,36 @@ public abstract class NativeRNBackgroundDownloaderSpec extends com.facebook.reac
     @ReactMethod
     public abstract void checkForExistingDownloads(Promise promise);
 
+    @ReactMethod
+    public abstract void readRange(String id, double offset, double length, double timeoutMs, Promise promise);
+
+    @ReactMethod
+    public abstract void setConfig(ReadableMap config);
+
+    @ReactMethod
+    public abstract void acknowledgeProgress();
+
+    @ReactMethod
+    public abstract void getEventMetrics(Promise promise);
+
+    @ReactMethod
+    public abstract void getNetworkMetrics(Promise promise);
+
+    @ReactMethod
+    public abstract void getHostQueues(Promise promise);
+
+    @ReactMethod
+    public abstract void touchStorageFile(String path);
+
+    @ReactMethod
+    public abstract void getTaskStatuses(ReadableArray ids, Promise promise);
+
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public abstract WritableArray getTaskStatusesSync(ReadableArray ids);
+
+    @ReactMethod
+    public abstract void setGroupConfig(String group, ReadableMap config);
+
     @ReactMethod
     public abstract void completeHandler(String jobId, Promise promise);
 
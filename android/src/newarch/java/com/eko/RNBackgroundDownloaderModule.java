@@ -4,7 +4,9 @@ import androidx.annotation.NonNull;
 
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
 
 import javax.annotation.Nullable;
 import java.util.Map;
@@ -37,6 +39,7 @@ public class RNBackgroundDownloaderModule extends NativeRNBackgroundDownloaderSp
         boolean isAllowedOverMetered,
         boolean isNotificationVisible,
         @Nullable String notificationTitle,
+        @Nullable ReadableMap options,
         Promise promise
     ) {
         mModuleImpl.downloadFile(
@@ -51,6 +54,7 @@ public class RNBackgroundDownloaderModule extends NativeRNBackgroundDownloaderSp
             isAllowedOverMetered,
             isNotificationVisible,
             notificationTitle,
+            options,
             promise
         );
     }
@@ -75,6 +79,56 @@ public class RNBackgroundDownloaderModule extends NativeRNBackgroundDownloaderSp
         mModuleImpl.checkForExistingDownloads(promise);
     }
 
+    @Override
+    public void readRange(String id, double offset, double length, double timeoutMs, Promise promise) {
+        mModuleImpl.readRange(id, offset, length, timeoutMs, promise);
+    }
+
+    @Override
+    public void setConfig(ReadableMap config) {
+        mModuleImpl.setConfig(config);
+    }
+
+    @Override
+    public void acknowledgeProgress() {
+        mModuleImpl.acknowledgeProgress();
+    }
+
+    @Override
+    public void getEventMetrics(Promise promise) {
+        mModuleImpl.getEventMetrics(promise);
+    }
+
+    @Override
+    public void getNetworkMetrics(Promise promise) {
+        mModuleImpl.getNetworkMetrics(promise);
+    }
+
+    @Override
+    public void getHostQueues(Promise promise) {
+        mModuleImpl.getHostQueues(promise);
+    }
+
+    @Override
+    public void touchStorageFile(String path) {
+        mModuleImpl.touchStorageFile(path);
+    }
+
+    @Override
+    public void getTaskStatuses(ReadableArray ids, Promise promise) {
+        mModuleImpl.getTaskStatuses(ids, promise);
+    }
+
+    @Override
+    public WritableArray getTaskStatusesSync(ReadableArray ids) {
+        return mModuleImpl.getTaskStatusesSync(ids);
+    }
+
+    @Override
+    public void setGroupConfig(String group, ReadableMap config) {
+        mModuleImpl.setGroupConfig(group, config);
+    }
+
     @Override
     public void completeHandler(String jobId, Promise promise) {
         mModuleImpl.completeHandler(jobId, promise);
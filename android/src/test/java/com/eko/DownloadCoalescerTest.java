@@ -0,0 +1,127 @@
+package com.eko;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.eko.utils.ConfigUtils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class DownloadCoalescerTest {
+  private static final String URL = "https://example.com/asset.bin";
+
+  private static RNBGDTaskConfig createOwner(DownloadCoalescer coalescer, String id) {
+    RNBGDTaskConfig owner = createConfig(id);
+    owner.requestKey = DownloadCoalescer.getRequestKey(URL, new HashMap<>());
+    coalescer.addOwner(owner);
+    return owner;
+  }
+
+  private static RNBGDTaskConfig createConfig(String id) {
+    return new RNBGDTaskConfig(id, URL, "/data/" + id + ".bin", "{}", null);
+  }
+
+  private static List<String> getIds(List<RNBGDTaskConfig> configs) {
+    String[] ids = new String[configs.size()];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = configs.get(i).id;
+    }
+    return Arrays.asList(ids);
+  }
+
+  @Test
+  public void requestKeyIgnoresHeaderOrderAndCase() {
+    Map<String, String> headers = new LinkedHashMap<>();
+    headers.put("Authorization", "Bearer a");
+    headers.put("Accept", "*/*");
+    Map<String, String> reordered = new LinkedHashMap<>();
+    reordered.put("accept", "*/*");
+    reordered.put("authorization", "Bearer a");
+    Map<String, String> otherToken = new LinkedHashMap<>();
+    otherToken.put("Authorization", "Bearer b");
+    otherToken.put("Accept", "*/*");
+
+    assertEquals(DownloadCoalescer.getRequestKey(URL, headers), DownloadCoalescer.getRequestKey(URL, reordered));
+    assertNotEquals(DownloadCoalescer.getRequestKey(URL, headers), DownloadCoalescer.getRequestKey(URL, otherToken));
+  }
+
+  @Test
+  public void downloadsOfTheSameRequestShareTheTransfer() {
+    DownloadCoalescer coalescer = new DownloadCoalescer();
+    RNBGDTaskConfig owner = createOwner(coalescer, "owner");
+
+    assertSame(owner, coalescer.subscribe(owner.requestKey, createConfig("second")));
+    assertNull(coalescer.subscribe(DownloadCoalescer.getRequestKey(URL + "?v=2", new HashMap<>()), createConfig("third")));
+    assertEquals(Arrays.asList("owner", "second"), coalescer.getEventIds("owner"));
+    assertSame(owner, coalescer.getOwner("second"));
+  }
+
+  @Test
+  public void transfersThatAreNotSharedOnlyHaveTheirOwner() {
+    DownloadCoalescer coalescer = new DownloadCoalescer();
+    RNBGDTaskConfig config = createConfig("single");
+
+    assertEquals(Collections.singletonList("single"), coalescer.getEventIds("single"));
+    assertEquals(Collections.singletonList(config), coalescer.getEventConfigs(config));
+    assertNull(coalescer.finish("single"));
+    assertTrue(coalescer.unsubscribe("single"));
+  }
+
+  @Test
+  public void transferIsOnlyCancelledWithItsLastSubscriber() {
+    DownloadCoalescer coalescer = new DownloadCoalescer();
+    RNBGDTaskConfig owner = createOwner(coalescer, "owner");
+    coalescer.subscribe(owner.requestKey, createConfig("second"));
+    coalescer.subscribe(owner.requestKey, createConfig("third"));
+
+    assertFalse(coalescer.unsubscribe("owner"));
+    assertEquals(Arrays.asList("second", "third"), coalescer.getEventIds("owner"));
+
+    assertFalse(coalescer.unsubscribe("second"));
+    assertEquals(Collections.singletonList("third"), coalescer.getEventIds("owner"));
+
+    assertTrue(coalescer.unsubscribe("third"));
+    assertNull(coalescer.getOwner("owner"));
+    assertNull(coalescer.subscribe(owner.requestKey, createConfig("fourth")));
+  }
+
+  @Test
+  public void finishReturnsTheDownloadsStillWaiting() {
+    DownloadCoalescer coalescer = new DownloadCoalescer();
+    RNBGDTaskConfig owner = createOwner(coalescer, "owner");
+    coalescer.subscribe(owner.requestKey, createConfig("second"));
+    coalescer.subscribe(owner.requestKey, createConfig("third"));
+    coalescer.unsubscribe("second");
+
+    assertEquals(Arrays.asList("owner", "third"), getIds(coalescer.finish("owner")));
+    assertNull(coalescer.getOwner("third"));
+    assertNull(coalescer.subscribe(owner.requestKey, createConfig("fourth")));
+  }
+
+  @Test
+  public void subscribersArePersistedWithTheirOwner() {
+    DownloadCoalescer coalescer = new DownloadCoalescer();
+    RNBGDTaskConfig owner = createOwner(coalescer, "owner");
+    coalescer.subscribe(owner.requestKey, createConfig("second"));
+    coalescer.unsubscribe("owner");
+
+    RNBGDTaskConfig restored = ConfigUtils.deserializeConfig(ConfigUtils.serializeConfig(owner));
+    DownloadCoalescer restoredCoalescer = new DownloadCoalescer();
+    restoredCoalescer.addOwner(restored);
+
+    assertSame(restored, restoredCoalescer.getOwner("second"));
+    assertEquals(Collections.singletonList("second"), restoredCoalescer.getEventIds("owner"));
+    assertEquals("/data/second.bin", restoredCoalescer.getEventConfigs(restored).get(0).destination);
+  }
+}
@@ -0,0 +1,104 @@
+package com.eko;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.eko.testing.ShadowArguments;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33, shadows = ShadowArguments.class, instrumentedPackages = {"com.facebook.react.bridge"})
+public class GroupProgressTrackerTest {
+  private final GroupProgressTracker tracker = new GroupProgressTracker();
+
+  @Test
+  public void sumsTheProgressOfAllMembers() {
+    tracker.addMember("course", "a");
+    tracker.addMember("course", "b");
+
+    tracker.onProgress("a", 10, 100, Integer.MAX_VALUE);
+    ReadableArray reports = tracker.onProgress("b", 30, 300, -1);
+
+    assertNotNull(reports);
+    assertEquals(1, reports.size());
+    ReadableMap report = reports.getMap(0);
+    assertEquals("course", report.getString("group"));
+    assertEquals(40, report.getDouble("bytesDownloaded"), 0);
+    assertEquals(400, report.getDouble("bytesTotal"), 0);
+    assertEquals(2, report.getInt("tasksTotal"));
+    assertEquals(0, report.getInt("tasksCompleted"));
+  }
+
+  @Test
+  public void batchesReportsWithinTheProgressInterval() {
+    tracker.addMember("course", "a");
+
+    assertNotNull(tracker.onProgress("a", 10, 100, -1));
+    assertNull(tracker.onProgress("a", 20, 100, Integer.MAX_VALUE));
+  }
+
+  @Test
+  public void finishedMembersAreCountedAndKeepTheirBytes() {
+    tracker.addMember("course", "a");
+    tracker.addMember("course", "b");
+    tracker.addMember("course", "c");
+    tracker.onProgress("a", 50, 100, -1);
+    tracker.onProgress("b", 10, 100, -1);
+
+    tracker.onFinished("a", true, false);
+    ReadableMap report = tracker.onFinished("b", false, false).getMap(0);
+
+    assertEquals(3, report.getInt("tasksTotal"));
+    assertEquals(1, report.getInt("tasksCompleted"));
+    assertEquals(1, report.getInt("tasksFailed"));
+    assertEquals(100, report.getDouble("bytesDownloaded"), 0);
+    assertEquals(100, report.getDouble("bytesTotal"), 0);
+  }
+
+  @Test
+  public void cancelledMembersLeaveTheGroup() {
+    tracker.addMember("course", "a");
+    tracker.addMember("course", "b");
+
+    ReadableMap report = tracker.onFinished("a", false, true).getMap(0);
+
+    assertEquals(1, report.getInt("tasksTotal"));
+    assertEquals(0, report.getInt("tasksFailed"));
+  }
+
+  @Test
+  public void etaIsUnknownUntilEveryMemberHasASize() {
+    tracker.addMember("course", "a");
+    tracker.addMember("course", "b");
+
+    ReadableMap report = tracker.onProgress("a", 10, 100, -1).getMap(0);
+
+    assertEquals(-1, report.getDouble("eta"), 0);
+  }
+
+  @Test
+  public void memberProgressCanBeTurnedOffPerGroup() {
+    tracker.addMember("course", "a");
+    tracker.setMemberProgressEnabled("course", false);
+
+    assertFalse(tracker.isMemberProgressEnabled("a"));
+    assertTrue(tracker.isMemberProgressEnabled("not-grouped"));
+  }
+
+  @Test
+  public void tasksWithoutAGroupAreIgnored() {
+    tracker.addMember(null, "a");
+
+    assertNull(tracker.onProgress("a", 10, 100, -1));
+    assertNull(tracker.onFinished("a", true, false));
+  }
+}
@@ -0,0 +1,133 @@
+package com.eko;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class HostQueueTest {
+  private final HostQueue queue = new HostQueue();
+
+  private static RNBGDTaskConfig config(String id, String host) {
+    return new RNBGDTaskConfig(id, "https://" + host + "/" + id, "/tmp/" + id, "{}", null);
+  }
+
+  private static List<String> ids(List<RNBGDTaskConfig> configs) {
+    List<String> ids = new ArrayList<>();
+    for (RNBGDTaskConfig config : configs) {
+      ids.add(config.id);
+    }
+    return ids;
+  }
+
+  @Test
+  public void startsEverythingWithoutLimits() {
+    for (int i = 0; i < 100; i++) {
+      assertTrue(queue.offer(config("cdn-" + i, "cdn.example.com")));
+    }
+  }
+
+  @Test
+  public void keepsDownloadsOverTheHostLimitWaitingInOrder() {
+    queue.setLimits(HostQueue.UNLIMITED, 2, Collections.emptyMap());
+
+    assertTrue(queue.offer(config("a", "cdn.example.com")));
+    assertTrue(queue.offer(config("b", "cdn.example.com")));
+    assertFalse(queue.offer(config("c", "cdn.example.com")));
+    assertFalse(queue.offer(config("d", "cdn.example.com")));
+    assertTrue(queue.offer(config("other", "api.example.com")));
+    assertTrue(queue.isQueued("c"));
+
+    assertEquals(Collections.singletonList("c"), ids(queue.release("a")));
+    assertEquals(Collections.singletonList("d"), ids(queue.release("c")));
+    assertEquals(Collections.emptyList(), ids(queue.release("b")));
+  }
+
+  @Test
+  public void givesFreeSlotsToTheHostsInTurn() {
+    queue.setLimits(2, HostQueue.UNLIMITED, Collections.emptyMap());
+    queue.offer(config("bulk-0", "cdn.example.com"));
+    queue.offer(config("bulk-1", "cdn.example.com"));
+    for (int i = 2; i < 10; i++) {
+      queue.offer(config("bulk-" + i, "cdn.example.com"));
+    }
+    queue.offer(config("avatar", "images.example.com"));
+    queue.offer(config("feed", "api.example.com"));
+
+    List<String> started = new ArrayList<>();
+    started.addAll(ids(queue.release("bulk-0")));
+    started.addAll(ids(queue.release("bulk-1")));
+    started.addAll(ids(queue.release(started.get(0))));
+    started.addAll(ids(queue.release(started.get(1))));
+
+    // The bulk job waited first, but the other hosts don't wait for all of it.
+    assertEquals(Arrays.asList("bulk-2", "avatar", "feed", "bulk-3"), started);
+  }
+
+  @Test
+  public void skipsHostsAtTheirOwnLimit() {
+    Map<String, Integer> hostLimits = new HashMap<>();
+    hostLimits.put("Origin.example.com", 1);
+    queue.setLimits(3, HostQueue.UNLIMITED, hostLimits);
+    queue.offer(config("origin-0", "origin.example.com"));
+    queue.offer(config("origin-1", "origin.example.com"));
+    queue.offer(config("cdn-0", "cdn.example.com"));
+    queue.offer(config("cdn-1", "cdn.example.com"));
+    queue.offer(config("cdn-2", "cdn.example.com"));
+
+    // origin.example.com has its turn first but no free slot of its own.
+    assertEquals(Collections.singletonList("cdn-2"), ids(queue.release("cdn-0")));
+    assertEquals(Collections.singletonList("origin-1"), ids(queue.release("origin-0")));
+  }
+
+  @Test
+  public void startsWaitingDownloadsWhenTheLimitsAreRaised() {
+    queue.setLimits(1, HostQueue.UNLIMITED, Collections.emptyMap());
+    queue.offer(config("a", "cdn.example.com"));
+    queue.offer(config("b", "cdn.example.com"));
+    queue.offer(config("c", "api.example.com"));
+
+    assertEquals(Arrays.asList("b", "c"), ids(queue.setLimits(HostQueue.UNLIMITED, HostQueue.UNLIMITED, Collections.emptyMap())));
+  }
+
+  @Test
+  public void removesCancelledDownloadsFromTheirQueue() {
+    queue.setLimits(1, HostQueue.UNLIMITED, Collections.emptyMap());
+    queue.offer(config("a", "cdn.example.com"));
+    queue.offer(config("b", "cdn.example.com"));
+    queue.offer(config("c", "api.example.com"));
+
+    assertEquals(Collections.emptyList(), ids(queue.release("b")));
+    assertFalse(queue.isQueued("b"));
+    assertEquals(Collections.singletonList("c"), ids(queue.release("a")));
+  }
+
+  @Test
+  public void countsDownloadsThatWereAlreadyRunning() {
+    queue.setLimits(HostQueue.UNLIMITED, 1, Collections.emptyMap());
+    queue.markRunning(config("restored", "cdn.example.com"));
+
+    assertFalse(queue.offer(config("new", "cdn.example.com")));
+
+    List<HostQueue.HostState> states = queue.getHostStates();
+    assertEquals(1, states.size());
+    assertEquals("cdn.example.com", states.get(0).host);
+    assertEquals(1, states.get(0).running);
+    assertEquals(1, states.get(0).queued);
+    assertEquals(1, states.get(0).limit);
+  }
+
+  @Test
+  public void readsHostsCaseInsensitively() {
+    assertEquals("cdn.example.com", HostQueue.getHost("https://CDN.example.com:8443/file?x=1"));
+    assertEquals("", HostQueue.getHost("not a url"));
+  }
+}
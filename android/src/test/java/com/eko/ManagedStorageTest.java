@@ -0,0 +1,140 @@
+package com.eko;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+public class ManagedStorageTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File directory;
+
+  @Before
+  public void setUp() {
+    directory = new File(temporaryFolder.getRoot(), "cache");
+  }
+
+  private String createFile(String name, long size) throws IOException {
+    File file = new File(directory, name);
+    file.getParentFile().mkdirs();
+    try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+      output.setLength(size);
+    }
+    return file.getPath();
+  }
+
+  @Test
+  public void onlyManagesFilesInsideItsDirectory() {
+    ManagedStorage storage = new ManagedStorage(directory, 1000);
+
+    assertTrue(storage.isManaged(new File(directory, "a/b.mp4").getPath()));
+    assertFalse(storage.isManaged(new File(temporaryFolder.getRoot(), "cache-other/b.mp4").getPath()));
+  }
+
+  @Test
+  public void evictsTheLeastRecentlyUsedFilesWhenOverTheQuota() throws IOException {
+    ManagedStorage storage = new ManagedStorage(directory, 300);
+    String a = createFile("a", 100);
+    String b = createFile("b", 100);
+    String c = createFile("c", 100);
+    storage.add("a", a);
+    storage.add("b", b);
+    storage.add("c", c);
+    storage.touch(a);
+
+    List<ManagedStorage.Entry> evicted = storage.add("d", createFile("d", 100));
+
+    assertEquals(1, evicted.size());
+    assertEquals(b, evicted.get(0).path);
+    assertFalse(new File(b).exists());
+    assertTrue(new File(a).exists());
+    assertEquals(300, storage.getUsedBytes());
+  }
+
+  @Test
+  public void makesRoomForAdmittedDownloadsAndKeepsTheirDestinations() throws IOException {
+    ManagedStorage storage = new ManagedStorage(directory, 300);
+    String a = createFile("a", 100);
+    String b = createFile("b", 100);
+    storage.add("a", a);
+    storage.add("b", b);
+
+    storage.admit("update", a);
+    List<ManagedStorage.Entry> evicted = storage.reserve("update", 200);
+
+    assertEquals(1, evicted.size());
+    assertEquals(b, evicted.get(0).path);
+    assertTrue(new File(a).exists());
+  }
+
+  @Test
+  public void keepsADownloadLargerThanTheQuota() throws IOException {
+    ManagedStorage storage = new ManagedStorage(directory, 100);
+    String a = createFile("a", 50);
+    storage.add("a", a);
+
+    String large = createFile("large", 500);
+    List<ManagedStorage.Entry> evicted = storage.add("large", large);
+
+    assertEquals(1, evicted.size());
+    assertTrue(new File(large).exists());
+  }
+
+  @Test
+  public void reloadsTheIndexInAccessOrder() throws IOException {
+    ManagedStorage storage = new ManagedStorage(directory, 1000);
+    String a = createFile("a", 100);
+    String b = createFile("b", 200);
+    storage.add("a", a);
+    storage.add("b", b);
+    storage.touch(a);
+
+    ManagedStorage reloaded = new ManagedStorage(directory, 1000);
+    assertEquals(300, reloaded.getUsedBytes());
+
+    List<ManagedStorage.Entry> evicted = reloaded.setQuota(150);
+    assertEquals(1, evicted.size());
+    assertEquals(b, evicted.get(0).path);
+    assertEquals(100, new ManagedStorage(directory, 1000).getUsedBytes());
+  }
+
+  @Test
+  public void compactsTheIndex() throws IOException {
+    ManagedStorage storage = new ManagedStorage(directory, 1000);
+    String a = createFile("a", 100);
+    storage.add("a", a);
+    for (int i = 0; i < 500; i++) {
+      storage.touch(a);
+    }
+
+    File index = new File(directory, ManagedStorage.INDEX_NAME);
+    assertTrue(Files.readAllLines(index.toPath(), StandardCharsets.UTF_8).size() < 100);
+    assertEquals(100, new ManagedStorage(directory, 1000).getUsedBytes());
+  }
+
+  @Test
+  public void skipsALineCutShortByACrash() throws IOException {
+    ManagedStorage storage = new ManagedStorage(directory, 1000);
+    storage.add("a", createFile("a", 100));
+    Files.write(
+        new File(directory, ManagedStorage.INDEX_NAME).toPath(),
+        "+ 12".getBytes(StandardCharsets.UTF_8),
+        StandardOpenOption.APPEND);
+
+    assertEquals(100, new ManagedStorage(directory, 1000).getUsedBytes());
+  }
+}
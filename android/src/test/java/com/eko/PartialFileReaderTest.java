@@ -0,0 +1,147 @@
+package com.eko;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class PartialFileReaderTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final PartialFileReader reader = new PartialFileReader();
+  private File partialFile;
+  private byte[] content;
+
+  @Before
+  public void setUp() throws IOException {
+    partialFile = temporaryFolder.newFile("task.part");
+    content = new byte[4096];
+    for (int i = 0; i < content.length; i++) {
+      content[i] = (byte) i;
+    }
+    reader.register("task", partialFile.getAbsolutePath());
+  }
+
+  @Test
+  public void readsRangeBelowTheWatermark() throws Exception {
+    write(partialFile, content, 2048);
+    reader.onProgress("task", 2048);
+
+    assertArrayEquals(slice(100, 200), reader.read("task", 100, 200, 0));
+  }
+
+  @Test
+  public void waitsForTheWatermarkToPassTheRange() throws Exception {
+    write(partialFile, content, 1024);
+    reader.onProgress("task", 1024);
+
+    CompletableFuture<byte[]> pending = CompletableFuture.supplyAsync(() -> {
+      try {
+        return reader.read("task", 1000, 1000, 10_000);
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    });
+
+    Thread.sleep(100);
+    assertTrue("read returned before the range arrived", !pending.isDone());
+
+    write(partialFile, content, 4096);
+    reader.onProgress("task", 4096);
+
+    assertArrayEquals(slice(1000, 1000), pending.get(5, TimeUnit.SECONDS));
+  }
+
+  @Test(expected = TimeoutException.class)
+  public void timesOutWhenTheRangeNeverArrives() throws Exception {
+    reader.onProgress("task", 10);
+    reader.read("task", 0, 100, 50);
+  }
+
+  @Test
+  public void readsFromTheDestinationOnceCompleteAndCutsAtTheEnd() throws Exception {
+    File destination = temporaryFolder.newFile("destination.bin");
+    write(destination, content, content.length);
+    reader.onComplete("task", destination.getAbsolutePath());
+
+    byte[] bytes = reader.read("task", 4000, 500, 0);
+    assertEquals(96, bytes.length);
+    assertArrayEquals(slice(4000, 96), bytes);
+  }
+
+  @Test
+  public void failureWakesUpWaitingReads() throws Exception {
+    CompletableFuture<byte[]> pending = CompletableFuture.supplyAsync(() -> {
+      try {
+        return reader.read("task", 0, 100, 10_000);
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    });
+
+    Thread.sleep(100);
+    reader.onFailed("task", "Download was cancelled");
+
+    try {
+      pending.get(5, TimeUnit.SECONDS);
+      fail("read should fail with the download");
+    } catch (Exception e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("Download was cancelled"));
+    }
+  }
+
+  @Test
+  public void waitsForTheNewBodyWhenTheTransferRestarts() throws Exception {
+    write(partialFile, content, 2048);
+    reader.onProgress("task", 2048);
+
+    // The server answered the resume with the whole body, so the file is written again from zero.
+    reader.onProgress("task", 0);
+    CompletableFuture<byte[]> pending = CompletableFuture.supplyAsync(() -> {
+      try {
+        return reader.read("task", 100, 200, 10_000);
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    });
+
+    Thread.sleep(100);
+    assertTrue("read returned bytes of the old body", !pending.isDone());
+
+    byte[] restarted = new byte[1024];
+    for (int i = 0; i < restarted.length; i++) {
+      restarted[i] = (byte) (i * 7);
+    }
+    write(partialFile, restarted, restarted.length);
+    reader.onProgress("task", restarted.length);
+
+    byte[] expected = new byte[200];
+    System.arraycopy(restarted, 100, expected, 0, 200);
+    assertArrayEquals(expected, pending.get(5, TimeUnit.SECONDS));
+  }
+
+  private byte[] slice(int offset, int length) {
+    byte[] bytes = new byte[length];
+    System.arraycopy(content, offset, bytes, 0, length);
+    return bytes;
+  }
+
+  private static void write(File file, byte[] bytes, int length) throws IOException {
+    try (FileOutputStream output = new FileOutputStream(file)) {
+      output.write(bytes, 0, length);
+    }
+  }
+}
@@ -0,0 +1,189 @@
+package com.eko;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.eko.testing.ShadowArguments;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33, shadows = ShadowArguments.class, instrumentedPackages = {"com.facebook.react.bridge"})
+public class ProgressReporterTest {
+  private final ProgressReporter reporter = new ProgressReporter();
+
+  @Before
+  public void setUp() {
+    reporter.setProgressInterval(-1);
+    reporter.setProgressMinBytes(0);
+  }
+
+  @Test
+  public void mapFormatSendsOneMapPerTask() {
+    reporter.setPercent("a", 0.0);
+
+    ProgressReporter.Batch batch = reporter.onProgress("a", 10, 100);
+
+    assertNotNull(batch);
+    assertEquals(ProgressReporter.EVENT_PROGRESS, batch.eventName);
+    ReadableMap report = ((ReadableArray) batch.payload).getMap(0);
+    assertEquals("a", report.getString("id"));
+    assertEquals(10, report.getDouble("bytesDownloaded"), 0);
+    assertEquals(100, report.getDouble("bytesTotal"), 0);
+  }
+
+  @Test
+  public void packedFormatAnnouncesEachIdOnce() {
+    reporter.setFormat(ProgressReporter.FORMAT_PACKED);
+    reporter.setPercent("a", 0.0);
+    reporter.setPercent("b", 0.0);
+
+    ReadableMap first = (ReadableMap) reporter.onProgress("b", 10, 100).payload;
+    assertEquals(1, first.getArray("index").getInt(0));
+    assertEquals(1, first.getArray("announcedIndex").getInt(0));
+    assertEquals("b", first.getArray("announcedId").getString(0));
+    assertEquals(10, first.getArray("bytesDownloaded").getDouble(0), 0);
+
+    ProgressReporter.Batch second = reporter.onProgress("b", 20, 100);
+    assertEquals(ProgressReporter.EVENT_PROGRESS_PACKED, second.eventName);
+    ReadableMap packed = (ReadableMap) second.payload;
+    assertFalse(packed.hasKey("announcedIndex"));
+    assertEquals(20, packed.getArray("bytesDownloaded").getDouble(0), 0);
+  }
+
+  @Test
+  public void indexesOfRemovedTasksAreReusedAndAnnouncedAgain() {
+    reporter.setFormat(ProgressReporter.FORMAT_PACKED);
+    reporter.setPercent("a", 0.0);
+    reporter.onProgress("a", 10, 100);
+    reporter.remove("a");
+
+    reporter.setPercent("c", 0.0);
+    ReadableMap packed = (ReadableMap) reporter.onProgress("c", 10, 100).payload;
+
+    assertEquals(0, packed.getArray("index").getInt(0));
+    assertEquals("c", packed.getArray("announcedId").getString(0));
+  }
+
+  @Test
+  public void resetDeliverySendsIdsAgain() {
+    reporter.setFormat(ProgressReporter.FORMAT_PACKED);
+    reporter.setPercent("a", 0.0);
+    reporter.onProgress("a", 10, 100);
+
+    reporter.resetDelivery();
+    ReadableMap packed = (ReadableMap) reporter.onProgress("a", 20, 100).payload;
+
+    assertTrue(packed.hasKey("announcedId"));
+  }
+
+  @Test
+  public void waitsForTheAcknowledgementAndMergesMeanwhile() {
+    reporter.setPercent("a", 0.0);
+    reporter.onAcknowledged();
+    assertNotNull(reporter.onProgress("a", 10, 100));
+
+    assertNull(reporter.onProgress("a", 20, 100));
+    assertNull(reporter.onProgress("a", 30, 100));
+
+    ProgressReporter.Batch batch = reporter.onAcknowledged();
+    assertNotNull(batch);
+    ReadableArray reports = (ReadableArray) batch.payload;
+    assertEquals(1, reports.size());
+    assertEquals(30, reports.getMap(0).getDouble("bytesDownloaded"), 0);
+    assertEquals(1, reporter.getMetrics().getDouble("progressRecordsMerged"), 0);
+  }
+
+  @Test
+  public void doesNotWaitBeforeJsAcknowledgesAnything() {
+    reporter.setPercent("a", 0.0);
+
+    assertNotNull(reporter.onProgress("a", 10, 100));
+    assertNotNull(reporter.onProgress("a", 20, 100));
+  }
+
+  @Test
+  public void finishedTasksDropTheirPendingReport() {
+    reporter.setPercent("a", 0.0);
+    reporter.onAcknowledged();
+    reporter.onProgress("a", 10, 100);
+    reporter.onProgress("a", 20, 100);
+
+    reporter.discardPending("a");
+
+    assertNull(reporter.onAcknowledged());
+    assertEquals(1, reporter.getMetrics().getDouble("progressRecordsDropped"), 0);
+  }
+
+  @Test
+  public void resetDeliveryStopsWaitingForTheAcknowledgement() {
+    reporter.setPercent("a", 0.0);
+    reporter.onAcknowledged();
+    reporter.onProgress("a", 10, 100);
+
+    reporter.resetDelivery();
+
+    assertNotNull(reporter.onProgress("a", 20, 100));
+  }
+
+  @Test
+  public void flushesWhatArrivedWhileAwaitingTheAcknowledgementOnceAcknowledged() {
+    List<Long> delays = new ArrayList<>();
+    reporter.setFlushScheduler(delays::add);
+    reporter.setPercent("a", 0.0);
+    reporter.onAcknowledged();
+    assertNotNull(reporter.onProgress("a", 10, 100));
+    reporter.setProgressInterval(1000);
+
+    // The last progress of the download arrives while the batch awaits acknowledgement.
+    assertNull(reporter.onProgress("a", 20, 100));
+    assertEquals(1, delays.size());
+    assertTrue(delays.get(0) > 4000);
+
+    // Acknowledged before the interval is over, so a flush is scheduled for its end.
+    assertNull(reporter.onAcknowledged());
+    assertEquals(2, delays.size());
+    assertTrue(delays.get(1) <= 1001);
+
+    reporter.setProgressInterval(-1);
+    ProgressReporter.Batch batch = reporter.flushPending();
+    assertNotNull(batch);
+    assertEquals(20, ((ReadableArray) batch.payload).getMap(0).getDouble("bytesDownloaded"), 0);
+  }
+
+  @Test
+  public void flushesTheLastProgressOfAStalledDownload() {
+    List<Long> delays = new ArrayList<>();
+    reporter.setFlushScheduler(delays::add);
+    reporter.setProgressInterval(60000);
+    reporter.setPercent("a", 0.0);
+
+    assertNull(reporter.onProgress("a", 10, 100));
+    assertNull(reporter.onProgress("a", 20, 100));
+    assertEquals(1, delays.size());
+    assertTrue(delays.get(0) <= 60001);
+
+    // Run early, so it schedules itself again.
+    assertNull(reporter.flushPending());
+    assertEquals(2, delays.size());
+
+    reporter.setProgressInterval(-1);
+    ProgressReporter.Batch batch = reporter.flushPending();
+    assertNotNull(batch);
+    assertEquals(20, ((ReadableArray) batch.payload).getMap(0).getDouble("bytesDownloaded"), 0);
+    assertNull(reporter.flushPending());
+    assertEquals(2, delays.size());
+  }
+}
@@ -0,0 +1,279 @@
+package com.eko;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+
+import android.app.Application;
+import android.app.DownloadManager;
+import android.content.Context;
+import android.os.Looper;
+
+import com.eko.testing.CountingSharedPreferences;
+import com.eko.testing.FakeDownloadManager;
+import com.eko.testing.HeadServer;
+import com.eko.testing.RecordingEventEmitter;
+import com.eko.testing.ShadowArguments;
+import com.eko.utils.ConfigUtils;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.Shadows;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Drives RNBackgroundDownloaderModuleImpl with thousands of tasks against a fake DownloadManager
+ * and fails when threads, provider queries, progress events or persistence writes stop scaling.
+ * Scale it up with -Drnbgd.scaleTaskCount=5000.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33, shadows = ShadowArguments.class, instrumentedPackages = {"com.facebook.react.bridge"})
+public class RNBackgroundDownloaderScaleTest {
+  private static final int TASK_COUNT = Integer.getInteger("rnbgd.scaleTaskCount", 1000);
+  private static final int PROGRESS_INTERVAL = 1000;
+  // OnBegin pool, progress poller and file mover, plus slack for Robolectric's own threads.
+  private static final int THREAD_BUDGET = 16;
+  private static final int TICK_INTERVAL = 250;
+  private static final int IDS_PER_QUERY = 500;
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private HeadServer server;
+  private FakeDownloadManager fakeDownloadManager;
+  private RecordingEventEmitter emitter;
+  private CountingSharedPreferences preferences;
+  private ReactApplicationContext reactContext;
+  private RNBackgroundDownloaderModuleImpl module;
+  private File destinationDirectory;
+  private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+  @Before
+  public void setUp() throws Exception {
+    Application application = RuntimeEnvironment.getApplication();
+    server = new HeadServer(FakeDownloadManager.DEFAULT_TOTAL_BYTES);
+    fakeDownloadManager = new FakeDownloadManager(application, temporaryFolder.newFolder("provider"));
+    destinationDirectory = temporaryFolder.newFolder("destination");
+    emitter = new RecordingEventEmitter();
+    preferences = new CountingSharedPreferences(application.getSharedPreferences("scale-test", Context.MODE_PRIVATE));
+
+    reactContext = spy(new ReactApplicationContext(application));
+    doReturn(fakeDownloadManager.asDownloadManager()).when(reactContext).getSystemService(Context.DOWNLOAD_SERVICE);
+    doReturn(preferences).when(reactContext).getSharedPreferences(anyString(), anyInt());
+    doReturn(emitter).when(reactContext).getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class);
+  }
+
+  @After
+  public void tearDown() {
+    if (module != null) {
+      module.invalidate();
+    }
+    server.close();
+  }
+
+  @Test
+  public void enqueueingThousandsOfTasksKeepsThreadCountBounded() {
+    int threadsBefore = threads.getThreadCount();
+    threads.resetPeakThreadCount();
+
+    module = createModule();
+    enqueue(TASK_COUNT);
+    waitFor(() -> emitter.count("downloadBegin") == TASK_COUNT, 60_000);
+    runTransfers(1000);
+
+    int addedThreads = threads.getPeakThreadCount() - threadsBefore;
+    assertTrue("module added " + addedThreads + " threads for " + TASK_COUNT + " tasks", addedThreads <= THREAD_BUDGET);
+  }
+
+  @Test
+  public void resumingPersistedTasksKeepsThreadCountBounded() {
+    Map<Long, RNBGDTaskConfig> downloadIdToConfig = new HashMap<>();
+    for (int i = 0; i < TASK_COUNT; i++) {
+      long downloadId = fakeDownloadManager.enqueue().id;
+      downloadIdToConfig.put(downloadId, new RNBGDTaskConfig("task-" + i, server.url("file/" + i), destination(i), "{}", null));
+    }
+    preferences.edit()
+        .putString(RNBackgroundDownloaderModuleImpl.NAME + "_downloadIdToConfig", ConfigUtils.serializeConfigMap(downloadIdToConfig))
+        .commit();
+
+    int threadsBefore = threads.getThreadCount();
+    threads.resetPeakThreadCount();
+
+    module = createModule();
+    waitFor(() -> emitter.count("downloadBegin") == TASK_COUNT, 60_000);
+    runTransfers(1000);
+
+    int addedThreads = threads.getPeakThreadCount() - threadsBefore;
+    assertTrue("resumeTasks added " + addedThreads + " threads for " + TASK_COUNT + " tasks", addedThreads <= THREAD_BUDGET);
+  }
+
+  @Test
+  public void providerQueriesAreBatchedAcrossTasks() {
+    module = createModule();
+    enqueue(TASK_COUNT);
+    waitFor(() -> emitter.count("downloadBegin") == TASK_COUNT, 60_000);
+    runTransfers(500);
+
+    fakeDownloadManager.resetCounters();
+    int durationMs = 2000;
+    runTransfers(durationMs);
+
+    int batches = (TASK_COUNT + IDS_PER_QUERY - 1) / IDS_PER_QUERY;
+    int maxQueries = (durationMs / TICK_INTERVAL + 2) * batches;
+    assertTrue(
+        fakeDownloadManager.queryCount() + " provider queries in " + durationMs + "ms, budget " + maxQueries,
+        fakeDownloadManager.queryCount() <= maxQueries
+    );
+  }
+
+  @Test
+  public void progressEventsAreThrottledToProgressInterval() {
+    module = createModule();
+    enqueue(TASK_COUNT);
+    waitFor(() -> emitter.count("downloadBegin") == TASK_COUNT, 60_000);
+    runTransfers(PROGRESS_INTERVAL);
+
+    emitter.reset();
+    int durationMs = 3000;
+    runTransfers(durationMs);
+
+    int progressEvents = emitter.count("downloadProgress");
+    assertTrue("no progress was reported", progressEvents > 0);
+    assertTrue(
+        progressEvents + " progress events in " + durationMs + "ms",
+        progressEvents <= durationMs / PROGRESS_INTERVAL + 1
+    );
+    assertTrue(
+        "progress records should be coalesced per task, got " + emitter.progressRecordCount(),
+        emitter.progressRecordCount() <= progressEvents * TASK_COUNT
+    );
+  }
+
+  @Test
+  public void persistenceWritesStayLinearInTaskCount() {
+    module = createModule();
+    preferences.resetWriteCount();
+
+    enqueue(TASK_COUNT);
+    waitFor(() -> emitter.count("downloadBegin") == TASK_COUNT, 60_000);
+
+    // One write when the task is enqueued and one when its begin is recorded,
+    // plus the progress config the first time it is seen.
+    int maxWrites = 2 * TASK_COUNT + 1;
+    assertTrue(
+        preferences.writeCount() + " persistence writes for " + TASK_COUNT + " tasks, budget " + maxWrites,
+        preferences.writeCount() <= maxWrites
+    );
+  }
+
+  @Test
+  public void failuresAndCompletionsAreReportedOncePerTaskAndPollingStops() throws Exception {
+    module = createModule();
+    enqueue(TASK_COUNT);
+    waitFor(() -> emitter.count("downloadBegin") == TASK_COUNT, 60_000);
+    runTransfers(500);
+
+    List<Long> ids = fakeDownloadManager.ids();
+    int failures = 0;
+    for (int i = 0; i < ids.size(); i++) {
+      if (i % 10 == 0) {
+        fakeDownloadManager.fail(ids.get(i), DownloadManager.ERROR_HTTP_DATA_ERROR);
+        failures++;
+      } else {
+        fakeDownloadManager.complete(ids.get(i));
+      }
+    }
+
+    int expectedFailures = failures;
+    int expectedCompletions = TASK_COUNT - failures;
+    waitFor(() -> emitter.count("downloadFailed") == expectedFailures
+        && emitter.count("downloadComplete") == expectedCompletions, 60_000);
+    runTransfers(1000);
+
+    assertEquals(expectedFailures, emitter.count("downloadFailed"));
+    assertEquals(expectedCompletions, emitter.count("downloadComplete"));
+
+    fakeDownloadManager.resetCounters();
+    runTransfers(1000);
+    assertEquals("finished tasks must not be polled", 0, fakeDownloadManager.queryCount());
+  }
+
+  private RNBackgroundDownloaderModuleImpl createModule() {
+    RNBackgroundDownloaderModuleImpl module = new RNBackgroundDownloaderModuleImpl(reactContext);
+    module.initialize();
+    return module;
+  }
+
+  private String destination(int index) {
+    return new File(destinationDirectory, "file-" + index + ".bin").getAbsolutePath();
+  }
+
+  private void enqueue(int count) {
+    for (int i = 0; i < count; i++) {
+      module.downloadFile(
+          server.url("file/" + i),
+          destination(i),
+          "task-" + i,
+          null,
+          "{}",
+          PROGRESS_INTERVAL,
+          1024 * 1024,
+          true,
+          true,
+          false,
+          null,
+          null,
+          mock(Promise.class)
+      );
+    }
+  }
+
+  /**
+   * Lets the fake provider advance every transfer for the given time while broadcasts are delivered.
+   */
+  private void runTransfers(long durationMs) {
+    long deadline = System.currentTimeMillis() + durationMs;
+    while (System.currentTimeMillis() < deadline) {
+      fakeDownloadManager.advanceAll(64 * 1024);
+      idle(50);
+    }
+  }
+
+  private void waitFor(BooleanSupplier condition, long timeoutMs) {
+    long deadline = System.currentTimeMillis() + timeoutMs;
+    while (!condition.getAsBoolean()) {
+      assertTrue("timed out after " + timeoutMs + "ms", System.currentTimeMillis() < deadline);
+      idle(20);
+    }
+  }
+
+  private void idle(long sleepMs) {
+    Shadows.shadowOf(Looper.getMainLooper()).idle();
+    try {
+      Thread.sleep(sleepMs);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
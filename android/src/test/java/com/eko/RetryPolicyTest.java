@@ -0,0 +1,97 @@
+package com.eko;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.app.DownloadManager;
+
+import com.eko.utils.ConfigUtils;
+import com.facebook.react.bridge.JavaOnlyArray;
+import com.facebook.react.bridge.JavaOnlyMap;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class RetryPolicyTest {
+  @Test
+  public void retriesRetryableErrorsUntilMaxAttempts() {
+    RetryPolicy policy = new RetryPolicy();
+    policy.maxAttempts = 3;
+
+    assertTrue(policy.shouldRetry(DownloadManager.ERROR_HTTP_DATA_ERROR, 0));
+    assertTrue(policy.shouldRetry(503, 1));
+    assertFalse(policy.shouldRetry(503, 2));
+  }
+
+  @Test
+  public void onlyRetriesTheGivenErrorClasses() {
+    RetryPolicy policy = new RetryPolicy();
+    policy.retryOn = Collections.singletonList(RetryPolicy.RETRY_ON_THROTTLED);
+
+    assertTrue(policy.shouldRetry(429, 0));
+    assertFalse(policy.shouldRetry(500, 0));
+    assertFalse(policy.shouldRetry(DownloadManager.ERROR_CANNOT_RESUME, 0));
+  }
+
+  @Test
+  public void neverRetriesClientAndStorageErrors() {
+    RetryPolicy policy = new RetryPolicy();
+
+    assertFalse(policy.shouldRetry(404, 0));
+    assertFalse(policy.shouldRetry(DownloadManager.ERROR_INSUFFICIENT_SPACE, 0));
+    assertFalse(policy.shouldRetry(DownloadManager.ERROR_FILE_ERROR, 0));
+  }
+
+  @Test
+  public void delayGrowsExponentiallyWithinTheJitterAndCap() {
+    RetryPolicy policy = new RetryPolicy();
+    policy.initialDelay = 1000;
+    policy.multiplier = 2;
+    policy.maxDelay = 5000;
+    policy.jitter = 0.25;
+
+    for (int i = 0; i < 100; i++) {
+      long first = policy.getDelay(0);
+      long third = policy.getDelay(2);
+      long capped = policy.getDelay(10);
+      assertTrue(first + "", first >= 750 && first <= 1250);
+      assertTrue(third + "", third >= 3000 && third <= 5000);
+      assertTrue(capped + "", capped >= 3750 && capped <= 6250);
+    }
+  }
+
+  @Test
+  public void readsTheRetryOption() {
+    JavaOnlyMap map = new JavaOnlyMap();
+    map.putInt("maxAttempts", 7);
+    map.putDouble("initialDelay", 2000);
+    map.putDouble("jitter", 3);
+    map.putArray("retryOn", JavaOnlyArray.of("server"));
+
+    RetryPolicy policy = RetryPolicy.fromMap(map);
+
+    assertEquals(7, policy.maxAttempts);
+    assertEquals(2000, policy.initialDelay);
+    assertEquals(1, policy.jitter, 0);
+    assertEquals(Collections.singletonList("server"), policy.retryOn);
+    assertNull(RetryPolicy.fromMap(null));
+  }
+
+  @Test
+  public void isPersistedWithItsTask() {
+    RNBGDTaskConfig config = new RNBGDTaskConfig("id", "https://example.com", "/tmp/file", "{}", null);
+    config.retryPolicy = new RetryPolicy();
+    config.retryPolicy.retryOn = Arrays.asList(RetryPolicy.RETRY_ON_NETWORK);
+    config.retryAttempts = 2;
+
+    RNBGDTaskConfig restored = ConfigUtils.deserializeConfig(ConfigUtils.serializeConfig(config));
+
+    assertEquals(2, restored.retryAttempts);
+    assertEquals(config.retryPolicy.maxAttempts, restored.retryPolicy.maxAttempts);
+    assertEquals(config.retryPolicy.retryOn, restored.retryPolicy.retryOn);
+  }
+}
@@ -0,0 +1,149 @@
+package com.eko;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TaskRegistryTest {
+  private final TaskRegistry registry = new TaskRegistry();
+
+  private static RNBGDTaskConfig config(String id) {
+    return new RNBGDTaskConfig(id, "https://example.com/" + id, "/tmp/" + id, null, null);
+  }
+
+  @Test
+  public void findsTasksByIdAndByDownloadId() {
+    RNBGDTaskConfig config = config("a");
+    TaskRegistry.Task task = registry.putDownload(42, config);
+
+    assertSame(task, registry.get("a"));
+    assertSame(task, registry.getByDownloadId(42));
+    assertSame(config, registry.getConfig(42));
+    assertEquals(42, registry.getDownloadId("a"));
+    assertNull(registry.getByDownloadId(43));
+  }
+
+  @Test
+  public void removingTheDownloadForgetsTheTask() {
+    RNBGDTaskConfig config = config("a");
+    registry.putDownload(42, config);
+
+    assertSame(config, registry.removeDownload(42));
+    assertNull(registry.removeDownload(42));
+    assertNull(registry.get("a"));
+    assertNull(registry.getByDownloadId(42));
+    assertEquals(TaskRegistry.NO_DOWNLOAD_ID, registry.getDownloadId("a"));
+  }
+
+  @Test
+  public void tasksStayWhileTheyAreReportedOn() {
+    registry.putDownload(42, config("a"));
+    registry.retainReporting("a");
+
+    registry.removeDownload(42);
+    assertNotNull(registry.get("a"));
+
+    registry.releaseReporting("a");
+    assertNull(registry.get("a"));
+  }
+
+  @Test
+  public void keepsTheLastStateAndProgressOfATask() {
+    TaskRegistry.Task task = registry.putDownload(42, config("a"));
+    task.setState(1);
+    task.setProgress(50, 100);
+
+    task = registry.get("a");
+    assertEquals(1, task.getState());
+    assertEquals(50, task.getBytesDownloaded());
+    assertEquals(100, task.getBytesTotal());
+  }
+
+  @Test
+  public void rebindingMovesTheTaskToItsNewDownloadId() {
+    registry.putDownload(42, config("a"));
+    registry.putDownload(43, config("a"));
+
+    assertNull(registry.getByDownloadId(42));
+    assertEquals("a", registry.getByDownloadId(43).id);
+    assertEquals(1, registry.getDownloadConfigs().size());
+  }
+
+  @Test
+  public void replacesTheLoadedDownloads() {
+    registry.putDownload(1, config("old"));
+    Map<Long, RNBGDTaskConfig> loaded = new HashMap<>();
+    loaded.put(2L, config("a"));
+    loaded.put(3L, config("b"));
+
+    registry.setDownloadConfigs(loaded);
+
+    assertNull(registry.get("old"));
+    assertEquals("a", registry.getConfig(2).id);
+    assertEquals("b", registry.getConfig(3).id);
+  }
+
+  @Test
+  public void keepsFindingTasksAcrossResizes() {
+    for (long downloadId = 1; downloadId <= 5000; downloadId++) {
+      registry.putDownload(downloadId, config("task-" + downloadId));
+      if (downloadId % 3 == 0) {
+        registry.removeDownload(downloadId);
+      }
+    }
+
+    for (long downloadId = 1; downloadId <= 5000; downloadId++) {
+      TaskRegistry.Task task = registry.getByDownloadId(downloadId);
+      if (downloadId % 3 == 0) {
+        assertNull(task);
+      } else {
+        assertEquals("task-" + downloadId, task.id);
+      }
+    }
+  }
+
+  @Test
+  public void readersNeverSeeAnotherTaskWhileWritersChurn() throws InterruptedException {
+    AtomicBoolean isRunning = new AtomicBoolean(true);
+    AtomicInteger mismatches = new AtomicInteger();
+    Thread[] readers = new Thread[4];
+    for (int i = 0; i < readers.length; i++) {
+      readers[i] = new Thread(() -> {
+        while (isRunning.get()) {
+          for (long downloadId = 1; downloadId <= 2000; downloadId++) {
+            TaskRegistry.Task task = registry.getByDownloadId(downloadId);
+            if (task != null && !task.id.equals("task-" + downloadId)) {
+              mismatches.incrementAndGet();
+            }
+          }
+        }
+      });
+      readers[i].start();
+    }
+
+    for (int round = 0; round < 20; round++) {
+      for (long downloadId = 1; downloadId <= 2000; downloadId++) {
+        registry.putDownload(downloadId, config("task-" + downloadId));
+      }
+      for (long downloadId = 1; downloadId <= 2000; downloadId++) {
+        registry.removeDownload(downloadId);
+      }
+    }
+    isRunning.set(false);
+    for (Thread reader : readers) {
+      reader.join();
+    }
+
+    assertEquals(0, mismatches.get());
+    assertTrue(registry.getDownloadConfigs().isEmpty());
+  }
+}
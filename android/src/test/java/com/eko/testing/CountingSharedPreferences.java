@@ -0,0 +1,154 @@
+package com.eko.testing;
+
+import android.content.SharedPreferences;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+/**
+ * SharedPreferences that counts committed writes, the module's persistence path when MMKV is unavailable.
+ */
+public class CountingSharedPreferences implements SharedPreferences {
+  private final SharedPreferences delegate;
+  private final AtomicInteger writeCount = new AtomicInteger();
+
+  public CountingSharedPreferences(SharedPreferences delegate) {
+    this.delegate = delegate;
+  }
+
+  public int writeCount() {
+    return writeCount.get();
+  }
+
+  public void resetWriteCount() {
+    writeCount.set(0);
+  }
+
+  @Override
+  public Map<String, ?> getAll() {
+    return delegate.getAll();
+  }
+
+  @Nullable
+  @Override
+  public String getString(String key, @Nullable String defValue) {
+    return delegate.getString(key, defValue);
+  }
+
+  @Nullable
+  @Override
+  public Set<String> getStringSet(String key, @Nullable Set<String> defValues) {
+    return delegate.getStringSet(key, defValues);
+  }
+
+  @Override
+  public int getInt(String key, int defValue) {
+    return delegate.getInt(key, defValue);
+  }
+
+  @Override
+  public long getLong(String key, long defValue) {
+    return delegate.getLong(key, defValue);
+  }
+
+  @Override
+  public float getFloat(String key, float defValue) {
+    return delegate.getFloat(key, defValue);
+  }
+
+  @Override
+  public boolean getBoolean(String key, boolean defValue) {
+    return delegate.getBoolean(key, defValue);
+  }
+
+  @Override
+  public boolean contains(String key) {
+    return delegate.contains(key);
+  }
+
+  @Override
+  public Editor edit() {
+    return new CountingEditor(delegate.edit());
+  }
+
+  @Override
+  public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+    delegate.registerOnSharedPreferenceChangeListener(listener);
+  }
+
+  @Override
+  public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+    delegate.unregisterOnSharedPreferenceChangeListener(listener);
+  }
+
+  private class CountingEditor implements Editor {
+    private final Editor editor;
+
+    CountingEditor(Editor editor) {
+      this.editor = editor;
+    }
+
+    @Override
+    public Editor putString(String key, @Nullable String value) {
+      editor.putString(key, value);
+      return this;
+    }
+
+    @Override
+    public Editor putStringSet(String key, @Nullable Set<String> values) {
+      editor.putStringSet(key, values);
+      return this;
+    }
+
+    @Override
+    public Editor putInt(String key, int value) {
+      editor.putInt(key, value);
+      return this;
+    }
+
+    @Override
+    public Editor putLong(String key, long value) {
+      editor.putLong(key, value);
+      return this;
+    }
+
+    @Override
+    public Editor putFloat(String key, float value) {
+      editor.putFloat(key, value);
+      return this;
+    }
+
+    @Override
+    public Editor putBoolean(String key, boolean value) {
+      editor.putBoolean(key, value);
+      return this;
+    }
+
+    @Override
+    public Editor remove(String key) {
+      editor.remove(key);
+      return this;
+    }
+
+    @Override
+    public Editor clear() {
+      editor.clear();
+      return this;
+    }
+
+    @Override
+    public boolean commit() {
+      writeCount.incrementAndGet();
+      return editor.commit();
+    }
+
+    @Override
+    public void apply() {
+      writeCount.incrementAndGet();
+      editor.apply();
+    }
+  }
+}
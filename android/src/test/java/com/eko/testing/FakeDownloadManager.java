@@ -0,0 +1,200 @@
+package com.eko.testing;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.app.DownloadManager;
+import android.content.Context;
+import android.content.Intent;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+
+import org.robolectric.Shadows;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Scriptable stand-in for the system DownloadManager and its content provider.
+ * Tests move downloads through their lifecycle and read back how hard the module hit the provider.
+ */
+public class FakeDownloadManager {
+  public static final long DEFAULT_TOTAL_BYTES = 10 * 1024 * 1024;
+
+  private static final String[] COLUMNS = {
+      DownloadManager.COLUMN_ID,
+      DownloadManager.COLUMN_LOCAL_URI,
+      DownloadManager.COLUMN_STATUS,
+      DownloadManager.COLUMN_REASON,
+      DownloadManager.COLUMN_TOTAL_SIZE_BYTES,
+      DownloadManager.COLUMN_BYTES_DOWNLOADED_SO_FAR,
+  };
+
+  public static class FakeDownload {
+    public final long id;
+    public volatile int status = DownloadManager.STATUS_PENDING;
+    public volatile int reason = 0;
+    public volatile long bytesDownloaded = 0;
+    public volatile long bytesTotal = DEFAULT_TOTAL_BYTES;
+    public volatile String localUri;
+
+    FakeDownload(long id) {
+      this.id = id;
+    }
+  }
+
+  private final Context context;
+  private final File directory;
+  private final DownloadManager downloadManager;
+  private final Map<Long, FakeDownload> downloads = new ConcurrentSkipListMap<>();
+  private final AtomicLong nextId = new AtomicLong(1);
+  private final AtomicInteger enqueueCount = new AtomicInteger();
+  private final AtomicInteger queryCount = new AtomicInteger();
+  private final AtomicInteger removeCount = new AtomicInteger();
+
+  public FakeDownloadManager(Context context, File directory) {
+    this.context = context;
+    this.directory = directory;
+
+    downloadManager = mock(DownloadManager.class);
+    when(downloadManager.enqueue(any(DownloadManager.Request.class)))
+        .thenAnswer(invocation -> enqueue().id);
+    when(downloadManager.query(any(DownloadManager.Query.class)))
+        .thenAnswer(invocation -> query(invocation.getArgument(0)));
+    when(downloadManager.remove(any(long[].class)))
+        .thenAnswer(invocation -> remove((long[]) invocation.getRawArguments()[0]));
+  }
+
+  public DownloadManager asDownloadManager() {
+    return downloadManager;
+  }
+
+  /**
+   * Adds a download as if it had been enqueued by an earlier process.
+   */
+  public FakeDownload enqueue() {
+    enqueueCount.incrementAndGet();
+    FakeDownload download = new FakeDownload(nextId.getAndIncrement());
+    downloads.put(download.id, download);
+    return download;
+  }
+
+  public List<Long> ids() {
+    return new ArrayList<>(downloads.keySet());
+  }
+
+  public FakeDownload get(long id) {
+    return downloads.get(id);
+  }
+
+  /**
+   * Moves every unfinished download forward by step bytes, stopping one byte short of the total
+   * so that only {@link #complete} finishes a download.
+   */
+  public void advanceAll(long step) {
+    for (FakeDownload download : downloads.values()) {
+      if (download.status == DownloadManager.STATUS_PENDING || download.status == DownloadManager.STATUS_RUNNING) {
+        download.status = DownloadManager.STATUS_RUNNING;
+        download.bytesDownloaded = Math.min(download.bytesTotal - 1, download.bytesDownloaded + step);
+      }
+    }
+  }
+
+  public void pause(long id) {
+    FakeDownload download = downloads.get(id);
+    download.status = DownloadManager.STATUS_PAUSED;
+    download.reason = DownloadManager.PAUSED_WAITING_FOR_NETWORK;
+  }
+
+  public void fail(long id, int reason) {
+    FakeDownload download = downloads.get(id);
+    download.status = DownloadManager.STATUS_FAILED;
+    download.reason = reason;
+    broadcast(id);
+  }
+
+  public void complete(long id) throws IOException {
+    FakeDownload download = downloads.get(id);
+    File file = new File(directory, id + ".bin");
+    try (FileOutputStream stream = new FileOutputStream(file)) {
+      stream.write(new byte[1024]);
+    }
+    download.localUri = "file://" + file.getAbsolutePath();
+    download.bytesDownloaded = download.bytesTotal;
+    download.status = DownloadManager.STATUS_SUCCESSFUL;
+    broadcast(id);
+  }
+
+  public int enqueueCount() {
+    return enqueueCount.get();
+  }
+
+  public int queryCount() {
+    return queryCount.get();
+  }
+
+  public int removeCount() {
+    return removeCount.get();
+  }
+
+  public void resetCounters() {
+    enqueueCount.set(0);
+    queryCount.set(0);
+    removeCount.set(0);
+  }
+
+  private void broadcast(long id) {
+    Intent intent = new Intent(DownloadManager.ACTION_DOWNLOAD_COMPLETE);
+    intent.putExtra(DownloadManager.EXTRA_DOWNLOAD_ID, id);
+    context.sendBroadcast(intent);
+  }
+
+  private Cursor query(DownloadManager.Query query) {
+    queryCount.incrementAndGet();
+
+    long[] ids = Shadows.shadowOf(query).getIds();
+    List<FakeDownload> rows = new ArrayList<>();
+    if (ids == null) {
+      rows.addAll(downloads.values());
+    } else {
+      for (long id : ids) {
+        FakeDownload download = downloads.get(id);
+        if (download != null) {
+          rows.add(download);
+        }
+      }
+    }
+
+    MatrixCursor cursor = new MatrixCursor(COLUMNS, rows.size());
+    for (FakeDownload download : rows) {
+      cursor.addRow(new Object[]{
+          download.id,
+          download.localUri,
+          download.status,
+          download.reason,
+          download.bytesTotal,
+          download.bytesDownloaded,
+      });
+    }
+    return cursor;
+  }
+
+  private int remove(long[] ids) {
+    int removed = 0;
+    for (long id : ids) {
+      removeCount.incrementAndGet();
+      if (downloads.remove(id) != null) {
+        removed++;
+      }
+    }
+    return removed;
+  }
+}
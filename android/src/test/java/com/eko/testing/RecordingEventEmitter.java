@@ -0,0 +1,44 @@
+package com.eko.testing;
+
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+/**
+ * Counts the events the module sends to JS, per event name.
+ */
+public class RecordingEventEmitter implements DeviceEventManagerModule.RCTDeviceEventEmitter {
+  private final Map<String, AtomicInteger> eventCounts = new ConcurrentHashMap<>();
+  private final AtomicInteger progressRecordCount = new AtomicInteger();
+
+  @Override
+  public void emit(String eventName, @Nullable Object data) {
+    eventCounts.computeIfAbsent(eventName, name -> new AtomicInteger()).incrementAndGet();
+
+    if ("downloadProgress".equals(eventName) && data instanceof ReadableArray) {
+      progressRecordCount.addAndGet(((ReadableArray) data).size());
+    }
+  }
+
+  public int count(String eventName) {
+    AtomicInteger count = eventCounts.get(eventName);
+    return count != null ? count.get() : 0;
+  }
+
+  /**
+   * Number of per-task records carried by all downloadProgress events.
+   */
+  public int progressRecordCount() {
+    return progressRecordCount.get();
+  }
+
+  public void reset() {
+    eventCounts.clear();
+    progressRecordCount.set(0);
+  }
+}
@@ -0,0 +1,27 @@
+package com.eko.testing;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.JavaOnlyArray;
+import com.facebook.react.bridge.JavaOnlyMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+
+/**
+ * Replaces the JNI-backed WritableNative* collections with Java-only ones.
+ * A shadow (rather than a static mock) so it also applies on the module's worker threads.
+ */
+@Implements(Arguments.class)
+public class ShadowArguments {
+  @Implementation
+  protected static WritableMap createMap() {
+    return new JavaOnlyMap();
+  }
+
+  @Implementation
+  protected static WritableArray createArray() {
+    return new JavaOnlyArray();
+  }
+}
@@ -0,0 +1,107 @@
+package com.eko.transfer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class ConcurrencyControllerTest {
+  private static final long STEP = 250;
+  private static final long MB = 1024 * 1024;
+
+  private final List<Integer> limits = new ArrayList<>();
+  private final ConcurrencyController controller = new ConcurrencyController(limits::add);
+  private final Random random = new Random(42);
+  private long now = 1000;
+
+  /**
+   * A network where every connection gets at most perConnection bytes per second and all of them
+   * together at most bandwidth, with a few percent of noise. Runs the controller's limit of
+   * transfers for the given time and returns how many steps of the second half ran at each limit.
+   */
+  private int[] simulate(long perConnection, long bandwidth, int demand, long duration) {
+    int[] steps = new int[ConcurrencyController.DEFAULT_MAX + 1];
+    for (long elapsed = 0; elapsed < duration; elapsed += STEP) {
+      int running = Math.min(controller.getLimit(), demand);
+      double noise = 1 + (random.nextDouble() - 0.5) * 0.06;
+      long bytes = (long) (Math.min(running * perConnection, bandwidth) * noise * STEP / 1000);
+      now += STEP;
+      controller.onBytes(bytes, demand, now);
+
+      if (elapsed >= duration / 2) {
+        steps[controller.getLimit()]++;
+      }
+    }
+    return steps;
+  }
+
+  // Most of the time is spent at the limit, and the rest probing one slot more or less.
+  private static void assertConverged(int limit, int[] steps) {
+    int total = 0;
+    int near = 0;
+    for (int i = 0; i < steps.length; i++) {
+      total += steps[i];
+      if (Math.abs(i - limit) <= 1) {
+        near += steps[i];
+      }
+    }
+    assertEquals(total, near);
+    assertTrue(steps[limit] + " of " + total + " steps at " + limit, steps[limit] >= total * 0.8);
+  }
+
+  @Test
+  public void growsToTheNumberOfTransfersThatFillTheBandwidth() {
+    assertConverged(6, simulate(MB, 6 * MB, 100, 180000));
+    assertEquals(6, controller.getBytesPerSecond() / MB, 0.5);
+  }
+
+  @Test
+  public void backsOffWhenTheBandwidthDrops() {
+    assertConverged(8, simulate(MB, 8 * MB, 100, 120000));
+
+    assertConverged(3, simulate(MB, 3 * MB, 100, 180000));
+  }
+
+  @Test
+  public void staysLowOnASlowLink() {
+    // Cellular with one connection already taking all of it.
+    int[] steps = simulate(200 * 1024, 150 * 1024, 100, 180000);
+
+    assertConverged(1, steps);
+  }
+
+  @Test
+  public void halvesOnErrors() {
+    simulate(MB, 8 * MB, 100, 120000);
+    int limit = controller.getLimit();
+
+    controller.onError(now);
+    now += ConcurrencyController.WINDOW;
+    controller.onBytes(MB, 100, now);
+
+    assertEquals(limit / 2, controller.getLimit());
+  }
+
+  @Test
+  public void keepsTheLimitWhileTransfersDontFillIt() {
+    simulate(MB, 100 * MB, 2, 60000);
+
+    assertEquals(ConcurrencyController.INITIAL, controller.getLimit());
+    assertTrue(limits.isEmpty());
+  }
+
+  @Test
+  public void staysWithinItsRange() {
+    controller.setRange(2, 5);
+    int[] steps = simulate(MB, 100 * MB, 100, 60000);
+    assertEquals(5, controller.getLimit());
+    assertEquals(0, steps[6]);
+
+    controller.setRange(1, 3);
+    assertEquals(3, controller.getLimit());
+  }
+}
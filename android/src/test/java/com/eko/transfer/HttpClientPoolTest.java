@@ -0,0 +1,95 @@
+package com.eko.transfer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import com.facebook.react.bridge.JavaOnlyMap;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import okhttp3.Call;
+import okhttp3.Request;
+
+public class HttpClientPoolTest {
+  private final HttpClientPool pool = new HttpClientPool();
+  private HttpServer server;
+  private String url;
+
+  @Before
+  public void setUp() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/", exchange -> {
+      byte[] body = "ok".getBytes();
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream output = exchange.getResponseBody()) {
+        output.write(body);
+      }
+    });
+    server.start();
+    url = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+
+    JavaOnlyMap network = new JavaOnlyMap();
+    network.putInt("maxRequestsPerHost", 1);
+    pool.configure(network);
+  }
+
+  @After
+  public void tearDown() {
+    server.stop(0);
+  }
+
+  private Call newCall() {
+    return pool.newCall(new Request.Builder().url(url).build());
+  }
+
+  @Test
+  public void requestsBeyondTheHostLimitWaitForAFreePermit() throws Exception {
+    HttpClientPool.Exchange first = pool.execute(newCall());
+    CompletableFuture<Integer> second = CompletableFuture.supplyAsync(() -> {
+      try (HttpClientPool.Exchange exchange = pool.execute(newCall())) {
+        return exchange.response.code();
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    });
+
+    try {
+      second.get(300, TimeUnit.MILLISECONDS);
+      fail("The second request did not wait for the first");
+    } catch (TimeoutException e) {
+      // Expected.
+    }
+
+    first.close();
+    assertEquals(200, (int) second.get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void cancelledCallsStopWaitingForAPermit() throws Exception {
+    HttpClientPool.Exchange first = pool.execute(newCall());
+    Call waiting = newCall();
+    CompletableFuture<Boolean> second = CompletableFuture.supplyAsync(() -> {
+      try (HttpClientPool.Exchange exchange = pool.execute(waiting)) {
+        return true;
+      } catch (IOException e) {
+        return false;
+      }
+    });
+
+    waiting.cancel();
+
+    assertFalse(second.get(5, TimeUnit.SECONDS));
+    first.close();
+  }
+}
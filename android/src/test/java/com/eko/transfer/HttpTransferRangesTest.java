@@ -0,0 +1,132 @@
+package com.eko.transfer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class HttpTransferRangesTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final List<String> requestedRanges = Collections.synchronizedList(new ArrayList<>());
+  private final List<Long> expectedBytes = new ArrayList<>();
+  private final HttpTransfer.Listener listener = new HttpTransfer.Listener() {
+    @Override
+    public void onBegin(Map<String, String> headers, long bytes) {
+      expectedBytes.add(bytes);
+    }
+
+    @Override
+    public void onProgress(long bytesDownloaded, long bytesTotal) {}
+  };
+
+  private HttpServer server;
+  private String baseUrl;
+  private byte[] body;
+  private File partFile;
+
+  @Before
+  public void setUp() throws IOException {
+    body = new byte[8192];
+    for (int i = 0; i < body.length; i++) {
+      body[i] = (byte) (i * 31);
+    }
+
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/file", exchange -> {
+      String range = exchange.getRequestHeaders().getFirst("Range");
+      requestedRanges.add(range);
+      String[] bounds = range.substring("bytes=".length()).split("-");
+      int start = Integer.parseInt(bounds[0]);
+      int end = Integer.parseInt(bounds[1]);
+      exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + body.length);
+      exchange.sendResponseHeaders(206, end - start + 1);
+      try (OutputStream output = exchange.getResponseBody()) {
+        output.write(body, start, end - start + 1);
+      }
+    });
+    server.createContext("/no-ranges", exchange -> {
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream output = exchange.getResponseBody()) {
+        output.write(body);
+      }
+    });
+    server.start();
+    baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+
+    partFile = new File(temporaryFolder.getRoot(), "task.part");
+  }
+
+  @After
+  public void tearDown() {
+    server.stop(0);
+  }
+
+  @Test
+  public void writesTheRangesBackToBack() throws Exception {
+    long[][] ranges = {{7000, 1192}, {0, 100}};
+
+    HttpTransfer.Result result = new HttpTransfer(baseUrl + "/file", new HashMap<>(), partFile, ranges, listener).call();
+
+    assertEquals(1292, result.bytesDownloaded);
+    assertEquals(1292, result.bytesTotal);
+    assertEquals(Collections.singletonList(1292L), expectedBytes);
+    assertEquals(Arrays.asList("bytes=7000-8191", "bytes=0-99"), requestedRanges);
+
+    byte[] expected = new byte[1292];
+    System.arraycopy(body, 7000, expected, 0, 1192);
+    System.arraycopy(body, 0, expected, 1192, 100);
+    assertArrayEquals(expected, Files.readAllBytes(partFile.toPath()));
+  }
+
+  @Test
+  public void continuesFromTheRangeThePartialFileEndsIn() throws Exception {
+    long[][] ranges = {{100, 200}, {1000, 300}};
+    // The first range and half of the second arrived in an earlier attempt.
+    byte[] earlier = new byte[350];
+    System.arraycopy(body, 100, earlier, 0, 200);
+    System.arraycopy(body, 1000, earlier, 200, 150);
+    Files.write(partFile.toPath(), earlier);
+
+    HttpTransfer.Result result = new HttpTransfer(baseUrl + "/file", new HashMap<>(), partFile, ranges, listener).call();
+
+    assertEquals(500, result.bytesDownloaded);
+    assertEquals(Collections.singletonList("bytes=1150-1299"), requestedRanges);
+    byte[] expected = new byte[500];
+    System.arraycopy(body, 100, expected, 0, 200);
+    System.arraycopy(body, 1000, expected, 200, 300);
+    assertArrayEquals(expected, Files.readAllBytes(partFile.toPath()));
+  }
+
+  @Test
+  public void failsWhenTheServerIgnoresRanges() throws Exception {
+    long[][] ranges = {{0, 100}};
+
+    try {
+      new HttpTransfer(baseUrl + "/no-ranges", new HashMap<>(), partFile, ranges, listener).call();
+      fail("a whole body should not be taken for a range");
+    } catch (HttpTransfer.HttpStatusException e) {
+      assertEquals(200, e.statusCode);
+    }
+  }
+}
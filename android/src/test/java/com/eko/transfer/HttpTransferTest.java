@@ -0,0 +1,123 @@
+package com.eko.transfer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class HttpTransferTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final List<String> requestedRanges = Collections.synchronizedList(new ArrayList<>());
+  private final List<Long> progress = new ArrayList<>();
+  private final HttpTransfer.Listener listener = new HttpTransfer.Listener() {
+    @Override
+    public void onBegin(Map<String, String> headers, long expectedBytes) {}
+
+    @Override
+    public void onProgress(long bytesDownloaded, long bytesTotal) {
+      progress.add(bytesDownloaded);
+    }
+  };
+
+  private HttpServer server;
+  private String baseUrl;
+  private byte[] body;
+  private File partFile;
+
+  @Before
+  public void setUp() throws IOException {
+    body = new byte[8192];
+    for (int i = 0; i < body.length; i++) {
+      body[i] = (byte) (i * 31);
+    }
+
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/no-ranges", exchange -> {
+      requestedRanges.add(exchange.getRequestHeaders().getFirst("Range"));
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream output = exchange.getResponseBody()) {
+        output.write(body);
+      }
+    });
+    // Answers every resume with the start of the body, like a proxy caching a different range.
+    server.createContext("/wrong-range", exchange -> {
+      String range = exchange.getRequestHeaders().getFirst("Range");
+      requestedRanges.add(range);
+      if (range != null) {
+        exchange.getResponseHeaders().set("Content-Range", "bytes 0-99/" + body.length);
+        exchange.sendResponseHeaders(206, 100);
+        try (OutputStream output = exchange.getResponseBody()) {
+          output.write(body, 0, 100);
+        }
+        return;
+      }
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream output = exchange.getResponseBody()) {
+        output.write(body);
+      }
+    });
+    server.start();
+    baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+
+    partFile = new File(temporaryFolder.getRoot(), "task.part");
+  }
+
+  @After
+  public void tearDown() {
+    server.stop(0);
+  }
+
+  @Test
+  public void reportsTheRestartBeforeRewritingThePartialFile() throws Exception {
+    Files.write(partFile.toPath(), new byte[1000]);
+
+    HttpTransfer.Result result = new HttpTransfer(baseUrl + "/no-ranges", new HashMap<>(), partFile, listener).call();
+
+    assertEquals(Collections.singletonList("bytes=1000-"), requestedRanges);
+    assertEquals(Long.valueOf(0), progress.get(0));
+    assertEquals(Long.valueOf(body.length), progress.get(progress.size() - 1));
+    assertEquals(body.length, result.bytesDownloaded);
+    assertArrayEquals(body, Files.readAllBytes(partFile.toPath()));
+  }
+
+  @Test
+  public void aFreshTransferReportsNoRestart() throws Exception {
+    new HttpTransfer(baseUrl + "/no-ranges", new HashMap<>(), partFile, listener).call();
+
+    assertEquals(Collections.singletonList((String) null), requestedRanges);
+    assertFalse(progress.contains(0L));
+  }
+
+  @Test
+  public void startsOverWhenTheResumeHasOtherBytes() throws Exception {
+    Files.write(partFile.toPath(), new byte[1000]);
+
+    HttpTransfer.Result result = new HttpTransfer(baseUrl + "/wrong-range", new HashMap<>(), partFile, listener).call();
+
+    assertEquals(Arrays.asList("bytes=1000-", null), requestedRanges);
+    assertEquals(Long.valueOf(0), progress.get(0));
+    assertEquals(body.length, result.bytesDownloaded);
+    assertArrayEquals(body, Files.readAllBytes(partFile.toPath()));
+  }
+}
@@ -0,0 +1,187 @@
+package com.eko.transfer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.app.DownloadManager;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class InlineDownloaderTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final InlineDownloader downloader = new InlineDownloader();
+  private final CompletableFuture<String> outcome = new CompletableFuture<>();
+  private volatile boolean isRetried = false;
+  private final InlineDownloader.Listener listener = new InlineDownloader.Listener() {
+    @Override
+    public void onBegin(String configId, Map<String, String> headers, long expectedBytes) {}
+
+    @Override
+    public void onProgress(String configId, long bytesDownloaded, long bytesTotal) {}
+
+    @Override
+    public void onComplete(String configId, String location, long bytesDownloaded, long bytesTotal) {
+      outcome.complete("complete " + bytesDownloaded + "/" + bytesTotal);
+    }
+
+    @Override
+    public boolean onFailed(String configId, int errorCode, String error) {
+      outcome.complete("failed " + errorCode);
+      return isRetried;
+    }
+
+    @Override
+    public void onTooLarge(String configId) {
+      outcome.complete("tooLarge");
+    }
+  };
+
+  private HttpServer server;
+  private String baseUrl;
+  private byte[] body;
+  private File partFile;
+  private File destination;
+
+  @Before
+  public void setUp() throws IOException {
+    body = new byte[8192];
+    for (int i = 0; i < body.length; i++) {
+      body[i] = (byte) i;
+    }
+
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/file", exchange -> {
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream output = exchange.getResponseBody()) {
+        output.write(body);
+      }
+    });
+    server.createContext("/missing", exchange -> {
+      exchange.sendResponseHeaders(404, -1);
+      exchange.close();
+    });
+    server.start();
+    baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+
+    partFile = new File(temporaryFolder.getRoot(), "task.part");
+    destination = new File(temporaryFolder.getRoot(), "out/task.bin");
+  }
+
+  @After
+  public void tearDown() {
+    downloader.shutdown();
+    server.stop(0);
+  }
+
+  @Test
+  public void downloadsIntoTheDestination() throws Exception {
+    downloader.download("task", baseUrl + "/file", new HashMap<>(), partFile, destination, listener);
+
+    assertEquals("complete 8192/8192", outcome.get(5, TimeUnit.SECONDS));
+    assertArrayEquals(body, Files.readAllBytes(destination.toPath()));
+    assertFalse(partFile.exists());
+  }
+
+  @Test
+  public void handsOverResponsesLargerThanMaxBytes() throws Exception {
+    downloader.setMaxBytes(4096);
+    downloader.download("task", baseUrl + "/file", new HashMap<>(), partFile, destination, listener);
+
+    assertEquals("tooLarge", outcome.get(5, TimeUnit.SECONDS));
+    assertFalse(destination.exists());
+  }
+
+  @Test
+  public void keepsDownloadsGivenTheirOwnLimit() throws Exception {
+    downloader.setMaxBytes(4096);
+    downloader.download("task", baseUrl + "/file", new HashMap<>(), partFile, destination, Long.MAX_VALUE, listener);
+
+    assertEquals("complete 8192/8192", outcome.get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void reportsHttpErrors() throws Exception {
+    downloader.download("task", baseUrl + "/missing", new HashMap<>(), partFile, destination, listener);
+
+    assertEquals("failed 404", outcome.get(5, TimeUnit.SECONDS));
+    assertFalse(destination.exists());
+  }
+
+  @Test
+  public void cancelledDownloadsAreNotReported() throws Exception {
+    downloader.download("task", baseUrl + "/file", new HashMap<>(), partFile, destination, listener);
+
+    assertTrue(downloader.cancel("task") || outcome.isDone());
+    assertFalse(downloader.cancel("task"));
+  }
+
+  @Test
+  public void keepsThePartialFileOfADownloadThatIsTriedAgain() throws Exception {
+    isRetried = true;
+    downloader.download("task", startCutOffServer(), new HashMap<>(), partFile, destination, Long.MAX_VALUE, listener);
+
+    assertEquals("failed " + DownloadManager.ERROR_HTTP_DATA_ERROR, outcome.get(5, TimeUnit.SECONDS));
+    Thread.sleep(100);
+    assertTrue(partFile.exists());
+  }
+
+  @Test
+  public void removesThePartialFileOfADownloadThatFailed() throws Exception {
+    downloader.download("task", startCutOffServer(), new HashMap<>(), partFile, destination, Long.MAX_VALUE, listener);
+
+    assertEquals("failed " + DownloadManager.ERROR_HTTP_DATA_ERROR, outcome.get(5, TimeUnit.SECONDS));
+    long deadline = System.currentTimeMillis() + 5000;
+    while (partFile.exists() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertFalse(partFile.exists());
+  }
+
+  // HttpServer can't drop a connection mid-body, so this one answers once on a plain socket.
+  private String startCutOffServer() throws IOException {
+    ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"));
+    Thread thread = new Thread(() -> {
+      try (ServerSocket closing = serverSocket; Socket socket = serverSocket.accept()) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+        while (!reader.readLine().isEmpty()) {
+          // Skip the request.
+        }
+        OutputStream output = socket.getOutputStream();
+        output.write(("HTTP/1.1 200 OK\r\nContent-Length: " + body.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        output.write(body, 0, 1000);
+        output.flush();
+      } catch (IOException e) {
+        // The test fails on the missing outcome.
+      }
+    });
+    thread.setDaemon(true);
+    thread.start();
+    return "http://127.0.0.1:" + serverSocket.getLocalPort() + "/file";
+  }
+}
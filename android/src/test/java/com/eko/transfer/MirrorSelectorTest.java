@@ -0,0 +1,89 @@
+package com.eko.transfer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class MirrorSelectorTest {
+  private static final double MB = 1024 * 1024;
+
+  private static MirrorSelector.Mirror mirror(String url, double bytesPerSecond) {
+    return new MirrorSelector.Mirror(url, true, bytesPerSecond);
+  }
+
+  // Reports progress every 250ms at the given throughput for the given time, and returns whether a switch was asked for.
+  private static boolean download(MirrorSelector selector, long[] now, long[] bytes, double bytesPerSecond, long duration) {
+    boolean isSlow = false;
+    for (long elapsed = 0; elapsed < duration; elapsed += 250) {
+      now[0] += 250;
+      bytes[0] += (long) (bytesPerSecond / 4);
+      isSlow |= selector.onProgress(bytes[0], now[0]);
+    }
+    return isSlow;
+  }
+
+  @Test
+  public void startsFromTheFastestReachableMirror() {
+    MirrorSelector selector = new MirrorSelector(Arrays.asList(
+        new MirrorSelector.Mirror("https://down.example.com", false, 0),
+        mirror("https://slow.example.com", MB),
+        mirror("https://fast.example.com", 3 * MB)));
+
+    assertEquals("https://fast.example.com", selector.getMirror().url);
+    assertEquals("https://slow.example.com", selector.next().url);
+    assertEquals("https://down.example.com", selector.next().url);
+    assertFalse(selector.hasNext());
+    assertEquals(2, selector.getFailovers());
+  }
+
+  @Test
+  public void keepsTheOrderOfMirrorsThatProbedAlike() {
+    MirrorSelector selector = new MirrorSelector(Arrays.asList(
+        mirror("https://a.example.com", MB),
+        mirror("https://b.example.com", MB)));
+
+    assertEquals("https://a.example.com", selector.getMirror().url);
+  }
+
+  @Test
+  public void leavesAMirrorThatStaysWellBelowTheNextOne() {
+    MirrorSelector selector = new MirrorSelector(Arrays.asList(
+        mirror("https://a.example.com", 4 * MB),
+        mirror("https://b.example.com", 2 * MB)));
+    long[] now = {0};
+    long[] bytes = {0};
+
+    assertFalse(download(selector, now, bytes, 3 * MB, 30000));
+    // A short dip isn't enough.
+    assertFalse(download(selector, now, bytes, 0.5 * MB, MirrorSelector.WINDOW));
+    assertFalse(download(selector, now, bytes, 3 * MB, 10000));
+    assertTrue(download(selector, now, bytes, 0.5 * MB, MirrorSelector.WINDOW * (MirrorSelector.SLOW_WINDOWS + 1)));
+  }
+
+  @Test
+  public void staysOnTheLastMirrorHoweverSlow() {
+    MirrorSelector selector = new MirrorSelector(Arrays.asList(
+        mirror("https://a.example.com", 4 * MB),
+        mirror("https://b.example.com", 2 * MB)));
+    selector.next();
+    long[] now = {0};
+    long[] bytes = {0};
+
+    assertFalse(download(selector, now, bytes, 1024, 60000));
+  }
+
+  @Test
+  public void doesNotLeaveForAnUnreachableMirror() {
+    MirrorSelector selector = new MirrorSelector(Arrays.asList(
+        mirror("https://a.example.com", 4 * MB),
+        new MirrorSelector.Mirror("https://down.example.com", false, 0)));
+    long[] now = {0};
+    long[] bytes = {0};
+
+    assertFalse(download(selector, now, bytes, 1024, 60000));
+  }
+}
@@ -0,0 +1,153 @@
+package com.eko.transfer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+public class PartFileWriterTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File partFile;
+  private File checkpointFile;
+  private long defaultSyncInterval;
+  private long defaultCheckpointInterval;
+
+  @Before
+  public void setUp() {
+    partFile = new File(temporaryFolder.getRoot(), "task.part");
+    checkpointFile = new File(partFile.getPath() + ".checkpoint");
+    defaultSyncInterval = PartFileWriter.getDefaultSyncInterval();
+    defaultCheckpointInterval = PartFileWriter.getDefaultCheckpointInterval();
+  }
+
+  @After
+  public void tearDown() {
+    PartFileWriter.setDefaultSyncInterval(defaultSyncInterval);
+    PartFileWriter.setDefaultCheckpointInterval(defaultCheckpointInterval);
+  }
+
+  private static ByteBuffer bytes(int count, int value) {
+    byte[] bytes = new byte[count];
+    Arrays.fill(bytes, (byte) value);
+    return ByteBuffer.wrap(bytes);
+  }
+
+  private PartFileWriter open(long offset, long bytesTotal, long syncInterval) throws IOException {
+    return new PartFileWriter(partFile, new TransferCheckpoint(), offset, bytesTotal, syncInterval, 0);
+  }
+
+  @Test
+  public void keepsACheckpointUntilCompletion() throws IOException {
+    try (PartFileWriter writer = open(0, 1000, PartFileWriter.SYNC_ON_COMPLETE)) {
+      writer.write(bytes(100, 1));
+
+      assertTrue(checkpointFile.exists());
+
+      writer.write(bytes(900, 2));
+      writer.complete();
+    }
+
+    assertEquals(1000, partFile.length());
+    assertFalse(checkpointFile.exists());
+  }
+
+  @Test
+  public void closingAnUnfinishedFileLeavesOnlyTheWrittenBytes() throws IOException {
+    try (PartFileWriter writer = open(0, 1000, PartFileWriter.SYNC_ON_COMPLETE)) {
+      writer.write(bytes(300, 1));
+    }
+
+    assertEquals(300, partFile.length());
+    assertTrue(checkpointFile.exists());
+    assertEquals(300, TransferCheckpoint.reconcile(partFile).bytesConfirmed);
+  }
+
+  @Test
+  public void resumesFromTheLastCheckpointAfterTheProcessDied() throws IOException {
+    // Never closed, like a writer of a process that was killed.
+    PartFileWriter writer = open(0, 1000, 256);
+    writer.write(bytes(300, 1));
+    writer.write(bytes(100, 2));
+
+    assertEquals(300, TransferCheckpoint.reconcile(partFile).bytesConfirmed);
+    assertEquals(300, partFile.length());
+  }
+
+  @Test
+  public void continuesAfterTheGivenOffset() throws IOException {
+    try (PartFileWriter writer = open(0, 0, PartFileWriter.SYNC_ON_COMPLETE)) {
+      writer.write(bytes(10, 1));
+      writer.complete();
+    }
+    try (PartFileWriter writer = open(10, 20, PartFileWriter.SYNC_ON_COMPLETE)) {
+      writer.write(bytes(10, 2));
+      writer.complete();
+    }
+
+    byte[] expected = new byte[20];
+    Arrays.fill(expected, 0, 10, (byte) 1);
+    Arrays.fill(expected, 10, 20, (byte) 2);
+    assertArrayEquals(expected, Files.readAllBytes(partFile.toPath()));
+  }
+
+  @Test
+  public void startingOverDropsTheOldBytes() throws IOException {
+    Files.write(partFile.toPath(), new byte[500]);
+
+    try (PartFileWriter writer = open(0, 0, PartFileWriter.SYNC_ON_COMPLETE)) {
+      writer.write(bytes(10, 1));
+      writer.complete();
+    }
+
+    assertEquals(10, partFile.length());
+  }
+
+  @Test
+  public void withoutIntervalsOnlyTheOpeningAndClosingAreCheckpointed() throws IOException {
+    PartFileWriter writer = open(0, 1000, PartFileWriter.SYNC_NEVER);
+    writer.write(bytes(300, 1));
+    writer.write(bytes(300, 2));
+
+    assertEquals(0, TransferCheckpoint.read(partFile).bytesConfirmed);
+
+    writer.close();
+    assertEquals(600, TransferCheckpoint.reconcile(partFile).bytesConfirmed);
+  }
+
+  @Test
+  public void checkpointsOnceTheCheckpointIntervalPassed() throws Exception {
+    // Never closed, like a writer of a process that was killed.
+    PartFileWriter writer = new PartFileWriter(partFile, new TransferCheckpoint(), 0, 1000, PartFileWriter.SYNC_NEVER, 1);
+    Thread.sleep(5);
+    writer.write(bytes(300, 1));
+
+    assertEquals(300, TransferCheckpoint.reconcile(partFile).bytesConfirmed);
+  }
+
+  @Test
+  public void usesTheDefaultPolicyOfSetConfig() throws IOException {
+    PartFileWriter.setDefaultSyncInterval(256);
+    PartFileWriter.setDefaultCheckpointInterval(0);
+
+    PartFileWriter writer = new PartFileWriter(partFile, new TransferCheckpoint(), 0, 1000);
+    writer.write(bytes(200, 1));
+    assertEquals(0, TransferCheckpoint.read(partFile).bytesConfirmed);
+    writer.write(bytes(100, 2));
+
+    assertEquals(300, TransferCheckpoint.reconcile(partFile).bytesConfirmed);
+  }
+}
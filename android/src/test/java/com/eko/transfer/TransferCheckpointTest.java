@@ -0,0 +1,103 @@
+package com.eko.transfer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+public class TransferCheckpointTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File partFile;
+
+  @Before
+  public void setUp() {
+    partFile = new File(temporaryFolder.getRoot(), "task.part");
+  }
+
+  @Test
+  public void cutsThePartFileBackToTheConfirmedBytes() throws IOException {
+    Files.write(partFile.toPath(), new byte[1000]);
+    TransferCheckpoint checkpoint = new TransferCheckpoint();
+    checkpoint.setConfirmed(400);
+    checkpoint.setValidators("\"v1\"", null);
+    checkpoint.write(partFile, false);
+
+    TransferCheckpoint reconciled = TransferCheckpoint.reconcile(partFile);
+
+    assertEquals(400, reconciled.bytesConfirmed);
+    assertEquals(400, partFile.length());
+    assertEquals("\"v1\"", reconciled.etag);
+  }
+
+  @Test
+  public void partFilesWithoutACheckpointResumeFromTheirLength() throws IOException {
+    Files.write(partFile.toPath(), new byte[500]);
+
+    assertEquals(500, TransferCheckpoint.reconcile(partFile).bytesConfirmed);
+    assertEquals(0, TransferCheckpoint.reconcile(new File(temporaryFolder.getRoot(), "missing.part")).bytesConfirmed);
+  }
+
+  @Test
+  public void dropsTheCheckpointOfAMissingPartFile() throws IOException {
+    TransferCheckpoint checkpoint = new TransferCheckpoint();
+    checkpoint.setConfirmed(100);
+    checkpoint.write(partFile, false);
+
+    assertEquals(0, TransferCheckpoint.reconcile(partFile).bytesConfirmed);
+    assertNull(TransferCheckpoint.read(partFile));
+    assertFalse(new File(partFile.getPath() + ".checkpoint").exists());
+  }
+
+  @Test
+  public void onlyStrongEtagsAreUsedForIfRange() {
+    TransferCheckpoint checkpoint = new TransferCheckpoint();
+    checkpoint.setValidators("W/\"v1\"", "Wed, 21 Oct 2015 07:28:00 GMT");
+    assertEquals("Wed, 21 Oct 2015 07:28:00 GMT", checkpoint.getIfRange());
+
+    checkpoint.setValidators("\"v1\"", "Wed, 21 Oct 2015 07:28:00 GMT");
+    assertEquals("\"v1\"", checkpoint.getIfRange());
+  }
+
+  @Test
+  public void aNewerCheckpointReplacesTheOlderOne() throws IOException {
+    Files.write(partFile.toPath(), new byte[1000]);
+    TransferCheckpoint checkpoint = new TransferCheckpoint();
+    checkpoint.setConfirmed(200);
+    checkpoint.write(partFile, true);
+    checkpoint.setConfirmed(700);
+    checkpoint.write(partFile, true);
+
+    assertEquals(700, TransferCheckpoint.reconcile(partFile).bytesConfirmed);
+    assertFalse(new File(partFile.getPath() + ".checkpoint.tmp").exists());
+  }
+
+  @Test
+  public void aCorruptCheckpointIsIgnored() throws IOException {
+    Files.write(partFile.toPath(), new byte[500]);
+    Files.write(new File(partFile.getPath() + ".checkpoint").toPath(), "{\"bytesConfirmed\":".getBytes(StandardCharsets.UTF_8));
+
+    assertNull(TransferCheckpoint.read(partFile));
+    assertEquals(500, TransferCheckpoint.reconcile(partFile).bytesConfirmed);
+  }
+
+  @Test
+  public void checkpointsWithASegmentListStillResume() throws IOException {
+    Files.write(partFile.toPath(), new byte[1000]);
+    String json = "{\"bytesConfirmed\":600,\"bytesTotal\":0,\"segments\":[{\"start\":0,\"end\":600}]}";
+    Files.write(new File(partFile.getPath() + ".checkpoint").toPath(), json.getBytes(StandardCharsets.UTF_8));
+
+    assertEquals(600, TransferCheckpoint.reconcile(partFile).bytesConfirmed);
+    assertEquals(600, partFile.length());
+  }
+}
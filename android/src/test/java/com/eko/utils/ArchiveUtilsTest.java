@@ -0,0 +1,242 @@
+package com.eko.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class ArchiveUtilsTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File destination;
+  private final List<String> entries = new ArrayList<>();
+
+  @Before
+  public void setUp() throws Exception {
+    destination = new File(temporaryFolder.getRoot(), "bundle/content");
+  }
+
+  // A ustar header. The checksum isn't verified when extracting, so it's left empty.
+  private static void writeTarEntry(ByteArrayOutputStream tar, String name, char type, byte[] data) {
+    byte[] header = new byte[512];
+    byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+    System.arraycopy(nameBytes, 0, header, 0, Math.min(nameBytes.length, 100));
+    byte[] size = String.format("%011o", data.length).getBytes(StandardCharsets.US_ASCII);
+    System.arraycopy(size, 0, header, 124, size.length);
+    header[156] = (byte) type;
+    System.arraycopy("ustar\u000000".getBytes(StandardCharsets.US_ASCII), 0, header, 257, 8);
+    tar.write(header, 0, header.length);
+    tar.write(data, 0, data.length);
+    int padding = (512 - data.length % 512) % 512;
+    tar.write(new byte[padding], 0, padding);
+  }
+
+  private static void writeTarFile(ByteArrayOutputStream tar, String name, String content) {
+    writeTarEntry(tar, name, '0', content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static byte[] endTar(ByteArrayOutputStream tar) {
+    tar.write(new byte[1024], 0, 1024);
+    return tar.toByteArray();
+  }
+
+  private static byte[] gzip(byte[] bytes) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+      gzip.write(bytes);
+    }
+    return output.toByteArray();
+  }
+
+  private int extract(byte[] archive, String format) throws IOException {
+    return ArchiveUtils.extract(new ByteArrayInputStream(archive), format, destination, (name, entriesExtracted, bytesExtracted) -> entries.add(name));
+  }
+
+  private String read(String path) throws IOException {
+    return new String(Files.readAllBytes(new File(destination, path).toPath()), StandardCharsets.UTF_8);
+  }
+
+  private void assertRejected(byte[] archive, String format) {
+    try {
+      extract(archive, format);
+      fail("The archive was extracted");
+    } catch (IOException e) {
+      assertTrue(e.getMessage(), e.getMessage().startsWith("Archive entry is outside of the destination"));
+    }
+  }
+
+  @Test
+  public void extractsTarballsOfTheCurrentDirectory() throws Exception {
+    // What `tar czf bundle.tgz -C dir .` writes.
+    ByteArrayOutputStream tar = new ByteArrayOutputStream();
+    writeTarEntry(tar, "./", '5', new byte[0]);
+    writeTarFile(tar, "./index.html", "<html></html>");
+    writeTarEntry(tar, "./assets/", '5', new byte[0]);
+    writeTarFile(tar, "./assets/app.js", "run()");
+
+    assertEquals(2, extract(gzip(endTar(tar)), ArchiveUtils.FORMAT_AUTO));
+
+    assertEquals("<html></html>", read("index.html"));
+    assertEquals("run()", read("assets/app.js"));
+  }
+
+  @Test
+  public void rejectsTarEntriesInTheParentDirectory() throws Exception {
+    ByteArrayOutputStream tar = new ByteArrayOutputStream();
+    writeTarFile(tar, "../escaped.txt", "x");
+
+    assertRejected(endTar(tar), ArchiveUtils.FORMAT_TAR);
+    assertFalse(new File(destination.getParentFile(), "escaped.txt").exists());
+  }
+
+  @Test
+  public void rejectsZipEntriesInTheParentDirectory() throws Exception {
+    ByteArrayOutputStream zip = new ByteArrayOutputStream();
+    try (ZipOutputStream zipOutput = new ZipOutputStream(zip)) {
+      zipOutput.putNextEntry(new ZipEntry("assets/../../escaped.txt"));
+      zipOutput.write('x');
+      zipOutput.closeEntry();
+    }
+
+    assertRejected(zip.toByteArray(), ArchiveUtils.FORMAT_AUTO);
+    assertFalse(new File(destination.getParentFile(), "escaped.txt").exists());
+  }
+
+  @Test
+  public void keepsAbsolutePathsInsideTheDestination() throws Exception {
+    File outside = new File(temporaryFolder.getRoot(), "absolute.txt");
+    ByteArrayOutputStream tar = new ByteArrayOutputStream();
+    writeTarFile(tar, outside.getAbsolutePath(), "x");
+
+    assertEquals(1, extract(endTar(tar), ArchiveUtils.FORMAT_TAR));
+
+    assertFalse(outside.exists());
+    assertEquals("x", read(outside.getAbsolutePath()));
+  }
+
+  @Test
+  public void rejectsAbsolutePathsThatClimbOut() throws Exception {
+    ByteArrayOutputStream tar = new ByteArrayOutputStream();
+    writeTarFile(tar, "/../../escaped.txt", "x");
+
+    assertRejected(endTar(tar), ArchiveUtils.FORMAT_TAR);
+  }
+
+  @Test
+  public void readsGnuLongNames() throws Exception {
+    StringBuilder path = new StringBuilder();
+    for (int i = 0; i < 12; i++) {
+      path.append("directory-").append(i).append('/');
+    }
+    path.append("file.txt");
+    ByteArrayOutputStream tar = new ByteArrayOutputStream();
+    writeTarEntry(tar, "././@LongLink", 'L', (path + "\0").getBytes(StandardCharsets.UTF_8));
+    writeTarFile(tar, path.substring(0, 100), "long");
+
+    assertEquals(1, extract(endTar(tar), ArchiveUtils.FORMAT_TAR));
+
+    assertEquals("long", read(path.toString()));
+    assertEquals(path.toString(), entries.get(0));
+  }
+
+  @Test
+  public void readsPaxPaths() throws Exception {
+    String path = "pax/" + new String(new char[120]).replace('\0', 'p') + ".txt";
+    String record = " path=" + path + "\n";
+    // Each record starts with its own length in bytes, counting the digits of that length.
+    int length = record.getBytes(StandardCharsets.UTF_8).length;
+    length += String.valueOf(length + String.valueOf(length).length()).length();
+    ByteArrayOutputStream tar = new ByteArrayOutputStream();
+    writeTarEntry(tar, "PaxHeaders/file", 'x', (length + record).getBytes(StandardCharsets.UTF_8));
+    writeTarFile(tar, "truncated", "pax");
+
+    assertEquals(1, extract(endTar(tar), ArchiveUtils.FORMAT_TAR));
+
+    assertEquals("pax", read(path));
+    assertFalse(new File(destination, "truncated").exists());
+  }
+
+  @Test
+  public void rejectsLongNamesLargerThanTheCap() throws Exception {
+    ByteArrayOutputStream tar = new ByteArrayOutputStream();
+    writeTarEntry(tar, "././@LongLink", 'L', new byte[1024 * 1024 + 1]);
+    writeTarFile(tar, "file.txt", "long");
+
+    try {
+      extract(endTar(tar), ArchiveUtils.FORMAT_TAR);
+      fail("The archive was extracted");
+    } catch (IOException e) {
+      assertEquals("Invalid tar header size: 1048577", e.getMessage());
+    }
+  }
+
+  @Test
+  public void rejectsPaxHeadersWithANegativeSize() throws Exception {
+    ByteArrayOutputStream tar = new ByteArrayOutputStream();
+    writeTarEntry(tar, "PaxHeaders/file", 'x', new byte[0]);
+    byte[] archive = endTar(tar);
+    // A base-256 size with every bit set, which is -1 once read into a long.
+    for (int i = 124; i < 136; i++) {
+      archive[i] = (byte) 0xff;
+    }
+
+    try {
+      extract(archive, ArchiveUtils.FORMAT_TAR);
+      fail("The archive was extracted");
+    } catch (IOException e) {
+      assertEquals("Invalid tar entry size: -1", e.getMessage());
+    }
+  }
+
+  @Test
+  public void removesWrittenFilesWhenAnEntryIsRejected() throws Exception {
+    ByteArrayOutputStream tar = new ByteArrayOutputStream();
+    writeTarFile(tar, "first.txt", "1");
+    writeTarFile(tar, "../escaped.txt", "x");
+
+    assertRejected(endTar(tar), ArchiveUtils.FORMAT_TAR);
+
+    assertFalse(new File(destination, "first.txt").exists());
+  }
+
+  @Test
+  public void removesWrittenFilesWhenTheArchiveIsCutOff() throws Exception {
+    ByteArrayOutputStream tar = new ByteArrayOutputStream();
+    writeTarFile(tar, "first.txt", "1");
+    byte[] second = new byte[2048];
+    writeTarEntry(tar, "second.bin", '0', second);
+    byte[] archive = tar.toByteArray();
+    byte[] cutOff = new byte[archive.length - 1024];
+    System.arraycopy(archive, 0, cutOff, 0, cutOff.length);
+
+    try {
+      extract(cutOff, ArchiveUtils.FORMAT_TAR);
+      fail("The archive was extracted");
+    } catch (IOException e) {
+      assertEquals("Archive ended inside second.bin", e.getMessage());
+    }
+
+    assertFalse(new File(destination, "first.txt").exists());
+    assertFalse(new File(destination, "second.bin").exists());
+    assertEquals(Collections.singletonList("first.txt"), entries);
+  }
+}
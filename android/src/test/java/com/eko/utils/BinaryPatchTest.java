@@ -0,0 +1,144 @@
+package com.eko.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.zip.GZIPOutputStream;
+
+public class BinaryPatchTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private static void writeOffset(ByteArrayOutputStream output, long value) {
+    long magnitude = Math.abs(value);
+    for (int i = 0; i < 8; i++) {
+      int b = (int) (magnitude >>> (i * 8)) & 0xff;
+      if (i == 7 && value < 0) {
+        b |= 0x80;
+      }
+      output.write(b);
+    }
+  }
+
+  private static byte[] gzip(byte[] bytes) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+      gzip.write(bytes);
+    }
+    return output.toByteArray();
+  }
+
+  // Builds a patch from control entries of {diff length, extra length, seek}.
+  private static byte[] patch(long[][] entries, byte[] diff, byte[] extra, long newSize) throws IOException {
+    ByteArrayOutputStream control = new ByteArrayOutputStream();
+    for (long[] entry : entries) {
+      for (long value : entry) {
+        writeOffset(control, value);
+      }
+    }
+    byte[] controlBlock = gzip(control.toByteArray());
+    byte[] diffBlock = gzip(diff);
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    output.write("BSDIFF40".getBytes(StandardCharsets.US_ASCII));
+    writeOffset(output, controlBlock.length);
+    writeOffset(output, diffBlock.length);
+    writeOffset(output, newSize);
+    output.write(controlBlock);
+    output.write(diffBlock);
+    output.write(gzip(extra));
+    return output.toByteArray();
+  }
+
+  private File write(String name, byte[] bytes) throws IOException {
+    File file = temporaryFolder.newFile(name);
+    Files.write(file.toPath(), bytes);
+    return file;
+  }
+
+  @Test
+  public void appliesDiffAndExtraBytesAndHashesTheResult() throws Exception {
+    File oldFile = write("old", "hello world".getBytes(StandardCharsets.US_ASCII));
+    // "hello" with its first byte changed to 'j', then " there" from the extra block,
+    // then skipping the space to copy "world" and one byte past the end of the old file.
+    byte[] diff = new byte[]{'j' - 'h', 0, 0, 0, 0, 0, 0, 0, 0, 0, '!'};
+    byte[] patch = patch(
+        new long[][]{{5, 6, 1}, {6, 0, 0}},
+        diff,
+        " there".getBytes(StandardCharsets.US_ASCII),
+        17);
+    File patchFile = write("patch", patch);
+    File newFile = new File(temporaryFolder.getRoot(), "new");
+
+    byte[] sha256 = BinaryPatch.apply(oldFile, patchFile, newFile);
+
+    byte[] expected = "jello thereworld!".getBytes(StandardCharsets.US_ASCII);
+    assertArrayEquals(expected, Files.readAllBytes(newFile.toPath()));
+    assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(expected), sha256);
+  }
+
+  @Test
+  public void formatsHashesAsLowercaseHex() {
+    assertEquals("00ff7f", BinaryPatch.toHex(new byte[]{0, (byte) 0xff, 0x7f}));
+  }
+
+  @Test
+  public void rejectsBzip2CompressedPatches() throws Exception {
+    File oldFile = write("old", new byte[16]);
+    byte[] patch = patch(new long[][]{{16, 0, 0}}, new byte[16], new byte[0], 16);
+    // Same layout, with the control block claiming to be bzip2.
+    patch[32] = 'B';
+    patch[33] = 'Z';
+    patch[34] = 'h';
+    File newFile = new File(temporaryFolder.getRoot(), "new");
+
+    try {
+      BinaryPatch.apply(oldFile, write("patch", patch), newFile);
+      fail("bzip2 patch should be rejected");
+    } catch (IOException e) {
+      assertTrue(e.getMessage().contains("bzip2"));
+    }
+    assertFalse(newFile.exists());
+  }
+
+  @Test
+  public void removesTheNewFileWhenThePatchIsTruncated() throws Exception {
+    File oldFile = write("old", new byte[16]);
+    // The control block ends before the new file is complete.
+    byte[] patch = patch(new long[][]{{8, 0, 0}}, new byte[8], new byte[0], 16);
+    File newFile = new File(temporaryFolder.getRoot(), "new");
+
+    try {
+      BinaryPatch.apply(oldFile, write("patch", patch), newFile);
+      fail("truncated patch should be rejected");
+    } catch (IOException e) {
+      assertFalse(newFile.exists());
+    }
+  }
+
+  @Test
+  public void rejectsFilesThatAreNoPatch() throws Exception {
+    File oldFile = write("old", new byte[16]);
+    File newFile = new File(temporaryFolder.getRoot(), "new");
+
+    try {
+      BinaryPatch.apply(oldFile, write("patch", new byte[64]), newFile);
+      fail("file without a header should be rejected");
+    } catch (IOException e) {
+      assertFalse(newFile.exists());
+    }
+  }
+}
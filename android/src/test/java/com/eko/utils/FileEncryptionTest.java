@@ -0,0 +1,102 @@
+package com.eko.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+
+public class FileEncryptionTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private SecretKey key;
+  private File source;
+  private File destination;
+  private byte[] plaintext;
+
+  @Before
+  public void setUp() throws Exception {
+    KeyGenerator keyGenerator = KeyGenerator.getInstance("AES");
+    keyGenerator.init(256);
+    key = keyGenerator.generateKey();
+
+    // Larger than the copy buffer and not a multiple of the block size.
+    plaintext = new byte[600 * 1024 + 7];
+    new Random(42).nextBytes(plaintext);
+    source = temporaryFolder.newFile("download.part");
+    Files.write(source.toPath(), plaintext);
+    destination = new File(temporaryFolder.getRoot(), "download.enc");
+  }
+
+  @Test
+  public void encryptsWithGcm() throws Exception {
+    FileEncryption.mv(source, destination, FileEncryption.createCipher(key, FileEncryption.MODE_GCM));
+
+    byte[] file = Files.readAllBytes(destination.toPath());
+    assertEquals(12 + plaintext.length + 16, file.length);
+    Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+    cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(128, Arrays.copyOf(file, 12)));
+    assertArrayEquals(plaintext, cipher.doFinal(file, 12, file.length - 12));
+  }
+
+  @Test
+  public void encryptsWithCtr() throws Exception {
+    FileEncryption.mv(source, destination, FileEncryption.createCipher(key, FileEncryption.MODE_CTR));
+
+    byte[] file = Files.readAllBytes(destination.toPath());
+    assertEquals(16 + plaintext.length, file.length);
+    Cipher cipher = Cipher.getInstance("AES/CTR/NoPadding");
+    cipher.init(Cipher.DECRYPT_MODE, key, new IvParameterSpec(Arrays.copyOf(file, 16)));
+    assertArrayEquals(plaintext, cipher.doFinal(file, 16, file.length - 16));
+  }
+
+  @Test
+  public void encryptsEmptyFiles() throws Exception {
+    Files.write(source.toPath(), new byte[0]);
+
+    FileEncryption.mv(source, destination, FileEncryption.createCipher(key, FileEncryption.MODE_GCM));
+
+    assertEquals(12 + 16, destination.length());
+  }
+
+  @Test
+  public void rejectsUnknownModes() throws Exception {
+    try {
+      FileEncryption.createCipher(key, "ecb");
+      fail("ecb should be rejected");
+    } catch (IOException e) {
+      assertTrue(e.getMessage().contains("ecb"));
+    }
+  }
+
+  @Test
+  public void removesTheDestinationWhenTheSourceIsMissing() throws Exception {
+    Files.write(destination.toPath(), new byte[]{1});
+    Files.delete(source.toPath());
+
+    try {
+      FileEncryption.mv(source, destination, FileEncryption.createCipher(key, FileEncryption.MODE_CTR));
+      fail("a missing source should fail");
+    } catch (IOException e) {
+      assertFalse(destination.exists());
+    }
+  }
+}
@@ -94,7 +94,10 @@ RCT_EXPORT_METHOD(removeListeners:(double)count)
         @"downloadBegin",
         @"downloadProgress",
         @"downloadComplete",
-        @"downloadFailed"
+        @"downloadFailed",
+        @"extractProgress",
+        @"groupProgress",
+        @"downloadProgressPacked"
     ];
 }
 
@@ -240,6 +243,7 @@ RCT_EXPORT_METHOD(downloadFile:(NSString *)url
                   isAllowedOverMetered:(BOOL)isAllowedOverMetered
                   isNotificationVisible:(BOOL)isNotificationVisible
                   notificationTitle:(NSString *)notificationTitle
+                  options:(NSDictionary *)options
                   resolve:(RCTPromiseResolveBlock)resolve
                   reject:(RCTPromiseRejectBlock)reject)
 {
@@ -339,6 +343,72 @@ RCT_EXPORT_METHOD(cancelDownload:(NSString *)identifier)
     }
 }
 
+RCT_EXPORT_METHOD(readRange:(NSString *)identifier
+                  offset:(double)offset
+                  length:(double)length
+                  timeoutMs:(double)timeoutMs
+                  resolve:(RCTPromiseResolveBlock)resolve
+                  reject:(RCTPromiseRejectBlock)reject)
+{
+    // NSURLSession download tasks keep their bytes private until they finish.
+    reject(@"E_UNSUPPORTED", @"readRange is only supported on Android", nil);
+}
+
+RCT_EXPORT_METHOD(setConfig:(NSDictionary *)config)
+{
+    // Progress is always sent as maps here, and the JS side reads both formats.
+    DLog(@"[RNBackgroundDownloader] setConfig: %@", config);
+}
+
+RCT_EXPORT_METHOD(acknowledgeProgress)
+{
+    // Progress isn't held back for acknowledgements here.
+}
+
+RCT_EXPORT_METHOD(getEventMetrics:(RCTPromiseResolveBlock)resolve
+                  reject:(RCTPromiseRejectBlock)reject)
+{
+    reject(@"E_UNSUPPORTED", @"getEventMetrics is only supported on Android", nil);
+}
+
+RCT_EXPORT_METHOD(getNetworkMetrics:(RCTPromiseResolveBlock)resolve
+                  reject:(RCTPromiseRejectBlock)reject)
+{
+    reject(@"E_UNSUPPORTED", @"getNetworkMetrics is only supported on Android", nil);
+}
+
+RCT_EXPORT_METHOD(getHostQueues:(RCTPromiseResolveBlock)resolve
+                  reject:(RCTPromiseRejectBlock)reject)
+{
+    reject(@"E_UNSUPPORTED", @"getHostQueues is only supported on Android", nil);
+}
+
+RCT_EXPORT_METHOD(touchStorageFile:(NSString *)path)
+{
+    // Managed storage is Android only.
+}
+
+RCT_EXPORT_METHOD(getTaskStatuses:(NSArray *)ids
+                  resolve:(RCTPromiseResolveBlock)resolve
+                  reject:(RCTPromiseRejectBlock)reject)
+{
+    reject(@"E_UNSUPPORTED", @"getTaskStatuses is only supported on Android", nil);
+}
+
+RCT_EXPORT_BLOCKING_SYNCHRONOUS_METHOD(getTaskStatusesSync:(NSArray *)ids)
+{
+    // Only Android keeps the statuses in memory; JS doesn't call this on iOS.
+    return @[];
+}
+
+RCT_EXPORT_METHOD(setGroupConfig:(NSString *)group
+                  config:(NSDictionary *)config)
+{
+    // Both group settings are ignored here: constraints are WorkManager's and have no NSURLSession counterpart,
+    // and memberProgress only applies to group progress, which iOS doesn't report. JS doesn't call this on iOS.
+    DLog(@"[RNBackgroundDownloader] setGroupConfig is Android only: %@", group);
+}
+
 RCT_EXPORT_METHOD(completeHandler:(NSString *)jobId
                   resolve:(RCTPromiseResolveBlock)resolve
                   reject:(RCTPromiseRejectBlock)reject)
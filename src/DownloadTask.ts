@@ -19,16 +19,21 @@ export default class DownloadTask {
 
   bytesDownloaded = 0;
   bytesTotal = 0;
+  bytesAvailable = 0;
+  partialPath?: string;
 
   beginHandler?: (params: any) => void;
   progressHandler?: (params: any) => void;
   doneHandler?: (params: any) => void;
   errorHandler?: (params: any) => void;
+  extractProgressHandler?: (params: any) => void;
+  mirrorHandler?: (params: any) => void;
 
   constructor(taskInfo: TaskInfo, originalTask?: DownloadTask) {
     this.id = taskInfo.id;
     this.bytesDownloaded = taskInfo.bytesDownloaded ?? 0;
     this.bytesTotal = taskInfo.bytesTotal ?? 0;
+    this.partialPath = taskInfo.partialPath;
 
     const metadata = this.tryParseJson(taskInfo.metadata);
     if (metadata) {
@@ -40,6 +45,8 @@ export default class DownloadTask {
       this.progressHandler = originalTask.progressHandler;
       this.doneHandler = originalTask.doneHandler;
       this.errorHandler = originalTask.errorHandler;
+      this.extractProgressHandler = originalTask.extractProgressHandler;
+      this.mirrorHandler = originalTask.mirrorHandler;
     }
   }
 
@@ -67,8 +74,23 @@ export default class DownloadTask {
     return this;
   }
 
+  extractProgress(handler: (params: any) => void) {
+    validateHandler(handler);
+    this.extractProgressHandler = handler;
+    return this;
+  }
+
+  mirror(handler: (params: any) => void) {
+    validateHandler(handler);
+    this.mirrorHandler = handler;
+    return this;
+  }
+
   onBegin(params: any) {
     this.state = "DOWNLOADING";
+    if (params.partialPath) {
+      this.partialPath = params.partialPath;
+    }
     if (this.beginHandler) {
       this.beginHandler(params);
     }
@@ -77,14 +99,33 @@ export default class DownloadTask {
   onProgress({
     bytesDownloaded,
     bytesTotal,
+    bytesAvailable,
   }: {
     bytesDownloaded: number;
     bytesTotal: number;
+    bytesAvailable?: number;
   }) {
     this.bytesDownloaded = bytesDownloaded;
     this.bytesTotal = bytesTotal;
+    this.bytesAvailable = bytesAvailable ?? bytesDownloaded;
     if (this.progressHandler) {
-      this.progressHandler({ bytesDownloaded, bytesTotal });
+      this.progressHandler({
+        bytesDownloaded,
+        bytesTotal,
+        bytesAvailable: this.bytesAvailable,
+      });
+    }
+  }
+
+  onExtractProgress(params: any) {
+    if (this.extractProgressHandler) {
+      this.extractProgressHandler(params);
+    }
+  }
+
+  onMirror(params: any) {
+    if (this.mirrorHandler) {
+      this.mirrorHandler(params);
     }
   }
 
@@ -122,6 +163,19 @@ export default class DownloadTask {
     NativeRNBackgroundDownloader.resumeDownload(this.id);
   }
 
+  /**
+   * Reads a byte range of the file while it is still downloading, waiting up to
+   * timeoutMs for the range to arrive. Resolves with the bytes as base64.
+   */
+  readRange(offset: number, length: number, timeoutMs = 30000): Promise<string> {
+    return NativeRNBackgroundDownloader.readRange(
+      this.id,
+      offset,
+      length,
+      timeoutMs
+    );
+  }
+
   stop() {
     this.state = "STOPPED";
     NativeRNBackgroundDownloader.cancelDownload(this.id);
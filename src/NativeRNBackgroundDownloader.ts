@@ -14,17 +14,85 @@ export interface Spec extends TurboModule {
     isAllowedOverRoaming?: boolean,
     isAllowedOverMetered?: boolean,
     isNotificationVisible?: boolean,
-    notificationTitle?: string
+    notificationTitle?: string,
+    options?: Object
   ): Promise<void>;
 
   cancelDownload(id: string): void;
   pauseDownload(id: string): void;
   resumeDownload(id: string): void;
 
+  readRange(
+    id: string,
+    offset: number,
+    length: number,
+    timeoutMs: number
+  ): Promise<string>;
+
+  setConfig(config: Object): void;
+
+  acknowledgeProgress(): void;
+
+  getEventMetrics(): Promise<{
+    progressBatchesEmitted: number;
+    progressRecordsEmitted: number;
+    progressRecordsMerged: number;
+    progressRecordsDropped: number;
+    progressRecordsPending: number;
+    isAwaitingAck: boolean;
+  }>;
+
+  getNetworkMetrics(): Promise<{
+    requests: number;
+    http2Requests: number;
+    connectionsOpened: number;
+    connectionsReused: number;
+    poolHitRate: number;
+    averageConnectMs: number;
+    dnsCacheHits: number;
+    dnsCacheMisses: number;
+    connectionCount: number;
+    idleConnectionCount: number;
+    inlineConcurrency: number;
+    inlineBytesPerSecond: number;
+    mirrorProbes: number;
+    mirrorFailovers: number;
+  }>;
+
+  getHostQueues(): Promise<
+    Array<{
+      host: string;
+      running: number;
+      queued: number;
+      limit: number;
+    }>
+  >;
+
+  touchStorageFile(path: string): void;
+
+  getTaskStatuses(ids: Array<string>): Promise<
+    Array<{
+      id: string;
+      state: number;
+      bytesDownloaded: number;
+      bytesTotal: number;
+    } | null>
+  >;
+
+  getTaskStatusesSync(ids: Array<string>): Array<{
+    id: string;
+    state: number;
+    bytesDownloaded: number;
+    bytesTotal: number;
+  } | null>;
+
+  setGroupConfig(group: string, config: Object): void;
+
   checkForExistingDownloads(): Promise<
     Array<{
       id: string;
       metadata: string;
+      partialPath?: string;
       state: number;
       bytesDownloaded: number;
       bytesTotal: number;
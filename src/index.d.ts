@@ -13,14 +13,52 @@ export interface Config {
   headers: DownloadHeaders;
   progressInterval: number;
   progressMinBytes: number;
+  progressFormat: ProgressFormat;
+  inlineMaxBytes: number;
+  inlineConcurrency: InlineConcurrencyConfig;
+  hostLimits: HostLimitsConfig;
+  network: NetworkConfig;
+  fsync: FsyncPolicy;
+  checkpointInterval: number;
+  notificationInterval: number;
+  storage: StorageConfig;
   isLogsEnabled: boolean;
 }
 
+export type FsyncPolicy = "never" | "complete" | number;
+
+export interface InlineConcurrencyConfig {
+  min?: number;
+  max?: number;
+}
+
+export interface HostLimitsConfig {
+  maxConcurrent?: number;
+  maxPerHost?: number;
+  hosts?: { [host: string]: number };
+}
+
+export interface NetworkConfig {
+  maxRequestsPerHost?: number;
+  maxIdleConnections?: number;
+  keepAliveDuration?: number;
+  dnsCacheTtl?: number;
+  http2?: boolean;
+}
+
+export interface StorageConfig {
+  directory: string;
+  quota: number;
+}
+
+export type ProgressFormat = "map" | "packed";
+
 type SetConfig = (config: Partial<Config>) => void;
 
 export interface BeginHandlerObject {
   expectedBytes: number;
   headers: { [key: string]: string };
+  partialPath?: string;
 }
 export type BeginHandler = ({
   expectedBytes,
@@ -30,21 +68,49 @@ export type BeginHandler = ({
 export interface ProgressHandlerObject {
   bytesDownloaded: number;
   bytesTotal: number;
+  bytesAvailable: number;
 }
 export type ProgressHandler = ({
   bytesDownloaded,
   bytesTotal,
+  bytesAvailable,
 }: ProgressHandlerObject) => void;
 
+export interface ByteRange {
+  offset: number;
+  length: number;
+}
+export interface ByteRangeLocation extends ByteRange {
+  position: number;
+}
+
 export interface DoneHandlerObject {
   bytesDownloaded: number;
   bytesTotal: number;
+  ranges?: ByteRangeLocation[];
 }
 export type DoneHandler = ({
   bytesDownloaded,
   bytesTotal,
 }: DoneHandlerObject) => void;
 
+export interface ExtractProgressHandlerObject {
+  entry: string;
+  entriesExtracted: number;
+  bytesExtracted: number;
+}
+export type ExtractProgressHandler = ({
+  entry,
+  entriesExtracted,
+  bytesExtracted,
+}: ExtractProgressHandlerObject) => void;
+
+export interface MirrorHandlerObject {
+  url: string;
+  failovers: number;
+}
+export type MirrorHandler = ({ url, failovers }: MirrorHandlerObject) => void;
+
 export interface ErrorHandlerObject {
   error: string;
   errorCode: number;
@@ -57,6 +123,7 @@ export interface TaskInfoObject {
 
   bytesDownloaded?: number;
   bytesTotal?: number;
+  partialPath?: string;
 
   beginHandler?: BeginHandler;
   progressHandler?: ProgressHandler;
@@ -82,11 +149,15 @@ export interface DownloadTask {
   metadata: Record<string, any>;
   bytesDownloaded: number;
   bytesTotal: number;
+  bytesAvailable: number;
+  partialPath?: string;
 
   begin: (handler: BeginHandler) => DownloadTask;
   progress: (handler: ProgressHandler) => DownloadTask;
   done: (handler: DoneHandler) => DownloadTask;
   error: (handler: ErrorHandler) => DownloadTask;
+  extractProgress: (handler: ExtractProgressHandler) => DownloadTask;
+  mirror: (handler: MirrorHandler) => DownloadTask;
 
   _beginHandler: BeginHandler;
   _progressHandler: ProgressHandler;
@@ -96,11 +167,71 @@ export interface DownloadTask {
   pause: () => void;
   resume: () => void;
   stop: () => void;
+  readRange: (offset: number, length: number, timeoutMs?: number) => Promise<string>;
 }
 
 export type CheckForExistingDownloads = () => Promise<DownloadTask[]>;
 export type EnsureDownloadsAreRunning = () => Promise<void>;
 
+export type ArchiveFormat = "zip" | "tar" | "tar.gz";
+
+export type DownloadEngine = "downloadManager" | "workManager" | "inline";
+
+export interface DownloadConstraints {
+  requiresCharging?: boolean;
+  requiresDeviceIdle?: boolean;
+  requiresBatteryNotLow?: boolean;
+  requiresStorageNotLow?: boolean;
+  networkType?: "connected" | "unmetered" | "notRoaming" | "metered";
+}
+
+export type RetryErrorClass = "network" | "server" | "throttled";
+
+export interface RetryOptions {
+  maxAttempts?: number;
+  initialDelay?: number;
+  maxDelay?: number;
+  multiplier?: number;
+  jitter?: number;
+  retryOn?: RetryErrorClass[];
+}
+
+export interface PatchOptions {
+  url: string;
+  sha256: string;
+}
+
+export interface EncryptOptions {
+  keyAlias: string;
+  mode?: "gcm" | "ctr";
+}
+
+export interface GroupConfig {
+  constraints?: DownloadConstraints;
+  memberProgress?: boolean;
+}
+
+export interface GroupProgressHandlerObject {
+  group: string;
+  bytesDownloaded: number;
+  bytesTotal: number;
+  tasksTotal: number;
+  tasksCompleted: number;
+  tasksFailed: number;
+  bytesPerSecond: number;
+  eta: number;
+}
+export type GroupProgressHandler = (params: GroupProgressHandlerObject) => void;
+
+export interface StorageEvictionHandlerObject {
+  path: string;
+  size: number;
+  lastAccessedAt: number;
+}
+export type StorageEvictionHandler = (
+  params: StorageEvictionHandlerObject
+) => void;
+
 export interface DownloadOptions {
   id: string;
   url: string;
@@ -112,10 +243,73 @@ export interface DownloadOptions {
   isNotificationVisible?: boolean;
   notificationTitle?: string;
   maxRedirects?: number;
+  engine?: DownloadEngine;
+  group?: string;
+  constraints?: DownloadConstraints;
+  extract?: boolean | ArchiveFormat;
+  retry?: RetryOptions;
+  coalesce?: boolean;
+  patchFrom?: PatchOptions;
+  encrypt?: EncryptOptions;
+  ranges?: ByteRange[];
+  mirrors?: string[];
 }
 
 export type Download = (options: DownloadOptions) => DownloadTask;
 export type CompleteHandler = (id: string) => Promise<void> | void;
+export type SetGroupConfig = (group: string, config: GroupConfig) => void;
+export interface EventMetrics {
+  progressBatchesEmitted: number;
+  progressRecordsEmitted: number;
+  progressRecordsMerged: number;
+  progressRecordsDropped: number;
+  progressRecordsPending: number;
+  isAwaitingAck: boolean;
+}
+export type GetEventMetrics = () => Promise<EventMetrics | null>;
+export interface NetworkMetrics {
+  requests: number;
+  http2Requests: number;
+  connectionsOpened: number;
+  connectionsReused: number;
+  poolHitRate: number;
+  averageConnectMs: number;
+  dnsCacheHits: number;
+  dnsCacheMisses: number;
+  connectionCount: number;
+  idleConnectionCount: number;
+  inlineConcurrency: number;
+  inlineBytesPerSecond: number;
+  mirrorProbes: number;
+  mirrorFailovers: number;
+}
+export type GetNetworkMetrics = () => Promise<NetworkMetrics | null>;
+export interface HostQueue {
+  host: string;
+  running: number;
+  queued: number;
+  limit: number;
+}
+export type GetHostQueues = () => Promise<HostQueue[] | null>;
+export interface TaskStatus {
+  id: string;
+  state: DownloadTaskState;
+  bytesDownloaded: number;
+  bytesTotal: number;
+}
+export type GetTaskStatuses = (
+  ids: string[]
+) => Promise<Array<TaskStatus | null> | null>;
+export type GetTaskStatusesSync = (
+  ids: string[]
+) => Array<TaskStatus | null> | null;
+
+export type OnGroupProgress = (
+  group: string,
+  handler: GroupProgressHandler
+) => () => void;
+export type OnStorageEviction = (handler: StorageEvictionHandler) => () => void;
+export type TouchStorageFile = (path: string) => void;
 
 export interface Directories {
   documents: string;
@@ -127,6 +321,15 @@ export interface StorageInfo {
 }
 
 export const setConfig: SetConfig;
+export const setGroupConfig: SetGroupConfig;
+export const onGroupProgress: OnGroupProgress;
+export const onStorageEviction: OnStorageEviction;
+export const touchStorageFile: TouchStorageFile;
+export const getEventMetrics: GetEventMetrics;
+export const getNetworkMetrics: GetNetworkMetrics;
+export const getHostQueues: GetHostQueues;
+export const getTaskStatuses: GetTaskStatuses;
+export const getTaskStatusesSync: GetTaskStatusesSync;
 export const checkForExistingDownloads: CheckForExistingDownloads;
 export const ensureDownloadsAreRunning: EnsureDownloadsAreRunning;
 export const download: Download;
@@ -136,6 +339,15 @@ export const storageInfo: StorageInfo;
 
 export interface RNBackgroundDownloader {
   setConfig: SetConfig;
+  setGroupConfig: SetGroupConfig;
+  onGroupProgress: OnGroupProgress;
+  onStorageEviction: OnStorageEviction;
+  touchStorageFile: TouchStorageFile;
+  getEventMetrics: GetEventMetrics;
+  getNetworkMetrics: GetNetworkMetrics;
+  getHostQueues: GetHostQueues;
+  getTaskStatuses: GetTaskStatuses;
+  getTaskStatusesSync: GetTaskStatusesSync;
   checkForExistingDownloads: CheckForExistingDownloads;
   ensureDownloadsAreRunning: EnsureDownloadsAreRunning;
   download: Download;
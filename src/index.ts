@@ -1,10 +1,34 @@
 import { NativeEventEmitter, Platform } from "react-native";
 import DownloadTask from "./DownloadTask";
 import NativeRNBackgroundDownloader from "./NativeRNBackgroundDownloader";
-import { DownloadOptions } from "./index.d";
+import {
+  DownloadOptions,
+  EventMetrics,
+  FsyncPolicy,
+  GroupConfig,
+  GroupProgressHandlerObject,
+  HostLimitsConfig,
+  HostQueue,
+  InlineConcurrencyConfig,
+  NetworkConfig,
+  NetworkMetrics,
+  ProgressFormat,
+  StorageConfig,
+  StorageEvictionHandlerObject,
+  TaskStatus,
+} from "./index.d";
 
 const MIN_PROGRESS_INTERVAL = 250;
 const tasksMap = new Map<string, DownloadTask>();
+// Packed progress refers to tasks by small indexes, announced once per task by native.
+const progressIndexToId = new Map<number, string>();
+const groupProgressHandlers = new Map<
+  string,
+  Set<(params: GroupProgressHandlerObject) => void>
+>();
+const storageEvictionHandlers = new Set<
+  (params: StorageEvictionHandlerObject) => void
+>();
 
 const config = {
   headers: {} as Record<string, string>,
@@ -24,6 +48,13 @@ const eventEmitter = new NativeEventEmitter(
   NativeRNBackgroundDownloader as any
 );
 
+// Lets native send the next progress batch. Until then it keeps only the latest progress per task.
+function acknowledgeProgress() {
+  if (NativeRNBackgroundDownloader.acknowledgeProgress) {
+    NativeRNBackgroundDownloader.acknowledgeProgress();
+  }
+}
+
 // Register event listeners
 eventEmitter.addListener("downloadBegin", ({ id, ...rest }) => {
   log("downloadBegin event received", id);
@@ -44,6 +75,65 @@ eventEmitter.addListener("downloadProgress", (events) => {
       task.onProgress(rest);
     }
   }
+  acknowledgeProgress();
+});
+
+eventEmitter.addListener("downloadProgressPacked", (packed) => {
+  log("downloadProgressPacked event received");
+  const { announcedIndex, announcedId } = packed;
+  if (announcedIndex) {
+    for (let i = 0; i < announcedIndex.length; i++) {
+      progressIndexToId.set(announcedIndex[i], announcedId[i]);
+    }
+  }
+
+  const { index, bytesDownloaded, bytesTotal } = packed;
+  for (let i = 0; i < index.length; i++) {
+    const id = progressIndexToId.get(index[i]);
+    const task = id != null ? tasksMap.get(id) : undefined;
+    if (task) {
+      task.onProgress({
+        bytesDownloaded: bytesDownloaded[i],
+        bytesTotal: bytesTotal[i],
+      });
+    }
+  }
+  acknowledgeProgress();
+});
+
+eventEmitter.addListener("extractProgress", ({ id, ...rest }) => {
+  log("extractProgress event received", id);
+  const task = tasksMap.get(id);
+  if (task) {
+    task.onExtractProgress(rest);
+  }
+});
+
+eventEmitter.addListener("downloadMirror", ({ id, ...rest }) => {
+  log("downloadMirror event received", id);
+  const task = tasksMap.get(id);
+  if (task) {
+    task.onMirror(rest);
+  }
+});
+
+eventEmitter.addListener("groupProgress", (events) => {
+  log("groupProgress event received");
+  const eventArray = Array.isArray(events) ? events : [events];
+
+  for (const event of eventArray) {
+    const handlers = groupProgressHandlers.get(event.group);
+    handlers?.forEach((handler) => handler(event));
+  }
+});
+
+eventEmitter.addListener("storageEviction", (events) => {
+  log("storageEviction event received");
+  const eventArray = Array.isArray(events) ? events : [events];
+
+  for (const event of eventArray) {
+    storageEvictionHandlers.forEach((handler) => handler(event));
+  }
 });
 
 eventEmitter.addListener("downloadComplete", ({ id, ...rest }) => {
@@ -68,6 +158,11 @@ eventEmitter.addListener("downloadFailed", ({ id, ...rest }) => {
 if (NativeRNBackgroundDownloader.addListener) {
   NativeRNBackgroundDownloader.addListener("downloadBegin");
   NativeRNBackgroundDownloader.addListener("downloadProgress");
+  NativeRNBackgroundDownloader.addListener("downloadProgressPacked");
+  NativeRNBackgroundDownloader.addListener("extractProgress");
+  NativeRNBackgroundDownloader.addListener("downloadMirror");
+  NativeRNBackgroundDownloader.addListener("groupProgress");
+  NativeRNBackgroundDownloader.addListener("storageEviction");
   NativeRNBackgroundDownloader.addListener("downloadComplete");
   NativeRNBackgroundDownloader.addListener("downloadFailed");
 }
@@ -76,11 +171,29 @@ export function setConfig({
   headers,
   progressInterval,
   progressMinBytes,
+  progressFormat,
+  inlineMaxBytes,
+  inlineConcurrency,
+  hostLimits,
+  network,
+  fsync,
+  checkpointInterval,
+  notificationInterval,
+  storage,
   isLogsEnabled,
 }: {
   headers?: Record<string, string>;
   progressInterval?: number;
   progressMinBytes?: number;
+  progressFormat?: ProgressFormat;
+  inlineMaxBytes?: number;
+  inlineConcurrency?: InlineConcurrencyConfig;
+  hostLimits?: HostLimitsConfig;
+  network?: NetworkConfig;
+  fsync?: FsyncPolicy;
+  checkpointInterval?: number;
+  notificationInterval?: number;
+  storage?: StorageConfig;
   isLogsEnabled?: boolean;
 }) {
   if (typeof headers === "object") {
@@ -110,11 +223,328 @@ export function setConfig({
     }
   }
 
+  if (progressFormat != null) {
+    if (progressFormat === "map" || progressFormat === "packed") {
+      try {
+        NativeRNBackgroundDownloader.setConfig({ progressFormat });
+      } catch (error) {
+        console.error("[RNBackgroundDownloader] Error in setConfig:", error);
+      }
+    } else {
+      console.warn(
+        `[RNBackgroundDownloader] progressFormat must be "map" or "packed"`
+      );
+    }
+  }
+
+  if (inlineMaxBytes != null) {
+    if (typeof inlineMaxBytes === "number" && inlineMaxBytes > 0) {
+      try {
+        NativeRNBackgroundDownloader.setConfig({ inlineMaxBytes });
+      } catch (error) {
+        console.error("[RNBackgroundDownloader] Error in setConfig:", error);
+      }
+    } else {
+      console.warn(
+        `[RNBackgroundDownloader] inlineMaxBytes must be a number > 0`
+      );
+    }
+  }
+
+  if (inlineConcurrency != null) {
+    const { min = 1, max = 16 } = inlineConcurrency;
+    if (
+      typeof inlineConcurrency === "object" &&
+      Number.isInteger(min) &&
+      Number.isInteger(max) &&
+      min >= 1 &&
+      max >= min
+    ) {
+      try {
+        NativeRNBackgroundDownloader.setConfig({
+          inlineConcurrency: { min, max },
+        });
+      } catch (error) {
+        console.error("[RNBackgroundDownloader] Error in setConfig:", error);
+      }
+    } else {
+      console.warn(
+        `[RNBackgroundDownloader] inlineConcurrency must be an object with integers 1 <= min <= max`
+      );
+    }
+  }
+
+  if (hostLimits != null) {
+    const isLimit = (limit: unknown) =>
+      limit == null || (Number.isInteger(limit) && (limit as number) >= 0);
+    if (
+      typeof hostLimits === "object" &&
+      isLimit(hostLimits.maxConcurrent) &&
+      isLimit(hostLimits.maxPerHost) &&
+      (hostLimits.hosts == null ||
+        (typeof hostLimits.hosts === "object" &&
+          Object.values(hostLimits.hosts).every(isLimit)))
+    ) {
+      try {
+        NativeRNBackgroundDownloader.setConfig({ hostLimits });
+      } catch (error) {
+        console.error("[RNBackgroundDownloader] Error in setConfig:", error);
+      }
+    } else {
+      console.warn(
+        `[RNBackgroundDownloader] hostLimits must be an object of integers >= 0`
+      );
+    }
+  }
+
+  if (network != null) {
+    if (typeof network === "object") {
+      try {
+        NativeRNBackgroundDownloader.setConfig({ network });
+      } catch (error) {
+        console.error("[RNBackgroundDownloader] Error in setConfig:", error);
+      }
+    } else {
+      console.warn(`[RNBackgroundDownloader] network must be an object`);
+    }
+  }
+
+  if (fsync != null) {
+    if (
+      fsync === "never" ||
+      fsync === "complete" ||
+      (typeof fsync === "number" && fsync > 0)
+    ) {
+      try {
+        NativeRNBackgroundDownloader.setConfig({ fsync });
+      } catch (error) {
+        console.error("[RNBackgroundDownloader] Error in setConfig:", error);
+      }
+    } else {
+      console.warn(
+        `[RNBackgroundDownloader] fsync must be "never", "complete" or a number > 0`
+      );
+    }
+  }
+
+  if (checkpointInterval != null) {
+    if (typeof checkpointInterval === "number" && checkpointInterval >= 0) {
+      try {
+        NativeRNBackgroundDownloader.setConfig({ checkpointInterval });
+      } catch (error) {
+        console.error("[RNBackgroundDownloader] Error in setConfig:", error);
+      }
+    } else {
+      console.warn(
+        `[RNBackgroundDownloader] checkpointInterval must be a number >= 0`
+      );
+    }
+  }
+
+  if (notificationInterval != null) {
+    if (typeof notificationInterval === "number" && notificationInterval >= 0) {
+      try {
+        NativeRNBackgroundDownloader.setConfig({ notificationInterval });
+      } catch (error) {
+        console.error("[RNBackgroundDownloader] Error in setConfig:", error);
+      }
+    } else {
+      console.warn(
+        `[RNBackgroundDownloader] notificationInterval must be a number >= 0`
+      );
+    }
+  }
+
+  if (storage != null) {
+    if (
+      typeof storage === "object" &&
+      typeof storage.directory === "string" &&
+      storage.directory.length > 0 &&
+      typeof storage.quota === "number" &&
+      storage.quota >= 0
+    ) {
+      try {
+        NativeRNBackgroundDownloader.setConfig({ storage });
+      } catch (error) {
+        console.error("[RNBackgroundDownloader] Error in setConfig:", error);
+      }
+    } else {
+      console.warn(
+        `[RNBackgroundDownloader] storage must be an object with a directory and a quota >= 0`
+      );
+    }
+  }
+
   if (typeof isLogsEnabled === "boolean") {
     config.isLogsEnabled = isLogsEnabled;
   }
 }
 
+export function setGroupConfig(group: string, groupConfig: GroupConfig) {
+  log("setGroupConfig", group);
+
+  if (Platform.OS !== "android") {
+    return;
+  }
+
+  try {
+    NativeRNBackgroundDownloader.setGroupConfig(group, groupConfig as Object);
+  } catch (error) {
+    console.error("[RNBackgroundDownloader] Error in setGroupConfig:", error);
+  }
+}
+
+export function onGroupProgress(
+  group: string,
+  handler: (params: GroupProgressHandlerObject) => void
+) {
+  if (typeof handler !== "function") {
+    throw new TypeError(
+      `[RNBackgroundDownloader] expected argument to be a function, got: ${typeof handler}`
+    );
+  }
+
+  let handlers = groupProgressHandlers.get(group);
+  if (!handlers) {
+    handlers = new Set();
+    groupProgressHandlers.set(group, handlers);
+  }
+  handlers.add(handler);
+
+  return () => {
+    handlers?.delete(handler);
+    if (handlers?.size === 0) {
+      groupProgressHandlers.delete(group);
+    }
+  };
+}
+
+export function onStorageEviction(
+  handler: (params: StorageEvictionHandlerObject) => void
+) {
+  if (typeof handler !== "function") {
+    throw new TypeError(
+      `[RNBackgroundDownloader] expected argument to be a function, got: ${typeof handler}`
+    );
+  }
+
+  storageEvictionHandlers.add(handler);
+  return () => {
+    storageEvictionHandlers.delete(handler);
+  };
+}
+
+export function touchStorageFile(path: string) {
+  if (Platform.OS !== "android") {
+    return;
+  }
+
+  try {
+    NativeRNBackgroundDownloader.touchStorageFile(path);
+  } catch (error) {
+    console.error("[RNBackgroundDownloader] Error in touchStorageFile:", error);
+  }
+}
+
+export async function getEventMetrics(): Promise<EventMetrics | null> {
+  if (Platform.OS !== "android") {
+    return null;
+  }
+
+  try {
+    return await NativeRNBackgroundDownloader.getEventMetrics();
+  } catch (error) {
+    console.error("[RNBackgroundDownloader] Error in getEventMetrics:", error);
+    return null;
+  }
+}
+
+export async function getNetworkMetrics(): Promise<NetworkMetrics | null> {
+  if (Platform.OS !== "android") {
+    return null;
+  }
+
+  try {
+    return await NativeRNBackgroundDownloader.getNetworkMetrics();
+  } catch (error) {
+    console.error("[RNBackgroundDownloader] Error in getNetworkMetrics:", error);
+    return null;
+  }
+}
+
+export async function getHostQueues(): Promise<HostQueue[] | null> {
+  if (Platform.OS !== "android") {
+    return null;
+  }
+
+  try {
+    return await NativeRNBackgroundDownloader.getHostQueues();
+  } catch (error) {
+    console.error("[RNBackgroundDownloader] Error in getHostQueues:", error);
+    return null;
+  }
+}
+
+function toTaskStatus(
+  status: {
+    id: string;
+    state: number;
+    bytesDownloaded: number;
+    bytesTotal: number;
+  } | null
+): TaskStatus | null {
+  if (!status) {
+    return null;
+  }
+
+  // Same native states as in checkForExistingDownloads
+  let state: TaskStatus["state"] = "DOWNLOADING";
+  if (status.state === 1) {
+    state = "PAUSED";
+  } else if (status.state === 2) {
+    state = "FAILED";
+  } else if (status.state === 3) {
+    state = "DONE";
+  }
+  return { ...status, state };
+}
+
+export async function getTaskStatuses(
+  ids: string[]
+): Promise<Array<TaskStatus | null> | null> {
+  if (Platform.OS !== "android") {
+    return null;
+  }
+
+  try {
+    const statuses = await NativeRNBackgroundDownloader.getTaskStatuses(ids);
+    return statuses.map(toTaskStatus);
+  } catch (error) {
+    console.error("[RNBackgroundDownloader] Error in getTaskStatuses:", error);
+    return null;
+  }
+}
+
+export function getTaskStatusesSync(
+  ids: string[]
+): Array<TaskStatus | null> | null {
+  if (Platform.OS !== "android") {
+    return null;
+  }
+
+  try {
+    return NativeRNBackgroundDownloader.getTaskStatusesSync(ids).map(
+      toTaskStatus
+    );
+  } catch (error) {
+    console.error(
+      "[RNBackgroundDownloader] Error in getTaskStatusesSync:",
+      error
+    );
+    return null;
+  }
+}
+
 export async function checkForExistingDownloads(): Promise<DownloadTask[]> {
   log("checkForExistingDownloads");
 
@@ -207,6 +637,38 @@ export function download(options: DownloadOptions): DownloadTask {
   const isAllowedOverMetered = options.isAllowedOverMetered ?? true;
   const isNotificationVisible = options.isNotificationVisible ?? false;
 
+  const nativeOptions: Record<string, any> = {};
+  if (options.engine) {
+    nativeOptions.engine = options.engine;
+  }
+  if (options.group) {
+    nativeOptions.group = options.group;
+  }
+  if (options.constraints) {
+    nativeOptions.constraints = options.constraints;
+  }
+  if (options.extract) {
+    nativeOptions.extract = options.extract === true ? "auto" : options.extract;
+  }
+  if (options.retry) {
+    nativeOptions.retry = options.retry;
+  }
+  if (options.patchFrom) {
+    nativeOptions.patchFrom = options.patchFrom;
+  }
+  if (options.encrypt) {
+    nativeOptions.encrypt = options.encrypt;
+  }
+  if (options.ranges) {
+    nativeOptions.ranges = options.ranges;
+  }
+  if (options.mirrors) {
+    nativeOptions.mirrors = options.mirrors;
+  }
+  if (options.coalesce === false) {
+    nativeOptions.coalesce = false;
+  }
+
   const task = new DownloadTask({
     id: options.id,
     metadata: metadata,
@@ -217,19 +679,28 @@ export function download(options: DownloadOptions): DownloadTask {
   tasksMap.set(options.id, task);
 
   try {
-    NativeRNBackgroundDownloader.downloadFile(
-      options.url,
-      destination,
-      options.id,
-      headers as Object,
-      JSON.stringify(metadata),
-      config.progressInterval,
-      config.progressMinBytes,
-      isAllowedOverRoaming,
-      isAllowedOverMetered,
-      isNotificationVisible,
-      options.notificationTitle || ""
-    );
+    // Invalid options are rejected asynchronously, so they fail the task like any other error.
+    Promise.resolve(
+      NativeRNBackgroundDownloader.downloadFile(
+        options.url,
+        destination,
+        options.id,
+        headers as Object,
+        JSON.stringify(metadata),
+        config.progressInterval,
+        config.progressMinBytes,
+        isAllowedOverRoaming,
+        isAllowedOverMetered,
+        isNotificationVisible,
+        options.notificationTitle || "",
+        nativeOptions
+      )
+    ).catch((error: any) => {
+      task.onError({
+        error: error?.message || "Download failed to start",
+        errorCode: -1,
+      });
+    });
   } catch (error: any) {
     console.error("[RNBackgroundDownloader] Error in download:", error);
     task.onError({ error: error.message || "Download failed to start" });
@@ -248,6 +719,15 @@ export const directories = {
 
 export default {
   download,
+  setGroupConfig,
+  onGroupProgress,
+  onStorageEviction,
+  touchStorageFile,
+  getEventMetrics,
+  getNetworkMetrics,
+  getHostQueues,
+  getTaskStatuses,
+  getTaskStatusesSync,
   checkForExistingDownloads,
   ensureDownloadsAreRunning,
   completeHandler,